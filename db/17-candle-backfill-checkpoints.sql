@@ -0,0 +1,33 @@
+-- Чекпоинты исторической догрузки свечей (POST /api/candles/minute/backfill, /api/candles/daily/backfill)
+create table invest.candle_backfill_checkpoints
+(
+    id              bigserial
+        primary key,
+    job_id          varchar(64)                            not null,
+    figi            varchar(255)                           not null,
+    candle_interval varchar(32)                            not null,
+    range_from      timestamp with time zone               not null,
+    range_to        timestamp with time zone               not null,
+    loaded_until    timestamp with time zone,
+    status          varchar(20)                            not null,
+    candles_loaded  bigint                   default 0     not null,
+    last_error      text,
+    created_at      timestamp with time zone default now() not null,
+    updated_at      timestamp with time zone default now() not null,
+    constraint uq_candle_backfill_checkpoints_job_figi unique (job_id, figi)
+);
+
+comment on table invest.candle_backfill_checkpoints is 'Чекпоинты исторической догрузки свечей: одна строка на задание и инструмент';
+
+comment on column invest.candle_backfill_checkpoints.job_id is 'ID задания догрузки';
+comment on column invest.candle_backfill_checkpoints.figi is 'Уникальный идентификатор инструмента (FIGI)';
+comment on column invest.candle_backfill_checkpoints.candle_interval is 'Интервал свечей (CANDLE_INTERVAL_1_MIN, CANDLE_INTERVAL_DAY)';
+comment on column invest.candle_backfill_checkpoints.range_from is 'Начало диапазона догрузки';
+comment on column invest.candle_backfill_checkpoints.range_to is 'Конец диапазона догрузки (не включительно)';
+comment on column invest.candle_backfill_checkpoints.loaded_until is 'Граница, до которой свечи уже записаны';
+comment on column invest.candle_backfill_checkpoints.status is 'Статус: PENDING, RUNNING, COMPLETED, FAILED';
+comment on column invest.candle_backfill_checkpoints.candles_loaded is 'Количество вставленных свечей';
+comment on column invest.candle_backfill_checkpoints.last_error is 'Текст последней ошибки';
+
+create index idx_candle_backfill_checkpoints_job_status
+    on invest.candle_backfill_checkpoints (job_id, status);
@@ -0,0 +1,60 @@
+-- Задания загрузки свечей с арендой элементов воркерами (POST /api/ingestion/jobs)
+create table invest.ingestion_jobs
+(
+    id          varchar(64)                            not null
+        primary key,
+    job_type    varchar(32)                            not null,
+    status      varchar(20)                            not null,
+    date_from   date                                   not null,
+    date_to     date                                   not null,
+    total_items integer                  default 0     not null,
+    source      varchar(64),
+    created_at  timestamp with time zone default now() not null,
+    updated_at  timestamp with time zone default now() not null,
+    finished_at timestamp with time zone
+);
+
+comment on table invest.ingestion_jobs is 'Задания загрузки данных: одна строка на задание';
+
+comment on column invest.ingestion_jobs.job_type is 'Тип задания: MINUTE_CANDLES, DAILY_CANDLES';
+comment on column invest.ingestion_jobs.status is 'Статус: PENDING, RUNNING, COMPLETED, FAILED';
+comment on column invest.ingestion_jobs.date_from is 'Первая дата загрузки (включительно)';
+comment on column invest.ingestion_jobs.date_to is 'Последняя дата загрузки (включительно)';
+comment on column invest.ingestion_jobs.total_items is 'Количество элементов (инструмент, дата)';
+comment on column invest.ingestion_jobs.source is 'Источник задания: API, SCHEDULER';
+
+create table invest.ingestion_job_items
+(
+    id             bigserial
+        primary key,
+    job_id         varchar(64)                            not null
+        references invest.ingestion_jobs (id) on delete cascade,
+    job_type       varchar(32)                            not null,
+    figi           varchar(255)                           not null,
+    trade_date     date                                   not null,
+    status         varchar(20)                            not null,
+    attempts       integer                  default 0     not null,
+    lease_owner    varchar(128),
+    lease_until    timestamp with time zone,
+    candles_loaded integer                  default 0     not null,
+    last_error     text,
+    updated_at     timestamp with time zone default now() not null,
+    constraint uq_ingestion_job_items_job_figi_date unique (job_id, figi, trade_date)
+);
+
+comment on table invest.ingestion_job_items is 'Элементы заданий загрузки: одна строка на задание, инструмент и дату';
+
+comment on column invest.ingestion_job_items.status is 'Статус: PENDING, RUNNING, DONE, FAILED';
+comment on column invest.ingestion_job_items.attempts is 'Количество захватов элемента воркерами';
+comment on column invest.ingestion_job_items.lease_owner is 'ID экземпляра сервиса, обрабатывающего элемент';
+comment on column invest.ingestion_job_items.lease_until is 'Срок аренды: после него элемент RUNNING снова доступен для захвата';
+comment on column invest.ingestion_job_items.candles_loaded is 'Количество вставленных свечей';
+comment on column invest.ingestion_job_items.last_error is 'Текст последней ошибки';
+
+-- Захват очереди: частичный индекс по незавершенным элементам
+create index idx_ingestion_job_items_claimable
+    on invest.ingestion_job_items (id)
+    where status in ('PENDING', 'RUNNING');
+
+create index idx_ingestion_job_items_job_status
+    on invest.ingestion_job_items (job_id, status);
@@ -0,0 +1,43 @@
+-- Координация запусков по расписанию между экземплярами сервиса (scheduler.cluster.enabled=true)
+create table invest.scheduled_runs
+(
+    task_name   varchar(128)                           not null,
+    run_date    date                                   not null,
+    owner       varchar(128)                           not null,
+    status      varchar(20)  default 'RUNNING'         not null,
+    lease_until timestamp with time zone,
+    attempts    integer      default 1                 not null,
+    started_at  timestamp with time zone default now() not null,
+    finished_at timestamp with time zone,
+    constraint pk_scheduled_runs primary key (task_name, run_date)
+);
+
+comment on table invest.scheduled_runs is 'Запуски задач по расписанию: задачу за дату выполняет узел, удерживающий аренду строки';
+
+comment on column invest.scheduled_runs.task_name is 'Имя задачи по расписанию';
+comment on column invest.scheduled_runs.run_date is 'Дата запуска по московскому времени';
+comment on column invest.scheduled_runs.owner is 'ID узла, выполняющего задачу';
+comment on column invest.scheduled_runs.status is 'Статус: RUNNING, DONE, FAILED';
+comment on column invest.scheduled_runs.lease_until is 'Срок аренды: владелец продлевает его, после истечения запуск RUNNING забирает другой узел';
+comment on column invest.scheduled_runs.attempts is 'Число попыток запуска, ограничено scheduler.cluster.max-attempts';
+
+create table invest.scheduled_run_partitions
+(
+    task_name    varchar(128)                           not null,
+    run_date     date                                   not null,
+    partition_no integer                                not null,
+    status       varchar(20)                            not null,
+    owner        varchar(128),
+    lease_until  timestamp with time zone,
+    attempts     integer      default 0                 not null,
+    updated_at   timestamp with time zone default now() not null,
+    constraint pk_scheduled_run_partitions primary key (task_name, run_date, partition_no)
+);
+
+comment on table invest.scheduled_run_partitions is 'Партиции FIGI запусков по расписанию, разбираемые узлами через FOR UPDATE SKIP LOCKED';
+
+comment on column invest.scheduled_run_partitions.partition_no is 'Номер партиции: hash(figi) mod scheduler.cluster.partitions';
+comment on column invest.scheduled_run_partitions.status is 'Статус: PENDING, RUNNING, DONE, FAILED';
+comment on column invest.scheduled_run_partitions.owner is 'ID узла, обрабатывающего партицию';
+comment on column invest.scheduled_run_partitions.lease_until is 'Срок аренды: после него партиция RUNNING снова доступна для захвата';
+comment on column invest.scheduled_run_partitions.attempts is 'Число захватов партиции: FAILED и просроченные RUNNING повторяются до scheduler.cluster.max-attempts';
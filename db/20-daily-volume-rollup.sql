@@ -0,0 +1,77 @@
+-- Инкрементальная агрегация объемов: одна строка на инструмент и торговый день
+-- Заменяет полный REFRESH материализованного представления daily_volume_aggregation
+create table invest.daily_volume_rollup
+(
+    figi                             varchar(255)                           not null,
+    trade_date                       date                                   not null,
+    instrument_type                  varchar(20)                            not null,
+    total_volume                     bigint                                 not null,
+    total_candles                    bigint                                 not null,
+    morning_session_volume           bigint                                 not null,
+    morning_session_candles          bigint                                 not null,
+    main_session_volume              bigint                                 not null,
+    main_session_candles             bigint                                 not null,
+    evening_session_volume           bigint                                 not null,
+    evening_session_candles          bigint                                 not null,
+    weekend_exchange_session_volume  bigint                                 not null,
+    weekend_exchange_session_candles bigint                                 not null,
+    weekend_otc_session_volume       bigint                                 not null,
+    weekend_otc_session_candles      bigint                                 not null,
+    first_candle_time                timestamp with time zone               not null,
+    last_candle_time                 timestamp with time zone               not null,
+    updated_at                       timestamp with time zone default now() not null,
+    constraint pk_daily_volume_rollup primary key (figi, trade_date)
+);
+
+create index idx_daily_volume_rollup_trade_date on invest.daily_volume_rollup (trade_date);
+
+comment on table invest.daily_volume_rollup is 'Объемы и количество минутных свечей по сессиям за день; пересчитываются только загруженные дни';
+
+comment on column invest.daily_volume_rollup.trade_date is 'Торговый день по московскому времени';
+comment on column invest.daily_volume_rollup.instrument_type is 'Тип инструмента: share, future, unknown';
+comment on column invest.daily_volume_rollup.morning_session_volume is 'Объем утренней сессии (будни 06:59:59-09:59)';
+comment on column invest.daily_volume_rollup.main_session_volume is 'Объем основной сессии (будни 10:00-18:59)';
+comment on column invest.daily_volume_rollup.evening_session_volume is 'Объем вечерней сессии (будни 19:00-23:50)';
+comment on column invest.daily_volume_rollup.weekend_exchange_session_volume is 'Объем биржевой сессии выходного дня (10:00-18:59)';
+comment on column invest.daily_volume_rollup.weekend_otc_session_volume is 'Объем внебиржевой сессии выходного дня (02:00-09:59, 19:00-23:50)';
+
+-- История заполняется в db/21-minute-candle-session-code.sql по одной партиции minute_candles
+-- за транзакцию (после вычисления session_code), поэтому здесь таблица остается пустой
+
+-- daily_volume_aggregation становится обычным представлением над rollup (те же колонки)
+drop function if exists invest.update_daily_volume_aggregation();
+drop materialized view if exists invest.daily_volume_aggregation;
+
+create view invest.daily_volume_aggregation as
+select r.figi,
+       max(r.instrument_type)                                                                     as instrument_type,
+       sum(r.total_volume)                                                                        as total_volume,
+       sum(r.total_candles)                                                                       as total_candles,
+       round(sum(r.total_volume)::numeric / nullif(sum(r.total_candles), 0), 2)                   as avg_volume_per_candle,
+       sum(r.morning_session_volume)                                                              as morning_session_volume,
+       sum(r.morning_session_candles)                                                             as morning_session_candles,
+       coalesce(round(sum(r.morning_session_volume)::numeric / nullif(sum(r.morning_session_candles), 0), 2), 0)
+                                                                                                  as morning_avg_volume_per_candle,
+       sum(r.main_session_volume)                                                                 as main_session_volume,
+       sum(r.main_session_candles)                                                                as main_session_candles,
+       coalesce(round(sum(r.main_session_volume)::numeric / nullif(sum(r.main_session_candles), 0), 2), 0)
+                                                                                                  as main_avg_volume_per_candle,
+       sum(r.evening_session_volume)                                                              as evening_session_volume,
+       sum(r.evening_session_candles)                                                             as evening_session_candles,
+       coalesce(round(sum(r.evening_session_volume)::numeric / nullif(sum(r.evening_session_candles), 0), 2), 0)
+                                                                                                  as evening_avg_volume_per_candle,
+       sum(r.weekend_exchange_session_volume)                                                     as weekend_exchange_session_volume,
+       sum(r.weekend_exchange_session_candles)                                                    as weekend_exchange_session_candles,
+       coalesce(round(sum(r.weekend_exchange_session_volume)::numeric / nullif(sum(r.weekend_exchange_session_candles), 0), 2), 0)
+                                                                                                  as weekend_exchange_avg_volume_per_candle,
+       sum(r.weekend_otc_session_volume)                                                          as weekend_otc_session_volume,
+       sum(r.weekend_otc_session_candles)                                                         as weekend_otc_session_candles,
+       coalesce(round(sum(r.weekend_otc_session_volume)::numeric / nullif(sum(r.weekend_otc_session_candles), 0), 2), 0)
+                                                                                                  as weekend_otc_avg_volume_per_candle,
+       (min(r.first_candle_time) at time zone 'Europe/Moscow')                                    as first_candle_time,
+       (max(r.last_candle_time) at time zone 'Europe/Moscow')                                     as last_candle_time,
+       (max(r.updated_at) at time zone 'Europe/Moscow')                                           as last_updated
+from invest.daily_volume_rollup r
+group by r.figi;
+
+comment on view invest.daily_volume_aggregation is 'Агрегация объемов по FIGI за все время: сумма строк daily_volume_rollup';
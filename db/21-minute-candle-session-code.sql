@@ -0,0 +1,200 @@
+-- Код торговой сессии минутной свечи, вычисляемый один раз при записи
+-- Новые свечи получают код в приложении (MinuteCandleMapper по кэшу special_trading_hours,
+-- TradingSessionCalendar), функция ниже повторяет ту же логику для заполнения истории
+-- Коды совпадают с enum TradingSession:
+--   0 - вне сессий (или вне специальных торговых часов инструмента)
+--   1 - утренняя (будни 06:59:59-09:59)
+--   2 - основная (будни 10:00-18:59)
+--   3 - вечерняя (будни 19:00-23:50)
+--   4 - биржевая выходного дня (10:00-18:59)
+--   5 - внебиржевая выходного дня (02:00-09:59, 19:00-23:50)
+alter table invest.minute_candles add column if not exists session_code smallint;
+
+comment on column invest.minute_candles.session_code is 'Код торговой сессии (0 - вне сессий, 1 - утренняя, 2 - основная, 3 - вечерняя, 4 - биржевая выходного дня, 5 - внебиржевая выходного дня)';
+
+create index if not exists idx_special_trading_hours_figi_active
+    on invest_candles.special_trading_hours (figi) where is_active;
+
+create or replace function invest.minute_candle_session_code(p_figi varchar, p_time timestamp with time zone)
+    returns smallint
+    language plpgsql
+    stable
+as
+$$
+DECLARE
+    local_ts   timestamp := p_time AT TIME ZONE 'Europe/Moscow';
+    local_time time      := local_ts::time;
+    is_weekend boolean   := extract(isodow FROM local_ts) > 5;
+    in_special boolean;
+BEGIN
+    -- Если для инструмента заданы специальные часы, свечи вне них не относятся ни к одной сессии
+    SELECT bool_or((h.start_hour, h.start_minute) <= (extract(hour FROM local_time)::int, extract(minute FROM local_time)::int)
+                   AND (extract(hour FROM local_time)::int, extract(minute FROM local_time)::int) <= (h.end_hour, h.end_minute))
+    INTO in_special
+    FROM invest_candles.special_trading_hours h
+    WHERE h.figi = p_figi
+      AND h.is_active
+      AND h.day_type IN ('all', CASE WHEN is_weekend THEN 'weekend' ELSE 'weekday' END);
+
+    IF in_special IS FALSE THEN
+        RETURN 0;
+    END IF;
+
+    IF NOT is_weekend THEN
+        RETURN CASE
+                   WHEN local_time >= '06:59:59' AND local_time < '10:00' THEN 1
+                   WHEN local_time >= '10:00' AND local_time < '19:00' THEN 2
+                   WHEN local_time >= '19:00' AND local_time < '23:51' THEN 3
+                   ELSE 0
+            END;
+    END IF;
+
+    RETURN CASE
+               WHEN local_time >= '10:00' AND local_time < '19:00' THEN 4
+               WHEN local_time >= '02:00' AND local_time < '10:00' THEN 5
+               WHEN local_time >= '19:00' AND local_time < '23:51' THEN 5
+               ELSE 0
+        END;
+END;
+$$;
+
+alter function invest.minute_candle_session_code(varchar, timestamp with time zone) owner to postgres;
+
+grant execute on function invest.minute_candle_session_code(varchar, timestamp with time zone) to admin;
+
+comment on function invest.minute_candle_session_code(varchar, timestamp with time zone) is 'Код торговой сессии свечи по московскому времени с учетом special_trading_hours (заполнение истории; новые свечи - TradingSessionCalendar в приложении)';
+
+-- calculate_minute_candle_statistics остается не подключенной к таблице: статистика и session_code
+-- приходят вместе со свечой, запись через COPY не вызывает plpgsql на каждую строку.
+-- Триггер, созданный ранней версией скрипта, снимается
+drop trigger if exists trg_minute_candles_statistics on invest.minute_candles;
+
+-- Заполнение session_code и daily_volume_rollup по истории: одна партиция (торговый день) за транзакцию,
+-- поэтому блокировки и WAL ограничены днем, а прерванный скрипт можно запустить повторно.
+-- COMMIT внутри DO требует запуска вне явной транзакции (psql без --single-transaction)
+DO
+$$
+DECLARE
+    part regclass;
+BEGIN
+    FOR part IN SELECT i.inhrelid::regclass
+                FROM pg_inherits i
+                WHERE i.inhparent = 'invest.minute_candles'::regclass
+                ORDER BY i.inhrelid::regclass::text
+        LOOP
+            EXECUTE format('update %s set session_code = invest.minute_candle_session_code(figi, time) where session_code is null',
+                           part);
+
+            EXECUTE format($sql$
+            insert into invest.daily_volume_rollup
+            select mc.figi,
+                   (mc.time at time zone 'Europe/Moscow')::date,
+                   case when s.figi is not null then 'share' when f.figi is not null then 'future' else 'unknown' end,
+                   sum(mc.volume),
+                   count(*),
+                   coalesce(sum(mc.volume) filter (where mc.session_code = 1), 0),
+                   count(*) filter (where mc.session_code = 1),
+                   coalesce(sum(mc.volume) filter (where mc.session_code = 2), 0),
+                   count(*) filter (where mc.session_code = 2),
+                   coalesce(sum(mc.volume) filter (where mc.session_code = 3), 0),
+                   count(*) filter (where mc.session_code = 3),
+                   coalesce(sum(mc.volume) filter (where mc.session_code = 4), 0),
+                   count(*) filter (where mc.session_code = 4),
+                   coalesce(sum(mc.volume) filter (where mc.session_code = 5), 0),
+                   count(*) filter (where mc.session_code = 5),
+                   min(mc.time),
+                   max(mc.time),
+                   now()
+            from %s mc
+                     left join invest.shares s on s.figi = mc.figi
+                     left join invest.futures f on f.figi = mc.figi
+            group by mc.figi, (mc.time at time zone 'Europe/Moscow')::date, s.figi, f.figi
+            on conflict (figi, trade_date) do update
+                set instrument_type                  = excluded.instrument_type,
+                    total_volume                     = excluded.total_volume,
+                    total_candles                    = excluded.total_candles,
+                    morning_session_volume           = excluded.morning_session_volume,
+                    morning_session_candles          = excluded.morning_session_candles,
+                    main_session_volume              = excluded.main_session_volume,
+                    main_session_candles             = excluded.main_session_candles,
+                    evening_session_volume           = excluded.evening_session_volume,
+                    evening_session_candles          = excluded.evening_session_candles,
+                    weekend_exchange_session_volume  = excluded.weekend_exchange_session_volume,
+                    weekend_exchange_session_candles = excluded.weekend_exchange_session_candles,
+                    weekend_otc_session_volume       = excluded.weekend_otc_session_volume,
+                    weekend_otc_session_candles      = excluded.weekend_otc_session_candles,
+                    first_candle_time                = excluded.first_candle_time,
+                    last_candle_time                 = excluded.last_candle_time,
+                    updated_at                       = excluded.updated_at
+            $sql$, part);
+
+            COMMIT;
+        END LOOP;
+END;
+$$;
+
+create index if not exists idx_minute_candles_trade_date_session
+    on invest.minute_candles (((time AT TIME ZONE 'Europe/Moscow')::date), session_code);
+
+-- today_volume_view: группировка по session_code вместо разбора времени в каждой колонке
+drop view if exists invest.today_volume_view;
+
+create view invest.today_volume_view as
+select t.figi,
+       t.instrument_type,
+       t.trade_date,
+       t.total_volume,
+       t.total_candles,
+       round(t.total_volume::numeric / nullif(t.total_candles, 0), 2)                                 as avg_volume_per_candle,
+       t.morning_session_volume,
+       t.morning_session_candles,
+       coalesce(round(t.morning_session_volume::numeric / nullif(t.morning_session_candles, 0), 2), 0) as morning_avg_volume_per_candle,
+       t.main_session_volume,
+       t.main_session_candles,
+       coalesce(round(t.main_session_volume::numeric / nullif(t.main_session_candles, 0), 2), 0)       as main_avg_volume_per_candle,
+       t.evening_session_volume,
+       t.evening_session_candles,
+       coalesce(round(t.evening_session_volume::numeric / nullif(t.evening_session_candles, 0), 2), 0) as evening_avg_volume_per_candle,
+       t.weekend_exchange_session_volume,
+       t.weekend_exchange_session_candles,
+       coalesce(round(t.weekend_exchange_session_volume::numeric / nullif(t.weekend_exchange_session_candles, 0), 2), 0)
+                                                                                                       as weekend_exchange_avg_volume_per_candle,
+       t.weekend_otc_session_volume,
+       t.weekend_otc_session_candles,
+       coalesce(round(t.weekend_otc_session_volume::numeric / nullif(t.weekend_otc_session_candles, 0), 2), 0)
+                                                                                                       as weekend_otc_avg_volume_per_candle,
+       t.first_candle_time,
+       t.last_candle_time,
+       (now() at time zone 'Europe/Moscow')                                                            as last_updated
+from (select mc.figi,
+             case when s.figi is not null then 'share' when f.figi is not null then 'future' else 'unknown' end as instrument_type,
+             (now() at time zone 'Europe/Moscow')::date                                                     as trade_date,
+             sum(mc.volume)                                                                                 as total_volume,
+             count(*)                                                                                       as total_candles,
+             coalesce(sum(mc.volume) filter (where mc.session_code = 1), 0)                                 as morning_session_volume,
+             count(*) filter (where mc.session_code = 1)                                                    as morning_session_candles,
+             coalesce(sum(mc.volume) filter (where mc.session_code = 2), 0)                                 as main_session_volume,
+             count(*) filter (where mc.session_code = 2)                                                    as main_session_candles,
+             coalesce(sum(mc.volume) filter (where mc.session_code = 3), 0)                                 as evening_session_volume,
+             count(*) filter (where mc.session_code = 3)                                                    as evening_session_candles,
+             coalesce(sum(mc.volume) filter (where mc.session_code = 4), 0)                                 as weekend_exchange_session_volume,
+             count(*) filter (where mc.session_code = 4)                                                    as weekend_exchange_session_candles,
+             coalesce(sum(mc.volume) filter (where mc.session_code = 5), 0)                                 as weekend_otc_session_volume,
+             count(*) filter (where mc.session_code = 5)                                                    as weekend_otc_session_candles,
+             min(mc.time)                                                                                   as first_candle_time,
+             max(mc.time)                                                                                   as last_candle_time
+      from invest.minute_candles mc
+               left join invest.shares s on s.figi = mc.figi
+               left join invest.futures f on f.figi = mc.figi
+      -- Диапазон по времени: читается только партиция текущего дня
+      where mc.time >= (now() at time zone 'Europe/Moscow')::date::timestamp at time zone 'Europe/Moscow'
+        and mc.time < ((now() at time zone 'Europe/Moscow')::date + 1)::timestamp at time zone 'Europe/Moscow'
+      group by mc.figi, s.figi, f.figi) t
+order by t.figi;
+
+comment on view invest.today_volume_view is 'Объемы минутных свечей за текущий день (по Москве) в разрезе session_code';
+
+comment on column invest.today_volume_view.figi is 'Уникальный идентификатор инструмента (Financial Instrument Global Identifier)';
+
+alter table invest.today_volume_view
+    owner to postgres;
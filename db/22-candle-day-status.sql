@@ -0,0 +1,24 @@
+-- Отметки о полностью загруженных днях свечей инструмента
+-- Свечи завершенного дня неизменны: отмеченный день отдается из БД/кэша без запроса в API
+create table if not exists invest.candle_day_status
+(
+    figi            varchar(255)                           not null,
+    candle_interval varchar(32)                            not null,
+    trade_date      date                                   not null,
+    candles_count   integer                  default 0     not null,
+    loaded_at       timestamp with time zone default now() not null,
+    constraint pk_candle_day_status primary key (figi, candle_interval, trade_date)
+);
+
+comment on table invest.candle_day_status is 'Дни (по Москве), за которые свечи инструмента полностью загружены из API';
+
+comment on column invest.candle_day_status.candle_interval is 'Интервал свечей: CANDLE_INTERVAL_1_MIN или CANDLE_INTERVAL_DAY';
+
+comment on column invest.candle_day_status.trade_date is 'Торговый день по московскому времени';
+
+comment on column invest.candle_day_status.candles_count is 'Количество завершенных свечей, полученных из API за день';
+
+comment on column invest.candle_day_status.loaded_at is 'Время последней загрузки дня';
+
+alter table invest.candle_day_status
+    owner to postgres;
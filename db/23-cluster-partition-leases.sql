@@ -0,0 +1,29 @@
+-- Распределение партиций FIGI долгоживущих задач (потоковая загрузка) между экземплярами сервиса
+create table invest.cluster_members
+(
+    resource    varchar(128)             not null,
+    node_id     varchar(128)             not null,
+    lease_until timestamp with time zone not null,
+    constraint pk_cluster_members primary key (resource, node_id)
+);
+
+comment on table invest.cluster_members is 'Узлы, участвующие в распределении партиций ресурса; строка с истекшей арендой не учитывается';
+
+comment on column invest.cluster_members.resource is 'Имя ресурса, например market-data-stream';
+comment on column invest.cluster_members.node_id is 'ID узла (scheduler.cluster.node-id)';
+comment on column invest.cluster_members.lease_until is 'Срок аренды, продлевается узлом при каждой перебалансировке';
+
+create table invest.cluster_partition_leases
+(
+    resource     varchar(128) not null,
+    partition_no integer      not null,
+    owner        varchar(128),
+    lease_until  timestamp with time zone,
+    constraint pk_cluster_partition_leases primary key (resource, partition_no)
+);
+
+comment on table invest.cluster_partition_leases is 'Владельцы партиций FIGI ресурса: каждый узел держит не больше ceil(партиций / живых узлов)';
+
+comment on column invest.cluster_partition_leases.partition_no is 'Номер партиции: hash(figi) mod scheduler.cluster.partitions';
+comment on column invest.cluster_partition_leases.owner is 'ID узла-владельца, NULL - партиция свободна';
+comment on column invest.cluster_partition_leases.lease_until is 'Срок аренды: после него партицию забирает другой узел';
@@ -0,0 +1,103 @@
+#!/usr/bin/env python3
+"""
+Сравнение двух результатов JMH (-rf json): базового и проверяемого.
+
+Запуск бенчмарков (результат в target/jmh-result.json):
+    mvn -Pjmh process-classes exec:exec
+    mvn -Pjmh process-classes exec:exec -Djmh.args="CandleConversion -prof gc -rf json -rff target/jmh-before.json"
+
+Сравнение:
+    python3 scripts/jmh-compare.py target/jmh-before.json target/jmh-after.json [--threshold 5]
+
+Для каждого бенчмарка (с параметрами) выводит пропускную способность и нормированное
+выделение памяти (gc.alloc.rate.norm, байт на операцию, при запуске с -prof gc) и изменение
+в процентах. Код возврата 1, если пропускная способность упала или выделение памяти выросло
+больше чем на порог (по умолчанию 5%) с учетом погрешности измерений.
+"""
+
+import argparse
+import json
+import sys
+
+ALLOC_METRIC = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        results = {}
+        for entry in json.load(f):
+            params = entry.get("params") or {}
+            key = entry["benchmark"].rsplit(".", 2)[-2] + "." + entry["benchmark"].rsplit(".", 1)[-1]
+            if params:
+                key += " [" + ", ".join(f"{k}={v}" for k, v in sorted(params.items())) + "]"
+            primary = entry["primaryMetric"]
+            alloc = (entry.get("secondaryMetrics") or {}).get(ALLOC_METRIC)
+            results[key] = {
+                "mode": entry.get("mode"),
+                "score": primary["score"],
+                "error": primary.get("scoreError") or 0.0,
+                "unit": primary["scoreUnit"],
+                "alloc": alloc["score"] if alloc else None,
+            }
+        return results
+
+
+def percent(before, after):
+    if before == 0:
+        return 0.0
+    return (after - before) / before * 100.0
+
+
+def is_throughput(mode):
+    # thrpt - больше лучше; avgt/sample/ss - меньше лучше
+    return mode == "thrpt"
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Сравнение результатов JMH")
+    parser.add_argument("baseline", help="JSON-результат до изменения")
+    parser.add_argument("candidate", help="JSON-результат после изменения")
+    parser.add_argument("--threshold", type=float, default=5.0, help="допустимое ухудшение, %% (по умолчанию 5)")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    candidate = load(args.candidate)
+
+    header = f"{'Бенчмарк':<60} {'До':>14} {'После':>14} {'Изм.':>8} {'Байт/оп до':>12} {'после':>12} {'Изм.':>8}"
+    print(header)
+    print("-" * len(header))
+
+    regressions = []
+    for key in sorted(set(baseline) | set(candidate)):
+        before, after = baseline.get(key), candidate.get(key)
+        if before is None or after is None:
+            print(f"{key:<60} {'только ' + ('после' if before is None else 'до'):>14}")
+            continue
+
+        score_change = percent(before["score"], after["score"])
+        line = f"{key:<60} {before['score']:>14.2f} {after['score']:>14.2f} {score_change:>+7.1f}%"
+
+        # Ухудшение засчитывается, только если оно больше порога и выходит за погрешность обоих замеров
+        worse = -score_change if is_throughput(before["mode"]) else score_change
+        noise = before["error"] + after["error"]
+        if worse > args.threshold and abs(after["score"] - before["score"]) > noise:
+            regressions.append(f"{key}: {before['unit']} {score_change:+.1f}%")
+
+        if before["alloc"] is not None and after["alloc"] is not None:
+            alloc_change = percent(before["alloc"], after["alloc"])
+            line += f" {before['alloc']:>12.0f} {after['alloc']:>12.0f} {alloc_change:>+7.1f}%"
+            if alloc_change > args.threshold:
+                regressions.append(f"{key}: {ALLOC_METRIC} {alloc_change:+.1f}%")
+        print(line)
+
+    if regressions:
+        print()
+        print(f"Ухудшение больше {args.threshold}%:")
+        for regression in regressions:
+            print("  " + regression)
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
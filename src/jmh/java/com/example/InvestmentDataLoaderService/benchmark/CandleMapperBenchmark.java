@@ -0,0 +1,90 @@
+package com.example.InvestmentDataLoaderService.benchmark;
+
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.util.DailyCandleMapper;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг свечей: DTO -> сущность, расчет расширенной статистики, сущность -> расширенный DTO
+ *
+ * <p>Одна операция - обработка торгового дня минутных свечей ({@value SyntheticCandles#MINUTES_PER_DAY})
+ * или года дневных свечей (250).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleMapperBenchmark {
+
+    private static final int DAILY_CANDLES = 250;
+
+    private List<CandleDto> minuteCandles;
+    private CandleBatch minuteBatch;
+    private List<MinuteCandleEntity> minuteEntities;
+    private List<DailyCandleEntity> dailyEntities;
+
+    @Setup
+    public void setUp() {
+        minuteCandles = SyntheticCandles.minuteCandles(SyntheticCandles.MINUTES_PER_DAY);
+        minuteBatch = SyntheticCandles.minuteBatch(SyntheticCandles.MINUTES_PER_DAY);
+        minuteEntities = SyntheticCandles.minuteEntities(SyntheticCandles.MINUTES_PER_DAY);
+        dailyEntities = SyntheticCandles.dailyEntities(DAILY_CANDLES);
+    }
+
+    @Benchmark
+    public void minuteToEntity(Blackhole blackhole) {
+        for (CandleDto candle : minuteCandles) {
+            blackhole.consume(MinuteCandleMapper.toEntity(candle, TradingSessionCalendar.EMPTY));
+        }
+    }
+
+    @Benchmark
+    public void minuteBatchToEntity(Blackhole blackhole) {
+        // Тот же результат, что minuteToEntity, но статистика считается в long
+        for (int i = 0; i < minuteBatch.size(); i++) {
+            blackhole.consume(MinuteCandleMapper.toEntity(minuteBatch, i, TradingSessionCalendar.EMPTY));
+        }
+    }
+
+    @Benchmark
+    public void minuteCalculateExtendedStatistics(Blackhole blackhole) {
+        for (MinuteCandleEntity entity : minuteEntities) {
+            MinuteCandleMapper.calculateExtendedStatistics(entity);
+            blackhole.consume(entity.getAveragePrice());
+        }
+    }
+
+    @Benchmark
+    public void minuteToExtendedDto(Blackhole blackhole) {
+        for (CandleDto candle : minuteCandles) {
+            blackhole.consume(MinuteCandleMapper.toExtendedDto(candle));
+        }
+    }
+
+    @Benchmark
+    public void dailyToExtendedDto(Blackhole blackhole) {
+        for (DailyCandleEntity entity : dailyEntities) {
+            blackhole.consume(DailyCandleMapper.toExtendedDto(entity));
+        }
+    }
+}
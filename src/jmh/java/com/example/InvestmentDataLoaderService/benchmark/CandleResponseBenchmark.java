@@ -0,0 +1,92 @@
+package com.example.InvestmentDataLoaderService.benchmark;
+
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import com.example.InvestmentDataLoaderService.dto.MinuteCandleExtendedDto;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка ответа GET /api/candles/instrument/minute/{figi}/{date}: расширенные DTO,
+ * Map ответа с итогами и сериализация в JSON
+ *
+ * <p>{@link #buildResponse} повторяет код {@code CandlesInstrumentController}; при изменении
+ * контроллера бенчмарк нужно обновить вместе с ним.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleResponseBenchmark {
+
+    private List<CandleDto> candles;
+    private Map<String, Object> response;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        candles = SyntheticCandles.minuteCandles(SyntheticCandles.MINUTES_PER_DAY);
+        // Те же настройки дат, что у ObjectMapper Spring Boot
+        objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+        response = buildResponse();
+    }
+
+    @Benchmark
+    public Map<String, Object> buildResponse() {
+        List<MinuteCandleExtendedDto> allCandles = new ArrayList<>();
+        for (CandleDto candle : candles) {
+            allCandles.add(MinuteCandleMapper.toExtendedDto(candle));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("figi", SyntheticCandles.FIGI);
+        result.put("date", "2024-03-12");
+        result.put("candles", allCandles);
+        result.put("totalCandles", allCandles.size());
+
+        BigDecimal totalVolume = allCandles.stream()
+            .map(candle -> candle.volume() != null ? BigDecimal.valueOf(candle.volume()) : BigDecimal.ZERO)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal avgPrice = allCandles.stream()
+            .map(MinuteCandleExtendedDto::averagePrice)
+            .reduce(BigDecimal.ZERO, BigDecimal::add)
+            .divide(BigDecimal.valueOf(allCandles.size()), 2, RoundingMode.HALF_UP);
+        result.put("totalVolume", totalVolume);
+        result.put("averagePrice", avgPrice);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(buildResponse());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.InvestmentDataLoaderService.benchmark;
+
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+import com.google.protobuf.Timestamp;
+import ru.tinkoff.piapi.contract.v1.GetCandlesResponse;
+import ru.tinkoff.piapi.contract.v1.HistoricCandle;
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Синтетические данные для бенчмарков: ответы GetCandles, DTO и сущности свечей
+ *
+ * <p>Цены - случайное блуждание около 250 руб. с шагом 0.01 (как у ликвидных акций MOEX),
+ * минутные свечи идут подряд с 07:00 по Москве. Генератор детерминирован: одинаковый
+ * seed дает одинаковые данные во всех запусках, что нужно для сравнения результатов.</p>
+ */
+public final class SyntheticCandles {
+
+    /** Минутных свечей в торговом дне (утренняя + основная + вечерняя сессии) */
+    public static final int MINUTES_PER_DAY = 900;
+
+    public static final String FIGI = "BBG004730N88";
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final LocalDate TRADE_DATE = LocalDate.of(2024, 3, 12);
+    private static final long SEED = 42;
+
+    private SyntheticCandles() {
+    }
+
+    /**
+     * Ответ GetCandles с {@code count} минутными свечами
+     */
+    public static GetCandlesResponse minuteResponse(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long start = TRADE_DATE.atTime(7, 0).atZone(MOSCOW).toEpochSecond();
+        long priceKopecks = 25_000;
+        GetCandlesResponse.Builder response = GetCandlesResponse.newBuilder();
+        for (int i = 0; i < count; i++) {
+            long open = priceKopecks;
+            long close = Math.max(1, open + random.nextInt(-20, 21));
+            long high = Math.max(open, close) + random.nextInt(0, 10);
+            long low = Math.max(1, Math.min(open, close) - random.nextInt(0, 10));
+            priceKopecks = close;
+            response.addCandles(HistoricCandle.newBuilder()
+                .setOpen(quotation(open))
+                .setClose(quotation(close))
+                .setHigh(quotation(high))
+                .setLow(quotation(low))
+                .setVolume(random.nextLong(1, 50_000))
+                .setTime(Timestamp.newBuilder().setSeconds(start + i * 60L))
+                .setIsComplete(i < count - 1)
+                .build());
+        }
+        return response.build();
+    }
+
+    /**
+     * DTO минутных свечей, как их возвращает {@code TinkoffApiClient.getCandles}
+     */
+    public static List<CandleDto> minuteCandles(int count) {
+        List<CandleDto> candles = new ArrayList<>(count);
+        for (HistoricCandle candle : minuteResponse(count).getCandlesList()) {
+            candles.add(new CandleDto(FIGI, candle.getVolume(),
+                toBigDecimal(candle.getHigh()), toBigDecimal(candle.getLow()),
+                Instant.ofEpochSecond(candle.getTime().getSeconds()),
+                toBigDecimal(candle.getClose()), toBigDecimal(candle.getOpen()),
+                candle.getIsComplete()));
+        }
+        return candles;
+    }
+
+    /**
+     * Те же минутные свечи в компактном виде (цены в единицах 1e-9)
+     */
+    public static CandleBatch minuteBatch(int count) {
+        CandleBatch batch = new CandleBatch(FIGI, count);
+        for (HistoricCandle candle : minuteResponse(count).getCandlesList()) {
+            batch.add(candle.getTime().getSeconds(),
+                FixedPoint.of(candle.getOpen()), FixedPoint.of(candle.getHigh()),
+                FixedPoint.of(candle.getLow()), FixedPoint.of(candle.getClose()),
+                candle.getVolume(), candle.getIsComplete());
+        }
+        return batch;
+    }
+
+    /**
+     * Сущности минутных свечей с рассчитанной статистикой
+     */
+    public static List<MinuteCandleEntity> minuteEntities(int count) {
+        List<MinuteCandleEntity> entities = new ArrayList<>(count);
+        for (CandleDto candle : minuteCandles(count)) {
+            entities.add(new MinuteCandleEntity(candle.figi(), candle.volume(), candle.high(), candle.low(),
+                candle.time(), candle.close(), candle.open(), candle.isComplete()));
+        }
+        return entities;
+    }
+
+    /**
+     * Сущности дневных свечей (по одной на день подряд) с рассчитанной статистикой
+     */
+    public static List<DailyCandleEntity> dailyEntities(int count) {
+        List<DailyCandleEntity> entities = new ArrayList<>(count);
+        List<CandleDto> candles = minuteCandles(count);
+        for (int i = 0; i < count; i++) {
+            CandleDto candle = candles.get(i);
+            Instant day = TRADE_DATE.minusDays(count - i).atStartOfDay(MOSCOW).toInstant();
+            entities.add(new DailyCandleEntity(candle.figi(), candle.volume() * 900, candle.high(), candle.low(),
+                day, candle.close(), candle.open(), true));
+        }
+        return entities;
+    }
+
+    private static Quotation quotation(long kopecks) {
+        return Quotation.newBuilder()
+            .setUnits(kopecks / 100)
+            .setNano((int) (kopecks % 100) * 10_000_000)
+            .build();
+    }
+
+    private static BigDecimal toBigDecimal(Quotation quotation) {
+        return BigDecimal.valueOf(quotation.getUnits()).add(BigDecimal.valueOf(quotation.getNano()).movePointLeft(9));
+    }
+}
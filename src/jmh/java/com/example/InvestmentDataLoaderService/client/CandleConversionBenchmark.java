@@ -0,0 +1,66 @@
+package com.example.InvestmentDataLoaderService.client;
+
+import com.example.InvestmentDataLoaderService.benchmark.SyntheticCandles;
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.tinkoff.piapi.contract.v1.GetCandlesResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвертация ответа GetCandles (Quotation -> BigDecimal) в {@link CandleDto}
+ *
+ * <p>Замеряется {@link TinkoffApiClient#toCandleDtos} на ответе за торговый день (900 свечей)
+ * и на ответе за час; пропускная способность - ответов в секунду. Для сравнения - конвертация
+ * в {@link CandleBatch} с ценами в long (байты на свечу - {@code gc.alloc.rate.norm} / candles).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleConversionBenchmark {
+
+    @Param({"60", "900"})
+    public int candles;
+
+    private GetCandlesResponse response;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() {
+        response = SyntheticCandles.minuteResponse(candles);
+        responseBytes = response.toByteArray();
+    }
+
+    @Benchmark
+    public List<CandleDto> toCandleDtos() {
+        return TinkoffApiClient.toCandleDtos(SyntheticCandles.FIGI, response);
+    }
+
+    @Benchmark
+    public CandleBatch toCandleBatch() {
+        return TinkoffApiClient.toCandleBatch(SyntheticCandles.FIGI, response);
+    }
+
+    @Benchmark
+    public void parseAndConvert(Blackhole blackhole) throws Exception {
+        // Разбор protobuf из байтов - как после чтения из сокета, для сравнения с долей конвертации
+        GetCandlesResponse parsed = GetCandlesResponse.parseFrom(responseBytes);
+        blackhole.consume(TinkoffApiClient.toCandleDtos(SyntheticCandles.FIGI, parsed));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.InvestmentDataLoaderService.client;
+
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * gRPC-интерсептор, записывающий длительность и результат каждого вызова T-Invest API
+ *
+ * <p>Метод записывается как {@code Сервис/Метод} без пакета контракта
+ * (например, {@code MarketDataService/GetCandles}), результат - код gRPC-статуса.
+ * Повторные попытки видны как отдельные вызовы.</p>
+ */
+public class ApiMetricsInterceptor implements ClientInterceptor {
+
+    private final PipelineMetrics pipelineMetrics;
+
+    public ApiMetricsInterceptor(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions,
+                                                               Channel next) {
+        String methodTag = methodTag(method);
+
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                long startNanos = System.nanoTime();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        pipelineMetrics.recordApiCall(methodTag, status.getCode().name(), System.nanoTime() - startNanos);
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    static String methodTag(MethodDescriptor<?, ?> method) {
+        String serviceName = method.getServiceName();
+        String shortService = serviceName != null ? serviceName.substring(serviceName.lastIndexOf('.') + 1) : "unknown";
+        return shortService + "/" + method.getBareMethodName();
+    }
+}
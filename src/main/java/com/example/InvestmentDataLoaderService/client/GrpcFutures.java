@@ -0,0 +1,43 @@
+package com.example.InvestmentDataLoaderService.client;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Преобразование future gRPC-стабов в {@link CompletableFuture}
+ */
+final class GrpcFutures {
+
+    private GrpcFutures() {
+    }
+
+    /**
+     * Оборачивает {@link ListenableFuture} future-стаба
+     * Отмена или досрочное завершение с ошибкой (например, {@code orTimeout}) возвращенного future
+     * отменяет и gRPC-вызов
+     */
+    static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenableFuture) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(listenableFuture, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        }, MoreExecutors.directExecutor());
+        result.whenComplete((value, error) -> {
+            if (error != null && !listenableFuture.isDone()) {
+                listenableFuture.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.InvestmentDataLoaderService.client;
+
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import com.example.InvestmentDataLoaderService.service.ApiQuotaTracker;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * gRPC-интерсептор, записывающий квоты T-Invest API из метаданных ответа
+ *
+ * <p>Заголовки {@code x-ratelimit-*} приходят в headers успешного ответа
+ * и в trailers ответа с ошибкой (в том числе RESOURCE_EXHAUSTED), поэтому читаются оба.</p>
+ */
+public class RateLimitHeadersInterceptor implements ClientInterceptor {
+
+    static final Metadata.Key<String> LIMIT_HEADER =
+        Metadata.Key.of("x-ratelimit-limit", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> REMAINING_HEADER =
+        Metadata.Key.of("x-ratelimit-remaining", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> RESET_HEADER =
+        Metadata.Key.of("x-ratelimit-reset", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final ApiQuotaTracker quotaTracker;
+
+    public RateLimitHeadersInterceptor(ApiQuotaTracker quotaTracker) {
+        this.quotaTracker = quotaTracker;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions,
+                                                               Channel next) {
+        String fullMethodName = method.getFullMethodName();
+        ApiMethodGroup group = ApiMethodGroup.fromServiceName(method.getServiceName());
+
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onHeaders(Metadata responseHeaders) {
+                        recordQuota(fullMethodName, group, responseHeaders);
+                        super.onHeaders(responseHeaders);
+                    }
+
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        recordQuota(fullMethodName, group, trailers);
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    private void recordQuota(String fullMethodName, ApiMethodGroup group, Metadata metadata) {
+        if (metadata == null) {
+            return;
+        }
+        Long remaining = parse(metadata.get(REMAINING_HEADER));
+        Long reset = parse(metadata.get(RESET_HEADER));
+        if (remaining == null || reset == null) {
+            return;
+        }
+        Long limit = parse(metadata.get(LIMIT_HEADER));
+        quotaTracker.record(fullMethodName, group, limit != null ? limit.intValue() : null, remaining.intValue(), reset);
+    }
+
+    private static Long parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.InvestmentDataLoaderService.client;
 
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
 import com.example.InvestmentDataLoaderService.dto.CandleDto;
 import com.example.InvestmentDataLoaderService.entity.DividendEntity;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import com.example.InvestmentDataLoaderService.service.ApiQuotaTracker;
+import com.example.InvestmentDataLoaderService.service.ApiRateLimiter;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
 import com.google.protobuf.Timestamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.tinkoff.piapi.contract.v1.*;
 import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc.MarketDataServiceBlockingStub;
+import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc.MarketDataServiceFutureStub;
 import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc.InstrumentsServiceBlockingStub;
 import com.example.InvestmentDataLoaderService.dto.AssetFundamentalDto;
 import java.time.format.DateTimeFormatter;
@@ -15,12 +23,17 @@ import io.grpc.StatusRuntimeException;
 import io.grpc.Status;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Низкоуровневый клиент для работы с Tinkoff Invest API
@@ -30,13 +43,50 @@ import java.util.List;
 public class TinkoffApiClient {
 
     private static final Logger log = LoggerFactory.getLogger(TinkoffApiClient.class);
+
+    // Запас после сброса квоты на расхождение часов клиента и сервера
+    private static final int QUOTA_RESET_MARGIN_MS = 100;
+
+    // Повторные попытки получения свечей
+    private static final int CANDLES_MAX_RETRIES = 5;
+    private static final long CANDLES_BASE_RETRY_DELAY_MS = 2000;
+    // Таймаут одной попытки GetCandles через future-стаб; ожидание квоты лимитера в него не входит
+    private static final long CANDLES_CALL_TIMEOUT_SECONDS = 60;
+
+    // Имена методов для метрик повторных попыток (как в ApiMetricsInterceptor)
+    private static final String GET_CANDLES_METHOD = "MarketDataService/GetCandles";
+    private static final String GET_DIVIDENDS_METHOD = "InstrumentsService/GetDividends";
+
     private final MarketDataServiceBlockingStub marketDataService;
+    private final MarketDataServiceFutureStub marketDataFutureService;
     private final InstrumentsServiceBlockingStub instrumentsService;
+    private final ApiRateLimiter apiRateLimiter;
+    private final ApiQuotaTracker apiQuotaTracker;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean asyncStubsEnabled;
 
     public TinkoffApiClient(MarketDataServiceBlockingStub marketDataService, 
-                           InstrumentsServiceBlockingStub instrumentsService) {
+                           MarketDataServiceFutureStub marketDataFutureService,
+                           InstrumentsServiceBlockingStub instrumentsService,
+                           ApiRateLimiter apiRateLimiter,
+                           ApiQuotaTracker apiQuotaTracker,
+                           PipelineMetrics pipelineMetrics,
+                           @Value("${tinkoff.api.async-stubs:false}") boolean asyncStubsEnabled) {
         this.marketDataService = marketDataService;
+        this.marketDataFutureService = marketDataFutureService;
         this.instrumentsService = instrumentsService;
+        this.apiRateLimiter = apiRateLimiter;
+        this.apiQuotaTracker = apiQuotaTracker;
+        this.pipelineMetrics = pipelineMetrics;
+        this.asyncStubsEnabled = asyncStubsEnabled;
+    }
+
+    /**
+     * Включен ли режим неблокирующих gRPC-стабов ({@code tinkoff.api.async-stubs})
+     * В этом режиме сервисы используют {@link #getCandlesAsync} и не занимают поток пула на время запроса
+     */
+    public boolean isAsyncStubsEnabled() {
+        return asyncStubsEnabled;
     }
 
     /**
@@ -47,146 +97,227 @@ public class TinkoffApiClient {
             return new ArrayList<>();
         }
         
-        // Определяем интервал свечей
-        CandleInterval candleInterval = CandleInterval.CANDLE_INTERVAL_1_MIN;
-        if (interval != null && !interval.isEmpty()) {
+        GetCandlesRequest request = buildCandlesRequest(instrumentId, date, interval);
+
+        for (int attempt = 1; attempt <= CANDLES_MAX_RETRIES; attempt++) {
+            // Каждая попытка расходует квоту MarketDataService
+            if (!apiRateLimiter.acquire(ApiMethodGroup.MARKET_DATA)) {
+                break;
+            }
             try {
-                candleInterval = CandleInterval.valueOf(interval.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                candleInterval = CandleInterval.CANDLE_INTERVAL_1_MIN;
+                GetCandlesResponse response = marketDataService.getCandles(request);
+                return toCandleDtos(instrumentId, response);
+            
+            } catch (Exception e) {
+                if (attempt >= CANDLES_MAX_RETRIES) {
+                    log.error("Превышено максимальное количество попыток при получении свечей для {}: {}",
+                        instrumentId, e.getMessage());
+                    break;
+                }
+                long retryDelay = candlesRetryDelayMs(e, attempt);
+                pipelineMetrics.countRetry(GET_CANDLES_METHOD, PipelineMetrics.retryReason(e));
+                log.warn("Ошибка при получении свечей для {}, попытка {} из {}: {}. Задержка {}ms",
+                    instrumentId, attempt, CANDLES_MAX_RETRIES, e.getMessage(), retryDelay);
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         }
+        
+        return new ArrayList<>();
+    }
 
+    /**
+     * Неблокирующее получение свечей через future-стаб MarketDataService
+     *
+     * <p>Ожидание квоты, запрос и повторные попытки выполняются без блокировки потока:
+     * число запросов в полете ограничивается лимитером, а не размером пула потоков.
+     * Как и {@link #getCandles}, при исчерпании попыток возвращает пустой список.</p>
+     */
+    public CompletableFuture<List<CandleDto>> getCandlesAsync(String instrumentId, LocalDate date, String interval) {
+        if (instrumentId == null || instrumentId.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        Instant startTime = date.atStartOfDay(ZoneId.of("Europe/Moscow")).toInstant();
+        Instant endTime = date.plusDays(1).atStartOfDay(ZoneId.of("Europe/Moscow")).toInstant();
+        return getCandlesRangeAsync(instrumentId, startTime, endTime, interval)
+            .exceptionally(error -> new ArrayList<>());
+    }
+
+    /**
+     * Неблокирующее получение свечей за произвольный интервал времени
+     *
+     * <p>Интервал не должен превышать {@link #getMaxRequestWindow(String)} для выбранного интервала свечей.
+     * В отличие от {@link #getCandlesAsync}, после исчерпания попыток future завершается с ошибкой,
+     * чтобы вызывающий мог отличить сбой от отсутствия данных.</p>
+     */
+    public CompletableFuture<List<CandleDto>> getCandlesRangeAsync(String instrumentId, Instant from, Instant to, String interval) {
+        GetCandlesRequest request = buildCandlesRequest(instrumentId, from, to, parseCandleInterval(interval));
+        return getCandlesAsyncAttempt(instrumentId, request, 1)
+            .thenApply(response -> toCandleDtos(instrumentId, response));
+    }
+
+    /**
+     * То же, что {@link #getCandlesRangeAsync}, но свечи в компактном виде с ценами в long
+     * Для загрузчиков, которые пишут свечи в БД без промежуточных DTO
+     */
+    public CompletableFuture<CandleBatch> getCandleBatchRangeAsync(String instrumentId, Instant from, Instant to, String interval) {
+        GetCandlesRequest request = buildCandlesRequest(instrumentId, from, to, parseCandleInterval(interval));
+        return getCandlesAsyncAttempt(instrumentId, request, 1)
+            .thenApply(response -> toCandleBatch(instrumentId, response));
+    }
+
+    /**
+     * Максимальный интервал времени одного запроса GetCandles для интервала свечей
+     * Ограничения T-Invest API: https://developer.tbank.ru/invest/services/quotes/marketdata#getcandles
+     */
+    public static Duration getMaxRequestWindow(String interval) {
+        // Сравниваем по имени: часть интервалов есть не во всех версиях контракта
+        return switch (parseCandleInterval(interval).name()) {
+            case "CANDLE_INTERVAL_30_MIN" -> Duration.ofDays(2);
+            case "CANDLE_INTERVAL_HOUR" -> Duration.ofDays(7);
+            case "CANDLE_INTERVAL_2_HOUR", "CANDLE_INTERVAL_4_HOUR" -> Duration.ofDays(30);
+            case "CANDLE_INTERVAL_DAY" -> Duration.ofDays(365);
+            case "CANDLE_INTERVAL_WEEK" -> Duration.ofDays(730);
+            case "CANDLE_INTERVAL_MONTH" -> Duration.ofDays(3650);
+            default -> Duration.ofDays(1);
+        };
+    }
+
+    private CompletableFuture<GetCandlesResponse> getCandlesAsyncAttempt(String instrumentId, GetCandlesRequest request, int attempt) {
+        return apiRateLimiter.acquireAsync(ApiMethodGroup.MARKET_DATA)
+            .thenCompose(ignored -> GrpcFutures.toCompletableFuture(marketDataFutureService.getCandles(request))
+                .orTimeout(CANDLES_CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            .exceptionallyCompose(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (attempt >= CANDLES_MAX_RETRIES) {
+                    log.error("Превышено максимальное количество попыток при получении свечей для {}: {}",
+                        instrumentId, cause.getMessage());
+                    return CompletableFuture.failedFuture(cause);
+                }
+                long retryDelay = candlesRetryDelayMs(cause, attempt);
+                pipelineMetrics.countRetry(GET_CANDLES_METHOD, PipelineMetrics.retryReason(cause));
+                log.warn("Ошибка при получении свечей для {}, попытка {} из {}: {}. Задержка {}ms",
+                    instrumentId, attempt, CANDLES_MAX_RETRIES, cause.getMessage(), retryDelay);
+                Executor delayed = CompletableFuture.delayedExecutor(retryDelay, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                    .thenCompose(nextAttempt -> getCandlesAsyncAttempt(instrumentId, request, nextAttempt));
+            });
+    }
+
+    /**
+     * Формирует запрос свечей за торговый день (по московскому времени)
+     */
+    private GetCandlesRequest buildCandlesRequest(String instrumentId, LocalDate date, String interval) {
         // Создаем временной диапазон для запроса (весь день)
         Instant startTime = date.atStartOfDay(ZoneId.of("Europe/Moscow")).toInstant();
         Instant endTime = date.plusDays(1).atStartOfDay(ZoneId.of("Europe/Moscow")).toInstant();
+        return buildCandlesRequest(instrumentId, startTime, endTime, parseCandleInterval(interval));
+    }
 
-        // Создаем запрос
-        GetCandlesRequest request = GetCandlesRequest.newBuilder()
+    private GetCandlesRequest buildCandlesRequest(String instrumentId, Instant startTime, Instant endTime, CandleInterval candleInterval) {
+        return GetCandlesRequest.newBuilder()
                 .setInstrumentId(instrumentId)
                 .setFrom(Timestamp.newBuilder().setSeconds(startTime.getEpochSecond()).setNanos(startTime.getNano()).build())
                 .setTo(Timestamp.newBuilder().setSeconds(endTime.getEpochSecond()).setNanos(endTime.getNano()).build())
                 .setInterval(candleInterval)
                 .build();
+    }
 
-        // Задержка для соблюдения лимитов API
-        try {
-            Thread.sleep(300); // Увеличена задержка до 300ms
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Повторные попытки при ошибках
-        int maxRetries = 5; // Увеличено количество попыток
-        int baseRetryDelay = 2000;
-        
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+    /**
+     * Определяет интервал свечей по строке (по умолчанию - минутный)
+     */
+    private static CandleInterval parseCandleInterval(String interval) {
+        if (interval != null && !interval.isEmpty()) {
             try {
-                GetCandlesResponse response = marketDataService.getCandles(request);
-                
-                List<CandleDto> candles = new ArrayList<>();
-                for (var candle : response.getCandlesList()) {
-                    Instant candleTime = Instant.ofEpochSecond(candle.getTime().getSeconds());
-                    
-                    // Конвертируем цены из Quotation в BigDecimal
-                    BigDecimal open = BigDecimal.valueOf(candle.getOpen().getUnits())
-                            .add(BigDecimal.valueOf(candle.getOpen().getNano()).movePointLeft(9));
-                    BigDecimal close = BigDecimal.valueOf(candle.getClose().getUnits())
-                            .add(BigDecimal.valueOf(candle.getClose().getNano()).movePointLeft(9));
-                    BigDecimal high = BigDecimal.valueOf(candle.getHigh().getUnits())
-                            .add(BigDecimal.valueOf(candle.getHigh().getNano()).movePointLeft(9));
-                    BigDecimal low = BigDecimal.valueOf(candle.getLow().getUnits())
-                            .add(BigDecimal.valueOf(candle.getLow().getNano()).movePointLeft(9));
-                    
-                    candles.add(new CandleDto(
-                        instrumentId,
-                        candle.getVolume(),
-                        high,
-                        low,
-                        candleTime,
-                        close,
-                        open,
-                        candle.getIsComplete()
-                    ));
-                }
-                
-                return candles;
-            
-            } catch (StatusRuntimeException e) {
-                // Специальная обработка RESOURCE_EXHAUSTED
-                if (e.getStatus().getCode() == Status.Code.RESOURCE_EXHAUSTED) {
-                    int retryDelay;
-                    if (attempt < maxRetries) {
-                        // Для RESOURCE_EXHAUSTED используем экспоненциальную задержку с большим начальным значением
-                        retryDelay = baseRetryDelay * (int) Math.pow(2, attempt) + 5000; // Минимум 5 секунд + экспоненциальная задержка
-                        log.warn("RESOURCE_EXHAUSTED при получении свечей для {}, попытка {} из {}. Задержка {}ms", 
-                            instrumentId, attempt, maxRetries, retryDelay);
-                        try {
-                            Thread.sleep(retryDelay);
-                            continue; // Продолжаем попытки
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    } else {
-                        log.error("Превышено максимальное количество попыток при RESOURCE_EXHAUSTED для {}", instrumentId);
-                        return new ArrayList<>();
-                    }
-                } else {
-                    log.warn("Ошибка при получении свечей для {}, попытка {} из {}: {}", 
-                        instrumentId, attempt, maxRetries, e.getMessage());
-                    if (attempt < maxRetries) {
-                        int retryDelay = baseRetryDelay * (int) Math.pow(2, attempt - 1);
-                        try {
-                            Thread.sleep(retryDelay);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Ошибка при получении свечей для {}, попытка {} из {}: {}", 
-                    instrumentId, attempt, maxRetries, e.getMessage());
-                if (attempt < maxRetries) {
-                    int retryDelay = baseRetryDelay * (int) Math.pow(2, attempt - 1);
-                    try {
-                        Thread.sleep(retryDelay);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
+                return CandleInterval.valueOf(interval.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return CandleInterval.CANDLE_INTERVAL_1_MIN;
             }
         }
-        
-        return new ArrayList<>();
+        return CandleInterval.CANDLE_INTERVAL_1_MIN;
     }
+
+    /**
+     * Конвертирует ответ GetCandles в DTO (доступен бенчмаркам профиля {@code jmh})
+     */
+    static List<CandleDto> toCandleDtos(String instrumentId, GetCandlesResponse response) {
+        List<CandleDto> candles = new ArrayList<>(response.getCandlesCount());
+        for (var candle : response.getCandlesList()) {
+            candles.add(new CandleDto(
+                instrumentId,
+                candle.getVolume(),
+                FixedPoint.toBigDecimal(candle.getHigh()),
+                FixedPoint.toBigDecimal(candle.getLow()),
+                Instant.ofEpochSecond(candle.getTime().getSeconds()),
+                FixedPoint.toBigDecimal(candle.getClose()),
+                FixedPoint.toBigDecimal(candle.getOpen()),
+                candle.getIsComplete()
+            ));
+        }
+        return candles;
+    }
+
+    /**
+     * Конвертирует ответ GetCandles в {@link CandleBatch}: цены в long, без объектов на свечу
+     * (доступен бенчмаркам профиля {@code jmh})
+     */
+    static CandleBatch toCandleBatch(String instrumentId, GetCandlesResponse response) {
+        CandleBatch batch = new CandleBatch(instrumentId, response.getCandlesCount());
+        for (var candle : response.getCandlesList()) {
+            batch.add(
+                candle.getTime().getSeconds(),
+                FixedPoint.of(candle.getOpen()),
+                FixedPoint.of(candle.getHigh()),
+                FixedPoint.of(candle.getLow()),
+                FixedPoint.of(candle.getClose()),
+                candle.getVolume(),
+                candle.getIsComplete()
+            );
+        }
+        return batch;
+    }
+
+    /**
+     * Задержка перед повторной попыткой получения свечей
+     *
+     * <p>Для RESOURCE_EXHAUSTED ждем ровно до сброса квоты из x-ratelimit-reset; если сервер его
+     * не прислал - экспоненциальная задержка с большим начальным значением. Для остальных
+     * ошибок - обычная экспоненциальная задержка.</p>
+     */
+    private long candlesRetryDelayMs(Throwable error, int attempt) {
+        if (error instanceof StatusRuntimeException statusError
+                && statusError.getStatus().getCode() == Status.Code.RESOURCE_EXHAUSTED) {
+            long resetDelay = apiQuotaTracker.getResetDelayMillis(
+                MarketDataServiceGrpc.getGetCandlesMethod().getFullMethodName());
+            return resetDelay >= 0
+                ? resetDelay + QUOTA_RESET_MARGIN_MS
+                : CANDLES_BASE_RETRY_DELAY_MS * (1L << attempt) + 5000;
+        }
+        return CANDLES_BASE_RETRY_DELAY_MS * (1L << (attempt - 1));
+    }
+
   /**
- * Получение дивидендов из Tinkoff Invest API с простой задержкой
+ * Получение дивидендов из Tinkoff Invest API с учетом квоты InstrumentsService
  */
 public List<DividendEntity> getDividends(String figi, LocalDate from, LocalDate to) {
     if (figi == null || figi.trim().isEmpty()) {
         return new ArrayList<>();
     }
     
-    // Простая задержка перед запросом
-    try {
-        Thread.sleep(200); // 200ms задержка для соблюдения лимитов
-    } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        return new ArrayList<>();
-    }
-    
     // Повторные попытки при ошибках
     int maxRetries = 2;
     int baseRetryDelay = 4000;
     
     for (int attempt = 1; attempt <= maxRetries; attempt++) {
+        // Каждая попытка расходует квоту InstrumentsService
+        if (!apiRateLimiter.acquire(ApiMethodGroup.INSTRUMENTS)) {
+            return new ArrayList<>();
+        }
         try {
-            // Задержка для соблюдения лимитов API
-            Thread.sleep(200);
-            
             // Создаем запрос для получения дивидендов
             GetDividendsRequest request = GetDividendsRequest.newBuilder()
                 .setInstrumentId(figi)
@@ -242,6 +373,7 @@ public List<DividendEntity> getDividends(String figi, LocalDate from, LocalDate
             log.warn("Ошибка получения дивидендов для {} (попытка {}/{})", figi, attempt, maxRetries, e);
             
             if (attempt < maxRetries) {
+                pipelineMetrics.countRetry(GET_DIVIDENDS_METHOD, PipelineMetrics.retryReason(e));
                 int retryDelay = baseRetryDelay * (int) Math.pow(2, attempt - 1);
                 try {
                     Thread.sleep(retryDelay);
@@ -280,10 +412,10 @@ public List<DividendEntity> getDividends(String figi, LocalDate from, LocalDate
      * ⚠️ ВНИМАНИЕ: Этот метод делает запрос ко всем фьючерсам, используйте с осторожностью!
      */
     public Future getFutureBy(String figi) {
+        if (!apiRateLimiter.acquire(ApiMethodGroup.INSTRUMENTS)) {
+            return null;
+        }
         try {
-            // Задержка для соблюдения лимитов API
-            Thread.sleep(500);
-            
             // Получаем все фьючерсы и ищем нужный по FIGI
             FuturesResponse response = instrumentsService.futures(
                 InstrumentsRequest.newBuilder()
@@ -319,10 +451,10 @@ public List<DividendEntity> getDividends(String figi, LocalDate from, LocalDate
  * Согласно документации: https://developer.tbank.ru/invest/services/instruments/methods#getassetfundamentalsrequest
  */
 public List<AssetFundamentalDto> getAssetFundamentals(List<String> assetUids) {
+    if (!apiRateLimiter.acquire(ApiMethodGroup.INSTRUMENTS)) {
+        return new ArrayList<>();
+    }
     try {
-    
-       
-        
         // Создаем gRPC запрос
         GetAssetFundamentalsRequest.Builder requestBuilder = GetAssetFundamentalsRequest.newBuilder();
         for (String assetUid : assetUids) {
@@ -1,5 +1,7 @@
 package com.example.InvestmentDataLoaderService.client;
 
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import com.example.InvestmentDataLoaderService.service.ApiRateLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -15,6 +17,7 @@ import java.util.Map;
 /**
  * REST клиент для вызова Tinkoff Invest API
  * Используется когда gRPC методы недоступны
+ * Все ручки относятся к InstrumentsService и расходуют его квоту в общем {@link ApiRateLimiter}
  */
 @Service
 public class TinkoffRestClient {
@@ -24,14 +27,16 @@ public class TinkoffRestClient {
     private final ObjectMapper objectMapper;
     private final String apiToken;
     private final String baseUrl;
+    private final ApiRateLimiter apiRateLimiter;
 
-    public TinkoffRestClient(@Value("${tinkoff.api.token:}") String apiToken) {
+    public TinkoffRestClient(@Value("${tinkoff.api.token:}") String apiToken, ApiRateLimiter apiRateLimiter) {
         log.info("=== ИНИЦИАЛИЗАЦИЯ TINKOFF REST CLIENT ===");
         this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
         // Приоритет: переменная окружения > значение из application.properties
         this.apiToken = System.getenv("T_INVEST_TOKEN") != null ? System.getenv("T_INVEST_TOKEN") : apiToken;
         this.baseUrl = "https://invest-public-api.tinkoff.ru/rest";
+        this.apiRateLimiter = apiRateLimiter;
         
         log.info("TinkoffRestClient инициализирован");
         log.info("Base URL: {}", this.baseUrl);
@@ -65,6 +70,8 @@ public class TinkoffRestClient {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
+            acquireInstrumentsQuota();
+            
             ResponseEntity<String> response = restTemplate.exchange(
                 url, 
                 HttpMethod.POST, 
@@ -116,6 +123,8 @@ public class TinkoffRestClient {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
+            acquireInstrumentsQuota();
+            
             ResponseEntity<String> response = restTemplate.exchange(
                 url, 
                 HttpMethod.POST, 
@@ -163,6 +172,8 @@ public class TinkoffRestClient {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
+            acquireInstrumentsQuota();
+            
             ResponseEntity<String> response = restTemplate.exchange(
                 url, 
                 HttpMethod.POST, 
@@ -202,6 +213,8 @@ public class TinkoffRestClient {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
+            acquireInstrumentsQuota();
+            
             ResponseEntity<String> response = restTemplate.exchange(
                 url, 
                 HttpMethod.POST, 
@@ -232,6 +245,7 @@ public class TinkoffRestClient {
         requestBody.put("id", figi);
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        acquireInstrumentsQuota();
         ResponseEntity<String> response = restTemplate.exchange(
                 url, 
                 HttpMethod.POST, 
@@ -251,5 +265,12 @@ public class TinkoffRestClient {
         }
         }
 
+    /**
+     * Ожидает квоту InstrumentsService в общем лимитере (той же, что у gRPC-вызовов)
+     */
+    private void acquireInstrumentsQuota() {
+        if (!apiRateLimiter.acquire(ApiMethodGroup.INSTRUMENTS)) {
+            throw new IllegalStateException("Interrupted while waiting for InstrumentsService quota");
+        }
     }
-
+}
@@ -1,19 +1,48 @@
 package com.example.InvestmentDataLoaderService.config;
 
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Конфигурация для асинхронной обработки
+ *
+ * <p>При {@code async.virtual-threads.enabled=true} executor'ы, занятые ожиданием API и оркестрацией
+ * инструментов, заменяются на виртуальные потоки: параллелизм запросов ограничивает
+ * {@code ApiRateLimiter}, а не размер пула. Executor'ы записи в БД остаются пулами,
+ * так как ограничены размером пула соединений.</p>
+ *
+ * <p>Очередь и активные потоки пулов публикуются как метрики {@code pipeline.executor.*}
+ * с тегами {@code name} (имя бина) и {@code job}; executor'ы на виртуальных потоках
+ * не имеют очереди и в метрики не попадают.</p>
  */
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+
+    @Value("${async.virtual-threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Executor на виртуальных потоках: поток на задачу без очереди и верхней границы
+     */
+    private Executor virtualThreadExecutor(String threadNamePrefix, long awaitTerminationSeconds) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(awaitTerminationSeconds * 1000);
+        return executor;
+    }
     
     /**
      * Executor для задач агрегации данных
@@ -53,6 +82,9 @@ public class AsyncConfig {
      */
     @Bean("minuteCandleExecutor")
     public Executor minuteCandleExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("MinuteCandle-", 300);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -81,6 +113,9 @@ public class AsyncConfig {
      */
     @Bean("apiDataExecutor")
     public Executor apiDataExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("ApiData-", 180);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -133,6 +168,9 @@ public class AsyncConfig {
      */
     @Bean("dailyCandleExecutor")
     public Executor dailyCandleExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("DailyCandle-", 300);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -161,6 +199,9 @@ public class AsyncConfig {
      */
     @Bean("dailyApiDataExecutor")
     public Executor dailyApiDataExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("DailyApiData-", 180);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Настройки для API запросов (уменьшено количество потоков для соблюдения лимитов Tinkoff API)
@@ -212,6 +253,9 @@ public class AsyncConfig {
      */
     @Bean("lastTradesApiExecutor")
     public Executor lastTradesApiExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("LastTradesApi-", 120);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -268,6 +312,9 @@ public class AsyncConfig {
      */
     @Bean("lastTradesProcessingExecutor")
     public Executor lastTradesProcessingExecutor() {
+        if (virtualThreadsEnabled) {
+            return virtualThreadExecutor("LastTradesProc-", 300);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         int processors = Runtime.getRuntime().availableProcessors();
         
@@ -289,4 +336,26 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Метрики пулов executor'ов: размер очереди, активные потоки, выполненные задачи
+     */
+    @Bean
+    public MeterBinder pipelineExecutorMetrics(Map<String, Executor> executors) {
+        return registry -> executors.forEach((name, executor) -> {
+            if (executor instanceof ThreadPoolTaskExecutor pool) {
+                new ExecutorServiceMetrics(pool.getThreadPoolExecutor(), name, "pipeline",
+                    Tags.of("job", jobTag(name))).bindTo(registry);
+            }
+        });
+    }
+
+    private static String jobTag(String executorName) {
+        return switch (executorName) {
+            case "minuteCandleExecutor", "apiDataExecutor", "batchWriteExecutor" -> PipelineJob.MINUTE.getTag();
+            case "dailyCandleExecutor", "dailyApiDataExecutor", "dailyBatchWriteExecutor" -> PipelineJob.DAILY.getTag();
+            case "lastTradesApiExecutor", "lastTradesBatchExecutor", "lastTradesProcessingExecutor" -> PipelineJob.TRADES.getTag();
+            default -> "shared";
+        };
+    }
 }
@@ -0,0 +1,169 @@
+package com.example.InvestmentDataLoaderService.config;
+
+import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.LastPriceEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
+import com.example.InvestmentDataLoaderService.repository.DailyCandleRepository;
+import com.example.InvestmentDataLoaderService.repository.JpaBulkWriter;
+import com.example.InvestmentDataLoaderService.repository.LastPriceRepository;
+import com.example.InvestmentDataLoaderService.repository.MeteredBulkWriter;
+import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
+import com.example.InvestmentDataLoaderService.repository.PgCopyBulkWriter;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+/**
+ * Конфигурация пакетной записи свечей и цен
+ *
+ * <p>Для каждой таблицы способ записи выбирается отдельно:
+ * {@code bulk-writer.minute-candles}, {@code bulk-writer.daily-candles}, {@code bulk-writer.last-prices}
+ * со значениями {@code jpa} (по умолчанию) или {@code copy}. Каждая реализация оборачивается
+ * в {@link MeteredBulkWriter} для метрик записи задания.</p>
+ */
+@Configuration
+@EnableConfigurationProperties(BulkWriterConfig.BulkWriterProperties.class)
+public class BulkWriterConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkWriterConfig.class);
+
+    private static final List<String> CANDLE_COLUMNS = List.of(
+        "figi", "time", "open", "high", "low", "close", "volume", "is_complete",
+        "price_change", "price_change_percent", "candle_type", "body_size",
+        "upper_shadow", "lower_shadow", "high_low_range", "average_price",
+        "created_at", "updated_at"
+    );
+
+    // session_code есть только у минутных свечей (TradingSession, вычисляется в MinuteCandleMapper)
+    private static final List<String> MINUTE_CANDLE_COLUMNS = List.of(
+        "figi", "time", "open", "high", "low", "close", "volume", "is_complete",
+        "price_change", "price_change_percent", "candle_type", "body_size",
+        "upper_shadow", "lower_shadow", "high_low_range", "average_price",
+        "session_code", "created_at", "updated_at"
+    );
+
+    private static final List<String> LAST_PRICE_COLUMNS = List.of(
+        "figi", "time", "price", "currency", "exchange"
+    );
+
+    private static final List<String> FIGI_TIME_KEY = List.of("figi", "time");
+
+    public enum WriterMode {
+        JPA,
+        COPY
+    }
+
+    @Bean
+    public BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter(BulkWriterProperties properties,
+                                                                 MinuteCandleRepository minuteCandleRepository,
+                                                                 JdbcTemplate jdbcTemplate,
+                                                                 PlatformTransactionManager transactionManager,
+                                                                 PipelineMetrics pipelineMetrics) {
+        log.info("Запись минутных свечей: {}", properties.getMinuteCandles());
+        if (properties.getMinuteCandles() == WriterMode.COPY) {
+            return new MeteredBulkWriter<>(new PgCopyBulkWriter<MinuteCandleEntity>(jdbcTemplate, transactionManager, "invest.minute_candles",
+                MINUTE_CANDLE_COLUMNS, FIGI_TIME_KEY, (candle, encoder) -> {
+                    encoder.writeText(candle.getFigi());
+                    encoder.writeTimestamptz(candle.getTime());
+                    encoder.writeNumeric(candle.getOpen());
+                    encoder.writeNumeric(candle.getHigh());
+                    encoder.writeNumeric(candle.getLow());
+                    encoder.writeNumeric(candle.getClose());
+                    encoder.writeLong(candle.getVolume());
+                    encoder.writeBoolean(candle.isComplete());
+                    encoder.writeNumeric(candle.getPriceChange());
+                    encoder.writeNumeric(candle.getPriceChangePercent());
+                    encoder.writeText(candle.getCandleType());
+                    encoder.writeNumeric(candle.getBodySize());
+                    encoder.writeNumeric(candle.getUpperShadow());
+                    encoder.writeNumeric(candle.getLowerShadow());
+                    encoder.writeNumeric(candle.getHighLowRange());
+                    encoder.writeNumeric(candle.getAveragePrice());
+                    encoder.writeShort(candle.getSessionCode());
+                    encoder.writeTimestamptz(candle.getCreatedAt());
+                    encoder.writeTimestamptz(candle.getUpdatedAt());
+                }), PipelineJob.MINUTE, pipelineMetrics);
+        }
+        return new MeteredBulkWriter<>(new JpaBulkWriter<>(minuteCandleRepository), PipelineJob.MINUTE, pipelineMetrics);
+    }
+
+    @Bean
+    public BulkWriter<DailyCandleEntity> dailyCandleBulkWriter(BulkWriterProperties properties,
+                                                               DailyCandleRepository dailyCandleRepository,
+                                                               JdbcTemplate jdbcTemplate,
+                                                               PlatformTransactionManager transactionManager,
+                                                               PipelineMetrics pipelineMetrics) {
+        log.info("Запись дневных свечей: {}", properties.getDailyCandles());
+        if (properties.getDailyCandles() == WriterMode.COPY) {
+            return new MeteredBulkWriter<>(new PgCopyBulkWriter<DailyCandleEntity>(jdbcTemplate, transactionManager, "invest.daily_candles",
+                CANDLE_COLUMNS, FIGI_TIME_KEY, (candle, encoder) -> {
+                    encoder.writeText(candle.getFigi());
+                    encoder.writeTimestamptz(candle.getTime());
+                    encoder.writeNumeric(candle.getOpen());
+                    encoder.writeNumeric(candle.getHigh());
+                    encoder.writeNumeric(candle.getLow());
+                    encoder.writeNumeric(candle.getClose());
+                    encoder.writeLong(candle.getVolume());
+                    encoder.writeBoolean(candle.isComplete());
+                    encoder.writeNumeric(candle.getPriceChange());
+                    encoder.writeNumeric(candle.getPriceChangePercent());
+                    encoder.writeText(candle.getCandleType());
+                    encoder.writeNumeric(candle.getBodySize());
+                    encoder.writeNumeric(candle.getUpperShadow());
+                    encoder.writeNumeric(candle.getLowerShadow());
+                    encoder.writeNumeric(candle.getHighLowRange());
+                    encoder.writeNumeric(candle.getAveragePrice());
+                    encoder.writeTimestamptz(candle.getCreatedAt());
+                    encoder.writeTimestamptz(candle.getUpdatedAt());
+                }), PipelineJob.DAILY, pipelineMetrics);
+        }
+        return new MeteredBulkWriter<>(new JpaBulkWriter<>(dailyCandleRepository), PipelineJob.DAILY, pipelineMetrics);
+    }
+
+    @Bean
+    public BulkWriter<LastPriceEntity> lastPriceBulkWriter(BulkWriterProperties properties,
+                                                           LastPriceRepository lastPriceRepository,
+                                                           JdbcTemplate jdbcTemplate,
+                                                           PlatformTransactionManager transactionManager,
+                                                           PipelineMetrics pipelineMetrics) {
+        log.info("Запись обезличенных сделок: {}", properties.getLastPrices());
+        if (properties.getLastPrices() == WriterMode.COPY) {
+            return new MeteredBulkWriter<>(new PgCopyBulkWriter<LastPriceEntity>(jdbcTemplate, transactionManager, "invest.last_prices",
+                LAST_PRICE_COLUMNS, FIGI_TIME_KEY, (lastPrice, encoder) -> {
+                    encoder.writeText(lastPrice.getId().getFigi());
+                    encoder.writeTimestamp(lastPrice.getId().getTime());
+                    encoder.writeNumeric(lastPrice.getPrice());
+                    encoder.writeText(lastPrice.getCurrency());
+                    encoder.writeText(lastPrice.getExchange());
+                }), PipelineJob.TRADES, pipelineMetrics);
+        }
+        return new MeteredBulkWriter<>(new JpaBulkWriter<>(lastPriceRepository), PipelineJob.TRADES, pipelineMetrics);
+    }
+
+    @ConfigurationProperties(prefix = "bulk-writer")
+    public static class BulkWriterProperties {
+        private WriterMode minuteCandles = WriterMode.JPA;
+        private WriterMode dailyCandles = WriterMode.JPA;
+        private WriterMode lastPrices = WriterMode.JPA;
+
+        // Getters and setters
+        public WriterMode getMinuteCandles() { return minuteCandles; }
+        public void setMinuteCandles(WriterMode minuteCandles) { this.minuteCandles = minuteCandles; }
+
+        public WriterMode getDailyCandles() { return dailyCandles; }
+        public void setDailyCandles(WriterMode dailyCandles) { this.dailyCandles = dailyCandles; }
+
+        public WriterMode getLastPrices() { return lastPrices; }
+        public void setLastPrices(WriterMode lastPrices) { this.lastPrices = lastPrices; }
+    }
+}
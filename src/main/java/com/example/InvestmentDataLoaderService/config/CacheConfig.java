@@ -1,6 +1,10 @@
 package com.example.InvestmentDataLoaderService.config;
 
+import com.example.InvestmentDataLoaderService.service.InstrumentUniverseService;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
@@ -16,6 +20,11 @@ public class CacheConfig {
     public static final String INDICATIVES_CACHE = "indicativesCache";
     public static final String CLOSE_PRICES_CACHE = "closePricesCache";
 
+    /**
+     * Списков инструментов на кэш: статусы InstrumentStatus (для индикативов - один ключ)
+     */
+    private static final int INSTRUMENT_CACHE_MAX_ENTRIES = 16;
+
     @Bean
     public Caffeine<Object, Object> caffeineSpec() {
         return Caffeine.newBuilder()
@@ -23,17 +32,36 @@ public class CacheConfig {
                 .expireAfterWrite(1, TimeUnit.DAYS);
     }
 
+    /**
+     * Кэши списков инструментов обновляются с упреждением и никогда не пустеют
+     *
+     * <p>После {@code instrument-cache.refresh-after-minutes} первое чтение запускает перезагрузку
+     * в фоне и получает прежний список; новый список публикуется атомарной заменой значения.
+     * Если перезагрузка не удалась, остается прежний список. Параллельные загрузки одного ключа
+     * выполняются одним вызовом API.</p>
+     */
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
-        CaffeineCacheManager manager = new CaffeineCacheManager(
-                SHARES_CACHE,
-                FUTURES_CACHE,
-                INDICATIVES_CACHE,
-                CLOSE_PRICES_CACHE
-        );
+    public CacheManager cacheManager(Caffeine<Object, Object> caffeine,
+                                     ObjectProvider<InstrumentUniverseService> instrumentUniverseService,
+                                     @Value("${instrument-cache.refresh-after-minutes:720}") long refreshAfterMinutes) {
+        CaffeineCacheManager manager = new CaffeineCacheManager(CLOSE_PRICES_CACHE);
         manager.setCaffeine(caffeine);
+
+        manager.registerCustomCache(SHARES_CACHE, instrumentCache(refreshAfterMinutes,
+                key -> instrumentUniverseService.getObject().loadShareUniverse((String) key)));
+        manager.registerCustomCache(FUTURES_CACHE, instrumentCache(refreshAfterMinutes,
+                key -> instrumentUniverseService.getObject().loadFutureUniverse((String) key)));
+        manager.registerCustomCache(INDICATIVES_CACHE, instrumentCache(refreshAfterMinutes,
+                key -> instrumentUniverseService.getObject().loadIndicativeUniverse()));
         return manager;
     }
-}
-
 
+    private static com.github.benmanes.caffeine.cache.LoadingCache<Object, Object> instrumentCache(
+            long refreshAfterMinutes, CacheLoader<Object, Object> loader) {
+        return Caffeine.newBuilder()
+                .maximumSize(INSTRUMENT_CACHE_MAX_ENTRIES)
+                .refreshAfterWrite(refreshAfterMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build(loader);
+    }
+}
@@ -1,15 +1,21 @@
 package com.example.InvestmentDataLoaderService.config;
 
+import com.example.InvestmentDataLoaderService.client.ApiMetricsInterceptor;
+import com.example.InvestmentDataLoaderService.client.RateLimitHeadersInterceptor;
+import com.example.InvestmentDataLoaderService.service.ApiQuotaTracker;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
 import io.grpc.ClientInterceptor;
 import io.grpc.ForwardingClientCall;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.Metadata;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc;
 import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.MarketDataStreamServiceGrpc;
 import ru.tinkoff.piapi.contract.v1.UsersServiceGrpc;
 
 @Configuration
@@ -26,8 +32,13 @@ public class GrpcConfig {
         return tokenProperty == null ? "" : tokenProperty.trim();
     }
 
+    /**
+     * Канал к T-Invest API. Тесты могут подменить транспорт своим бином {@link ManagedChannelBuilder}
+     * (фейковый in-process сервер); по умолчанию - invest-public-api.tinkoff.ru
+     */
     @Bean
-    public ManagedChannel investChannel() {
+    public ManagedChannel investChannel(ApiQuotaTracker apiQuotaTracker, PipelineMetrics pipelineMetrics,
+                                        ObjectProvider<ManagedChannelBuilder<?>> channelBuilder) {
         final String authToken = resolveToken();
         ClientInterceptor authInterceptor = new ClientInterceptor() {
             @Override
@@ -50,10 +61,11 @@ public class GrpcConfig {
             }
         };
 
-        return ManagedChannelBuilder
-                .forAddress("invest-public-api.tinkoff.ru", 443)
-                .useTransportSecurity()
-                .intercept(authInterceptor)
+        ManagedChannelBuilder<?> builder = channelBuilder.getIfAvailable(
+                () -> ManagedChannelBuilder.forAddress("invest-public-api.tinkoff.ru", 443).useTransportSecurity());
+
+        return builder
+                .intercept(authInterceptor, new RateLimitHeadersInterceptor(apiQuotaTracker), new ApiMetricsInterceptor(pipelineMetrics))
                 .build();
     }
 
@@ -71,4 +83,14 @@ public class GrpcConfig {
     public MarketDataServiceGrpc.MarketDataServiceBlockingStub marketDataServiceStub(ManagedChannel channel) {
         return MarketDataServiceGrpc.newBlockingStub(channel);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public MarketDataServiceGrpc.MarketDataServiceFutureStub marketDataServiceFutureStub(ManagedChannel channel) {
+        return MarketDataServiceGrpc.newFutureStub(channel);
+    }
+
+    @Bean
+    public MarketDataStreamServiceGrpc.MarketDataStreamServiceStub marketDataStreamServiceStub(ManagedChannel channel) {
+        return MarketDataStreamServiceGrpc.newStub(channel);
+    }
+}
@@ -3,13 +3,15 @@ package com.example.InvestmentDataLoaderService.config;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Конфигурация для rate limiting
  */
 @Configuration
-@EnableConfigurationProperties(RateLimitConfig.RateLimitProperties.class)
 public class RateLimitConfig {
 
     @Bean
@@ -29,6 +31,8 @@ public class RateLimitConfig {
         private int maxRetryAttempts = 3;
         private long baseRetryDelayMs = 1000;
         private long maxRetryDelayMs = 10000;
+        private int burstSize = 10;
+        private Map<ApiMethodGroup, Integer> requestsPerMinute = new EnumMap<>(ApiMethodGroup.class);
 
         // Getters and setters
         public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
@@ -45,6 +49,20 @@ public class RateLimitConfig {
 
         public long getMaxRetryDelayMs() { return maxRetryDelayMs; }
         public void setMaxRetryDelayMs(long maxRetryDelayMs) { this.maxRetryDelayMs = maxRetryDelayMs; }
+
+        public int getBurstSize() { return burstSize; }
+        public void setBurstSize(int burstSize) { this.burstSize = burstSize; }
+
+        public Map<ApiMethodGroup, Integer> getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(Map<ApiMethodGroup, Integer> requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+        /**
+         * Квота группы методов в минуту: из конфигурации или значение по умолчанию
+         */
+        public int getRequestsPerMinute(ApiMethodGroup group) {
+            Integer configured = requestsPerMinute.get(group);
+            return configured != null && configured > 0 ? configured : group.getDefaultRequestsPerMinute();
+        }
     }
 
     @ConfigurationProperties(prefix = "batch-processing")
@@ -1,6 +1,7 @@
 package com.example.InvestmentDataLoaderService.controller;
 
 import com.example.InvestmentDataLoaderService.service.CacheWarmupService;
+import com.example.InvestmentDataLoaderService.service.InstrumentIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
@@ -230,6 +231,9 @@ public class CacheController {
      * 
      * <p>Очищает содержимое кэша. Можно очистить конкретный кэш или все кэши.</p>
      * 
+     * <p>Кэши списков инструментов (sharesCache, futuresCache, indicativesCache) не очищаются,
+     * а перезагружаются в фоне: до публикации новых списков отдаются прежние.</p>
+     * 
      * @param cacheName имя кэша для очистки (опционально, если не указано - очищаются все кэши)
      * @return результат операции очистки
      */
@@ -254,21 +258,35 @@ public class CacheController {
                     return ResponseEntity.badRequest().body(response);
                 }
                 
-                cache.clear();
-                response.put("success", true);
-                response.put("message", "Кэш '" + cacheName + "' успешно очищен");
-                response.put("clearedCache", cacheName);
-                log.info("Кэш {} успешно очищен", cacheName);
+                if (refreshInBackground(cache)) {
+                    response.put("success", true);
+                    response.put("message", "Кэш '" + cacheName + "' обновляется в фоне, до завершения отдаются прежние данные");
+                    response.put("refreshedCache", cacheName);
+                    log.info("Кэш {} обновляется в фоне", cacheName);
+                } else {
+                    cache.clear();
+                    response.put("success", true);
+                    response.put("message", "Кэш '" + cacheName + "' успешно очищен");
+                    response.put("clearedCache", cacheName);
+                    log.info("Кэш {} успешно очищен", cacheName);
+                }
                 
             } else {
                 // Очистка всех кэшей
                 log.info("Очищаем все кэши");
                 String[] cacheNames = {"sharesCache", "futuresCache", "indicativesCache", "closePricesCache"};
                 List<String> clearedCaches = new ArrayList<>();
+                List<String> refreshedCaches = new ArrayList<>();
                 
                 for (String name : cacheNames) {
                     Cache cache = cacheManager.getCache(name);
-                    if (cache != null) {
+                    if (cache == null) {
+                        continue;
+                    }
+                    if (refreshInBackground(cache)) {
+                        refreshedCaches.add(name);
+                        log.debug("Кэш {} обновляется в фоне", name);
+                    } else {
                         cache.clear();
                         clearedCaches.add(name);
                         log.debug("Кэш {} очищен", name);
@@ -278,7 +296,8 @@ public class CacheController {
                 response.put("success", true);
                 response.put("message", "Все кэши успешно очищены");
                 response.put("clearedCaches", clearedCaches);
-                log.info("Все кэши успешно очищены: {}", clearedCaches);
+                response.put("refreshedCaches", refreshedCaches);
+                log.info("Кэши очищены: {}, обновляются в фоне: {}", clearedCaches, refreshedCaches);
             }
             
             return ResponseEntity.ok(response);
@@ -295,6 +314,25 @@ public class CacheController {
         }
     }
 
+    /**
+     * Перезагружает в фоне кэш с упреждающим обновлением (списки инструментов) вместо очистки
+     *
+     * <p>Очистка такого кэша оставила бы окно, в котором все читатели идут в БД и API;
+     * при обновлении до публикации новых значений отдаются прежние.</p>
+     *
+     * @return false, если кэш не поддерживает фоновое обновление и его нужно очистить
+     */
+    private boolean refreshInBackground(Cache cache) {
+        if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.LoadingCache<?, ?> loadingCache)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.LoadingCache<Object, Object> refreshable =
+            (com.github.benmanes.caffeine.cache.LoadingCache<Object, Object>) loadingCache;
+        refreshable.refreshAll(new ArrayList<>(refreshable.asMap().keySet()));
+        return true;
+    }
+
     /**
      * Получение информации о конкретном кэше
      * 
@@ -332,6 +370,8 @@ public class CacheController {
                     // Для списков показываем размер
                     if (entry.getValue() instanceof List) {
                         entryInfo.put("valueSize", ((List<?>) entry.getValue()).size());
+                    } else if (entry.getValue() instanceof InstrumentIndex<?> universe) {
+                        entryInfo.put("valueSize", universe.size());
                     }
                     
                     sampleEntries.add(entryInfo);
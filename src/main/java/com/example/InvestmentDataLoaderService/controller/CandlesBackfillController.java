@@ -0,0 +1,101 @@
+package com.example.InvestmentDataLoaderService.controller;
+
+import com.example.InvestmentDataLoaderService.dto.CandleBackfillRequestDto;
+import com.example.InvestmentDataLoaderService.service.CandleBackfillService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контроллер исторической догрузки свечей за диапазон дат
+ * Задания возобновляемы: прогресс хранится в invest.candle_backfill_checkpoints
+ */
+@RestController
+@RequestMapping("/api/candles")
+public class CandlesBackfillController {
+
+    private static final Logger log = LoggerFactory.getLogger(CandlesBackfillController.class);
+    private final CandleBackfillService candleBackfillService;
+
+    public CandlesBackfillController(CandleBackfillService candleBackfillService) {
+        this.candleBackfillService = candleBackfillService;
+    }
+
+    /**
+     * Догрузка минутных свечей за диапазон дат
+     */
+    @PostMapping("/minute/backfill")
+    public ResponseEntity<Map<String, Object>> backfillMinuteCandles(@RequestBody CandleBackfillRequestDto request) {
+        return startBackfill(request, CandleBackfillService.MINUTE_INTERVAL, "/api/candles/minute/backfill");
+    }
+
+    /**
+     * Догрузка дневных свечей за диапазон дат
+     */
+    @PostMapping("/daily/backfill")
+    public ResponseEntity<Map<String, Object>> backfillDailyCandles(@RequestBody CandleBackfillRequestDto request) {
+        return startBackfill(request, CandleBackfillService.DAILY_INTERVAL, "/api/candles/daily/backfill");
+    }
+
+    /**
+     * Продолжение прерванного задания догрузки с последних чекпоинтов
+     */
+    @PostMapping("/backfill/{jobId}/resume")
+    public ResponseEntity<Map<String, Object>> resumeBackfill(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        boolean resumed = candleBackfillService.resumeBackfill(jobId);
+        response.put("success", resumed);
+        response.put("taskId", jobId);
+        response.put("message", resumed
+            ? "Догрузка продолжена с последних чекпоинтов"
+            : "Задание уже выполняется или не содержит незавершенных инструментов");
+        return resumed ? ResponseEntity.accepted().body(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Состояние задания догрузки
+     */
+    @GetMapping("/backfill/{jobId}")
+    public ResponseEntity<Map<String, Object>> getBackfillStatus(@PathVariable String jobId) {
+        Map<String, Object> status = candleBackfillService.getBackfillStatus(jobId);
+        if (!Boolean.TRUE.equals(status.get("found"))) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(status);
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    private ResponseEntity<Map<String, Object>> startBackfill(CandleBackfillRequestDto request, String interval, String endpoint) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            String jobId = candleBackfillService.startBackfill(
+                request.getInstruments(), request.getFrom(), request.getTo(), interval);
+
+            response.put("success", true);
+            response.put("message", "Догрузка свечей запущена");
+            response.put("taskId", jobId);
+            response.put("endpoint", endpoint);
+            response.put("instruments", request.getInstruments().size());
+            response.put("from", request.getFrom().toString());
+            response.put("to", request.getTo().toString());
+            response.put("status", "STARTED");
+            response.put("startTime", Instant.now().toString());
+            return ResponseEntity.accepted().body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Ошибка запуска догрузки свечей: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "Ошибка запуска догрузки: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
@@ -3,15 +3,20 @@ package com.example.InvestmentDataLoaderService.controller;
 import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService.StreamInstrument;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -34,6 +39,8 @@ public class CandlesDailyController {
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final SystemLogRepository systemLogRepository;
+    private final CandleStreamService candleStreamService;
+    private final SystemLogWriter systemLogWriter;
 
     public CandlesDailyController(
             DailyCandleService dailyCandleService,
@@ -41,7 +48,9 @@ public class CandlesDailyController {
             ShareRepository shareRepository,
             FutureRepository futureRepository,
             IndicativeRepository indicativeRepository,
-            SystemLogRepository systemLogRepository
+            SystemLogRepository systemLogRepository,
+            CandleStreamService candleStreamService,
+            SystemLogWriter systemLogWriter
     ) {
         this.dailyCandleService = dailyCandleService;
         this.tinkoffApiClient = tinkoffApiClient;
@@ -49,6 +58,8 @@ public class CandlesDailyController {
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.systemLogRepository = systemLogRepository;
+        this.candleStreamService = candleStreamService;
+        this.systemLogWriter = systemLogWriter;
     }
 
     // ==================== ОБЩИЕ ДНЕВНЫЕ СВЕЧИ ====================
@@ -216,6 +227,21 @@ public class CandlesDailyController {
 
     // ==================== АКЦИИ ====================
 
+    /**
+     * Потоковое получение дневных свечей акций за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/shares/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSharesDailyCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = shareRepository.findAll().stream()
+            .map(share -> new StreamInstrument(share.getFigi(), share.getTicker(), share.getName()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamDailyCandles("SHARES", date, "/api/candles/daily/shares/" + date, instruments));
+    }
+
     /**
      * Получение дневных свечей акций за дату без сохранения
      */
@@ -283,8 +309,8 @@ public class CandlesDailyController {
                         figiLog.setDurationMs(0L);
 
                         try {
-                            systemLogRepository.save(figiLog);
-                            log.info("Лог успешного получения данных для FIGI {} сохранен", share.getFigi());
+                            systemLogWriter.write(figiLog);
+                            log.info("Лог успешного получения данных для FIGI {} поставлен в очередь", share.getFigi());
                         } catch (Exception logException) {
                             log.error("Ошибка сохранения лога для FIGI {}: {}", share.getFigi(), logException.getMessage(), logException);
                         }
@@ -323,8 +349,8 @@ public class CandlesDailyController {
                         noDataLog.setDurationMs(0L);
 
                         try {
-                            systemLogRepository.save(noDataLog);
-                            log.info("Лог отсутствия данных для FIGI {} сохранен", share.getFigi());
+                            systemLogWriter.write(noDataLog);
+                            log.info("Лог отсутствия данных для FIGI {} поставлен в очередь", share.getFigi());
                         } catch (Exception logException) {
                             log.error("Ошибка сохранения лога отсутствия данных для FIGI {}: {}", share.getFigi(), logException.getMessage(), logException);
                         }
@@ -346,8 +372,8 @@ public class CandlesDailyController {
                     errorLog.setDurationMs(0L);
 
                     try {
-                        systemLogRepository.save(errorLog);
-                        log.info("Лог ошибки для FIGI {} сохранен", share.getFigi());
+                        systemLogWriter.write(errorLog);
+                        log.info("Лог ошибки для FIGI {} поставлен в очередь", share.getFigi());
                     } catch (Exception logException) {
                         log.error("Ошибка сохранения лога ошибки для FIGI {}: {}", share.getFigi(), logException.getMessage(), logException);
                     }
@@ -628,6 +654,21 @@ public class CandlesDailyController {
         }
     }
 
+    /**
+     * Потоковое получение дневных свечей фьючерсов за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/futures/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFuturesDailyCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = futureRepository.findAll().stream()
+            .map(future -> new StreamInstrument(future.getFigi(), future.getTicker(), future.getTicker()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamDailyCandles("FUTURES", date, "/api/candles/daily/futures/" + date, instruments));
+    }
+
     /**
      * Получение дневных свечей фьючерсов за дату без сохранения
      */
@@ -881,6 +922,21 @@ public class CandlesDailyController {
         }
     }
 
+    /**
+     * Потоковое получение дневных свечей индикативов за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/indicatives/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamIndicativesDailyCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = indicativeRepository.findAll().stream()
+            .map(indicative -> new StreamInstrument(indicative.getFigi(), indicative.getTicker(), indicative.getName()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamDailyCandles("INDICATIVES", date, "/api/candles/daily/indicatives/" + date, instruments));
+    }
+
     /**
      * Получение дневных свечей индикативов за дату без сохранения
      */
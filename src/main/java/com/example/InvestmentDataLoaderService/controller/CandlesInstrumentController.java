@@ -3,6 +3,7 @@ package com.example.InvestmentDataLoaderService.controller;
 import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleDayCacheService;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
@@ -33,17 +34,20 @@ public class CandlesInstrumentController {
     private final DailyCandleService dailyCandleService;
     private final TinkoffApiClient tinkoffApiClient;
     private final SystemLogRepository systemLogRepository;
+    private final CandleDayCacheService candleDayCacheService;
 
     public CandlesInstrumentController(
             MinuteCandleService minuteCandleService,
             DailyCandleService dailyCandleService,
             TinkoffApiClient tinkoffApiClient,
-            SystemLogRepository systemLogRepository
+            SystemLogRepository systemLogRepository,
+            CandleDayCacheService candleDayCacheService
     ) {
         this.minuteCandleService = minuteCandleService;
         this.dailyCandleService = dailyCandleService;
         this.tinkoffApiClient = tinkoffApiClient;
         this.systemLogRepository = systemLogRepository;
+        this.candleDayCacheService = candleDayCacheService;
     }
 
     // ==================== МИНУТНЫЕ СВЕЧИ ====================
@@ -83,7 +87,7 @@ public class CandlesInstrumentController {
             log.info("Дата: {}", date);
 
             // Получаем минутные свечи из API
-            var candles = tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
+            var candles = candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
 
             if (candles == null || candles.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
@@ -316,7 +320,7 @@ public class CandlesInstrumentController {
             log.info("Дата: {}", date);
 
             // Получаем дневные свечи из API
-            var candles = tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY");
+            var candles = candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_DAY");
 
             if (candles == null || candles.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
@@ -3,15 +3,20 @@ package com.example.InvestmentDataLoaderService.controller;
 import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService.StreamInstrument;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -33,6 +38,8 @@ public class CandlesMinuteController {
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final SystemLogRepository systemLogRepository;
+    private final CandleStreamService candleStreamService;
+    private final SystemLogWriter systemLogWriter;
 
     public CandlesMinuteController(
             MinuteCandleService minuteCandleService,
@@ -40,7 +47,9 @@ public class CandlesMinuteController {
             ShareRepository shareRepository,
             FutureRepository futureRepository,
             IndicativeRepository indicativeRepository,
-            SystemLogRepository systemLogRepository
+            SystemLogRepository systemLogRepository,
+            CandleStreamService candleStreamService,
+            SystemLogWriter systemLogWriter
     ) {
         this.minuteCandleService = minuteCandleService;
         this.tinkoffApiClient = tinkoffApiClient;
@@ -48,6 +57,8 @@ public class CandlesMinuteController {
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.systemLogRepository = systemLogRepository;
+        this.candleStreamService = candleStreamService;
+        this.systemLogWriter = systemLogWriter;
     }
 
     // ==================== ОБЩИЕ МИНУТНЫЕ СВЕЧИ ====================
@@ -235,6 +246,21 @@ public class CandlesMinuteController {
 
     // ==================== АКЦИИ ====================
 
+    /**
+     * Потоковое получение минутных свечей акций за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/shares/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSharesMinuteCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = shareRepository.findAll().stream()
+            .map(share -> new StreamInstrument(share.getFigi(), share.getTicker(), share.getName()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamMinuteCandles("SHARES", date, "/api/candles/minute/shares/" + date, instruments));
+    }
+
     /**
      * Получение минутных свечей акций за дату без сохранения
      */
@@ -302,8 +328,8 @@ public class CandlesMinuteController {
                         figiLog.setDurationMs(0L);
 
                         try {
-                            systemLogRepository.save(figiLog);
-                            log.info("Лог успешного получения данных для FIGI {} сохранен", share.getFigi());
+                            systemLogWriter.write(figiLog);
+                            log.info("Лог успешного получения данных для FIGI {} поставлен в очередь", share.getFigi());
                         } catch (Exception logException) {
                             log.error("Ошибка сохранения лога для FIGI {}: {}", share.getFigi(), logException.getMessage(), logException);
                         }
@@ -356,8 +382,8 @@ public class CandlesMinuteController {
                         noDataLog.setDurationMs(0L);
 
                         try {
-                            systemLogRepository.save(noDataLog);
-                            log.info("Лог отсутствия данных для FIGI {} сохранен", share.getFigi());
+                            systemLogWriter.write(noDataLog);
+                            log.info("Лог отсутствия данных для FIGI {} поставлен в очередь", share.getFigi());
                         } catch (Exception logException) {
                             log.error("Ошибка сохранения лога отсутствия данных для FIGI {}: {}", share.getFigi(), logException.getMessage(), logException);
                         }
@@ -379,8 +405,8 @@ public class CandlesMinuteController {
                     errorLog.setDurationMs(0L);
 
                     try {
-                        systemLogRepository.save(errorLog);
-                        log.info("Лог ошибки для FIGI {} сохранен", share.getFigi());
+                        systemLogWriter.write(errorLog);
+                        log.info("Лог ошибки для FIGI {} поставлен в очередь", share.getFigi());
                     } catch (Exception logException) {
                         log.error("Ошибка сохранения лога ошибки для FIGI " + share.getFigi() + ": " + logException.getMessage());
                     }
@@ -668,6 +694,21 @@ public class CandlesMinuteController {
     }
 
 
+    /**
+     * Потоковое получение минутных свечей фьючерсов за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/futures/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFuturesMinuteCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = futureRepository.findAll().stream()
+            .map(future -> new StreamInstrument(future.getFigi(), future.getTicker(), future.getTicker()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamMinuteCandles("FUTURES", date, "/api/candles/minute/futures/" + date, instruments));
+    }
+
     /**
      * Получение минутных свечей фьючерсов за дату без сохранения
      */
@@ -940,6 +981,21 @@ public class CandlesMinuteController {
     }
 
 
+    /**
+     * Потоковое получение минутных свечей индикативов за дату без сохранения (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/indicatives/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamIndicativesMinuteCandlesForDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        List<StreamInstrument> instruments = indicativeRepository.findAll().stream()
+            .map(indicative -> new StreamInstrument(indicative.getFigi(), indicative.getTicker(), indicative.getName()))
+            .toList();
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(candleStreamService.streamMinuteCandles("INDICATIVES", date, "/api/candles/minute/indicatives/" + date, instruments));
+    }
+
     /**
      * Получение минутных свечей индикативов за дату без сохранения
      */
@@ -0,0 +1,115 @@
+package com.example.InvestmentDataLoaderService.controller;
+
+import com.example.InvestmentDataLoaderService.dto.IngestionJobRequestDto;
+import com.example.InvestmentDataLoaderService.enums.IngestionJobType;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Контроллер заданий загрузки
+ * Задания выполняются воркерами всех экземпляров сервиса, состояние хранится в invest.ingestion_jobs
+ */
+@RestController
+@RequestMapping("/api/ingestion/jobs")
+public class IngestionJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobController.class);
+    private final IngestionJobService ingestionJobService;
+
+    public IngestionJobController(IngestionJobService ingestionJobService) {
+        this.ingestionJobService = ingestionJobService;
+    }
+
+    /**
+     * Создание задания загрузки свечей (type: MINUTE_CANDLES или DAILY_CANDLES)
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createJob(@RequestBody IngestionJobRequestDto request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            IngestionJobType jobType;
+            try {
+                jobType = IngestionJobType.valueOf(request.getType() != null ? request.getType().toUpperCase() : "");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестный тип задания: " + request.getType());
+            }
+
+            LocalDate date = request.getDate() != null ? request.getDate() : LocalDate.now(ZoneId.of("Europe/Moscow"));
+            LocalDate from = request.getFrom() != null ? request.getFrom() : date;
+            LocalDate to = request.getTo() != null ? request.getTo() : from;
+
+            String jobId = ingestionJobService.createJob(jobType, request.getInstruments(), request.getAssetType(), from, to, "API");
+
+            response.put("success", true);
+            response.put("message", "Задание загрузки создано");
+            response.put("taskId", jobId);
+            response.put("endpoint", "/api/ingestion/jobs");
+            response.put("type", jobType.name());
+            response.put("from", from.toString());
+            response.put("to", to.toString());
+            response.put("status", "PENDING");
+            response.put("startTime", Instant.now().toString());
+            return ResponseEntity.accepted().body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Ошибка создания задания загрузки: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "Ошибка создания задания: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Последние задания загрузки
+     */
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getRecentJobs() {
+        return ResponseEntity.ok(ingestionJobService.getRecentJobs());
+    }
+
+    /**
+     * Состояние задания загрузки
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+        return ingestionJobService.getJobStatus(jobId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("message", "Задание не найдено: " + jobId);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            });
+    }
+
+    /**
+     * Повторная обработка элементов, исчерпавших попытки
+     */
+    @PostMapping("/{jobId}/retry")
+    public ResponseEntity<Map<String, Object>> retryFailed(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        int reset = ingestionJobService.retryFailedItems(jobId);
+        response.put("success", reset > 0);
+        response.put("taskId", jobId);
+        response.put("items", reset);
+        response.put("message", reset > 0
+            ? "Элементы с ошибками возвращены в очередь"
+            : "В задании нет элементов с ошибками");
+        return reset > 0 ? ResponseEntity.accepted().body(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+}
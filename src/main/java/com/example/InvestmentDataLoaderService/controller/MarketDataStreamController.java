@@ -0,0 +1,108 @@
+package com.example.InvestmentDataLoaderService.controller;
+
+import com.example.InvestmentDataLoaderService.service.MarketDataStreamIngestionService;
+import com.example.InvestmentDataLoaderService.service.MarketDataStreamIngestionService.StreamLastPrice;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Контроллер потоковой загрузки рыночных данных (MarketDataStream)
+ */
+@RestController
+@RequestMapping("/api/market-data-stream")
+public class MarketDataStreamController {
+
+    private final MarketDataStreamIngestionService marketDataStreamIngestionService;
+
+    public MarketDataStreamController(MarketDataStreamIngestionService marketDataStreamIngestionService) {
+        this.marketDataStreamIngestionService = marketDataStreamIngestionService;
+    }
+
+    /**
+     * Состояние потоков, счетчики сообщений и очередей записи
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>(marketDataStreamIngestionService.getStatus());
+        response.put("success", true);
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Запуск или переподписка потоков на инструменты реестра
+     */
+    @PostMapping("/start")
+    public ResponseEntity<Map<String, Object>> start() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            int instruments = marketDataStreamIngestionService.start();
+            response.put("success", true);
+            response.put("message", "Потоковая загрузка запущена для " + instruments + " инструментов");
+            response.put("instruments", instruments);
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Ошибка запуска потоковой загрузки: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Остановка потоков с записью накопленных данных
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<Map<String, Object>> stop() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            marketDataStreamIngestionService.stop();
+            response.put("success", true);
+            response.put("message", "Потоковая загрузка остановлена");
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Ошибка остановки потоковой загрузки: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Последняя цена инструмента, полученная из потока
+     */
+    @GetMapping("/last-price/{figi}")
+    public ResponseEntity<Map<String, Object>> getLastPrice(@PathVariable String figi) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<StreamLastPrice> lastPrice = marketDataStreamIngestionService.getLastPrice(figi);
+
+        if (lastPrice.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Последняя цена для " + figi + " из потока не получена");
+            response.put("timestamp", LocalDateTime.now().toString());
+            return ResponseEntity.status(404).body(response);
+        }
+
+        response.put("success", true);
+        response.put("figi", figi);
+        response.put("price", lastPrice.get().price());
+        response.put("time", lastPrice.get().time().toString());
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
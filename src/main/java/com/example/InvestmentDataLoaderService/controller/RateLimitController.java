@@ -37,6 +37,7 @@ public class RateLimitController {
         response.put("usedPermits", stats.getUsedPermits());
         response.put("activeOperationTypes", stats.getActiveOperationTypes());
         response.put("utilizationPercent", (double) stats.getUsedPermits() / stats.getMaxPermits() * 100);
+        response.put("quotas", stats.getQuotas());
         
         return ResponseEntity.ok(response);
     }
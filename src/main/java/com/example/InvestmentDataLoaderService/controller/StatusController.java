@@ -2,13 +2,17 @@ package com.example.InvestmentDataLoaderService.controller;
 
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,7 +23,8 @@ import java.util.Map;
  * <p>Предоставляет API для отслеживания статуса выполнения асинхронных задач
  * через уникальные идентификаторы (taskId).</p>
  * 
- * <p>Все операции логируются в таблицу system_logs с детальной информацией:</p>
+ * <p>Все операции логируются в таблицу system_logs с детальной информацией
+ * (еще не записанная запись из очереди {@link SystemLogWriter} тоже учитывается):</p>
  * <ul>
  *   <li>Статус выполнения (STARTED, COMPLETED, FAILED)</li>
  *   <li>Время начала и завершения</li>
@@ -37,9 +42,11 @@ public class StatusController {
 
     private static final Logger log = LoggerFactory.getLogger(StatusController.class);
     private final SystemLogRepository systemLogRepository;
+    private final SystemLogWriter systemLogWriter;
 
-    public StatusController(SystemLogRepository systemLogRepository) {
+    public StatusController(SystemLogRepository systemLogRepository, SystemLogWriter systemLogWriter) {
         this.systemLogRepository = systemLogRepository;
+        this.systemLogWriter = systemLogWriter;
     }
 
     /**
@@ -69,8 +76,18 @@ public class StatusController {
         log.info("=== ПОЛУЧЕНИЕ СТАТУСА ЗАДАЧИ: {} ===", taskId);
         try {
             log.info("Ищем логи для taskId: {}", taskId);
+            // Последняя запись задачи может еще ждать пакетной вставки в очереди SystemLogWriter
+            var pendingLog = systemLogWriter.findPending(taskId);
             // Получаем все логи по taskId, отсортированные по времени создания (новые первыми)
-            List<SystemLogEntity> logs = systemLogRepository.findByTaskIdOrderByCreatedAtDesc(taskId);
+            List<SystemLogEntity> logs = new ArrayList<>(systemLogRepository.findByTaskIdOrderByCreatedAtDesc(taskId));
+            // Запись могла успеть попасть в БД между двумя чтениями (created_at в БД хранится с точностью до микросекунды)
+            pendingLog
+                .filter(pending -> logs.stream().noneMatch(saved -> saved.getStatus().equals(pending.getStatus())
+                    && Math.abs(Duration.between(saved.getCreatedAt(), pending.getCreatedAt()).toNanos()) < 1000))
+                .ifPresent(pending -> {
+                    logs.add(pending);
+                    logs.sort(Comparator.comparing(SystemLogEntity::getCreatedAt).reversed());
+                });
             
             if (logs.isEmpty()) {
                 log.warn("Задача с taskId '{}' не найдена", taskId);
@@ -1,5 +1,6 @@
 package com.example.InvestmentDataLoaderService.controller;
 
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -18,7 +19,11 @@ import java.util.HashMap;
 public class SystemController {
     
     private static final Logger log = LoggerFactory.getLogger(SystemController.class);
-    
+    private final SystemLogWriter systemLogWriter;
+
+    public SystemController(SystemLogWriter systemLogWriter) {
+        this.systemLogWriter = systemLogWriter;
+    }
 
     // ==================== ЗДОРОВЬЕ СИСТЕМЫ ====================
 
@@ -220,6 +225,9 @@ public class SystemController {
             uptimeStats.put("start_time", System.currentTimeMillis());
             uptimeStats.put("uptime_ms", System.currentTimeMillis());
             stats.put("uptime", uptimeStats);
+
+            // Очередь асинхронной записи system_logs
+            stats.put("system_logs_writer", systemLogWriter.getStats());
             
             // Статистика материализованных представлений
             // TODO: Реализовать получение детальной статистики
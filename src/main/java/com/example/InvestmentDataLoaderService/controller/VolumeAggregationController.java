@@ -1,34 +1,64 @@
 package com.example.InvestmentDataLoaderService.controller;
 
+import com.example.InvestmentDataLoaderService.dto.DayPriceSummaryDto;
+import com.example.InvestmentDataLoaderService.dto.SessionAnalyticsDto;
+import com.example.InvestmentDataLoaderService.service.SessionAnalyticsService;
+import com.example.InvestmentDataLoaderService.service.VolumeRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Контроллер для управления материализованным представлением агрегации объемов
+ * Контроллер для управления агрегацией объемов
  */
 @RestController
 @RequestMapping("/api/volume-aggregation")
 public class VolumeAggregationController {
     
-  
+    private final VolumeRollupService volumeRollupService;
+    private final SessionAnalyticsService sessionAnalyticsService;
+
+    public VolumeAggregationController(VolumeRollupService volumeRollupService,
+                                       SessionAnalyticsService sessionAnalyticsService) {
+        this.volumeRollupService = volumeRollupService;
+        this.sessionAnalyticsService = sessionAnalyticsService;
+    }
     
     /**
-     * Ручное обновление материализованного представления
+     * Пересчет агрегации объемов за диапазон дат
+     * По умолчанию пересчитывается вчерашний день
      */
     @PostMapping("/refresh")
-    @Transactional
-    public ResponseEntity<Map<String, Object>> refreshAggregation() {
+    public ResponseEntity<Map<String, Object>> refreshAggregation(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
         Map<String, Object> response = new HashMap<>();
         
+        LocalDate yesterday = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
+        LocalDate dateFrom = from != null ? from : (to != null ? to : yesterday);
+        LocalDate dateTo = to != null ? to : (from != null ? from : yesterday);
+        
+        if (dateFrom.isAfter(dateTo)) {
+            response.put("success", false);
+            response.put("message", "Дата начала " + dateFrom + " позже даты окончания " + dateTo);
+            response.put("timestamp", LocalDateTime.now().toString());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
         try {
-            // TODO: Реализовать ручное обновление материализованного представления
+            int rows = volumeRollupService.rollupDays(dateFrom, dateTo);
             response.put("success", true);
-            response.put("message", "Материализованное представление обновлено");
+            response.put("message", "Агрегация объемов пересчитана за " + dateFrom + " - " + dateTo);
+            response.put("from", dateFrom.toString());
+            response.put("to", dateTo.toString());
+            response.put("rows", rows);
             response.put("timestamp", LocalDateTime.now().toString());
             
             return ResponseEntity.ok(response);
@@ -41,6 +71,62 @@ public class VolumeAggregationController {
             return ResponseEntity.status(500).body(response);
         }
     }
-    
-    
+
+    /**
+     * Объемы по торговым сессиям за день по минутным свечам
+     */
+    @GetMapping("/sessions/{date}")
+    public ResponseEntity<Map<String, Object>> getSessionAnalytics(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String figi) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<SessionAnalyticsDto> analytics = sessionAnalyticsService.getSessionAnalytics(date, figi);
+            response.put("success", true);
+            response.put("message", "Аналитика по сессиям за " + date);
+            response.put("date", date.toString());
+            response.put("count", analytics.size());
+            response.put("data", analytics);
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Ошибка получения аналитики: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Сводка цен и объема за день: первая цена открытия, последняя цена закрытия, максимум, минимум
+     */
+    @GetMapping("/day-summary/{date}")
+    public ResponseEntity<Map<String, Object>> getDayPriceSummary(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String figi) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<DayPriceSummaryDto> summary = sessionAnalyticsService.getDayPriceSummary(date, figi);
+            response.put("success", true);
+            response.put("message", "Сводка цен за " + date);
+            response.put("date", date.toString());
+            response.put("count", summary.size());
+            response.put("data", summary);
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Ошибка получения сводки: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
 }
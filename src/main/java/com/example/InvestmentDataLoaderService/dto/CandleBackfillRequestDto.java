@@ -0,0 +1,19 @@
+package com.example.InvestmentDataLoaderService.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO для запроса исторической догрузки свечей за диапазон дат
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandleBackfillRequestDto {
+    private List<String> instruments;
+    private LocalDate from;
+    private LocalDate to;
+}
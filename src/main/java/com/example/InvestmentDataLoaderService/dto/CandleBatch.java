@@ -0,0 +1,121 @@
+package com.example.InvestmentDataLoaderService.dto;
+
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Свечи одного инструмента в компактном виде: параллельные массивы примитивов
+ *
+ * <p>Цены - {@code long} в единицах 1e-9 ({@link FixedPoint}), время - epoch seconds.
+ * В отличие от списка {@link CandleDto}, на свечу не создается ни одного объекта:
+ * BigDecimal и Instant появляются только при записи в БД или выдаче в JSON
+ * ({@link #toDto(int)}, мапперы сущностей).</p>
+ */
+public final class CandleBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final String figi;
+    private int size;
+    private long[] time;
+    private long[] open;
+    private long[] high;
+    private long[] low;
+    private long[] close;
+    private long[] volume;
+    private boolean[] complete;
+
+    public CandleBatch(String figi, int capacity) {
+        int initial = Math.max(capacity, 1);
+        this.figi = figi;
+        this.time = new long[initial];
+        this.open = new long[initial];
+        this.high = new long[initial];
+        this.low = new long[initial];
+        this.close = new long[initial];
+        this.volume = new long[initial];
+        this.complete = new boolean[initial];
+    }
+
+    public CandleBatch(String figi) {
+        this(figi, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Добавляет свечу
+     *
+     * @param timeSeconds время открытия свечи, epoch seconds
+     * @param open цены в единицах 1e-9
+     */
+    public void add(long timeSeconds, long open, long high, long low, long close, long volume, boolean complete) {
+        if (size == time.length) {
+            grow();
+        }
+        this.time[size] = timeSeconds;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        this.complete[size] = complete;
+        size++;
+    }
+
+    public String figi() { return figi; }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public long time(int index) { return time[index]; }
+
+    public long open(int index) { return open[index]; }
+
+    public long high(int index) { return high[index]; }
+
+    public long low(int index) { return low[index]; }
+
+    public long close(int index) { return close[index]; }
+
+    public long volume(int index) { return volume[index]; }
+
+    public boolean isComplete(int index) { return complete[index]; }
+
+    public Instant instant(int index) {
+        return Instant.ofEpochSecond(time[index]);
+    }
+
+    /**
+     * Свеча в виде DTO (граница с JSON и прежними потребителями)
+     */
+    public CandleDto toDto(int index) {
+        return new CandleDto(figi, volume[index],
+            FixedPoint.toBigDecimal(high[index]), FixedPoint.toBigDecimal(low[index]),
+            instant(index),
+            FixedPoint.toBigDecimal(close[index]), FixedPoint.toBigDecimal(open[index]),
+            complete[index]);
+    }
+
+    public List<CandleDto> toDtos() {
+        List<CandleDto> candles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            candles.add(toDto(i));
+        }
+        return candles;
+    }
+
+    private void grow() {
+        int capacity = time.length * 2;
+        time = Arrays.copyOf(time, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        complete = Arrays.copyOf(complete, capacity);
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.InvestmentDataLoaderService.dto;
+
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Свечи многих инструментов за период в колоночном виде (struct-of-arrays)
+ *
+ * <p>Строки упорядочены по (figi, time), поэтому свечи инструмента занимают непрерывный
+ * диапазон {@code [from(k), to(k))}, а FIGI хранятся один раз в словаре. Цены - {@code long}
+ * в единицах 1e-9 (как {@link CandleBatch}), время - epoch seconds. Торговый день минутных
+ * свечей всех инструментов (~2 млн строк) занимает ~100 МБ против гигабайтов для
+ * управляемых сущностей; агрегаты считаются циклами по массивам без создания объектов.</p>
+ */
+public final class CandleColumns {
+
+    /** Число кодов сессий: размер массивов для {@link #sessionTotals} */
+    public static final int SESSION_CODES = TradingSession.values().length;
+
+    private final String[] figis;
+    private final int[] figiStart;
+    private final Map<String, Integer> figiIndex;
+    private final int size;
+    private final long[] time;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private final short[] session;
+
+    private CandleColumns(Builder builder) {
+        this.figis = Arrays.copyOf(builder.figis, builder.figiCount);
+        this.figiStart = Arrays.copyOf(builder.figiStart, builder.figiCount + 1);
+        this.figiStart[builder.figiCount] = builder.size;
+        this.figiIndex = new HashMap<>(Math.max(16, builder.figiCount * 2));
+        for (int k = 0; k < figis.length; k++) {
+            figiIndex.put(figis[k], k);
+        }
+        this.size = builder.size;
+        this.time = builder.time;
+        this.open = builder.open;
+        this.high = builder.high;
+        this.low = builder.low;
+        this.close = builder.close;
+        this.volume = builder.volume;
+        this.session = builder.session;
+    }
+
+    public int size() { return size; }
+
+    public int figiCount() { return figis.length; }
+
+    public String figi(int figiIdx) { return figis[figiIdx]; }
+
+    /**
+     * Номер инструмента в словаре или -1, если свечей инструмента нет
+     */
+    public int indexOf(String figi) {
+        Integer index = figiIndex.get(figi);
+        return index != null ? index : -1;
+    }
+
+    /** Первая строка инструмента */
+    public int from(int figiIdx) { return figiStart[figiIdx]; }
+
+    /** Строка после последней строки инструмента */
+    public int to(int figiIdx) { return figiStart[figiIdx + 1]; }
+
+    public int candles(int figiIdx) { return to(figiIdx) - from(figiIdx); }
+
+    public long time(int row) { return time[row]; }
+
+    public long open(int row) { return open[row]; }
+
+    public long high(int row) { return high[row]; }
+
+    public long low(int row) { return low[row]; }
+
+    public long close(int row) { return close[row]; }
+
+    public long volume(int row) { return volume[row]; }
+
+    public short session(int row) { return session[row]; }
+
+    /**
+     * Цена открытия первой свечи инструмента (1e-9)
+     */
+    public long firstOpen(int figiIdx) {
+        return open[from(figiIdx)];
+    }
+
+    /**
+     * Цена закрытия последней свечи инструмента (1e-9)
+     */
+    public long lastClose(int figiIdx) {
+        return close[to(figiIdx) - 1];
+    }
+
+    public long maxHigh(int figiIdx) {
+        long max = Long.MIN_VALUE;
+        for (int row = from(figiIdx), end = to(figiIdx); row < end; row++) {
+            max = Math.max(max, high[row]);
+        }
+        return max;
+    }
+
+    public long minLow(int figiIdx) {
+        long min = Long.MAX_VALUE;
+        for (int row = from(figiIdx), end = to(figiIdx); row < end; row++) {
+            min = Math.min(min, low[row]);
+        }
+        return min;
+    }
+
+    public long totalVolume(int figiIdx) {
+        long total = 0;
+        for (int row = from(figiIdx), end = to(figiIdx); row < end; row++) {
+            total += volume[row];
+        }
+        return total;
+    }
+
+    /**
+     * Объемы и количество свечей инструмента по кодам сессий ({@link TradingSession#getCode()})
+     *
+     * @param volumes массив длиной не меньше {@link #SESSION_CODES}, заполняется объемами
+     * @param counts массив той же длины, заполняется количеством свечей
+     */
+    public void sessionTotals(int figiIdx, long[] volumes, long[] counts) {
+        Arrays.fill(volumes, 0);
+        Arrays.fill(counts, 0);
+        for (int row = from(figiIdx), end = to(figiIdx); row < end; row++) {
+            int code = session[row];
+            volumes[code] += volume[row];
+            counts[code]++;
+        }
+    }
+
+    /**
+     * Оценка занимаемой памяти массивами, байт
+     */
+    public long estimatedBytes() {
+        return (long) time.length * (6 * Long.BYTES + Short.BYTES) + (long) figiStart.length * Integer.BYTES;
+    }
+
+    /**
+     * Построитель: строки добавляются в порядке (figi, time)
+     */
+    public static final class Builder {
+
+        private String[] figis = new String[64];
+        private int[] figiStart = new int[65];
+        private int figiCount;
+        private int size;
+        private long[] time;
+        private long[] open;
+        private long[] high;
+        private long[] low;
+        private long[] close;
+        private long[] volume;
+        private short[] session;
+
+        /**
+         * @param capacity ожидаемое число строк (например, из {@code count(*)})
+         */
+        public Builder(int capacity) {
+            int initial = Math.max(capacity, 1);
+            this.time = new long[initial];
+            this.open = new long[initial];
+            this.high = new long[initial];
+            this.low = new long[initial];
+            this.close = new long[initial];
+            this.volume = new long[initial];
+            this.session = new short[initial];
+        }
+
+        /**
+         * Добавляет свечу; новый FIGI (не равный предыдущему) начинает диапазон инструмента
+         *
+         * @param sessionCode код {@link TradingSession}, неизвестные коды считаются {@link TradingSession#NONE}
+         */
+        public Builder add(String figi, long timeSeconds, long open, long high, long low, long close,
+                           long volume, short sessionCode) {
+            if (figiCount == 0 || !figis[figiCount - 1].equals(figi)) {
+                startFigi(figi);
+            }
+            if (size == time.length) {
+                grow();
+            }
+            this.time[size] = timeSeconds;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.volume[size] = volume;
+            this.session[size] = sessionCode >= 0 && sessionCode < SESSION_CODES
+                ? sessionCode : TradingSession.NONE.getCode();
+            size++;
+            return this;
+        }
+
+        public CandleColumns build() {
+            return new CandleColumns(this);
+        }
+
+        private void startFigi(String figi) {
+            if (figiCount == figis.length) {
+                figis = Arrays.copyOf(figis, figiCount * 2);
+                figiStart = Arrays.copyOf(figiStart, figiCount * 2 + 1);
+            }
+            figis[figiCount] = figi;
+            figiStart[figiCount] = size;
+            figiCount++;
+        }
+
+        private void grow() {
+            int capacity = time.length * 2;
+            time = Arrays.copyOf(time, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+            session = Arrays.copyOf(session, capacity);
+        }
+    }
+}
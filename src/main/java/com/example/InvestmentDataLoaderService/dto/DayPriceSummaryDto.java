@@ -0,0 +1,23 @@
+package com.example.InvestmentDataLoaderService.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * DTO сводки цен и объема инструмента за торговый день по минутным свечам
+ */
+public record DayPriceSummaryDto(
+    @JsonProperty("figi") String figi,
+    @JsonProperty("trade_date") LocalDate tradeDate,
+    @JsonProperty("first_open") BigDecimal firstOpen,
+    @JsonProperty("last_close") BigDecimal lastClose,
+    @JsonProperty("max_high") BigDecimal maxHigh,
+    @JsonProperty("min_low") BigDecimal minLow,
+    @JsonProperty("total_volume") Long totalVolume,
+    @JsonProperty("total_candles") Long totalCandles,
+    @JsonProperty("first_candle_time") Instant firstCandleTime,
+    @JsonProperty("last_candle_time") Instant lastCandleTime
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.InvestmentDataLoaderService.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO для создания задания загрузки
+ * Если from/to не указаны, используется date; если не указаны инструменты - все инструменты assetType
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJobRequestDto {
+    private String type;
+    private List<String> instruments;
+    private List<String> assetType;
+    private LocalDate date;
+    private LocalDate from;
+    private LocalDate to;
+}
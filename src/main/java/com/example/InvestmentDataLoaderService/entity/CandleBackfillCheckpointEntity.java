@@ -0,0 +1,127 @@
+package com.example.InvestmentDataLoaderService.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Чекпоинт исторической догрузки свечей: одна строка на (задание, инструмент)
+ *
+ * <p>{@code loadedUntil} сдвигается после записи каждого окна запроса, поэтому
+ * прерванная догрузка продолжается с первого незаписанного окна.</p>
+ */
+@Entity
+@Table(name = "candle_backfill_checkpoints", schema = "invest",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"job_id", "figi"}))
+public class CandleBackfillCheckpointEntity {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 64)
+    private String jobId;
+
+    @Column(name = "figi", nullable = false)
+    private String figi;
+
+    @Column(name = "candle_interval", nullable = false, length = 32)
+    private String candleInterval;
+
+    @Column(name = "range_from", nullable = false)
+    private Instant rangeFrom;
+
+    @Column(name = "range_to", nullable = false)
+    private Instant rangeTo;
+
+    @Column(name = "loaded_until")
+    private Instant loadedUntil;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "candles_loaded", nullable = false)
+    private long candlesLoaded;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public CandleBackfillCheckpointEntity() {
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public CandleBackfillCheckpointEntity(String jobId, String figi, String candleInterval, Instant rangeFrom, Instant rangeTo) {
+        this();
+        this.jobId = jobId;
+        this.figi = figi;
+        this.candleInterval = candleInterval;
+        this.rangeFrom = rangeFrom;
+        this.rangeTo = rangeTo;
+        this.status = STATUS_PENDING;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Начало следующего незагруженного окна
+     */
+    public Instant getResumeFrom() {
+        return loadedUntil != null ? loadedUntil : rangeFrom;
+    }
+
+    public boolean isFinished() {
+        return !getResumeFrom().isBefore(rangeTo);
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getFigi() { return figi; }
+    public void setFigi(String figi) { this.figi = figi; }
+
+    public String getCandleInterval() { return candleInterval; }
+    public void setCandleInterval(String candleInterval) { this.candleInterval = candleInterval; }
+
+    public Instant getRangeFrom() { return rangeFrom; }
+    public void setRangeFrom(Instant rangeFrom) { this.rangeFrom = rangeFrom; }
+
+    public Instant getRangeTo() { return rangeTo; }
+    public void setRangeTo(Instant rangeTo) { this.rangeTo = rangeTo; }
+
+    public Instant getLoadedUntil() { return loadedUntil; }
+    public void setLoadedUntil(Instant loadedUntil) { this.loadedUntil = loadedUntil; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public long getCandlesLoaded() { return candlesLoaded; }
+    public void setCandlesLoaded(long candlesLoaded) { this.candlesLoaded = candlesLoaded; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,104 @@
+package com.example.InvestmentDataLoaderService.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Задание загрузки данных: одна строка на задание, элементы в {@link IngestionJobItemEntity}
+ *
+ * <p>Статусы: PENDING (элементы еще не брались в работу) → RUNNING → COMPLETED или FAILED
+ * (часть элементов исчерпала попытки). Статус пересчитывается воркерами после каждой пачки.</p>
+ */
+@Entity
+@Table(name = "ingestion_jobs", schema = "invest")
+public class IngestionJobEntity {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @Column(name = "id", length = 64)
+    private String id;
+
+    @Column(name = "job_type", nullable = false, length = 32)
+    private String jobType;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "date_from", nullable = false)
+    private LocalDate dateFrom;
+
+    @Column(name = "date_to", nullable = false)
+    private LocalDate dateTo;
+
+    @Column(name = "total_items", nullable = false)
+    private int totalItems;
+
+    @Column(name = "source", length = 64)
+    private String source;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public IngestionJobEntity() {
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public IngestionJobEntity(String id, String jobType, LocalDate dateFrom, LocalDate dateTo, int totalItems, String source) {
+        this();
+        this.id = id;
+        this.jobType = jobType;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.totalItems = totalItems;
+        this.source = source;
+        this.status = STATUS_PENDING;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getJobType() { return jobType; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDate getDateFrom() { return dateFrom; }
+    public void setDateFrom(LocalDate dateFrom) { this.dateFrom = dateFrom; }
+
+    public LocalDate getDateTo() { return dateTo; }
+    public void setDateTo(LocalDate dateTo) { this.dateTo = dateTo; }
+
+    public int getTotalItems() { return totalItems; }
+    public void setTotalItems(int totalItems) { this.totalItems = totalItems; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -0,0 +1,111 @@
+package com.example.InvestmentDataLoaderService.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Элемент задания загрузки: одна строка на (задание, инструмент, дата)
+ *
+ * <p>Переходы статуса: PENDING → RUNNING (воркер взял элемент в аренду до {@code leaseUntil})
+ * → DONE, либо обратно в PENDING при ошибке, либо FAILED после исчерпания попыток.
+ * Элемент RUNNING с истекшей арендой считается брошенным и снова доступен для захвата.</p>
+ */
+@Entity
+@Table(name = "ingestion_job_items", schema = "invest",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"job_id", "figi", "trade_date"}))
+public class IngestionJobItemEntity {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 64)
+    private String jobId;
+
+    @Column(name = "job_type", nullable = false, length = 32)
+    private String jobType;
+
+    @Column(name = "figi", nullable = false)
+    private String figi;
+
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "candles_loaded", nullable = false)
+    private int candlesLoaded;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public IngestionJobItemEntity() {
+        this.updatedAt = Instant.now();
+    }
+
+    public IngestionJobItemEntity(String jobId, String jobType, String figi, LocalDate tradeDate) {
+        this();
+        this.jobId = jobId;
+        this.jobType = jobType;
+        this.figi = figi;
+        this.tradeDate = tradeDate;
+        this.status = STATUS_PENDING;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getJobType() { return jobType; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+
+    public String getFigi() { return figi; }
+    public void setFigi(String figi) { this.figi = figi; }
+
+    public LocalDate getTradeDate() { return tradeDate; }
+    public void setTradeDate(LocalDate tradeDate) { this.tradeDate = tradeDate; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+
+    public Instant getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(Instant leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public int getCandlesLoaded() { return candlesLoaded; }
+    public void setCandlesLoaded(int candlesLoaded) { this.candlesLoaded = candlesLoaded; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -62,6 +62,10 @@ public class MinuteCandleEntity {
     @Column(name = "average_price", precision = 18, scale = 2)
     private BigDecimal averagePrice;
     
+    // Код торговой сессии (TradingSession), вычисляется при маппинге (MinuteCandleMapper)
+    @Column(name = "session_code")
+    private Short sessionCode;
+    
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
     
@@ -185,4 +189,7 @@ public class MinuteCandleEntity {
 
     public BigDecimal getAveragePrice() { return averagePrice; }
     public void setAveragePrice(BigDecimal averagePrice) { this.averagePrice = averagePrice; }
+    
+    public Short getSessionCode() { return sessionCode; }
+    public void setSessionCode(Short sessionCode) { this.sessionCode = sessionCode; }
 }
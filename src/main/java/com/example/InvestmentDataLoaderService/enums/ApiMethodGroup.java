@@ -0,0 +1,60 @@
+package com.example.InvestmentDataLoaderService.enums;
+
+/**
+ * Группа методов T-Invest API с общей квотой запросов
+ *
+ * <p>Лимиты T-Invest API считаются на сервис в минуту, поэтому все методы одного
+ * gRPC-сервиса (и соответствующие REST-ручки) расходуют одну квоту.</p>
+ */
+public enum ApiMethodGroup {
+    /**
+     * MarketDataService: свечи, обезличенные сделки, цены закрытия
+     */
+    MARKET_DATA(600),
+
+    /**
+     * InstrumentsService: акции, фьючерсы, индикативы, дивиденды, фундаментальные показатели
+     */
+    INSTRUMENTS(200),
+
+    /**
+     * UsersService: счета и маржинальные показатели
+     */
+    USERS(100);
+
+    private final int defaultRequestsPerMinute;
+
+    ApiMethodGroup(int defaultRequestsPerMinute) {
+        this.defaultRequestsPerMinute = defaultRequestsPerMinute;
+    }
+
+    /**
+     * Квота по умолчанию, если она не задана в {@code rate-limit.requests-per-minute.*}
+     */
+    public int getDefaultRequestsPerMinute() {
+        return defaultRequestsPerMinute;
+    }
+
+    /**
+     * Определяет группу по полному имени gRPC-сервиса
+     * (например, {@code tinkoff.public.invest.api.contract.v1.MarketDataService})
+     *
+     * @param serviceName имя сервиса из {@code MethodDescriptor}
+     * @return группа методов или null, если сервис не ограничивается общими квотами
+     */
+    public static ApiMethodGroup fromServiceName(String serviceName) {
+        if (serviceName == null) {
+            return null;
+        }
+        if (serviceName.endsWith(".MarketDataService")) {
+            return MARKET_DATA;
+        }
+        if (serviceName.endsWith(".InstrumentsService")) {
+            return INSTRUMENTS;
+        }
+        if (serviceName.endsWith(".UsersService")) {
+            return USERS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.InvestmentDataLoaderService.enums;
+
+/**
+ * Тип задания загрузки ({@code invest.ingestion_jobs.job_type})
+ */
+public enum IngestionJobType {
+    /**
+     * Минутные свечи в invest.minute_candles
+     */
+    MINUTE_CANDLES("CANDLE_INTERVAL_1_MIN"),
+
+    /**
+     * Дневные свечи в invest.daily_candles
+     */
+    DAILY_CANDLES("CANDLE_INTERVAL_DAY");
+
+    private final String candleInterval;
+
+    IngestionJobType(String candleInterval) {
+        this.candleInterval = candleInterval;
+    }
+
+    /**
+     * Интервал свечей T-Invest API, запрашиваемый для элемента задания
+     */
+    public String getCandleInterval() {
+        return candleInterval;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.InvestmentDataLoaderService.enums;
+
+/**
+ * Тип задания загрузки - тег {@code job} метрик конвейера ({@code pipeline.*})
+ */
+public enum PipelineJob {
+    /**
+     * Минутные свечи
+     */
+    MINUTE("minute"),
+
+    /**
+     * Дневные свечи
+     */
+    DAILY("daily"),
+
+    /**
+     * Цены закрытия основной сессии
+     */
+    CLOSE("close"),
+
+    /**
+     * Цены закрытия вечерней сессии
+     */
+    EVENING("evening"),
+
+    /**
+     * Цены открытия утренней сессии
+     */
+    MORNING("morning"),
+
+    /**
+     * Обезличенные сделки (последние цены)
+     */
+    TRADES("trades");
+
+    private final String tag;
+
+    PipelineJob(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
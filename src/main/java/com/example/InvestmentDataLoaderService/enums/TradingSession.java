@@ -0,0 +1,64 @@
+package com.example.InvestmentDataLoaderService.enums;
+
+/**
+ * Торговая сессия минутной свечи ({@code invest.minute_candles.session_code})
+ *
+ * <p>Код вычисляется при маппинге свечи ({@code MinuteCandleMapper}) по московскому времени и
+ * кэшу {@code invest_candles.special_trading_hours} ({@code TradingSessionCalendar}); история
+ * заполнена той же логикой функцией {@code invest.minute_candle_session_code}.</p>
+ */
+public enum TradingSession {
+    /**
+     * Вне торговых сессий или вне специальных торговых часов инструмента
+     */
+    NONE(0),
+
+    /**
+     * Утренняя сессия будней (06:59:59-09:59)
+     */
+    MORNING(1),
+
+    /**
+     * Основная сессия будней (10:00-18:59)
+     */
+    MAIN(2),
+
+    /**
+     * Вечерняя сессия будней (19:00-23:50)
+     */
+    EVENING(3),
+
+    /**
+     * Биржевая сессия выходного дня (10:00-18:59)
+     */
+    WEEKEND_EXCHANGE(4),
+
+    /**
+     * Внебиржевая сессия выходного дня (02:00-09:59, 19:00-23:50)
+     */
+    WEEKEND_OTC(5);
+
+    private final short code;
+
+    TradingSession(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Сессия по коду из БД; неизвестные коды и null дают {@link #NONE}
+     */
+    public static TradingSession fromCode(Short code) {
+        if (code != null) {
+            for (TradingSession session : values()) {
+                if (session.code == code) {
+                    return session;
+                }
+            }
+        }
+        return NONE;
+    }
+}
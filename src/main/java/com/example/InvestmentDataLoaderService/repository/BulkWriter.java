@@ -0,0 +1,35 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import java.util.List;
+
+/**
+ * Пакетная запись строк в таблицу БД
+ *
+ * <p>Реализации взаимозаменяемы и выбираются конфигурацией {@code bulk-writer.*}:
+ * JPA ({@link JpaBulkWriter}) или PostgreSQL COPY ({@link PgCopyBulkWriter}).</p>
+ *
+ * @param <T> тип записываемой сущности
+ */
+public interface BulkWriter<T> {
+
+    /**
+     * Записывает пакет строк
+     *
+     * @param rows строки для записи
+     * @return количество фактически вставленных строк
+     */
+    int write(List<T> rows);
+
+    /**
+     * Отбрасывает ли реализация дубликаты первичного ключа сама
+     * Если нет, вызывающий код должен проверять существование записей до записи
+     */
+    default boolean skipsDuplicates() {
+        return false;
+    }
+
+    /**
+     * Имя реализации для логов и сравнения производительности
+     */
+    String getName();
+}
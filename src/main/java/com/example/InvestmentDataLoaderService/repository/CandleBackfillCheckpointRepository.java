@@ -0,0 +1,21 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.entity.CandleBackfillCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CandleBackfillCheckpointRepository extends JpaRepository<CandleBackfillCheckpointEntity, Long> {
+
+    /**
+     * Находит все чекпоинты задания догрузки
+     */
+    List<CandleBackfillCheckpointEntity> findByJobIdOrderByFigi(String jobId);
+
+    /**
+     * Находит незавершенные чекпоинты задания (для продолжения после сбоя)
+     */
+    List<CandleBackfillCheckpointEntity> findByJobIdAndStatusNotOrderByFigi(String jobId, String status);
+}
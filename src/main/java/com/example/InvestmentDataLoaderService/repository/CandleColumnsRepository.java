@@ -0,0 +1,127 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.dto.CandleColumns;
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Чтение свечей всех инструментов за период в {@link CandleColumns}
+ *
+ * <p>Строки читаются курсором только вперед порциями {@code candle-columns.fetch-size}
+ * (PostgreSQL держит курсор только внутри транзакции, поэтому чтение идет в read-only
+ * транзакции). Цены переводятся в единицы 1e-9 и время в epoch seconds на стороне БД,
+ * так что на строку не создаются ни сущности, ни BigDecimal. Размер массивов задается
+ * {@code count(*)} в том же снимке REPEATABLE READ.</p>
+ */
+@Repository
+public class CandleColumnsRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleColumnsRepository.class);
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final String MINUTE_TABLE = "invest.minute_candles";
+    private static final String DAILY_TABLE = "invest.daily_candles";
+
+    private static final String COUNT_SQL_TEMPLATE =
+        "SELECT count(*) FROM %s WHERE time >= ? AND time < ?%s";
+
+    private static final String SELECT_SQL_TEMPLATE =
+        "SELECT figi, EXTRACT(EPOCH FROM time)::bigint AS time_seconds, " +
+        "       (open * 1000000000)::bigint AS open_nanos, (high * 1000000000)::bigint AS high_nanos, " +
+        "       (low * 1000000000)::bigint AS low_nanos, (close * 1000000000)::bigint AS close_nanos, " +
+        "       volume, %s AS session_code " +
+        "FROM %s WHERE time >= ? AND time < ?%s " +
+        "ORDER BY figi, time";
+
+    private static final String FIGI_CONDITION = " AND figi = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public CandleColumnsRepository(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${candle-columns.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Минутные свечи за торговый день (сутки по Москве) с кодами сессий
+     *
+     * @param figi инструмент или null - все инструменты
+     */
+    public CandleColumns loadMinuteDay(LocalDate date, String figi) {
+        return load(MINUTE_TABLE, "COALESCE(session_code, " + TradingSession.NONE.getCode() + ")",
+            date.atStartOfDay(MOSCOW).toInstant(), date.plusDays(1).atStartOfDay(MOSCOW).toInstant(), figi);
+    }
+
+    /**
+     * Дневные свечи за дни [from, to] (по Москве); код сессии - {@link TradingSession#NONE}
+     *
+     * @param figi инструмент или null - все инструменты
+     */
+    public CandleColumns loadDailyDays(LocalDate from, LocalDate to, String figi) {
+        return load(DAILY_TABLE, String.valueOf(TradingSession.NONE.getCode()),
+            from.atStartOfDay(MOSCOW).toInstant(), to.plusDays(1).atStartOfDay(MOSCOW).toInstant(), figi);
+    }
+
+    private CandleColumns load(String table, String sessionExpression, Instant startTime, Instant endTime, String figi) {
+        long started = System.nanoTime();
+        Timestamp start = Timestamp.from(startTime);
+        Timestamp end = Timestamp.from(endTime);
+        String figiCondition = figi != null ? FIGI_CONDITION : "";
+        String selectSql = String.format(SELECT_SQL_TEMPLATE, sessionExpression, table, figiCondition);
+        Object[] countArgs = figi != null ? new Object[]{start, end, figi} : new Object[]{start, end};
+
+        CandleColumns columns = readOnlyTransaction.execute(status -> {
+            Long count = jdbcTemplate.queryForObject(String.format(COUNT_SQL_TEMPLATE, table, figiCondition), Long.class, countArgs);
+            CandleColumns.Builder builder = new CandleColumns.Builder(count != null ? Math.toIntExact(count) : 0);
+
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(selectSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, start);
+                statement.setTimestamp(2, end);
+                if (figi != null) {
+                    statement.setString(3, figi);
+                }
+                return statement;
+            }, (RowCallbackHandler) rs -> builder.add(
+                rs.getString(1),
+                rs.getLong(2),
+                rs.getLong(3),
+                rs.getLong(4),
+                rs.getLong(5),
+                rs.getLong(6),
+                rs.getLong(7),
+                rs.getShort(8)));
+            return builder.build();
+        });
+
+        log.info("Загружено {} свечей {} инструментов из {} за {} - {} ({} МБ, {} мс)",
+            columns.size(), columns.figiCount(), table, startTime, endTime,
+            columns.estimatedBytes() / (1024 * 1024), (System.nanoTime() - started) / 1_000_000);
+        return columns;
+    }
+}
@@ -8,7 +8,6 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
-import java.time.LocalDate;
 import java.util.List;
 
 @Repository
@@ -19,6 +18,15 @@ public interface DailyCandleRepository extends JpaRepository<DailyCandleEntity,
      */
     boolean existsByFigiAndTime(String figi, Instant time);
     
+    /**
+     * Получает время всех уже сохраненных дневных свечей инструмента в заданном временном диапазоне
+     * Используется для пакетной проверки дубликатов одним запросом
+     */
+    @Query("SELECT c.time FROM DailyCandleEntity c WHERE c.figi = :figi AND c.time >= :startTime AND c.time <= :endTime")
+    List<Instant> findTimesByFigiAndTimeBetween(@Param("figi") String figi,
+                                               @Param("startTime") Instant startTime,
+                                               @Param("endTime") Instant endTime);
+    
     /**
      * Находит дневную свечу по FIGI и времени
      */
@@ -46,12 +54,6 @@ public interface DailyCandleRepository extends JpaRepository<DailyCandleEntity,
                                    @Param("startTime") Instant startTime, 
                                    @Param("endTime") Instant endTime);
     
-    /**
-     * Находит все дневные свечи за определенную дату
-     */
-    @Query("SELECT c FROM DailyCandleEntity c WHERE DATE(c.time) = :date ORDER BY c.figi, c.time")
-    List<DailyCandleEntity> findByDate(@Param("date") LocalDate date);
-    
     /**
      * Получает агрегированные данные для списка FIGI одним запросом
      * Оптимизированный метод для пакетной обработки
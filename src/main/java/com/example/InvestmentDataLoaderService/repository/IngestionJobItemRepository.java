@@ -0,0 +1,40 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.entity.IngestionJobItemEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IngestionJobItemRepository extends JpaRepository<IngestionJobItemEntity, Long> {
+
+    /**
+     * Количество элементов задания по статусам: пары [status, count]
+     */
+    @Query("SELECT i.status, COUNT(i) FROM IngestionJobItemEntity i WHERE i.jobId = :jobId GROUP BY i.status")
+    List<Object[]> countByStatus(@Param("jobId") String jobId);
+
+    /**
+     * Сумма вставленных свечей по заданию
+     */
+    @Query("SELECT COALESCE(SUM(i.candlesLoaded), 0) FROM IngestionJobItemEntity i WHERE i.jobId = :jobId")
+    long sumCandlesLoaded(@Param("jobId") String jobId);
+
+    /**
+     * Находит элементы задания в указанном статусе
+     */
+    List<IngestionJobItemEntity> findTop100ByJobIdAndStatusOrderById(String jobId, String status);
+
+    /**
+     * Возвращает элементы, исчерпавшие попытки, в очередь с обнуленным счетчиком
+     */
+    @Modifying
+    @Query(value = "UPDATE invest.ingestion_job_items SET status = 'PENDING', attempts = 0, lease_owner = NULL, " +
+                   "lease_until = NULL, updated_at = now() WHERE job_id = :jobId AND status = 'FAILED'",
+           nativeQuery = true)
+    int resetFailedItems(@Param("jobId") String jobId);
+}
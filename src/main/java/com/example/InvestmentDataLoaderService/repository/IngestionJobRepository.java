@@ -0,0 +1,16 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.entity.IngestionJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJobEntity, String> {
+
+    /**
+     * Находит последние задания загрузки
+     */
+    List<IngestionJobEntity> findTop50ByOrderByCreatedAtDesc();
+}
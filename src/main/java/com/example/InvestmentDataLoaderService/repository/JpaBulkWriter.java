@@ -0,0 +1,34 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Пакетная запись через JPA {@code saveAll}
+ *
+ * <p>Исходный способ записи: проходит через persistence context и dirty-checking Hibernate.
+ * Дубликаты должны быть отфильтрованы вызывающим кодом до записи.</p>
+ */
+public class JpaBulkWriter<T> implements BulkWriter<T> {
+
+    private final JpaRepository<T, ?> repository;
+
+    public JpaBulkWriter(JpaRepository<T, ?> repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public int write(List<T> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        repository.saveAll(rows);
+        return rows.size();
+    }
+
+    @Override
+    public String getName() {
+        return "jpa";
+    }
+}
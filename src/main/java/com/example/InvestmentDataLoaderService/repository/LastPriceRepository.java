@@ -3,10 +3,23 @@ package com.example.InvestmentDataLoaderService.repository;
 import com.example.InvestmentDataLoaderService.entity.LastPriceEntity;
 import com.example.InvestmentDataLoaderService.entity.LastPriceKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface LastPriceRepository extends JpaRepository<LastPriceEntity, LastPriceKey> {
     boolean existsById(LastPriceKey id);
     void deleteByIdTime(LocalDateTime time);
+
+    /**
+     * Ключи уже сохраненных сделок инструментов в заданном временном диапазоне
+     * Используется потоковой загрузкой для проверки дубликатов пакета одним запросом
+     */
+    @Query("SELECT p.id FROM LastPriceEntity p WHERE p.id.figi IN :figis AND p.id.time >= :startTime AND p.id.time <= :endTime")
+    List<LastPriceKey> findIdsByFigiInAndTimeBetween(@Param("figis") Collection<String> figis,
+                                                     @Param("startTime") LocalDateTime startTime,
+                                                     @Param("endTime") LocalDateTime endTime);
 }
@@ -0,0 +1,45 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+
+import java.util.List;
+
+/**
+ * Обертка {@link BulkWriter}, записывающая длительность записи, размер пакета
+ * и строки, отброшенные ON CONFLICT, в метрики задания ({@link PipelineMetrics})
+ */
+public class MeteredBulkWriter<T> implements BulkWriter<T> {
+
+    private final BulkWriter<T> delegate;
+    private final PipelineJob job;
+    private final PipelineMetrics pipelineMetrics;
+
+    public MeteredBulkWriter(BulkWriter<T> delegate, PipelineJob job, PipelineMetrics pipelineMetrics) {
+        this.delegate = delegate;
+        this.job = job;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @Override
+    public int write(List<T> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return delegate.write(rows);
+        }
+        long startNanos = System.nanoTime();
+        int inserted = delegate.write(rows);
+        pipelineMetrics.recordWrite(job, rows.size(), System.nanoTime() - startNanos);
+        pipelineMetrics.countDedupHits(job, rows.size() - inserted);
+        return inserted;
+    }
+
+    @Override
+    public boolean skipsDuplicates() {
+        return delegate.skipsDuplicates();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
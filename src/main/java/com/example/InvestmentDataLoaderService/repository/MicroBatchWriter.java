@@ -0,0 +1,96 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.util.BatchingQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Запись потока строк микропакетами через {@link BulkWriter}
+ *
+ * <p>Строки кладутся в {@link BatchingQueue}, фоновый поток которой передает их в {@link BulkWriter}
+ * пакетами не больше {@code batchSize} каждые {@code flushIntervalMs}. Переполнение очереди и
+ * ошибки записи учитываются в счетчиках {@code dropped} и {@code failed}, поток при этом
+ * не останавливается.</p>
+ *
+ * <p>Если {@link BulkWriter} сам не отбрасывает дубликаты ({@link BulkWriter#skipsDuplicates()}),
+ * пакет перед записью проходит через отбор новых строк, а отброшенные строки учитываются
+ * в счетчике {@code duplicates}.</p>
+ *
+ * @param <T> тип записываемой сущности
+ */
+public class MicroBatchWriter<T> {
+
+    private final BulkWriter<T> delegate;
+    private final BatchingQueue<T> queue;
+    private final UnaryOperator<List<T>> newRows;
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    public MicroBatchWriter(String name, BulkWriter<T> delegate, int queueCapacity, int batchSize,
+                            long flushIntervalMs, long offerTimeoutMs) {
+        this(name, delegate, UnaryOperator.identity(), queueCapacity, batchSize, flushIntervalMs, offerTimeoutMs);
+    }
+
+    /**
+     * @param newRows отбор строк пакета, которых еще нет в таблице (и повторов внутри пакета);
+     *                применяется, только если {@code delegate} не отбрасывает дубликаты сам
+     */
+    public MicroBatchWriter(String name, BulkWriter<T> delegate, UnaryOperator<List<T>> newRows, int queueCapacity,
+                            int batchSize, long flushIntervalMs, long offerTimeoutMs) {
+        this.delegate = delegate;
+        this.newRows = delegate.skipsDuplicates() ? UnaryOperator.identity() : newRows;
+        this.queue = new BatchingQueue<>("MicroBatchWriter-" + name, queueCapacity, batchSize,
+            flushIntervalMs, offerTimeoutMs, this::write);
+    }
+
+    private void write(List<T> batch) {
+        List<T> rows = newRows.apply(new ArrayList<>(batch));
+        duplicates.addAndGet(batch.size() - rows.size());
+        if (!rows.isEmpty()) {
+            inserted.addAndGet(delegate.write(rows));
+        }
+    }
+
+    public void start() {
+        queue.start();
+    }
+
+    /**
+     * Останавливает фоновый поток и записывает оставшиеся в очереди строки
+     */
+    public void stop() {
+        queue.stop();
+    }
+
+    /**
+     * Ставит строку в очередь на запись
+     *
+     * @return false, если очередь переполнена и строка отброшена
+     */
+    public boolean offer(T row) {
+        return queue.offer(row);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWritten() {
+        return queue.getWritten();
+    }
+
+    /**
+     * Состояние очереди и счетчики записи для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = queue.getStats();
+        stats.put("writer", delegate.getName());
+        stats.put("inserted", inserted.get());
+        stats.put("duplicates", duplicates.get());
+        return stats;
+    }
+}
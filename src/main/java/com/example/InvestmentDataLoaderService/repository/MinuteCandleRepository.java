@@ -9,6 +9,8 @@ import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,6 +26,25 @@ public interface MinuteCandleRepository extends JpaRepository<MinuteCandleEntity
      */
     MinuteCandleEntity findByFigiAndTime(String figi, Instant time);
     
+    /**
+     * Получает время всех уже сохраненных свечей инструмента в заданном временном диапазоне
+     * Используется для пакетной проверки дубликатов одним запросом вместо existsByFigiAndTime на каждую свечу
+     */
+    @Query("SELECT c.time FROM MinuteCandleEntity c WHERE c.figi = :figi AND c.time >= :startTime AND c.time <= :endTime")
+    List<Instant> findTimesByFigiAndTimeBetween(@Param("figi") String figi,
+                                               @Param("startTime") Instant startTime,
+                                               @Param("endTime") Instant endTime);
+    
+    /**
+     * Ключи уже сохраненных свечей инструментов в заданном временном диапазоне
+     * Используется потоковой загрузкой для проверки дубликатов пакета одним запросом
+     */
+    @Query("SELECT new com.example.InvestmentDataLoaderService.entity.MinuteCandleKey(c.figi, c.time) FROM MinuteCandleEntity c " +
+           "WHERE c.figi IN :figis AND c.time >= :startTime AND c.time <= :endTime")
+    List<MinuteCandleKey> findKeysByFigiInAndTimeBetween(@Param("figis") Collection<String> figis,
+                                                         @Param("startTime") Instant startTime,
+                                                         @Param("endTime") Instant endTime);
+    
     /**
      * Находит все минутные свечи для конкретного инструмента в заданном временном диапазоне
      */
@@ -32,6 +53,19 @@ public interface MinuteCandleRepository extends JpaRepository<MinuteCandleEntity
                                                      @Param("startTime") Instant startTime, 
                                                      @Param("endTime") Instant endTime);
     
+    /**
+     * Первая свеча каждого инструмента в диапазоне [startTime, endTime): FIGI и цена открытия
+     * Один проход по партиции дня вместо загрузки всех свечей по каждому инструменту
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (c.figi) c.figi, c.open
+        FROM invest.minute_candles c
+        WHERE c.time >= :startTime AND c.time < :endTime
+        ORDER BY c.figi, c.time
+        """, nativeQuery = true)
+    List<Object[]> findFirstOpenPricesBetween(@Param("startTime") Instant startTime,
+                                              @Param("endTime") Instant endTime);
+    
     /**
      * Находит все минутные свечи для конкретного инструмента за день
      */
@@ -46,28 +80,20 @@ public interface MinuteCandleRepository extends JpaRepository<MinuteCandleEntity
                                    @Param("startTime") Instant startTime, 
                                    @Param("endTime") Instant endTime);
     
-    /**
-     * Находит все минутные свечи за определенную дату
-     */
-    @Query("SELECT c FROM MinuteCandleEntity c WHERE DATE(c.time) = :date ORDER BY c.figi, c.time")
-    List<MinuteCandleEntity> findByDate(@Param("date") LocalDate date);
-    
     /**
      * Получает агрегированные данные для списка FIGI одним запросом
      * Оптимизированный метод для пакетной обработки
+     * Сессии берутся из session_code (1 - утренняя, 4 и 5 - выходного дня), день - по Москве
      */
     @Query(value = """
         SELECT c.figi, 
-               DATE(c.time) as trade_date,
-               SUM(CASE WHEN EXTRACT(HOUR FROM c.time) BETWEEN 6 AND 9 
-                        AND EXTRACT(MINUTE FROM c.time) >= 50 
-                        THEN c.volume ELSE 0 END) as morning_volume,
-               SUM(CASE WHEN EXTRACT(DOW FROM c.time) IN (0, 6) 
-                        THEN c.volume ELSE 0 END) as weekend_volume
+               (c.time AT TIME ZONE 'Europe/Moscow')::date as trade_date,
+               COALESCE(SUM(c.volume) FILTER (WHERE c.session_code = 1), 0) as morning_volume,
+               COALESCE(SUM(c.volume) FILTER (WHERE c.session_code IN (4, 5)), 0) as weekend_volume
         FROM invest.minute_candles c 
         WHERE c.figi IN :figis 
-        GROUP BY c.figi, DATE(c.time)
-        ORDER BY c.figi, DATE(c.time)
+        GROUP BY c.figi, trade_date
+        ORDER BY c.figi, trade_date
         """, nativeQuery = true)
     List<Object[]> getAggregatedDataByFigis(@Param("figis") List<String> figis);
     
@@ -75,26 +101,47 @@ public interface MinuteCandleRepository extends JpaRepository<MinuteCandleEntity
      * Получает агрегированные данные для одного FIGI с ограничением по времени
      */
     @Query(value = """
-        SELECT DATE(c.time) as trade_date,
-               SUM(CASE WHEN EXTRACT(HOUR FROM c.time) BETWEEN 6 AND 9 
-                        AND EXTRACT(MINUTE FROM c.time) >= 50 
-                        THEN c.volume ELSE 0 END) as morning_volume,
-               SUM(CASE WHEN EXTRACT(DOW FROM c.time) IN (0, 6) 
-                        THEN c.volume ELSE 0 END) as weekend_volume
+        SELECT (c.time AT TIME ZONE 'Europe/Moscow')::date as trade_date,
+               COALESCE(SUM(c.volume) FILTER (WHERE c.session_code = 1), 0) as morning_volume,
+               COALESCE(SUM(c.volume) FILTER (WHERE c.session_code IN (4, 5)), 0) as weekend_volume
         FROM invest.minute_candles c 
         WHERE c.figi = :figi 
         AND c.time >= :startDate 
         AND c.time < :endDate
-        GROUP BY DATE(c.time)
-        ORDER BY DATE(c.time)
+        GROUP BY trade_date
+        ORDER BY trade_date
         """, nativeQuery = true)
     List<Object[]> getAggregatedDataByFigiAndDateRange(@Param("figi") String figi,
                                                       @Param("startDate") Instant startDate,
                                                       @Param("endDate") Instant endDate);
     
     /**
-     * Находит последнюю минутную свечу для конкретного инструмента за день
+     * Последние цены закрытия всех инструментов за интервал [startTime, endTime)
+     * Возвращает строки (figi, close) по одной на инструмент
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (c.figi) c.figi, c.close
+        FROM invest.minute_candles c
+        WHERE c.time >= :startTime AND c.time < :endTime
+        ORDER BY c.figi, c.time DESC
+        """, nativeQuery = true)
+    List<Object[]> findLastClosePricesBetween(@Param("startTime") Instant startTime,
+                                              @Param("endTime") Instant endTime);
+
+    /**
+     * Находит последнюю минутную свечу для конкретного инструмента за день (сутки по Москве)
+     * Условие по диапазону времени позволяет PostgreSQL читать только партицию дня
+     */
+    default MinuteCandleEntity findLastCandleForDate(String figi, LocalDate date) {
+        ZoneId zone = ZoneId.of("Europe/Moscow");
+        return findLastCandleBetween(figi, date.atStartOfDay(zone).toInstant(), date.plusDays(1).atStartOfDay(zone).toInstant());
+    }
+
+    /**
+     * Находит последнюю минутную свечу инструмента в интервале [startTime, endTime)
      */
-    @Query("SELECT c FROM MinuteCandleEntity c WHERE c.figi = :figi AND DATE(c.time) = :date ORDER BY c.time DESC LIMIT 1")
-    MinuteCandleEntity findLastCandleForDate(@Param("figi") String figi, @Param("date") LocalDate date);
+    @Query("SELECT c FROM MinuteCandleEntity c WHERE c.figi = :figi AND c.time >= :startTime AND c.time < :endTime ORDER BY c.time DESC LIMIT 1")
+    MinuteCandleEntity findLastCandleBetween(@Param("figi") String figi,
+                                             @Param("startTime") Instant startTime,
+                                             @Param("endTime") Instant endTime);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Repository
 public interface OpenPriceRepository extends JpaRepository<OpenPriceEntity, com.example.InvestmentDataLoaderService.entity.OpenPriceKey> {
@@ -22,4 +23,10 @@ public interface OpenPriceRepository extends JpaRepository<OpenPriceEntity, com.
      */
     @Query("SELECT o FROM OpenPriceEntity o WHERE o.id.priceDate = :priceDate AND o.id.figi = :figi")
     OpenPriceEntity findByPriceDateAndFigi(@Param("priceDate") LocalDate priceDate, @Param("figi") String figi);
+    
+    /**
+     * FIGI всех инструментов, для которых уже сохранена цена открытия за дату
+     */
+    @Query("SELECT o.id.figi FROM OpenPriceEntity o WHERE o.id.priceDate = :priceDate")
+    List<String> findFigisByPriceDate(@Param("priceDate") LocalDate priceDate);
 }
@@ -0,0 +1,119 @@
+package com.example.InvestmentDataLoaderService.repository;
+
+import com.example.InvestmentDataLoaderService.util.PgBinaryCopyEncoder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Пакетная запись через PostgreSQL COPY в бинарном формате
+ *
+ * <p>Строки копируются во временную staging-таблицу сессии, после чего переносятся
+ * в целевую таблицу одним {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING}.
+ * Hibernate и persistence context не участвуют, дубликаты отбрасываются на стороне БД.</p>
+ */
+public class PgCopyBulkWriter<T> implements BulkWriter<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PgCopyBulkWriter.class);
+
+    /**
+     * Кодирование одной строки в поток COPY
+     */
+    @FunctionalInterface
+    public interface RowEncoder<T> {
+        void encode(T row, PgBinaryCopyEncoder encoder) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String targetTable;
+    private final String stagingTable;
+    private final List<String> columns;
+    private final List<String> conflictColumns;
+    private final RowEncoder<T> rowEncoder;
+
+    public PgCopyBulkWriter(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            String targetTable,
+                            List<String> columns,
+                            List<String> conflictColumns,
+                            RowEncoder<T> rowEncoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.targetTable = targetTable;
+        this.stagingTable = "staging_" + targetTable.substring(targetTable.indexOf('.') + 1);
+        this.columns = List.copyOf(columns);
+        this.conflictColumns = List.copyOf(conflictColumns);
+        this.rowEncoder = rowEncoder;
+    }
+
+    @Override
+    public int write(List<T> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        byte[] payload = encode(rows);
+        String columnList = String.join(", ", columns);
+
+        Integer inserted = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                // Временная таблица живет в рамках соединения пула и очищается при каждом коммите
+                statement.execute("CREATE TEMP TABLE IF NOT EXISTS " + stagingTable
+                    + " (LIKE " + targetTable + " INCLUDING DEFAULTS) ON COMMIT DELETE ROWS");
+                statement.execute("TRUNCATE " + stagingTable);
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                copyManager.copyIn("COPY " + stagingTable + " (" + columnList + ") FROM STDIN (FORMAT BINARY)",
+                    new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new IllegalStateException("Ошибка передачи данных COPY в " + stagingTable, e);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate("INSERT INTO " + targetTable + " (" + columnList + ") "
+                    + "SELECT " + columnList + " FROM " + stagingTable + " "
+                    + "ON CONFLICT (" + String.join(", ", conflictColumns) + ") DO NOTHING");
+            }
+        }));
+
+        int insertedRows = inserted != null ? inserted : 0;
+        log.debug("COPY в {}: передано {}, вставлено {}", targetTable, rows.size(), insertedRows);
+        return insertedRows;
+    }
+
+    @Override
+    public boolean skipsDuplicates() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "copy";
+    }
+
+    private byte[] encode(List<T> rows) {
+        try {
+            PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(rows.size());
+            for (T row : rows) {
+                encoder.startRow(columns.size());
+                rowEncoder.encode(row, encoder);
+            }
+            return encoder.finish();
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка кодирования строк для COPY в " + targetTable, e);
+        }
+    }
+}
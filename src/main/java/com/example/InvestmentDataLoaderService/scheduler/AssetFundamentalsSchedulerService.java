@@ -1,6 +1,7 @@
 package com.example.InvestmentDataLoaderService.scheduler;
 
 import com.example.InvestmentDataLoaderService.service.AssetFundamentalService;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
 import com.example.InvestmentDataLoaderService.dto.AssetFundamentalDto;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.Instant;
@@ -26,11 +28,14 @@ public class AssetFundamentalsSchedulerService {
     private static final Logger log = LoggerFactory.getLogger(AssetFundamentalsSchedulerService.class);
     private final AssetFundamentalService assetFundamentalService;
     private final SystemLogRepository systemLogRepository;
+    private final ClusterLockService clusterLockService;
 
     public AssetFundamentalsSchedulerService(AssetFundamentalService assetFundamentalService,
-                                           SystemLogRepository systemLogRepository) {
+                                           SystemLogRepository systemLogRepository,
+                                           ClusterLockService clusterLockService) {
         this.assetFundamentalService = assetFundamentalService;
         this.systemLogRepository = systemLogRepository;
+        this.clusterLockService = clusterLockService;
     }
 
     /**
@@ -39,29 +44,32 @@ public class AssetFundamentalsSchedulerService {
      */
     @Scheduled(cron = "0 0 3 * * *", zone = "Europe/Moscow")
     public void updateAssetFundamentals() {
-        try {
-            String taskId = "FUNDAMENTALS_" + UUID.randomUUID().toString().substring(0, 8);
-            Instant startTime = Instant.now();
+        clusterLockService.runExclusive("asset-fundamentals", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                String taskId = "FUNDAMENTALS_" + UUID.randomUUID().toString().substring(0, 8);
+                Instant startTime = Instant.now();
             
-            log.info("=== НАЧАЛО ОБНОВЛЕНИЯ ФУНДАМЕНТАЛЬНЫХ ПОКАЗАТЕЛЕЙ ===");
-            log.info("Task ID: {}", taskId);
-            log.info("Время запуска: {}", LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                log.info("=== НАЧАЛО ОБНОВЛЕНИЯ ФУНДАМЕНТАЛЬНЫХ ПОКАЗАТЕЛЕЙ ===");
+                log.info("Task ID: {}", taskId);
+                log.info("Время запуска: {}", LocalDateTime.now(ZoneId.of("Europe/Moscow")));
             
-            // Логируем начало обновления
-            logSchedulerStart(taskId, "Обновление фундаментальных показателей");
+                // Логируем начало обновления
+                logSchedulerStart(taskId, "Обновление фундаментальных показателей");
             
-            // Обновляем фундаментальные показатели для всех акций
-            updateFundamentalsForShares(taskId);
+                // Обновляем фундаментальные показатели для всех акций
+                updateFundamentalsForShares(taskId);
             
-            log.info("=== ЗАВЕРШЕНИЕ ОБНОВЛЕНИЯ ФУНДАМЕНТАЛЬНЫХ ПОКАЗАТЕЛЕЙ ===");
-            log.info("Время завершения: {}", LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                log.info("=== ЗАВЕРШЕНИЕ ОБНОВЛЕНИЯ ФУНДАМЕНТАЛЬНЫХ ПОКАЗАТЕЛЕЙ ===");
+                log.info("Время завершения: {}", LocalDateTime.now(ZoneId.of("Europe/Moscow")));
             
-            // Логируем завершение обновления
-            logSchedulerEnd(taskId, "Обновление фундаментальных показателей", startTime);
+                // Логируем завершение обновления
+                logSchedulerEnd(taskId, "Обновление фундаментальных показателей", startTime);
             
-        } catch (Exception e) {
-            log.error("Критическая ошибка в обновлении фундаментальных показателей", e);
-        }
+            } catch (Exception e) {
+                log.error("Критическая ошибка в обновлении фундаментальных показателей", e);
+                throw e;
+            }
+        });
     }
 
     /**
@@ -91,6 +99,7 @@ public class AssetFundamentalsSchedulerService {
             
         } catch (Exception e) {
             log.error("Ошибка при обновлении фундаментальных показателей для акций", e);
+            throw e;
         }
     }
 
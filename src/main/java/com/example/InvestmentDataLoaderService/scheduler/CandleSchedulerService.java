@@ -2,12 +2,17 @@ package com.example.InvestmentDataLoaderService.scheduler;
 
 import com.example.InvestmentDataLoaderService.dto.MinuteCandleRequestDto;
 import com.example.InvestmentDataLoaderService.dto.DailyCandleRequestDto;
+import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
+import com.example.InvestmentDataLoaderService.enums.IngestionJobType;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -16,7 +21,9 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 @Service
 public class CandleSchedulerService {
@@ -25,24 +32,38 @@ public class CandleSchedulerService {
     private final MinuteCandleService minuteCandleService;
     private final DailyCandleService dailyCandleService;
     private final SystemLogRepository systemLogRepository;
+    private final IngestionJobService ingestionJobService;
+    private final boolean ingestionJobsEnabled;
+    private final ClusterLockService clusterLockService;
 
     public CandleSchedulerService(MinuteCandleService minuteCandleService, 
                                  DailyCandleService dailyCandleService,
-                                 SystemLogRepository systemLogRepository) {
+                                 SystemLogRepository systemLogRepository,
+                                 IngestionJobService ingestionJobService,
+                                 @Value("${ingestion.jobs.enabled:false}") boolean ingestionJobsEnabled,
+                                 ClusterLockService clusterLockService) {
         this.minuteCandleService = minuteCandleService;
         this.dailyCandleService = dailyCandleService;
         this.systemLogRepository = systemLogRepository;
+        this.ingestionJobService = ingestionJobService;
+        this.ingestionJobsEnabled = ingestionJobsEnabled;
+        this.clusterLockService = clusterLockService;
     }
 
     /**
      * Ежедневная загрузка свечей за предыдущий день
      * Запускается в 1:10 по московскому времени
      * Сначала загружает минутные свечи, затем дневные свечи
+     *
+     * <p>В режиме кластера инструменты делятся на партиции FIGI между узлами; партиция завершается,
+     * только когда ее свечи записаны, а партиции упавшего узла забирают остальные. С заданиями загрузки
+     * ({@code ingestion.jobs.enabled=true}) задания создает один узел, элементы разбирают воркеры всех узлов.</p>
      */
     @Scheduled(cron = "0 10 1 * * *", zone = "Europe/Moscow")
     public void fetchAndStoreCandles() {
         try {
-            LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
+            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+            LocalDate previousDay = today.minusDays(1);
             String taskId = "SCHEDULER_" + UUID.randomUUID().toString().substring(0, 8);
             Instant startTime = Instant.now();
             
@@ -54,14 +75,14 @@ public class CandleSchedulerService {
             // Логируем начало загрузки
             logSchedulerStart(taskId, "Ежедневная загрузка свечей", previousDay);
             
-            // Загружаем минутные свечи для всех типов активов
-            fetchMinuteCandlesForAllAssets(previousDay, taskId);
-            
-            // Небольшая пауза между загрузкой минутных и дневных свечей
-            Thread.sleep(10000);
-            
-            // Загружаем дневные свечи для всех типов активов
-            fetchDailyCandlesForAllAssets(previousDay, taskId);
+            if (ingestionJobsEnabled) {
+                clusterLockService.runExclusive("candles", today, () -> createCandleJobs(previousDay, taskId));
+            } else {
+                clusterLockService.runPartitions("candles", today, partition -> {
+                    String partitionTaskId = clusterLockService.isClusterEnabled() ? taskId + "_P" + partition : taskId;
+                    loadCandles(previousDay, partitionTaskId, figi -> clusterLockService.partitionOf(figi) == partition);
+                });
+            }
             
             log.info("=== ЗАВЕРШЕНИЕ ЕЖЕДНЕВНОЙ ЗАГРУЗКИ СВЕЧЕЙ ===");
             log.info("Время завершения: {}", LocalDateTime.now(ZoneId.of("Europe/Moscow")));
@@ -74,6 +95,42 @@ public class CandleSchedulerService {
         }
     }
 
+    /**
+     * Загружает минутные, затем дневные свечи инструментов и ждет окончания записи
+     * Неуспешная загрузка бросает исключение, чтобы партиция была повторена
+     */
+    private void loadCandles(LocalDate date, String taskId, Predicate<String> figiFilter) {
+        MinuteCandleRequestDto minuteRequest = new MinuteCandleRequestDto();
+        minuteRequest.setDate(date);
+        minuteRequest.setAssetType(Arrays.asList("SHARES", "FUTURES", "INDICATIVES"));
+        requireSuccess(taskId + "_MINUTE",
+            minuteCandleService.saveMinuteCandlesAsync(minuteRequest, taskId + "_MINUTE", figiFilter).join());
+        
+        DailyCandleRequestDto dailyRequest = new DailyCandleRequestDto();
+        dailyRequest.setDate(date);
+        dailyRequest.setAssetType(Arrays.asList("SHARES", "FUTURES", "INDICATIVES"));
+        requireSuccess(taskId + "_DAILY",
+            dailyCandleService.saveDailyCandlesAsync(dailyRequest, taskId + "_DAILY", figiFilter).join());
+    }
+
+    private void requireSuccess(String taskId, SaveResponseDto response) {
+        log.info("[{}] {}: запрошено {}, сохранено новых {}, пропущено существующих {}", taskId,
+            response.getMessage(), response.getTotalRequested(), response.getNewItemsSaved(), response.getExistingItemsSkipped());
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("[" + taskId + "] " + response.getMessage());
+        }
+    }
+
+    /**
+     * Создает задания загрузки минутных и дневных свечей за дату
+     */
+    private void createCandleJobs(LocalDate date, String taskId) {
+        List<String> assetTypes = Arrays.asList("SHARES", "FUTURES", "INDICATIVES");
+        String minuteJobId = ingestionJobService.createJob(IngestionJobType.MINUTE_CANDLES, null, assetTypes, date, date, "SCHEDULER");
+        String dailyJobId = ingestionJobService.createJob(IngestionJobType.DAILY_CANDLES, null, assetTypes, date, date, "SCHEDULER");
+        log.info("[{}] Созданы задания загрузки минутных ({}) и дневных ({}) свечей за {}", taskId, minuteJobId, dailyJobId, date);
+    }
+
     /**
      * Загружает минутные свечи для всех типов активов
      */
@@ -83,6 +140,13 @@ public class CandleSchedulerService {
             
             log.info("[{}] Начало загрузки минутных свечей за {}", taskId, date);
             
+            if (ingestionJobsEnabled) {
+                String jobId = ingestionJobService.createJob(IngestionJobType.MINUTE_CANDLES, null,
+                    Arrays.asList("SHARES", "FUTURES", "INDICATIVES"), date, date, "SCHEDULER");
+                log.info("[{}] Создано задание загрузки минутных свечей {}", taskId, jobId);
+                return;
+            }
+            
             MinuteCandleRequestDto request = new MinuteCandleRequestDto();
             request.setDate(date);
             request.setAssetType(Arrays.asList("SHARES", "FUTURES", "INDICATIVES"));
@@ -106,6 +170,13 @@ public class CandleSchedulerService {
             
             log.info("[{}] Начало загрузки дневных свечей за {}", taskId, date);
             
+            if (ingestionJobsEnabled) {
+                String jobId = ingestionJobService.createJob(IngestionJobType.DAILY_CANDLES, null,
+                    Arrays.asList("SHARES", "FUTURES", "INDICATIVES"), date, date, "SCHEDULER");
+                log.info("[{}] Создано задание загрузки дневных свечей {}", taskId, jobId);
+                return;
+            }
+            
             DailyCandleRequestDto request = new DailyCandleRequestDto();
             request.setDate(date);
             request.setAssetType(Arrays.asList("SHARES", "FUTURES", "INDICATIVES"));
@@ -3,6 +3,7 @@ package com.example.InvestmentDataLoaderService.scheduler;
 import com.example.InvestmentDataLoaderService.dto.ClosePriceRequestDto;
 import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.service.MainSessionPriceService;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,38 +16,44 @@ public class ClosePriceSchedulerService {
 
     private static final Logger log = LoggerFactory.getLogger(ClosePriceSchedulerService.class);
     private final MainSessionPriceService mainSessionPriceService;
+    private final ClusterLockService clusterLockService;
 
-    public ClosePriceSchedulerService(MainSessionPriceService mainSessionPriceService) {
+    public ClosePriceSchedulerService(MainSessionPriceService mainSessionPriceService, ClusterLockService clusterLockService) {
         this.mainSessionPriceService = mainSessionPriceService;
+        this.clusterLockService = clusterLockService;
     }
 
     @Scheduled(cron = "0 0 1 * * *", zone = "Europe/Moscow")
     public void fetchAndStoreClosePrices() {
-        try {
-            LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
+        clusterLockService.runExclusive("close-prices", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
             
-            log.info("Starting scheduled close prices fetch for {} (shares, futures only)", previousDay);
+                log.info("Starting scheduled close prices fetch for {} (shares, futures only)", previousDay);
             
-            // Создаем пустой запрос для загрузки только RUB инструментов (акции, фьючерсы)
-            ClosePriceRequestDto request = new ClosePriceRequestDto();
+                // Создаем пустой запрос для загрузки только RUB инструментов (акции, фьючерсы)
+                ClosePriceRequestDto request = new ClosePriceRequestDto();
             
-            // Вызываем метод saveClosePrices, который автоматически отберет только RUB инструменты (исключая indicatives)
-            SaveResponseDto response = mainSessionPriceService.saveClosePrices(request);
+                // Вызываем метод saveClosePrices, который автоматически отберет только RUB инструменты (исключая indicatives)
+                SaveResponseDto response = mainSessionPriceService.saveClosePrices(request);
             
-            if (response.isSuccess()) {
-                log.info("Scheduled close prices fetch completed successfully:");
-                log.info("- Date: {}", previousDay);
-                log.info("- Message: {}", response.getMessage());
-                log.info("- Total requested: {}", response.getTotalRequested());
-                log.info("- New items saved: {}", response.getNewItemsSaved());
-                log.info("- Existing items skipped: {}", response.getExistingItemsSkipped());
-            } else {
-                log.error("Scheduled close prices fetch failed: {}", response.getMessage());
-            }
+                if (response.isSuccess()) {
+                    log.info("Scheduled close prices fetch completed successfully:");
+                    log.info("- Date: {}", previousDay);
+                    log.info("- Message: {}", response.getMessage());
+                    log.info("- Total requested: {}", response.getTotalRequested());
+                    log.info("- New items saved: {}", response.getNewItemsSaved());
+                    log.info("- Existing items skipped: {}", response.getExistingItemsSkipped());
+                } else {
+                    log.error("Scheduled close prices fetch failed: {}", response.getMessage());
+                    throw new IllegalStateException(response.getMessage());
+                }
             
-        } catch (Exception e) {
-            log.error("Error in scheduled close prices fetch", e);
-        }
+            } catch (Exception e) {
+                log.error("Error in scheduled close prices fetch", e);
+                throw e;
+            }
+        });
     }
 
     /**
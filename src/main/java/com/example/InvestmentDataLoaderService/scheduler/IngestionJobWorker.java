@@ -0,0 +1,131 @@
+package com.example.InvestmentDataLoaderService.scheduler;
+
+import com.example.InvestmentDataLoaderService.service.CandleBackfillService;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService.ClaimedItem;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Воркер заданий загрузки
+ *
+ * <p>Периодически захватывает пачку элементов из {@code invest.ingestion_job_items}, загружает
+ * их параллельно (темп задает общий лимитер API) и сразу берет следующую пачку, пока очередь
+ * не опустеет. Каждый экземпляр сервиса работает со своим {@code workerId}, поэтому второй
+ * узел просто забирает другую часть очереди.</p>
+ */
+@Service
+public class IngestionJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobWorker.class);
+
+    private final IngestionJobService ingestionJobService;
+    private final CandleBackfillService candleBackfillService;
+    private final Executor batchWriteExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+    private final String workerId;
+
+    // Пачки обрабатываются последовательно: следующий опрос не стартует, пока идет текущий
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    public IngestionJobWorker(IngestionJobService ingestionJobService,
+                              CandleBackfillService candleBackfillService,
+                              ClusterLockService clusterLockService,
+                              @Qualifier("batchWriteExecutor") Executor batchWriteExecutor,
+                              @Value("${ingestion.worker.enabled:true}") boolean enabled,
+                              @Value("${ingestion.worker.batch-size:20}") int batchSize,
+                              @Value("${ingestion.worker.lease-seconds:300}") int leaseSeconds,
+                              @Value("${ingestion.worker.max-attempts:3}") int maxAttempts,
+                              @Value("${ingestion.worker.id:}") String workerId) {
+        this.ingestionJobService = ingestionJobService;
+        this.candleBackfillService = candleBackfillService;
+        this.batchWriteExecutor = batchWriteExecutor;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseSeconds = Math.max(30, leaseSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.workerId = workerId != null && !workerId.isBlank() ? workerId : clusterLockService.getNodeId();
+        log.info("Воркер заданий загрузки {}: {}, пачка {}, аренда {}с", this.workerId,
+            enabled ? "включен" : "выключен", this.batchSize, this.leaseSeconds);
+    }
+
+    /**
+     * Опрос очереди элементов
+     * Сама загрузка идет асинхронно, поток планировщика не блокируется
+     */
+    @Scheduled(fixedDelayString = "${ingestion.worker.poll-interval-ms:5000}")
+    public void poll() {
+        if (!enabled || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture<Void> run;
+        try {
+            run = drain();
+        } catch (Exception e) {
+            run = CompletableFuture.failedFuture(e);
+        }
+        run.whenComplete((ignored, error) -> {
+            draining.set(false);
+            if (error != null) {
+                log.error("Ошибка воркера заданий загрузки: {}", error.getMessage(), error);
+            }
+        });
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    private CompletableFuture<Void> drain() {
+        List<ClaimedItem> items = ingestionJobService.claimItems(workerId, batchSize, leaseSeconds, maxAttempts);
+        if (items.isEmpty()) {
+            ingestionJobService.refreshActiveJobs();
+            return CompletableFuture.completedFuture(null);
+        }
+        log.debug("Воркер {} захватил {} элементов", workerId, items.size());
+
+        CompletableFuture<?>[] tasks = items.stream().map(this::processItem).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(tasks)
+            .thenRunAsync(() -> refreshJobs(items), batchWriteExecutor)
+            .thenComposeAsync(ignored -> drain(), batchWriteExecutor);
+    }
+
+    private CompletableFuture<Void> processItem(ClaimedItem item) {
+        return candleBackfillService.loadDayAsync(item.figi(), item.tradeDate(), item.jobType().getCandleInterval())
+            .handle((inserted, error) -> {
+                if (error == null) {
+                    ingestionJobService.completeItem(item, workerId, inserted);
+                    return null;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                log.warn("Ошибка загрузки {} за {} (попытка {} из {}): {}",
+                    item.figi(), item.tradeDate(), item.attempts(), maxAttempts, cause.getMessage());
+                ingestionJobService.failItem(item, workerId, maxAttempts, cause.getMessage());
+                return null;
+            });
+    }
+
+    private void refreshJobs(List<ClaimedItem> items) {
+        Set<String> jobIds = new HashSet<>();
+        for (ClaimedItem item : items) {
+            jobIds.add(item.jobId());
+        }
+        jobIds.forEach(ingestionJobService::refreshJobStatus);
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.InvestmentDataLoaderService.scheduler;
 
 import com.example.InvestmentDataLoaderService.dto.*;
+import com.example.InvestmentDataLoaderService.service.InstrumentRegistry;
 import com.example.InvestmentDataLoaderService.service.InstrumentService;
+import com.example.InvestmentDataLoaderService.service.InstrumentUniverseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class InstrumentPreloadSchedulerService {
@@ -18,9 +21,15 @@ public class InstrumentPreloadSchedulerService {
     private static final String MOEX_EXCHANGE = "moex_mrng_evng_e_wknd_dlr";
 
     private final InstrumentService instrumentService;
+    private final InstrumentRegistry instrumentRegistry;
+    private final InstrumentUniverseService instrumentUniverseService;
 
-    public InstrumentPreloadSchedulerService(InstrumentService instrumentService) {
+    public InstrumentPreloadSchedulerService(InstrumentService instrumentService,
+                                             InstrumentRegistry instrumentRegistry,
+                                             InstrumentUniverseService instrumentUniverseService) {
         this.instrumentService = instrumentService;
+        this.instrumentRegistry = instrumentRegistry;
+        this.instrumentUniverseService = instrumentUniverseService;
     }
 
     /**
@@ -30,7 +39,8 @@ public class InstrumentPreloadSchedulerService {
      * - Индексы (индикативные инструменты): все
      * 
      * <p>Использует асинхронные методы для сохранения инструментов в БД.
-     * Прогрев кеша выполняется синхронно, а сохранение - асинхронно с параллельной обработкой.</p>
+     * Списки в кеше перезагружаются в фоне без очистки (прежние отдаются до публикации новых),
+     * прогрев выполняется синхронно, а сохранение - асинхронно с параллельной обработкой.</p>
      */
     @Scheduled(cron = "0 45 0 * * *", zone = "Europe/Moscow")
     public void preloadAndPersistInstruments() {
@@ -38,6 +48,13 @@ public class InstrumentPreloadSchedulerService {
         log.info("[{}] Начало ежедневного прогрева кеша и асинхронного сохранения инструментов (00:45 MSK)", taskId);
 
         try {
+            // Перезагрузка списков инструментов без очистки кэша: пока она идет, читатели получают прежние списки
+            try {
+                instrumentUniverseService.refreshAll().join();
+            } catch (Exception e) {
+                log.warn("[{}] Не удалось обновить кэш инструментов, используются прежние списки: {}", taskId, e.getMessage());
+            }
+
             // Акции: только MOEX
             log.info("[{}] Загрузка акций (exchange={})", taskId, MOEX_EXCHANGE);
             ShareFilterDto shareFilter = new ShareFilterDto(null, MOEX_EXCHANGE, null, null, null, null, null);
@@ -48,7 +65,7 @@ public class InstrumentPreloadSchedulerService {
             // Асинхронное сохранение в БД с параллельной обработкой
             String shareTaskId = taskId + "_SHARES";
             log.info("[{}] Запуск асинхронного сохранения акций (taskId: {})", taskId, shareTaskId);
-            instrumentService.saveSharesAsync(shareFilter, shareTaskId)
+            CompletableFuture<Void> sharesSaved = instrumentService.saveSharesAsync(shareFilter, shareTaskId)
                 .thenAccept(result -> {
                     log.info("[{}] Асинхронное сохранение акций завершено: {}", shareTaskId, result.getMessage());
                 })
@@ -67,7 +84,7 @@ public class InstrumentPreloadSchedulerService {
             // Асинхронное сохранение фьючерсов
             String futureTaskId = taskId + "_FUTURES";
             log.info("[{}] Запуск асинхронного сохранения фьючерсов (taskId: {})", taskId, futureTaskId);
-            instrumentService.saveFuturesAsync(futureFilter, futureTaskId)
+            CompletableFuture<Void> futuresSaved = instrumentService.saveFuturesAsync(futureFilter, futureTaskId)
                 .thenAccept(result -> {
                     log.info("[{}] Асинхронное сохранение фьючерсов завершено: {}", futureTaskId, result.getMessage());
                 })
@@ -86,7 +103,7 @@ public class InstrumentPreloadSchedulerService {
             // Асинхронное сохранение индикативов
             String indicativeTaskId = taskId + "_INDICATIVES";
             log.info("[{}] Запуск асинхронного сохранения индикативов (taskId: {})", taskId, indicativeTaskId);
-            instrumentService.saveIndicativesAsync(indicativeFilter, indicativeTaskId)
+            CompletableFuture<Void> indicativesSaved = instrumentService.saveIndicativesAsync(indicativeFilter, indicativeTaskId)
                 .thenAccept(result -> {
                     log.info("[{}] Асинхронное сохранение индикативов завершено: {}", indicativeTaskId, result.getMessage());
                 })
@@ -95,6 +112,16 @@ public class InstrumentPreloadSchedulerService {
                     return null;
                 });
 
+            // После сохранения всех типов перечитываем реестр инструментов
+            CompletableFuture.allOf(sharesSaved, futuresSaved, indicativesSaved)
+                .whenComplete((ignored, throwable) -> {
+                    try {
+                        instrumentRegistry.refresh();
+                    } catch (Exception e) {
+                        log.error("[{}] Ошибка обновления реестра инструментов", taskId, e);
+                    }
+                });
+
             log.info("[{}] Прогрев кеша завершен, асинхронное сохранение инструментов запущено", taskId);
             log.info("[{}] Отслеживайте статус операций по taskId: {}, {}, {}", taskId, shareTaskId, futureTaskId, indicativeTaskId);
             
@@ -2,6 +2,7 @@ package com.example.InvestmentDataLoaderService.scheduler;
 
 import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.service.MorningSessionService;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -18,9 +19,11 @@ import java.util.UUID;
 public class MorningSessionScheduler {
 
     private final MorningSessionService morningSessionService;
+    private final ClusterLockService clusterLockService;
 
-    public MorningSessionScheduler(MorningSessionService morningSessionService) {
+    public MorningSessionScheduler(MorningSessionService morningSessionService, ClusterLockService clusterLockService) {
         this.morningSessionService = morningSessionService;
+        this.clusterLockService = clusterLockService;
     }
 
     /**
@@ -29,36 +32,42 @@ public class MorningSessionScheduler {
      */
     @Scheduled(cron = "0 50 1 * * *", zone = "Europe/Moscow")
     public void fetchAndStoreMorningSessionPrices() {
-        try {
-            LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
-            String taskId = "MORNING_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ УТРЕННЕЙ СЕССИИ ===");
-            System.out.println("[" + taskId + "] Дата: " + previousDay);
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            
-            // Проверяем, является ли предыдущий день выходным
-            if (isWeekend(previousDay)) {
-                String message = "Предыдущий день является выходным (" + previousDay + "). В выходные дни (суббота и воскресенье) нет цен открытия.";
-                System.out.println("[" + taskId + "] " + message);
+        clusterLockService.runExclusive("morning-session-prices", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
+                String taskId = "MORNING_" + UUID.randomUUID().toString().substring(0, 8);
+            
+                System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ УТРЕННЕЙ СЕССИИ ===");
+                System.out.println("[" + taskId + "] Дата: " + previousDay);
+                System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+            
+                // Проверяем, является ли предыдущий день выходным
+                if (isWeekend(previousDay)) {
+                    String message = "Предыдущий день является выходным (" + previousDay + "). В выходные дни (суббота и воскресенье) нет цен открытия.";
+                    System.out.println("[" + taskId + "] " + message);
+                    System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ УТРЕННЕЙ СЕССИИ ===");
+                    return;
+                }
+            
+                SaveResponseDto response = morningSessionService.processMorningSessionPrices(previousDay, taskId);
+            
+                System.out.println("[" + taskId + "] Загрузка завершена:");
+                System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
+                System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
+                System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
+                System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
+                System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
                 System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ УТРЕННЕЙ СЕССИИ ===");
-                return;
-            }
-            
-            SaveResponseDto response = morningSessionService.processMorningSessionPrices(previousDay, taskId);
             
-            System.out.println("[" + taskId + "] Загрузка завершена:");
-            System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
-            System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
-            System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
-            System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
-            System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
-            System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ УТРЕННЕЙ СЕССИИ ===");
-            
-        } catch (Exception e) {
-            System.err.println("Критическая ошибка в загрузке цен открытия утренней сессии: " + e.getMessage());
-            e.printStackTrace();
-        }
+            } catch (Exception e) {
+                System.err.println("Критическая ошибка в загрузке цен открытия утренней сессии: " + e.getMessage());
+                e.printStackTrace();
+                throw e;
+            }
+        });
     }
 
     // ========== НОВОЕ РАСПИСАНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ ==========
@@ -69,29 +78,35 @@ public class MorningSessionScheduler {
      */
     @Scheduled(cron = "0 1 2 * * 0,6", zone = "Europe/Moscow")
     public void fetchAndStoreWeekendOpenPrices() {
-        try {
-            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
-            String taskId = "WEEKEND_OPEN_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В ВЫХОДНЫЕ ===");
-            System.out.println("[" + taskId + "] Дата: " + today);
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            System.out.println("[" + taskId + "] Тип дня: Выходной");
-            
-            SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
-            
-            System.out.println("[" + taskId + "] Загрузка завершена:");
-            System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
-            System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
-            System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
-            System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
-            System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
-            System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В ВЫХОДНЫЕ ===");
-            
-        } catch (Exception e) {
-            System.err.println("Критическая ошибка в загрузке цен открытия в выходные: " + e.getMessage());
-            e.printStackTrace();
-        }
+        clusterLockService.runExclusive("weekend-open-prices", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+                String taskId = "WEEKEND_OPEN_" + UUID.randomUUID().toString().substring(0, 8);
+            
+                System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В ВЫХОДНЫЕ ===");
+                System.out.println("[" + taskId + "] Дата: " + today);
+                System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                System.out.println("[" + taskId + "] Тип дня: Выходной");
+            
+                SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
+            
+                System.out.println("[" + taskId + "] Загрузка завершена:");
+                System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
+                System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
+                System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
+                System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
+                System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
+                System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В ВЫХОДНЫЕ ===");
+            
+            } catch (Exception e) {
+                System.err.println("Критическая ошибка в загрузке цен открытия в выходные: " + e.getMessage());
+                e.printStackTrace();
+                throw e;
+            }
+        });
     }
 
     /**
@@ -100,29 +115,35 @@ public class MorningSessionScheduler {
      */
     @Scheduled(cron = "0 1 7 * * 1-5", zone = "Europe/Moscow")
     public void fetchAndStoreWorkdayOpenPrices7AM() {
-        try {
-            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
-            String taskId = "WORKDAY_7AM_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (7:01) ===");
-            System.out.println("[" + taskId + "] Дата: " + today);
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            System.out.println("[" + taskId + "] Тип дня: Рабочий");
-            
-            SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
-            
-            System.out.println("[" + taskId + "] Загрузка завершена:");
-            System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
-            System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
-            System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
-            System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
-            System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
-            System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (7:01) ===");
-            
-        } catch (Exception e) {
-            System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (7:01): " + e.getMessage());
-            e.printStackTrace();
-        }
+        clusterLockService.runExclusive("workday-open-prices-7", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+                String taskId = "WORKDAY_7AM_" + UUID.randomUUID().toString().substring(0, 8);
+            
+                System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (7:01) ===");
+                System.out.println("[" + taskId + "] Дата: " + today);
+                System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                System.out.println("[" + taskId + "] Тип дня: Рабочий");
+            
+                SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
+            
+                System.out.println("[" + taskId + "] Загрузка завершена:");
+                System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
+                System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
+                System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
+                System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
+                System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
+                System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (7:01) ===");
+            
+            } catch (Exception e) {
+                System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (7:01): " + e.getMessage());
+                e.printStackTrace();
+                throw e;
+            }
+        });
     }
 
     /**
@@ -131,29 +152,35 @@ public class MorningSessionScheduler {
      */
     @Scheduled(cron = "0 1 9 * * 1-5", zone = "Europe/Moscow")
     public void fetchAndStoreWorkdayOpenPrices9AM() {
-        try {
-            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
-            String taskId = "WORKDAY_9AM_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (9:01) ===");
-            System.out.println("[" + taskId + "] Дата: " + today);
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            System.out.println("[" + taskId + "] Тип дня: Рабочий");
-            
-            SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
-            
-            System.out.println("[" + taskId + "] Загрузка завершена:");
-            System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
-            System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
-            System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
-            System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
-            System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
-            System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (9:01) ===");
-            
-        } catch (Exception e) {
-            System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (9:01): " + e.getMessage());
-            e.printStackTrace();
-        }
+        clusterLockService.runExclusive("workday-open-prices-9", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+                String taskId = "WORKDAY_9AM_" + UUID.randomUUID().toString().substring(0, 8);
+            
+                System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (9:01) ===");
+                System.out.println("[" + taskId + "] Дата: " + today);
+                System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                System.out.println("[" + taskId + "] Тип дня: Рабочий");
+            
+                SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
+            
+                System.out.println("[" + taskId + "] Загрузка завершена:");
+                System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
+                System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
+                System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
+                System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
+                System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
+                System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (9:01) ===");
+            
+            } catch (Exception e) {
+                System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (9:01): " + e.getMessage());
+                e.printStackTrace();
+                throw e;
+            }
+        });
     }
 
     /**
@@ -162,29 +189,35 @@ public class MorningSessionScheduler {
      */
     @Scheduled(cron = "0 1 10 * * 1-5", zone = "Europe/Moscow")
     public void fetchAndStoreWorkdayOpenPrices10AM() {
-        try {
-            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
-            String taskId = "WORKDAY_10AM_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (10:01) ===");
-            System.out.println("[" + taskId + "] Дата: " + today);
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            System.out.println("[" + taskId + "] Тип дня: Рабочий");
-            
-            SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
-            
-            System.out.println("[" + taskId + "] Загрузка завершена:");
-            System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
-            System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
-            System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
-            System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
-            System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
-            System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (10:01) ===");
-            
-        } catch (Exception e) {
-            System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (10:01): " + e.getMessage());
-            e.printStackTrace();
-        }
+        clusterLockService.runExclusive("workday-open-prices-10", LocalDate.now(ZoneId.of("Europe/Moscow")), () -> {
+            try {
+                LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+                String taskId = "WORKDAY_10AM_" + UUID.randomUUID().toString().substring(0, 8);
+            
+                System.out.println("=== НАЧАЛО ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (10:01) ===");
+                System.out.println("[" + taskId + "] Дата: " + today);
+                System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
+                System.out.println("[" + taskId + "] Тип дня: Рабочий");
+            
+                SaveResponseDto response = morningSessionService.processMorningSessionPrices(today, taskId, false);
+            
+                System.out.println("[" + taskId + "] Загрузка завершена:");
+                System.out.println("[" + taskId + "] - Успех: " + response.isSuccess());
+                System.out.println("[" + taskId + "] - Сообщение: " + response.getMessage());
+                System.out.println("[" + taskId + "] - Всего запрошено: " + response.getTotalRequested());
+                System.out.println("[" + taskId + "] - Сохранено новых: " + response.getNewItemsSaved());
+                System.out.println("[" + taskId + "] - Пропущено существующих: " + response.getExistingItemsSkipped());
+                if (!response.isSuccess()) {
+                    throw new IllegalStateException(response.getMessage());
+                }
+                System.out.println("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ЦЕН ОТКРЫТИЯ В РАБОЧИЕ ДНИ (10:01) ===");
+            
+            } catch (Exception e) {
+                System.err.println("Критическая ошибка в загрузке цен открытия в рабочие дни (10:01): " + e.getMessage());
+                e.printStackTrace();
+                throw e;
+            }
+        });
     }
 
     /**
@@ -1,19 +1,23 @@
 package com.example.InvestmentDataLoaderService.scheduler;
 
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
+import com.example.InvestmentDataLoaderService.service.VolumeRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.UUID;
 
 /**
- * Сервис для обновления материализованного представления агрегации объемов
- * Обновляется каждую минуту для актуальных данных
+ * Сервис для обновления агрегации объемов
+ * Основной пересчет выполняется по завершении загрузки минутных свечей за день,
+ * ночной запуск повторно пересчитывает последние дни на случай поздней догрузки
  */
 @Service
 public class VolumeAggregationSchedulerService {
@@ -21,42 +25,41 @@ public class VolumeAggregationSchedulerService {
     private static final Logger log = LoggerFactory.getLogger(VolumeAggregationSchedulerService.class);
     
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private VolumeRollupService volumeRollupService;
+    
+    @Autowired
+    private ClusterLockService clusterLockService;
+    
+    @Value("${volume-aggregation.rollup-days:2}")
+    private int rollupDays;
     
     
     /**
-     * Обновление общего материализованного представления раз в день в 2:00
-     * Обновляет все исторические данные
+     * Пересчет агрегации объемов за последние дни раз в день в 2:00
+     * Обрабатывает только партиции этих дней, а не всю историю
      */
     @Scheduled(cron = "0 0 2 * * *", zone = "Europe/Moscow")
-    public void fullRefreshVolumeAggregation() {
-        String taskId = "FULL_VOLUME_AGG_" + UUID.randomUUID().toString().substring(0, 8);
+    public void refreshRecentVolumeAggregation() {
+        LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+        clusterLockService.runExclusive("volume-aggregation-refresh", today, () -> {
+            String taskId = "VOLUME_AGG_" + UUID.randomUUID().toString().substring(0, 8);
+            LocalDate to = today.minusDays(1);
+            LocalDate from = to.minusDays(Math.max(1, rollupDays) - 1L);
         
-        try {
-            System.out.println("=== ОБНОВЛЕНИЕ ОБЩЕГО ПРЕДСТАВЛЕНИЯ ===");
-            System.out.println("[" + taskId + "] Время запуска: " + LocalDateTime.now(ZoneId.of("Europe/Moscow")));
-            
-            // Попытка обновления с CONCURRENTLY (если возможно)
             try {
-                String refreshSql = "REFRESH MATERIALIZED VIEW CONCURRENTLY invest.daily_volume_aggregation";
-                System.out.println("[" + taskId + "] Выполняем: " + refreshSql);
-                jdbcTemplate.execute(refreshSql);
-                System.out.println("[" + taskId + "] Обновление с CONCURRENTLY выполнено успешно");
-            } catch (Exception e) {
-                // Если CONCURRENTLY не поддерживается, используем обычное обновление
-                System.out.println("[" + taskId + "] CONCURRENTLY не поддерживается, используем обычное обновление");
-                String refreshSql = "REFRESH MATERIALIZED VIEW invest.daily_volume_aggregation";
-                jdbcTemplate.execute(refreshSql);
-                System.out.println("[" + taskId + "] Обычное обновление выполнено успешно");
-            }
+                log.info("=== ОБНОВЛЕНИЕ АГРЕГАЦИИ ОБЪЕМОВ ===");
+                log.info("[{}] Время запуска: {}, дни: {} - {}", taskId, LocalDateTime.now(ZoneId.of("Europe/Moscow")), from, to);
+            
+                int rows = volumeRollupService.rollupDays(from, to);
             
-            System.out.println("[" + taskId + "] Общее представление обновлено");
-            System.out.println("=== ЗАВЕРШЕНИЕ ОБНОВЛЕНИЯ ===");
+                log.info("[{}] Агрегация объемов обновлена: {} строк", taskId, rows);
+                log.info("=== ЗАВЕРШЕНИЕ ОБНОВЛЕНИЯ ===");
             
-        } catch (Exception e) {
-            System.err.println("[" + taskId + "] Ошибка обновления общего представления: " + e.getMessage());
-            e.printStackTrace();
-        }
+            } catch (Exception e) {
+                log.error("[{}] Ошибка обновления агрегации объемов: {}", taskId, e.getMessage(), e);
+                throw e;
+            }
+        });
     }
     
 }
@@ -0,0 +1,105 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Состояние квот T-Invest API по данным из заголовков ответов
+ *
+ * <p>API сообщает остаток квоты и время до ее сброса в метаданных каждого ответа
+ * ({@code x-ratelimit-limit}, {@code x-ratelimit-remaining}, {@code x-ratelimit-reset}).
+ * Значения записываются gRPC-интерсептором по методу и по группе методов и используются
+ * лимитером и повторными попытками, чтобы ждать ровно до сброса квоты.</p>
+ */
+@Service
+public class ApiQuotaTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiQuotaTracker.class);
+
+    private final Map<String, QuotaState> methodQuotas = new ConcurrentHashMap<>();
+    private final Map<ApiMethodGroup, QuotaState> groupQuotas = new ConcurrentHashMap<>();
+
+    /**
+     * Квота метода на момент последнего ответа
+     *
+     * @param limit размер квоты в минуту
+     * @param remaining остаток запросов до сброса
+     * @param resetAtNanos момент сброса квоты по {@link System#nanoTime()}
+     */
+    public record QuotaState(int limit, int remaining, long resetAtNanos) {
+
+        long resetDelayNanos(long nowNanos) {
+            return Math.max(0, resetAtNanos - nowNanos);
+        }
+
+        boolean isExhausted(long nowNanos) {
+            return remaining <= 0 && resetAtNanos > nowNanos;
+        }
+    }
+
+    /**
+     * Записывает квоту из заголовков ответа
+     *
+     * @param fullMethodName полное имя gRPC-метода
+     * @param group группа методов (может быть null)
+     * @param limit значение {@code x-ratelimit-limit} или null
+     * @param remaining значение {@code x-ratelimit-remaining}
+     * @param resetSeconds значение {@code x-ratelimit-reset} (секунды до сброса)
+     */
+    public void record(String fullMethodName, ApiMethodGroup group, Integer limit, int remaining, long resetSeconds) {
+        long resetAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, resetSeconds));
+        QuotaState state = new QuotaState(limit != null ? limit : -1, remaining, resetAtNanos);
+        methodQuotas.put(fullMethodName, state);
+        if (group != null) {
+            groupQuotas.put(group, state);
+        }
+        if (remaining <= 0) {
+            log.warn("Квота {} исчерпана, сброс через {}с", fullMethodName, resetSeconds);
+        }
+    }
+
+    /**
+     * Время, на которое группа заблокирована исчерпанной квотой
+     *
+     * @return наносекунды до сброса квоты или 0, если квота не исчерпана или неизвестна
+     */
+    public long getBlockedNanos(ApiMethodGroup group) {
+        QuotaState state = groupQuotas.get(group);
+        long now = System.nanoTime();
+        return state != null && state.isExhausted(now) ? state.resetDelayNanos(now) : 0;
+    }
+
+    /**
+     * Время до сброса исчерпанной квоты метода по последнему ответу
+     *
+     * @return миллисекунды до сброса или -1, если API не сообщал об исчерпании квоты метода
+     */
+    public long getResetDelayMillis(String fullMethodName) {
+        QuotaState state = methodQuotas.get(fullMethodName);
+        if (state == null || state.remaining() > 0) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(state.resetDelayNanos(System.nanoTime()));
+    }
+
+    /**
+     * Последняя известная квота группы методов по данным сервера
+     */
+    public Map<String, Object> getGroupStats(ApiMethodGroup group) {
+        QuotaState state = groupQuotas.get(group);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (state != null) {
+            stats.put("serverLimit", state.limit());
+            stats.put("serverRemaining", state.remaining());
+            stats.put("serverResetInMs", TimeUnit.NANOSECONDS.toMillis(state.resetDelayNanos(System.nanoTime())));
+        }
+        return stats;
+    }
+}
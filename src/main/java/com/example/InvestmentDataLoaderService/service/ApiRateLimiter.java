@@ -0,0 +1,173 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.config.RateLimitConfig.RateLimitProperties;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общий token-bucket лимитер запросов к T-Invest API
+ *
+ * <p>Для каждой группы методов ({@link ApiMethodGroup}) ведется отдельная корзина токенов,
+ * пополняемая равномерно со скоростью {@code rate-limit.requests-per-minute.<группа>}
+ * и вмещающая не более {@code rate-limit.burst-size} токенов.</p>
+ *
+ * <p>Лимитер не усыпляет потоки сам: {@link #reserve(ApiMethodGroup)} резервирует токен
+ * и возвращает время ожидания, {@link #acquireAsync(ApiMethodGroup)} возвращает future,
+ * завершающийся, когда запрос можно отправлять. Блокирующий {@link #acquire(ApiMethodGroup)}
+ * оставлен для синхронных клиентов и ждет ровно столько, сколько требует квота.</p>
+ *
+ * <p>Если по заголовкам ответов ({@link ApiQuotaTracker}) квота группы уже исчерпана на сервере,
+ * время ожидания продлевается до момента ее сброса.</p>
+ */
+@Service
+public class ApiRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiRateLimiter.class);
+
+    private final Map<ApiMethodGroup, TokenBucket> buckets = new EnumMap<>(ApiMethodGroup.class);
+    private final ApiQuotaTracker quotaTracker;
+
+    public ApiRateLimiter(RateLimitProperties properties, ApiQuotaTracker quotaTracker) {
+        this.quotaTracker = quotaTracker;
+        int burstSize = Math.max(1, properties.getBurstSize());
+        for (ApiMethodGroup group : ApiMethodGroup.values()) {
+            int requestsPerMinute = properties.getRequestsPerMinute(group);
+            buckets.put(group, new TokenBucket(requestsPerMinute, burstSize, System.nanoTime()));
+            log.info("Лимит API {}: {} запросов/мин, burst {}", group, requestsPerMinute, burstSize);
+        }
+    }
+
+    /**
+     * Резервирует токен для запроса
+     *
+     * @param group группа методов API
+     * @return время в наносекундах, через которое запрос можно отправлять (0 - сразу)
+     */
+    public long reserve(ApiMethodGroup group) {
+        long bucketWait = buckets.get(group).reserve(System.nanoTime());
+        return Math.max(bucketWait, quotaTracker.getBlockedNanos(group));
+    }
+
+    /**
+     * Резервирует токен и возвращает future, завершающийся по истечении времени ожидания
+     * Поток вызывающего не блокируется
+     */
+    public CompletableFuture<Void> acquireAsync(ApiMethodGroup group) {
+        long waitNanos = reserve(group);
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { },
+            CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Резервирует токен и ожидает его доступности в текущем потоке
+     * Используется синхронными клиентами вместо фиксированных задержек
+     *
+     * @return true если разрешение получено, false если поток был прерван
+     */
+    public boolean acquire(ApiMethodGroup group) {
+        long waitNanos = reserve(group);
+        if (waitNanos <= 0) {
+            return true;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Rate limiting {}: ожидание {}ms", group, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Текущее состояние корзин по группам методов
+     */
+    public Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<ApiMethodGroup, TokenBucket> entry : buckets.entrySet()) {
+            TokenBucket bucket = entry.getValue();
+            Map<String, Object> groupStats = new LinkedHashMap<>();
+            groupStats.put("requestsPerMinute", bucket.requestsPerMinute);
+            groupStats.put("burstSize", (long) bucket.capacity);
+            groupStats.put("availableTokens", bucket.availableTokens(now));
+            groupStats.put("totalReservations", bucket.getTotalReservations());
+            groupStats.put("delayedReservations", bucket.getDelayedReservations());
+            groupStats.putAll(quotaTracker.getGroupStats(entry.getKey()));
+            stats.put(entry.getKey().name(), groupStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Корзина токенов одной группы методов
+     *
+     * <p>Баланс может уходить в минус: каждый вызов {@link #reserve(long)} сразу списывает токен,
+     * а вызывающий ждет, пока долг покроется пополнением. Так запросы выстраиваются
+     * в очередь по времени без блокировок внутри корзины.</p>
+     */
+    static final class TokenBucket {
+
+        private final int requestsPerMinute;
+        private final double capacity;
+        private final double tokensPerNano;
+
+        private double tokens;
+        private long lastRefillNanos;
+        private long totalReservations;
+        private long delayedReservations;
+
+        TokenBucket(int requestsPerMinute, int capacity, long nowNanos) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.capacity = capacity;
+            this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        synchronized long reserve(long nowNanos) {
+            refill(nowNanos);
+            tokens -= 1;
+            totalReservations++;
+            if (tokens >= 0) {
+                return 0;
+            }
+            delayedReservations++;
+            return (long) Math.ceil(-tokens / tokensPerNano);
+        }
+
+        synchronized double availableTokens(long nowNanos) {
+            refill(nowNanos);
+            return Math.max(0, tokens);
+        }
+
+        synchronized long getTotalReservations() {
+            return totalReservations;
+        }
+
+        synchronized long getDelayedReservations() {
+            return delayedReservations;
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+}
@@ -146,15 +146,12 @@ public class AssetFundamentalService {
                         log.info("Батч " + batchNumber + " не вернул данных");
                     }
                     
-                    // Небольшая задержка между батчами для соблюдения лимитов API
-                    if (batchNumber < totalBatches) {
-                        Thread.sleep(500);
+                    // Темп запросов задает ApiRateLimiter внутри getAssetFundamentals
+                    if (Thread.currentThread().isInterrupted()) {
+                        log.error("Прервана обработка батча " + batchNumber);
+                        break;
                     }
                     
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.error("Прервана обработка батча " + batchNumber);
-                    break;
                 } catch (Exception e) {
                     log.error("Ошибка при обработке батча " + batchNumber + ": " + e.getMessage());
                     e.printStackTrace();
@@ -32,12 +32,15 @@ import java.util.List;
 public class CacheWarmupService {
 
     private static final Logger log = LoggerFactory.getLogger(CacheWarmupService.class);
-    private static final String MOEX_EXCHANGE = "moex_mrng_evng_e_wknd_dlr";
+    static final String MOEX_EXCHANGE = "moex_mrng_evng_e_wknd_dlr";
     
     private final InstrumentService instrumentService;
+    private final InstrumentUniverseService instrumentUniverseService;
 
-    public CacheWarmupService(InstrumentService instrumentService) {
+    public CacheWarmupService(InstrumentService instrumentService,
+                              InstrumentUniverseService instrumentUniverseService) {
         this.instrumentService = instrumentService;
+        this.instrumentUniverseService = instrumentUniverseService;
     }
 
     /**
@@ -98,13 +101,17 @@ public class CacheWarmupService {
      * Ручной прогрев кэша (для тестирования или принудительного обновления)
      * 
      * <p>Может быть вызван через REST API или другие сервисы для принудительного
-     * прогрева кэша без перезапуска приложения.</p>
+     * прогрева кэша без перезапуска приложения. Списки инструментов перезагружаются
+     * без очистки: до завершения читатели получают прежние.</p>
      */
     public void manualWarmupCache() {
         String taskId = "MANUAL_WARMUP_" + LocalDateTime.now(ZoneId.of("Europe/Moscow"));
         log.info("[{}] Начало ручного прогрева кэша", taskId);
 
         try {
+            // Перезагружаем уже закэшированные списки без очистки кэша
+            instrumentUniverseService.refreshAll().join();
+
             // Прогрев кэша акций
             log.info("[{}] Прогрев кэша акций", taskId);
             ShareFilterDto shareFilter = new ShareFilterDto(null, MOEX_EXCHANGE, null, null, null, null, null);
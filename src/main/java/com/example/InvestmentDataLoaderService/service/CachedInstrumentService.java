@@ -1,5 +1,6 @@
 package com.example.InvestmentDataLoaderService.service;
 
+import com.example.InvestmentDataLoaderService.config.CacheConfig;
 import com.example.InvestmentDataLoaderService.dto.FutureDto;
 import com.example.InvestmentDataLoaderService.dto.IndicativeDto;
 import com.example.InvestmentDataLoaderService.dto.ShareDto;
@@ -39,15 +40,18 @@ public class CachedInstrumentService {
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final CacheManager cacheManager;
+    private final InstrumentRegistry instrumentRegistry;
 
     public CachedInstrumentService(ShareRepository shareRepository,
                                  FutureRepository futureRepository,
                                  IndicativeRepository indicativeRepository,
-                                 CacheManager cacheManager) {
+                                 CacheManager cacheManager,
+                                 InstrumentRegistry instrumentRegistry) {
         this.shareRepository = shareRepository;
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.cacheManager = cacheManager;
+        this.instrumentRegistry = instrumentRegistry;
     }
 
     /**
@@ -66,9 +70,9 @@ public class CachedInstrumentService {
                 return convertSharesDtoToEntity(cachedShares);
             }
             
-            // Fallback на БД
-            log.info("Кэш акций пуст, загружаем из БД");
-            return shareRepository.findAll();
+            // Fallback на снимок БД в реестре: одна загрузка на всех вызывающих
+            log.info("Кэш акций пуст, используем реестр инструментов");
+            return instrumentRegistry.getShares();
             
         } catch (Exception e) {
             log.error("Ошибка при получении акций из кэша, используем БД: " + e.getMessage());
@@ -92,9 +96,9 @@ public class CachedInstrumentService {
                 return convertFuturesDtoToEntity(cachedFutures);
             }
             
-            // Fallback на БД
-            log.info("Кэш фьючерсов пуст, загружаем из БД");
-            return futureRepository.findAll();
+            // Fallback на снимок БД в реестре: одна загрузка на всех вызывающих
+            log.info("Кэш фьючерсов пуст, используем реестр инструментов");
+            return instrumentRegistry.getFutures();
             
         } catch (Exception e) {
             log.error("Ошибка при получении фьючерсов из кэша, используем БД: " + e.getMessage());
@@ -118,9 +122,9 @@ public class CachedInstrumentService {
                 return convertIndicativesDtoToEntity(cachedIndicatives);
             }
             
-            // Fallback на БД
-            log.info("Кэш индикативов пуст, загружаем из БД");
-            return indicativeRepository.findAll();
+            // Fallback на снимок БД в реестре: одна загрузка на всех вызывающих
+            log.info("Кэш индикативов пуст, используем реестр инструментов");
+            return instrumentRegistry.getIndicatives();
             
         } catch (Exception e) {
             log.error("Ошибка при получении индикативов из кэша, используем БД: " + e.getMessage());
@@ -130,174 +134,71 @@ public class CachedInstrumentService {
 
     /**
      * Получает акции из кэша
+     *
+     * <p>Акции биржи прогрева ({@link CacheWarmupService#MOEX_EXCHANGE}) из закэшированного
+     * списка со статусом по умолчанию; пустой список, если кэш еще не заполнен.</p>
      */
     public List<ShareDto> getSharesFromCache() {
-        Cache cache = cacheManager.getCache("sharesCache");
-        if (cache == null) {
+        InstrumentIndex<ShareDto> universe = getCachedUniverse(CacheConfig.SHARES_CACHE,
+            InstrumentUniverseService.normalizeStatus(null));
+        if (universe == null) {
             return new ArrayList<>();
         }
-
-        List<ShareDto> allShares = new ArrayList<>();
-        
-        // Получаем все записи из кэша через ключи
-        try {
-            // Пробуем разные ключи для получения акций
-            String[] possibleKeys = {
-                "|||", // Пустые параметры
-                "|moex_mrng_evng_e_wknd_dlr|||", // Ключ из CacheController
-                "|moex_mrng_evng_e_wknd_dlr|||", // Другой возможный ключ
-            };
-            
-            for (String cacheKey : possibleKeys) {
-                Cache.ValueWrapper wrapper = cache.get(cacheKey);
-                if (wrapper != null && wrapper.get() instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<ShareDto> shares = (List<ShareDto>) wrapper.get();
-                    if (shares != null && !shares.isEmpty()) {
-                        allShares.addAll(shares);
-                        log.info("Найдено " + shares.size() + " акций в кэше с ключом: " + cacheKey);
-                        break; // Используем первый найденный ключ
-                    }
-                }
-            }
-            
-            // Если не нашли по стандартным ключам, пробуем получить все записи из кэша
-            if (allShares.isEmpty() && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
-                com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = 
-                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
-                
-                for (Map.Entry<?, ?> entry : caffeineCache.asMap().entrySet()) {
-                    if (entry.getValue() instanceof List) {
-                        @SuppressWarnings("unchecked")
-                        List<ShareDto> shares = (List<ShareDto>) entry.getValue();
-                        if (shares != null && !shares.isEmpty()) {
-                            allShares.addAll(shares);
-                            log.info("Найдено " + shares.size() + " акций в кэше с ключом: " + entry.getKey());
-                            break; // Используем первый найденный список
-                        }
-                    }
-                }
-            }
-            
-        } catch (Exception e) {
-            log.error("Ошибка получения акций из кэша: " + e.getMessage());
-        }
-        
-        return allShares;
+        List<ShareDto> shares = universe.query(Map.of(InstrumentIndex.EXCHANGE, CacheWarmupService.MOEX_EXCHANGE));
+        log.info("Найдено " + shares.size() + " акций в кэше");
+        return shares;
     }
 
     /**
      * Получает фьючерсы из кэша
      */
     public List<FutureDto> getFuturesFromCache() {
-        Cache cache = cacheManager.getCache("futuresCache");
-        if (cache == null) {
+        InstrumentIndex<FutureDto> universe = getCachedUniverse(CacheConfig.FUTURES_CACHE,
+            InstrumentUniverseService.normalizeStatus(null));
+        if (universe == null) {
             return new ArrayList<>();
         }
-
-        List<FutureDto> allFutures = new ArrayList<>();
-        
-        // Получаем все записи из кэша через ключи
-        try {
-            // Пробуем разные ключи для получения фьючерсов
-            String[] possibleKeys = {
-                "||||", // Пустые параметры
-                "||||", // Другой возможный ключ
-            };
-            
-            for (String cacheKey : possibleKeys) {
-                Cache.ValueWrapper wrapper = cache.get(cacheKey);
-                if (wrapper != null && wrapper.get() instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<FutureDto> futures = (List<FutureDto>) wrapper.get();
-                    if (futures != null && !futures.isEmpty()) {
-                        allFutures.addAll(futures);
-                        log.info("Найдено " + futures.size() + " фьючерсов в кэше с ключом: " + cacheKey);
-                        break; // Используем первый найденный ключ
-                    }
-                }
-            }
-            
-            // Если не нашли по стандартным ключам, пробуем получить все записи из кэша
-            if (allFutures.isEmpty() && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
-                com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = 
-                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
-                
-                for (Map.Entry<?, ?> entry : caffeineCache.asMap().entrySet()) {
-                    if (entry.getValue() instanceof List) {
-                        @SuppressWarnings("unchecked")
-                        List<FutureDto> futures = (List<FutureDto>) entry.getValue();
-                        if (futures != null && !futures.isEmpty()) {
-                            allFutures.addAll(futures);
-                            log.info("Найдено " + futures.size() + " фьючерсов в кэше с ключом: " + entry.getKey());
-                            break; // Используем первый найденный список
-                        }
-                    }
-                }
-            }
-            
-        } catch (Exception e) {
-            log.error("Ошибка получения фьючерсов из кэша: " + e.getMessage());
-        }
-        
-        return allFutures;
+        log.info("Найдено " + universe.size() + " фьючерсов в кэше");
+        return new ArrayList<>(universe.all());
     }
 
     /**
      * Получает индикативы из кэша
      */
     public List<IndicativeDto> getIndicativesFromCache() {
-        Cache cache = cacheManager.getCache("indicativesCache");
-        if (cache == null) {
+        InstrumentIndex<IndicativeDto> universe = getCachedUniverse(CacheConfig.INDICATIVES_CACHE,
+            InstrumentUniverseService.INDICATIVES_KEY);
+        if (universe == null) {
             return new ArrayList<>();
         }
+        log.info("Найдено " + universe.size() + " индикативов в кэше");
+        return new ArrayList<>(universe.all());
+    }
 
-        List<IndicativeDto> allIndicatives = new ArrayList<>();
-        
-        // Получаем все записи из кэша через ключи
+    /**
+     * Закэшированный {@link InstrumentUniverseService} список инструментов (null, если его нет)
+     *
+     * <p>Читает без загрузки: отсутствующий список не запрашивается из API.</p>
+     */
+    @SuppressWarnings("unchecked")
+    private <T> InstrumentIndex<T> getCachedUniverse(String cacheName, String key) {
         try {
-            // Пробуем разные ключи для получения индикативов
-            String[] possibleKeys = {
-                "||||", // Пустые параметры
-                "||||", // Другой возможный ключ
-            };
-            
-            for (String cacheKey : possibleKeys) {
-                Cache.ValueWrapper wrapper = cache.get(cacheKey);
-                if (wrapper != null && wrapper.get() instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<IndicativeDto> indicatives = (List<IndicativeDto>) wrapper.get();
-                    if (indicatives != null && !indicatives.isEmpty()) {
-                        allIndicatives.addAll(indicatives);
-                        log.info("Найдено " + indicatives.size() + " индикативов в кэше с ключом: " + cacheKey);
-                        break; // Используем первый найденный ключ
-                    }
-                }
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                return null;
             }
-            
-            // Если не нашли по стандартным ключам, пробуем получить все записи из кэша
-            if (allIndicatives.isEmpty() && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
-                com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache = 
-                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
-                
-                for (Map.Entry<?, ?> entry : caffeineCache.asMap().entrySet()) {
-                    if (entry.getValue() instanceof List) {
-                        @SuppressWarnings("unchecked")
-                        List<IndicativeDto> indicatives = (List<IndicativeDto>) entry.getValue();
-                        if (indicatives != null && !indicatives.isEmpty()) {
-                            allIndicatives.addAll(indicatives);
-                            log.info("Найдено " + indicatives.size() + " индикативов в кэше с ключом: " + entry.getKey());
-                            break; // Используем первый найденный список
-                        }
-                    }
-                }
+            Object value;
+            if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+                value = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) caffeineCache).getIfPresent(key);
+            } else {
+                Cache.ValueWrapper wrapper = cache.get(key);
+                value = wrapper != null ? wrapper.get() : null;
             }
-            
+            return value instanceof InstrumentIndex<?> universe ? (InstrumentIndex<T>) universe : null;
         } catch (Exception e) {
-            log.error("Ошибка получения индикативов из кэша: " + e.getMessage());
+            log.error("Ошибка получения " + cacheName + " из кэша: " + e.getMessage());
+            return null;
         }
-        
-        return allIndicatives;
     }
 
     /**
@@ -365,35 +266,14 @@ public class CachedInstrumentService {
 
     /**
      * Проверяет, есть ли инструмент в кэше
+     * Поиск по FIGI в индексах {@link InstrumentRegistry} без перебора списков
      * 
      * @param figi идентификатор инструмента
      * @return true если инструмент найден в кэше
      */
     public boolean isInstrumentInCache(String figi) {
         try {
-            // Проверяем в кэше акций
-            List<ShareDto> shares = getSharesFromCache();
-            boolean foundInShares = shares.stream()
-                    .anyMatch(share -> share.figi().equals(figi));
-            
-            if (foundInShares) {
-                return true;
-            }
-            
-            // Проверяем в кэше фьючерсов
-            List<FutureDto> futures = getFuturesFromCache();
-            boolean foundInFutures = futures.stream()
-                    .anyMatch(future -> future.figi().equals(figi));
-            
-            if (foundInFutures) {
-                return true;
-            }
-            
-            // Проверяем в кэше индикативов
-            List<IndicativeDto> indicatives = getIndicativesFromCache();
-            return indicatives.stream()
-                    .anyMatch(indicative -> indicative.figi().equals(figi));
-            
+            return instrumentRegistry.contains(figi);
         } catch (Exception e) {
             log.error("Ошибка при проверке инструмента в кэше: " + e.getMessage());
             return false;
@@ -0,0 +1,355 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
+import com.example.InvestmentDataLoaderService.entity.CandleBackfillCheckpointEntity;
+import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
+import com.example.InvestmentDataLoaderService.repository.CandleBackfillCheckpointRepository;
+import com.example.InvestmentDataLoaderService.repository.DailyCandleRepository;
+import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
+import com.example.InvestmentDataLoaderService.util.DailyCandleMapper;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Сервис исторической догрузки свечей за диапазон дат
+ *
+ * <p>Диапазон каждого инструмента режется на окна максимального размера, допустимого API
+ * для интервала свечей (1 день для минутных, 1 год для дневных). Инструменты обрабатываются
+ * параллельно в {@code backfill.parallelism} потоках выполнения: запрос следующего окна идет
+ * одновременно с записью предыдущего. После записи каждого окна сдвигается чекпоинт в
+ * {@code invest.candle_backfill_checkpoints}, поэтому прерванное задание продолжается
+ * с первого незаписанного окна. Записанные завершенные дни отмечаются как полностью загруженные
+ * ({@link CandleDayCacheService#markLoaded}).</p>
+ */
+@Service
+public class CandleBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleBackfillService.class);
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    public static final String MINUTE_INTERVAL = "CANDLE_INTERVAL_1_MIN";
+    public static final String DAILY_INTERVAL = "CANDLE_INTERVAL_DAY";
+
+    /**
+     * Конвертация свечи пакета в сущность по индексу (без упаковки индекса в Integer)
+     */
+    @FunctionalInterface
+    private interface CandleConverter<E> {
+        E convert(CandleBatch batch, int index);
+    }
+
+    private final TinkoffApiClient tinkoffApiClient;
+    private final CandleBackfillCheckpointRepository checkpointRepository;
+    private final MinuteCandleRepository minuteCandleRepository;
+    private final DailyCandleRepository dailyCandleRepository;
+    private final BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter;
+    private final BulkWriter<DailyCandleEntity> dailyCandleBulkWriter;
+    private final Executor batchWriteExecutor;
+    private final CandleDayCacheService candleDayCacheService;
+    private final PipelineMetrics pipelineMetrics;
+    private final TradingSessionCalendarService tradingSessionCalendarService;
+    private final int parallelism;
+
+    // Задания, выполняющиеся в этом экземпляре сервиса
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public CandleBackfillService(TinkoffApiClient tinkoffApiClient,
+                                 CandleBackfillCheckpointRepository checkpointRepository,
+                                 MinuteCandleRepository minuteCandleRepository,
+                                 DailyCandleRepository dailyCandleRepository,
+                                 BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter,
+                                 BulkWriter<DailyCandleEntity> dailyCandleBulkWriter,
+                                 @Qualifier("batchWriteExecutor") Executor batchWriteExecutor,
+                                 CandleDayCacheService candleDayCacheService,
+                                 PipelineMetrics pipelineMetrics,
+                                 TradingSessionCalendarService tradingSessionCalendarService,
+                                 @Value("${backfill.parallelism:8}") int parallelism) {
+        this.tinkoffApiClient = tinkoffApiClient;
+        this.checkpointRepository = checkpointRepository;
+        this.minuteCandleRepository = minuteCandleRepository;
+        this.dailyCandleRepository = dailyCandleRepository;
+        this.minuteCandleBulkWriter = minuteCandleBulkWriter;
+        this.dailyCandleBulkWriter = dailyCandleBulkWriter;
+        this.batchWriteExecutor = batchWriteExecutor;
+        this.candleDayCacheService = candleDayCacheService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tradingSessionCalendarService = tradingSessionCalendarService;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Создает задание догрузки и запускает его асинхронно
+     *
+     * @param instruments FIGI инструментов
+     * @param from первая дата диапазона (включительно)
+     * @param to последняя дата диапазона (включительно)
+     * @param interval интервал свечей ({@link #MINUTE_INTERVAL} или {@link #DAILY_INTERVAL})
+     * @return ID задания
+     */
+    public String startBackfill(List<String> instruments, LocalDate from, LocalDate to, String interval) {
+        if (instruments == null || instruments.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны инструменты для догрузки");
+        }
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Некорректный диапазон дат: " + from + " - " + to);
+        }
+        if (!MINUTE_INTERVAL.equals(interval) && !DAILY_INTERVAL.equals(interval)) {
+            throw new IllegalArgumentException("Неподдерживаемый интервал свечей: " + interval);
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        Instant rangeFrom = from.atStartOfDay(MOSCOW).toInstant();
+        Instant rangeTo = to.plusDays(1).atStartOfDay(MOSCOW).toInstant();
+
+        List<CandleBackfillCheckpointEntity> checkpoints = new ArrayList<>();
+        for (String figi : new LinkedHashSet<>(instruments)) {
+            checkpoints.add(new CandleBackfillCheckpointEntity(jobId, figi, interval, rangeFrom, rangeTo));
+        }
+        checkpointRepository.saveAll(checkpoints);
+
+        log.info("Создано задание догрузки {}: {} инструментов, {} - {}, {}", jobId, checkpoints.size(), from, to, interval);
+        runJob(jobId);
+        return jobId;
+    }
+
+    /**
+     * Продолжает задание с последних чекпоинтов
+     *
+     * @return false если задание уже выполняется в этом экземпляре или нечего продолжать
+     */
+    public boolean resumeBackfill(String jobId) {
+        if (runningJobs.contains(jobId)) {
+            return false;
+        }
+        if (checkpointRepository.findByJobIdAndStatusNotOrderByFigi(jobId, CandleBackfillCheckpointEntity.STATUS_COMPLETED).isEmpty()) {
+            return false;
+        }
+        runJob(jobId);
+        return true;
+    }
+
+    /**
+     * Состояние задания догрузки по чекпоинтам
+     */
+    public Map<String, Object> getBackfillStatus(String jobId) {
+        List<CandleBackfillCheckpointEntity> checkpoints = checkpointRepository.findByJobIdOrderByFigi(jobId);
+        Map<String, Long> byStatus = new TreeMap<>();
+        long candlesLoaded = 0;
+        List<Map<String, Object>> failed = new ArrayList<>();
+        for (CandleBackfillCheckpointEntity checkpoint : checkpoints) {
+            byStatus.merge(checkpoint.getStatus(), 1L, Long::sum);
+            candlesLoaded += checkpoint.getCandlesLoaded();
+            if (CandleBackfillCheckpointEntity.STATUS_FAILED.equals(checkpoint.getStatus())) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("figi", checkpoint.getFigi());
+                item.put("loadedUntil", checkpoint.getLoadedUntil() != null ? checkpoint.getLoadedUntil().toString() : null);
+                item.put("error", checkpoint.getLastError());
+                failed.add(item);
+            }
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", jobId);
+        status.put("found", !checkpoints.isEmpty());
+        status.put("running", runningJobs.contains(jobId));
+        status.put("instruments", checkpoints.size());
+        status.put("statuses", byStatus);
+        status.put("candlesLoaded", candlesLoaded);
+        status.put("failed", failed);
+        return status;
+    }
+
+    /**
+     * Запускает обработку незавершенных чекпоинтов задания
+     */
+    private void runJob(String jobId) {
+        if (!runningJobs.add(jobId)) {
+            return;
+        }
+        Queue<CandleBackfillCheckpointEntity> queue = new ConcurrentLinkedQueue<>(
+            checkpointRepository.findByJobIdAndStatusNotOrderByFigi(jobId, CandleBackfillCheckpointEntity.STATUS_COMPLETED));
+        Instant startTime = Instant.now();
+
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, queue.size()); i++) {
+            lanes.add(runLane(queue));
+        }
+        CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0]))
+            .whenComplete((ignored, error) -> {
+                runningJobs.remove(jobId);
+                log.info("Задание догрузки {} завершено за {}с", jobId,
+                    Duration.between(startTime, Instant.now()).toSeconds());
+            });
+    }
+
+    /**
+     * Поток выполнения: последовательно берет инструменты из общей очереди
+     */
+    private CompletableFuture<Void> runLane(Queue<CandleBackfillCheckpointEntity> queue) {
+        CandleBackfillCheckpointEntity checkpoint = queue.poll();
+        if (checkpoint == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return processCheckpoint(checkpoint).thenCompose(ignored -> runLane(queue));
+    }
+
+    private CompletableFuture<Void> processCheckpoint(CandleBackfillCheckpointEntity checkpoint) {
+        checkpoint.setStatus(CandleBackfillCheckpointEntity.STATUS_RUNNING);
+        checkpoint.setLastError(null);
+        checkpointRepository.save(checkpoint);
+
+        CompletableFuture<Void> load = checkpoint.isFinished()
+            ? CompletableFuture.completedFuture(null)
+            : loadWindow(checkpoint, checkpoint.getResumeFrom(), fetchWindow(checkpoint, checkpoint.getResumeFrom()));
+
+        return load.handle((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                log.error("Ошибка догрузки {} после {}: {}", checkpoint.getFigi(), checkpoint.getResumeFrom(), cause.getMessage());
+                checkpoint.setStatus(CandleBackfillCheckpointEntity.STATUS_FAILED);
+                checkpoint.setLastError(cause.getMessage());
+            } else {
+                checkpoint.setStatus(CandleBackfillCheckpointEntity.STATUS_COMPLETED);
+            }
+            try {
+                checkpointRepository.save(checkpoint);
+            } catch (Exception e) {
+                log.error("Ошибка сохранения чекпоинта {}: {}", checkpoint.getFigi(), e.getMessage(), e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Записывает окно и, пока идет запись, запрашивает следующее
+     */
+    private CompletableFuture<Void> loadWindow(CandleBackfillCheckpointEntity checkpoint, Instant windowStart,
+                                               CompletableFuture<CandleBatch> fetch) {
+        Instant windowEnd = windowEnd(checkpoint, windowStart);
+        return fetch.thenCompose(candles -> {
+            CompletableFuture<CandleBatch> nextFetch = windowEnd.isBefore(checkpoint.getRangeTo())
+                ? fetchWindow(checkpoint, windowEnd)
+                : null;
+
+            return CompletableFuture.runAsync(() -> {
+                int inserted = writeWindow(checkpoint.getFigi(), checkpoint.getCandleInterval(), candles, windowStart, windowEnd);
+                candleDayCacheService.markLoaded(checkpoint.getFigi(), checkpoint.getCandleInterval(), windowStart, windowEnd, candles);
+                checkpoint.setLoadedUntil(windowEnd);
+                checkpoint.setCandlesLoaded(checkpoint.getCandlesLoaded() + inserted);
+                checkpointRepository.save(checkpoint);
+            }, batchWriteExecutor).thenCompose(ignored -> nextFetch != null
+                ? loadWindow(checkpoint, windowEnd, nextFetch)
+                : CompletableFuture.completedFuture(null));
+        });
+    }
+
+    private CompletableFuture<CandleBatch> fetchWindow(CandleBackfillCheckpointEntity checkpoint, Instant windowStart) {
+        return tinkoffApiClient.getCandleBatchRangeAsync(checkpoint.getFigi(), windowStart,
+            windowEnd(checkpoint, windowStart), checkpoint.getCandleInterval());
+    }
+
+    private Instant windowEnd(CandleBackfillCheckpointEntity checkpoint, Instant windowStart) {
+        Instant end = windowStart.plus(TinkoffApiClient.getMaxRequestWindow(checkpoint.getCandleInterval()));
+        return end.isAfter(checkpoint.getRangeTo()) ? checkpoint.getRangeTo() : end;
+    }
+
+    /**
+     * Загружает свечи инструмента за одни торговые сутки (по Москве) и записывает их
+     * Используется воркерами заданий загрузки для одного элемента задания (инструмент, дата)
+     *
+     * @param interval интервал свечей ({@link #MINUTE_INTERVAL} или {@link #DAILY_INTERVAL})
+     * @return future с количеством вставленных свечей; завершается с ошибкой, если API не ответил после повторов
+     */
+    public CompletableFuture<Integer> loadDayAsync(String figi, LocalDate date, String interval) {
+        Instant dayStart = date.atStartOfDay(MOSCOW).toInstant();
+        Instant dayEnd = date.plusDays(1).atStartOfDay(MOSCOW).toInstant();
+        return tinkoffApiClient.getCandleBatchRangeAsync(figi, dayStart, dayEnd, interval)
+            .thenApplyAsync(candles -> {
+                int inserted = writeWindow(figi, interval, candles, dayStart, dayEnd);
+                candleDayCacheService.markLoaded(figi, interval, dayStart, dayEnd, candles);
+                return inserted;
+            }, batchWriteExecutor);
+    }
+
+    /**
+     * Записывает закрытые свечи окна в таблицу, соответствующую интервалу
+     *
+     * @return количество вставленных свечей
+     */
+    private int writeWindow(String figi, String interval, CandleBatch candles,
+                            Instant windowStart, Instant windowEnd) {
+        if (DAILY_INTERVAL.equals(interval)) {
+            return writeCandles(PipelineJob.DAILY, figi, candles, windowStart, windowEnd,
+                DailyCandleMapper::toEntity,
+                DailyCandleEntity::getTime,
+                (start, end) -> dailyCandleRepository.findTimesByFigiAndTimeBetween(figi, start, end),
+                dailyCandleBulkWriter);
+        }
+        TradingSessionCalendar sessions = tradingSessionCalendarService.current();
+        return writeCandles(PipelineJob.MINUTE, figi, candles, windowStart, windowEnd,
+            (batch, index) -> MinuteCandleMapper.toEntity(batch, index, sessions),
+            MinuteCandleEntity::getTime,
+            (start, end) -> minuteCandleRepository.findTimesByFigiAndTimeBetween(figi, start, end),
+            minuteCandleBulkWriter);
+    }
+
+    private <E> int writeCandles(PipelineJob job, String figi, CandleBatch candles, Instant windowStart, Instant windowEnd,
+                                 CandleConverter<E> converter,
+                                 Function<E, Instant> timeGetter,
+                                 BiFunction<Instant, Instant, List<Instant>> existingTimesLoader,
+                                 BulkWriter<E> writer) {
+        if (candles == null || candles.isEmpty()) {
+            return 0;
+        }
+
+        // Если реализация записи сама не отбрасывает дубликаты, проверяем окно одним запросом
+        Set<Instant> seenTimes = new HashSet<>();
+        if (!writer.skipsDuplicates()) {
+            List<Instant> existing = existingTimesLoader.apply(windowStart, windowEnd);
+            if (existing != null) {
+                seenTimes.addAll(existing);
+            }
+        }
+
+        List<E> entities = new ArrayList<>();
+        int converted = 0;
+        for (int i = 0; i < candles.size(); i++) {
+            // Незакрытые свечи не записываем
+            if (!candles.isComplete(i)) {
+                continue;
+            }
+            E entity = converter.convert(candles, i);
+            converted++;
+            if (seenTimes.add(timeGetter.apply(entity))) {
+                entities.add(entity);
+            }
+        }
+        pipelineMetrics.countCandlesConverted(job, converted);
+        pipelineMetrics.countDedupHits(job, converted - entities.size());
+
+        int inserted = writer.write(entities);
+        log.debug("Догрузка {}: окно {} - {}, получено {}, вставлено {}", figi, windowStart, windowEnd, candles.size(), inserted);
+        return inserted;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import com.example.InvestmentDataLoaderService.repository.DailyCandleRepository;
+import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш свечей инструмента за завершенные торговые дни (read-through)
+ *
+ * <p>Свечи завершенного дня (по Москве) больше не меняются, поэтому запрос за такой день
+ * обслуживается без обращения к API: сначала из ограниченного по числу свечей кэша в памяти,
+ * затем из {@code minute_candles}/{@code daily_candles}, если день отмечен в
+ * {@code invest.candle_day_status} как полностью загруженный. В API идут только запросы
+ * за текущий день и за дни, которых нет в БД; ответ API за завершенный день кладется в кэш.</p>
+ *
+ * <p>Полнота дня отмечается загрузчиками после успешной записи свечей ({@link #markLoaded})
+ * только для дней, закончившихся к моменту загрузки.</p>
+ */
+@Service
+public class CandleDayCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleDayCacheService.class);
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final String MARK_LOADED_SQL =
+        "INSERT INTO invest.candle_day_status (figi, candle_interval, trade_date, candles_count, loaded_at) " +
+        "VALUES (?, ?, ?, ?, now()) " +
+        "ON CONFLICT (figi, candle_interval, trade_date) DO UPDATE " +
+        "SET candles_count = GREATEST(invest.candle_day_status.candles_count, EXCLUDED.candles_count), loaded_at = now()";
+
+    private static final String FIND_STATUS_SQL =
+        "SELECT candles_count FROM invest.candle_day_status WHERE figi = ? AND candle_interval = ? AND trade_date = ?";
+
+    private record DayKey(String figi, String interval, LocalDate date) {
+    }
+
+    private final TinkoffApiClient tinkoffApiClient;
+    private final MinuteCandleRepository minuteCandleRepository;
+    private final DailyCandleRepository dailyCandleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<DayKey, List<CandleDto>> cache;
+
+    public CandleDayCacheService(TinkoffApiClient tinkoffApiClient,
+                                 MinuteCandleRepository minuteCandleRepository,
+                                 DailyCandleRepository dailyCandleRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${candle-cache.max-candles:300000}") long maxCandles) {
+        this.tinkoffApiClient = tinkoffApiClient;
+        this.minuteCandleRepository = minuteCandleRepository;
+        this.dailyCandleRepository = dailyCandleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Вес записи - число свечей: минутный день весит ~900, дневной - 1
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(Math.max(1, maxCandles))
+            .weigher((DayKey key, List<CandleDto> candles) -> Math.max(1, candles.size()))
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Свечи инструмента за торговый день
+     *
+     * @param interval {@link CandleBackfillService#MINUTE_INTERVAL} или {@link CandleBackfillService#DAILY_INTERVAL}
+     */
+    public List<CandleDto> getCandles(String figi, LocalDate date, String interval) {
+        if (!isCompleted(date)) {
+            return tinkoffApiClient.getCandles(figi, date, interval);
+        }
+
+        DayKey key = new DayKey(figi, interval, date);
+        List<CandleDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<CandleDto> candles = loadFromDatabase(key);
+        if (candles == null) {
+            candles = tinkoffApiClient.getCandles(figi, date, interval);
+            // Пустой ответ может быть и ошибкой API, его не кэшируем
+            if (candles == null || candles.isEmpty() || !candles.stream().allMatch(CandleDto::isComplete)) {
+                return candles;
+            }
+        }
+        candles = List.copyOf(candles);
+        cache.put(key, candles);
+        return candles;
+    }
+
+    /**
+     * Отмечает как загруженные все завершенные дни, целиком попавшие в интервал [from, to)
+     * Ошибка записи отметки только логируется: день останется незагруженным и будет запрошен из API
+     *
+     * @param candles свечи, полученные из API за интервал (для подсчета свечей по дням)
+     */
+    public void markLoaded(String figi, String interval, Instant from, Instant to, CandleBatch candles) {
+        LocalDate first = from.atZone(MOSCOW).toLocalDate();
+        if (!first.atStartOfDay(MOSCOW).toInstant().equals(from)) {
+            first = first.plusDays(1);
+        }
+        LocalDate last = to.atZone(MOSCOW).toLocalDate().minusDays(1);
+        LocalDate lastCompleted = LocalDate.now(MOSCOW).minusDays(1);
+        if (last.isAfter(lastCompleted)) {
+            last = lastCompleted;
+        }
+        if (first.isAfter(last)) {
+            return;
+        }
+
+        Map<LocalDate, Integer> counts = new HashMap<>();
+        if (candles != null) {
+            for (int i = 0; i < candles.size(); i++) {
+                if (candles.isComplete(i)) {
+                    counts.merge(candles.instant(i).atZone(MOSCOW).toLocalDate(), 1, Integer::sum);
+                }
+            }
+        }
+        writeMarks(figi, interval, first, last, counts);
+    }
+
+    /**
+     * Отмечает как загруженный один торговый день инструмента, если он уже завершен
+     * Для загрузчиков, которые запрашивают свечи за сутки по Москве в виде DTO
+     *
+     * @param candlesCount количество закрытых свечей дня, которые есть в БД после записи
+     */
+    public void markLoaded(String figi, String interval, LocalDate date, int candlesCount) {
+        if (!isCompleted(date)) {
+            return;
+        }
+        writeMarks(figi, interval, date, date, Map.of(date, candlesCount));
+    }
+
+    /**
+     * Статистика кэша для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        var stats = cache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * Свечи из БД, если день отмечен как загруженный и строк не меньше, чем было загружено
+     * (иначе, например после удаления старых партиций, возвращает null)
+     */
+    private List<CandleDto> loadFromDatabase(DayKey key) {
+        List<Integer> status = jdbcTemplate.queryForList(FIND_STATUS_SQL, Integer.class,
+            key.figi(), key.interval(), Date.valueOf(key.date()));
+        if (status.isEmpty()) {
+            return null;
+        }
+
+        Instant dayStart = key.date().atStartOfDay(MOSCOW).toInstant();
+        // Репозитории включают правую границу: берем последнюю микросекунду дня
+        Instant dayEnd = key.date().plusDays(1).atStartOfDay(MOSCOW).toInstant().minusNanos(1000);
+        List<CandleDto> candles = CandleBackfillService.DAILY_INTERVAL.equals(key.interval())
+            ? dailyCandleRepository.findByFigiAndTimeBetween(key.figi(), dayStart, dayEnd).stream()
+                .map(c -> new CandleDto(c.getFigi(), c.getVolume(), c.getHigh(), c.getLow(), c.getTime(), c.getClose(), c.getOpen(), c.isComplete()))
+                .toList()
+            : minuteCandleRepository.findByFigiAndTimeBetween(key.figi(), dayStart, dayEnd).stream()
+                .map(c -> new CandleDto(c.getFigi(), c.getVolume(), c.getHigh(), c.getLow(), c.getTime(), c.getClose(), c.getOpen(), c.isComplete()))
+                .toList();
+
+        if (candles.size() < status.get(0)) {
+            log.warn("В БД {} из {} свечей {} за {} ({}), запрос идет в API",
+                candles.size(), status.get(0), key.figi(), key.date(), key.interval());
+            return null;
+        }
+        return candles;
+    }
+
+    private void writeMarks(String figi, String interval, LocalDate first, LocalDate last, Map<LocalDate, Integer> counts) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            rows.add(new Object[]{figi, interval, Date.valueOf(date), counts.getOrDefault(date, 0)});
+        }
+        try {
+            jdbcTemplate.batchUpdate(MARK_LOADED_SQL, rows);
+        } catch (Exception e) {
+            log.warn("Не удалось отметить загрузку {} ({}) за {} - {}: {}", figi, interval, first, last, e.getMessage());
+        }
+    }
+
+    private static boolean isCompleted(LocalDate date) {
+        return date.isBefore(LocalDate.now(MOSCOW));
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
+import com.example.InvestmentDataLoaderService.dto.CandleDto;
+import com.example.InvestmentDataLoaderService.dto.DailyCandleExtendedDto;
+import com.example.InvestmentDataLoaderService.dto.MinuteCandleExtendedDto;
+import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Потоковая выдача свечей в формате NDJSON ({@code application/x-ndjson})
+ *
+ * <p>Свечи каждого инструмента записываются в ответ сразу после получения из API, по одной
+ * JSON-строке на свечу; последней строкой идет итог с {@code "type": "summary"}. В памяти
+ * держатся только свечи текущего инструмента, поэтому расход памяти не зависит от числа
+ * инструментов, а клиент получает первые данные через секунды. В режиме
+ * {@code tinkoff.api.async-stubs} следующие {@value #PREFETCH} инструмента запрашиваются
+ * заранее, пока пишется текущий.</p>
+ */
+@Service
+public class CandleStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleStreamService.class);
+
+    private static final int PREFETCH = 4;
+
+    /**
+     * Инструмент для выдачи: FIGI и поля, добавляемые в каждую свечу
+     */
+    public record StreamInstrument(String figi, String ticker, String name) {
+    }
+
+    /**
+     * Инструмент в окне предзагрузки (candles == null, если свечи запрашиваются при выдаче)
+     */
+    private record Pending(StreamInstrument instrument, CompletableFuture<List<CandleDto>> candles) {
+    }
+
+    private final TinkoffApiClient tinkoffApiClient;
+    private final SystemLogWriter systemLogWriter;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter lineWriter;
+
+    public CandleStreamService(TinkoffApiClient tinkoffApiClient,
+                               SystemLogWriter systemLogWriter,
+                               ObjectMapper objectMapper) {
+        this.tinkoffApiClient = tinkoffApiClient;
+        this.systemLogWriter = systemLogWriter;
+        this.objectMapper = objectMapper;
+        // Сброс в сокет - после каждого инструмента, а не после каждой свечи
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Потоковая выдача минутных свечей инструментов за дату
+     */
+    public StreamingResponseBody streamMinuteCandles(String assetType, LocalDate date, String endpoint,
+                                                     List<StreamInstrument> instruments) {
+        return out -> writeCandles(out, assetType, date, "CANDLE_INTERVAL_1_MIN", endpoint, instruments,
+            (instrument, candle) -> MinuteCandleExtendedDto.fromBasicData(instrument.figi(), instrument.ticker(), instrument.name(),
+                candle.time(), candle.open(), candle.close(), candle.high(), candle.low(), candle.volume(), candle.isComplete()));
+    }
+
+    /**
+     * Потоковая выдача дневных свечей инструментов за дату
+     */
+    public StreamingResponseBody streamDailyCandles(String assetType, LocalDate date, String endpoint,
+                                                    List<StreamInstrument> instruments) {
+        return out -> writeCandles(out, assetType, date, "CANDLE_INTERVAL_DAY", endpoint, instruments,
+            (instrument, candle) -> DailyCandleExtendedDto.fromBasicData(instrument.figi(), instrument.ticker(), instrument.name(),
+                candle.time(), candle.open(), candle.close(), candle.high(), candle.low(), candle.volume(), candle.isComplete()));
+    }
+
+    private void writeCandles(OutputStream out, String assetType, LocalDate date, String interval, String endpoint,
+                              List<StreamInstrument> instruments,
+                              BiFunction<StreamInstrument, CandleDto, Object> toLine) throws IOException {
+        String taskId = UUID.randomUUID().toString();
+        Instant startTime = Instant.now();
+        saveLog(taskId, endpoint, "STARTED", "Начало потоковой выдачи свечей " + assetType + " за " + date, startTime);
+
+        long totalCandles = 0;
+        long totalVolume = 0;
+        BigDecimal averagePriceSum = BigDecimal.ZERO;
+        int successfulInstruments = 0;
+        int noDataInstruments = 0;
+        int errorInstruments = 0;
+
+        boolean prefetch = tinkoffApiClient.isAsyncStubsEnabled();
+        Iterator<StreamInstrument> pending = instruments.iterator();
+        Deque<Pending> window = new ArrayDeque<>();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        try {
+            fill(window, pending, date, interval, prefetch);
+            while (!window.isEmpty()) {
+                Pending next = window.poll();
+                StreamInstrument instrument = next.instrument();
+                List<CandleDto> candles;
+                try {
+                    candles = next.candles() != null
+                        ? next.candles().join()
+                        : tinkoffApiClient.getCandles(instrument.figi(), date, interval);
+                } catch (Exception e) {
+                    log.error("Ошибка получения свечей для {}: {}", instrument.figi(), e.getMessage());
+                    errorInstruments++;
+                    fill(window, pending, date, interval, prefetch);
+                    continue;
+                }
+                fill(window, pending, date, interval, prefetch);
+
+                if (candles == null || candles.isEmpty()) {
+                    noDataInstruments++;
+                    continue;
+                }
+                successfulInstruments++;
+                for (CandleDto candle : candles) {
+                    lineWriter.writeValue(generator, toLine.apply(instrument, candle));
+                    generator.writeRaw('\n');
+                    totalCandles++;
+                    totalVolume += candle.volume();
+                    averagePriceSum = averagePriceSum.add(candle.high().add(candle.low()).add(candle.open()).add(candle.close())
+                        .divide(BigDecimal.valueOf(4), 2, RoundingMode.HALF_UP));
+                }
+                generator.flush();
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "summary");
+            summary.put("date", date.toString());
+            summary.put("assetType", assetType);
+            summary.put("totalCandles", totalCandles);
+            summary.put("totalInstruments", instruments.size());
+            summary.put("successfulInstruments", successfulInstruments);
+            summary.put("noDataInstruments", noDataInstruments);
+            summary.put("errorInstruments", errorInstruments);
+            if (totalCandles > 0) {
+                summary.put("totalVolume", totalVolume);
+                summary.put("averagePrice", averagePriceSum.divide(BigDecimal.valueOf(totalCandles), 2, RoundingMode.HALF_UP));
+            }
+            lineWriter.writeValue(generator, summary);
+            generator.writeRaw('\n');
+            generator.flush();
+        } catch (IOException | RuntimeException e) {
+            // Клиент закрыл соединение или упала запись: незапрошенные инструменты больше не нужны
+            window.stream().filter(entry -> entry.candles() != null).forEach(entry -> entry.candles().cancel(true));
+            saveLog(taskId, endpoint, "FAILED", "Потоковая выдача свечей " + assetType + " за " + date
+                + " прервана после " + totalCandles + " свечей: " + e.getMessage(), startTime);
+            throw e;
+        }
+
+        log.info("Потоковая выдача свечей {} за {}: инструментов {}, свечей {}", assetType, date, instruments.size(), totalCandles);
+        saveLog(taskId, endpoint, "COMPLETED", "Потоковая выдача свечей " + assetType + " за " + date
+            + ": Всего инструментов=" + instruments.size()
+            + ", Успешно=" + successfulInstruments
+            + ", Без данных=" + noDataInstruments
+            + ", С ошибками=" + errorInstruments
+            + ", Всего свечей=" + totalCandles, startTime);
+    }
+
+    /**
+     * Дополняет окно запросов до {@link #PREFETCH}; без async-стабов свечи запрашиваются по одному инструменту
+     */
+    private void fill(Deque<Pending> window,
+                      Iterator<StreamInstrument> pending, LocalDate date, String interval, boolean prefetch) {
+        int limit = prefetch ? PREFETCH : 1;
+        while (window.size() < limit && pending.hasNext()) {
+            StreamInstrument instrument = pending.next();
+            window.add(new Pending(instrument, prefetch ? tinkoffApiClient.getCandlesAsync(instrument.figi(), date, interval) : null));
+        }
+    }
+
+    private void saveLog(String taskId, String endpoint, String status, String message, Instant startTime) {
+        SystemLogEntity logEntity = new SystemLogEntity();
+        logEntity.setTaskId(taskId);
+        logEntity.setEndpoint(endpoint);
+        logEntity.setMethod("GET");
+        logEntity.setStatus(status);
+        logEntity.setMessage(message);
+        logEntity.setStartTime(startTime);
+        if (!"STARTED".equals(status)) {
+            Instant endTime = Instant.now();
+            logEntity.setEndTime(endTime);
+            logEntity.setDurationMs(endTime.toEpochMilli() - startTime.toEpochMilli());
+        }
+        systemLogWriter.write(logEntity);
+    }
+}
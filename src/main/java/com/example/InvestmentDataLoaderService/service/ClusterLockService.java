@@ -0,0 +1,463 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Координация запусков по расписанию между экземплярами сервиса
+ *
+ * <p>При {@code scheduler.cluster.enabled=true} каждый {@code @Scheduled}-метод срабатывает на всех
+ * узлах, но выполняет работу только тот, кто захватит строку запуска в {@code invest.scheduled_runs}
+ * ({@link #runExclusive}). Захват - аренда: владелец продлевает {@code lease_until}, пока работает,
+ * и по окончании ставит статус DONE или FAILED. Остальные узлы следят за запуском и забирают его,
+ * если аренда истекла (владелец упал) или запуск завершился с ошибкой, не более
+ * {@code scheduler.cluster.max-attempts} попыток за дату.</p>
+ *
+ * <p>Длинные загрузки по инструментам делятся на партиции FIGI ({@link #runPartitions}): узлы
+ * захватывают их через {@code FOR UPDATE SKIP LOCKED}, пока не разберут все, поэтому время загрузки
+ * сокращается пропорционально числу узлов. Аренда партиции продлевается, пока она обрабатывается;
+ * партиции с истекшей арендой и упавшие (FAILED) захватываются повторно с тем же ограничением
+ * числа попыток.</p>
+ *
+ * <p>Долгоживущие задачи (потоковая загрузка) делят те же партиции FIGI через аренду владения
+ * ({@link #claimPartitionShare}): каждый узел держит не больше {@code ceil(партиций / живых узлов)}
+ * и периодически продлевает аренду, партиции упавшего узла забирают остальные.</p>
+ *
+ * <p>При выключенном режиме кластера все проверки проходят без обращения к БД,
+ * а работа выполняется одной партицией.</p>
+ */
+@Service
+public class ClusterLockService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterLockService.class);
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    /**
+     * Пауза перед повторным захватом запуска, завершившегося ошибкой
+     */
+    private static final long RETRY_DELAY_SECONDS = 60;
+
+    private static final String CLAIM_RUN_SQL =
+        "INSERT INTO invest.scheduled_runs AS r (task_name, run_date, owner, status, lease_until, attempts) " +
+        "VALUES (?, ?, ?, 'RUNNING', now() + make_interval(secs => ?), 1) " +
+        "ON CONFLICT (task_name, run_date) DO UPDATE " +
+        "SET owner = excluded.owner, status = 'RUNNING', lease_until = excluded.lease_until, " +
+        "    attempts = r.attempts + 1, started_at = now(), finished_at = NULL " +
+        "WHERE r.attempts < ? AND (r.status = 'FAILED' OR (r.status = 'RUNNING' AND r.lease_until < now()))";
+
+    private static final String RENEW_RUN_SQL =
+        "UPDATE invest.scheduled_runs SET lease_until = now() + make_interval(secs => ?) " +
+        "WHERE task_name = ? AND run_date = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final String FINISH_RUN_SQL =
+        "UPDATE invest.scheduled_runs SET status = ?, lease_until = NULL, finished_at = now() " +
+        "WHERE task_name = ? AND run_date = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final String RUN_STATE_SQL =
+        "SELECT status, attempts, " +
+        "       GREATEST(0, EXTRACT(EPOCH FROM (lease_until - now())) * 1000)::bigint AS lease_remaining_ms " +
+        "FROM invest.scheduled_runs WHERE task_name = ? AND run_date = ?";
+
+    private static final String CLAIM_PARTITION_SQL =
+        "UPDATE invest.scheduled_run_partitions p " +
+        "SET status = 'RUNNING', owner = ?, lease_until = now() + make_interval(secs => ?), " +
+        "    attempts = p.attempts + 1, updated_at = now() " +
+        "WHERE (p.task_name, p.run_date, p.partition_no) IN (" +
+        "    SELECT task_name, run_date, partition_no FROM invest.scheduled_run_partitions " +
+        "    WHERE task_name = ? AND run_date = ? " +
+        "      AND (status = 'PENDING' " +
+        "           OR (attempts < ? AND (status = 'FAILED' OR (status = 'RUNNING' AND lease_until < now())))) " +
+        "    ORDER BY status = 'FAILED', partition_no LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+        "RETURNING p.partition_no";
+
+    private static final String RENEW_PARTITION_SQL =
+        "UPDATE invest.scheduled_run_partitions SET lease_until = now() + make_interval(secs => ?), updated_at = now() " +
+        "WHERE task_name = ? AND run_date = ? AND partition_no = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final String FINISH_PARTITION_SQL =
+        "UPDATE invest.scheduled_run_partitions SET status = ?, lease_until = NULL, updated_at = now() " +
+        "WHERE task_name = ? AND run_date = ? AND partition_no = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final String NEXT_PARTITION_EXPIRY_SQL =
+        "SELECT min(GREATEST(0, EXTRACT(EPOCH FROM (lease_until - now())) * 1000))::bigint " +
+        "FROM invest.scheduled_run_partitions " +
+        "WHERE task_name = ? AND run_date = ? AND status = 'RUNNING' AND attempts < ?";
+
+    private static final String CLAIM_SHARE_SQL =
+        "UPDATE invest.cluster_partition_leases p " +
+        "SET owner = ?, lease_until = now() + make_interval(secs => ?) " +
+        "WHERE (p.resource, p.partition_no) IN (" +
+        "    SELECT resource, partition_no FROM invest.cluster_partition_leases " +
+        "    WHERE resource = ? AND (owner IS NULL OR lease_until < now()) " +
+        "    ORDER BY partition_no LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING p.partition_no";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean clusterEnabled;
+    private final int partitions;
+    private final int partitionLeaseSeconds;
+    private final int runLeaseSeconds;
+    private final int maxAttempts;
+    private final int shareLeaseSeconds;
+    private final String nodeId;
+    private final ScheduledExecutorService leaseExecutor;
+    private final ExecutorService failoverExecutor;
+
+    public ClusterLockService(JdbcTemplate jdbcTemplate,
+                              @Value("${scheduler.cluster.enabled:false}") boolean clusterEnabled,
+                              @Value("${scheduler.cluster.partitions:16}") int partitions,
+                              @Value("${scheduler.cluster.partition-lease-seconds:1800}") int partitionLeaseSeconds,
+                              @Value("${scheduler.cluster.run-lease-seconds:300}") int runLeaseSeconds,
+                              @Value("${scheduler.cluster.max-attempts:3}") int maxAttempts,
+                              @Value("${scheduler.cluster.share-lease-seconds:90}") int shareLeaseSeconds,
+                              @Value("${scheduler.cluster.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterEnabled = clusterEnabled;
+        this.partitions = clusterEnabled ? Math.max(1, partitions) : 1;
+        this.partitionLeaseSeconds = Math.max(60, partitionLeaseSeconds);
+        this.runLeaseSeconds = Math.max(30, runLeaseSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.shareLeaseSeconds = Math.max(10, shareLeaseSeconds);
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId : defaultNodeId();
+        this.leaseExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("ClusterLock-lease"));
+        this.failoverExecutor = Executors.newCachedThreadPool(daemonThreads("ClusterLock-failover"));
+        log.info("Узел {}: режим кластера {}, партиций {}", this.nodeId,
+            clusterEnabled ? "включен" : "выключен", this.partitions);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        leaseExecutor.shutdownNow();
+        failoverExecutor.shutdownNow();
+    }
+
+    /**
+     * Выполняет задачу по расписанию на одном узле кластера
+     *
+     * <p>Узел, захвативший запуск, выполняет задачу в текущем потоке и продлевает аренду каждые
+     * {@code run-lease-seconds / 3}. Остальные узлы возвращаются сразу и проверяют запуск по
+     * истечении аренды: если владелец перестал ее продлевать или задача упала, запуск забирает
+     * первый успевший узел. Наблюдение прекращается, когда запуск завершен (DONE), попытки
+     * исчерпаны или наступила следующая дата.</p>
+     *
+     * @param taskName имя задачи по расписанию (уникально для каждого cron)
+     * @param runDate дата запуска по Москве
+     * @param task работа задачи; исключение помечает запуск как FAILED
+     * @return true если задачу выполнил этот узел
+     */
+    public boolean runExclusive(String taskName, LocalDate runDate, Runnable task) {
+        if (!clusterEnabled) {
+            task.run();
+            return true;
+        }
+        if (!tryClaimRun(taskName, runDate)) {
+            log.info("Запуск {} за {} выполняется другим узлом, узел {} наблюдает за арендой", taskName, runDate, nodeId);
+            scheduleWatch(taskName, runDate, task, TimeUnit.SECONDS.toMillis(runLeaseSeconds));
+            return false;
+        }
+        executeRun(taskName, runDate, task);
+        return true;
+    }
+
+    /**
+     * Обрабатывает партиции запуска, пока все они не будут завершены
+     * Все узлы вызывают метод одновременно; каждая партиция достается ровно одному узлу
+     *
+     * <p>Аренда партиции продлевается каждые {@code partition-lease-seconds / 3}, пока работает
+     * обработчик. Когда свободных партиций нет, узел ждет окончания аренды партиций других узлов
+     * и забирает просроченные (владелец упал), поэтому метод возвращается, только когда
+     * не осталось партиций, которые можно выполнить.</p>
+     *
+     * @param processor обработчик партиции (номер от 0 до {@link #getPartitions()} - 1);
+     *                  исключение помечает партицию как FAILED для повторной попытки
+     * @return количество партиций, обработанных этим узлом
+     */
+    public int runPartitions(String taskName, LocalDate runDate, IntConsumer processor) {
+        if (!clusterEnabled) {
+            processor.accept(0);
+            return 1;
+        }
+
+        Date date = Date.valueOf(runDate);
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO invest.scheduled_run_partitions (task_name, run_date, partition_no, status) " +
+            "VALUES (?, ?, ?, 'PENDING') ON CONFLICT (task_name, run_date, partition_no) DO NOTHING",
+            IntStream.range(0, partitions)
+                .mapToObj(partition -> new Object[]{taskName, date, partition})
+                .toList());
+
+        int processed = 0;
+        while (true) {
+            List<Integer> claimed = jdbcTemplate.queryForList(CLAIM_PARTITION_SQL, Integer.class,
+                nodeId, partitionLeaseSeconds, taskName, date, maxAttempts);
+            if (claimed.isEmpty()) {
+                if (awaitPartitionLeases(taskName, runDate)) {
+                    continue;
+                }
+                break;
+            }
+            executePartition(taskName, runDate, claimed.get(0), processor);
+            processed++;
+        }
+        log.info("Узел {} обработал {} из {} партиций задачи {} за {}", nodeId, processed, partitions, taskName, runDate);
+        return processed;
+    }
+
+    /**
+     * Захватывает и продлевает долю партиций FIGI долгоживущей задачи для этого узла
+     *
+     * <p>Узел отмечается в {@code invest.cluster_members} и держит не больше
+     * {@code ceil(партиций / живых узлов)}: лишние партиции освобождает (когда подключился новый
+     * узел), недостающие забирает из свободных и просроченных. Вызывать чаще, чем
+     * {@code scheduler.cluster.share-lease-seconds}, иначе аренда истечет и партиции перейдут
+     * другим узлам. При выключенном кластере возвращает единственную партицию 0.</p>
+     *
+     * @param resource имя задачи, например {@code market-data-stream}
+     * @return номера партиций, которыми владеет узел
+     */
+    public Set<Integer> claimPartitionShare(String resource) {
+        if (!clusterEnabled) {
+            return Set.of(0);
+        }
+        jdbcTemplate.update(
+            "INSERT INTO invest.cluster_members (resource, node_id, lease_until) " +
+            "VALUES (?, ?, now() + make_interval(secs => ?)) " +
+            "ON CONFLICT (resource, node_id) DO UPDATE SET lease_until = excluded.lease_until",
+            resource, nodeId, shareLeaseSeconds);
+        Integer members = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM invest.cluster_members WHERE resource = ? AND lease_until > now()",
+            Integer.class, resource);
+        int liveNodes = members != null ? Math.max(1, members) : 1;
+        int share = (partitions + liveNodes - 1) / liveNodes;
+
+        Set<Integer> owned = new TreeSet<>(jdbcTemplate.queryForList(
+            "UPDATE invest.cluster_partition_leases SET lease_until = now() + make_interval(secs => ?) " +
+            "WHERE resource = ? AND owner = ? RETURNING partition_no",
+            Integer.class, shareLeaseSeconds, resource, nodeId));
+
+        if (owned.size() > share) {
+            List<Integer> extra = owned.stream().skip(share).toList();
+            jdbcTemplate.batchUpdate(
+                "UPDATE invest.cluster_partition_leases SET owner = NULL, lease_until = NULL " +
+                "WHERE resource = ? AND partition_no = ? AND owner = ?",
+                extra.stream().map(partition -> new Object[]{resource, partition, nodeId}).toList());
+            extra.forEach(owned::remove);
+            log.info("Узел {} освободил партиции {} задачи {} для других узлов", nodeId, extra, resource);
+        } else if (owned.size() < share) {
+            jdbcTemplate.update(
+                "INSERT INTO invest.cluster_partition_leases (resource, partition_no) " +
+                "SELECT ?, g FROM generate_series(0, ? - 1) g ON CONFLICT (resource, partition_no) DO NOTHING",
+                resource, partitions);
+            List<Integer> claimed = jdbcTemplate.queryForList(CLAIM_SHARE_SQL, Integer.class,
+                nodeId, shareLeaseSeconds, resource, share - owned.size());
+            if (!claimed.isEmpty()) {
+                owned.addAll(claimed);
+                log.info("Узел {} захватил партиции {} задачи {}", nodeId, claimed, resource);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Освобождает партиции задачи и выводит узел из ее распределения, чтобы остальные узлы забрали их сразу
+     */
+    public void releasePartitionShare(String resource) {
+        if (!clusterEnabled) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM invest.cluster_members WHERE resource = ? AND node_id = ?", resource, nodeId);
+        jdbcTemplate.update(
+            "UPDATE invest.cluster_partition_leases SET owner = NULL, lease_until = NULL WHERE resource = ? AND owner = ?",
+            resource, nodeId);
+    }
+
+    /**
+     * Номер партиции инструмента
+     */
+    public int partitionOf(String figi) {
+        return partitions == 1 ? 0 : Math.floorMod(figi.hashCode(), partitions);
+    }
+
+    public boolean isClusterEnabled() {
+        return clusterEnabled;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * ID узла для записей аренды (scheduler.cluster.node-id или имя хоста со случайным суффиксом)
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean tryClaimRun(String taskName, LocalDate runDate) {
+        return jdbcTemplate.update(CLAIM_RUN_SQL,
+            taskName, Date.valueOf(runDate), nodeId, runLeaseSeconds, maxAttempts) > 0;
+    }
+
+    private void executeRun(String taskName, LocalDate runDate, Runnable task) {
+        Date date = Date.valueOf(runDate);
+        long heartbeatSeconds = Math.max(1, runLeaseSeconds / 3);
+        ScheduledFuture<?> heartbeat = leaseExecutor.scheduleAtFixedRate(() -> {
+            try {
+                if (jdbcTemplate.update(RENEW_RUN_SQL, runLeaseSeconds, taskName, date, nodeId) == 0) {
+                    log.warn("Узел {} потерял аренду запуска {} за {}", nodeId, taskName, runDate);
+                }
+            } catch (Exception e) {
+                log.warn("Не удалось продлить аренду запуска {} за {}: {}", taskName, runDate, e.getMessage());
+            }
+        }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        String status = "DONE";
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Ошибка выполнения запуска {} за {}: {}", taskName, runDate, e.getMessage(), e);
+            status = "FAILED";
+        } finally {
+            heartbeat.cancel(false);
+        }
+        jdbcTemplate.update(FINISH_RUN_SQL, status, taskName, date, nodeId);
+        if ("FAILED".equals(status)) {
+            scheduleWatch(taskName, runDate, task, TimeUnit.SECONDS.toMillis(RETRY_DELAY_SECONDS));
+        }
+    }
+
+    private void executePartition(String taskName, LocalDate runDate, int partition, IntConsumer processor) {
+        Date date = Date.valueOf(runDate);
+        long heartbeatSeconds = Math.max(1, partitionLeaseSeconds / 3);
+        ScheduledFuture<?> heartbeat = leaseExecutor.scheduleAtFixedRate(() -> {
+            try {
+                if (jdbcTemplate.update(RENEW_PARTITION_SQL, partitionLeaseSeconds, taskName, date, partition, nodeId) == 0) {
+                    log.warn("Узел {} потерял аренду партиции {} задачи {} за {}", nodeId, partition, taskName, runDate);
+                }
+            } catch (Exception e) {
+                log.warn("Не удалось продлить аренду партиции {} задачи {} за {}: {}", partition, taskName, runDate, e.getMessage());
+            }
+        }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        String status = "DONE";
+        try {
+            processor.accept(partition);
+        } catch (Exception e) {
+            log.error("Ошибка обработки партиции {} задачи {} за {}: {}", partition, taskName, runDate, e.getMessage(), e);
+            status = "FAILED";
+        } finally {
+            heartbeat.cancel(false);
+        }
+        if (jdbcTemplate.update(FINISH_PARTITION_SQL, status, taskName, date, partition, nodeId) == 0) {
+            log.warn("Результат партиции {} задачи {} за {} ({}) не записан: аренду забрал другой узел",
+                partition, taskName, runDate, status);
+        }
+    }
+
+    /**
+     * Ждет окончания аренды партиций, которые выполняют другие узлы
+     *
+     * @return true если стоит повторить захват; false если ждать нечего
+     */
+    private boolean awaitPartitionLeases(String taskName, LocalDate runDate) {
+        Long remainingMillis = jdbcTemplate.queryForObject(NEXT_PARTITION_EXPIRY_SQL, Long.class,
+            taskName, Date.valueOf(runDate), maxAttempts);
+        if (remainingMillis == null) {
+            return false;
+        }
+        log.info("Узел {} ждет окончания аренды партиций задачи {} за {} ({} мс)", nodeId, taskName, runDate, remainingMillis);
+        try {
+            Thread.sleep(remainingMillis + 1000);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void scheduleWatch(String taskName, LocalDate runDate, Runnable task, long delayMillis) {
+        try {
+            leaseExecutor.schedule(() -> watchRun(taskName, runDate, task), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Наблюдение за запуском {} за {} не запланировано: {}", taskName, runDate, e.getMessage());
+        }
+    }
+
+    /**
+     * Проверка чужого запуска: забрать его, отложить проверку до конца аренды или прекратить наблюдение
+     */
+    private void watchRun(String taskName, LocalDate runDate, Runnable task) {
+        try {
+            if (!runDate.equals(LocalDate.now(MOSCOW))) {
+                return;
+            }
+            if (tryClaimRun(taskName, runDate)) {
+                log.warn("Узел {} забрал запуск {} за {}: аренда истекла или предыдущая попытка упала",
+                    nodeId, taskName, runDate);
+                failoverExecutor.execute(() -> executeRun(taskName, runDate, task));
+                return;
+            }
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(RUN_STATE_SQL, taskName, Date.valueOf(runDate));
+            if (rows.isEmpty()) {
+                return;
+            }
+            Map<String, Object> run = rows.get(0);
+            String status = (String) run.get("status");
+            int attempts = ((Number) run.get("attempts")).intValue();
+            if ("RUNNING".equals(status)) {
+                Number remaining = (Number) run.get("lease_remaining_ms");
+                scheduleWatch(taskName, runDate, task, (remaining != null ? remaining.longValue() : 0) + 1000);
+            } else if ("FAILED".equals(status) && attempts < maxAttempts) {
+                scheduleWatch(taskName, runDate, task, 1000);
+            } else if ("FAILED".equals(status)) {
+                log.error("Запуск {} за {} не выполнен за {} попыток", taskName, runDate, attempts);
+            }
+        } catch (Exception e) {
+            log.warn("Ошибка проверки запуска {} за {}: {}", taskName, runDate, e.getMessage());
+            scheduleWatch(taskName, runDate, task, TimeUnit.SECONDS.toMillis(runLeaseSeconds));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
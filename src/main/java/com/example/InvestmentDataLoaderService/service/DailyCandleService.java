@@ -4,11 +4,12 @@ import com.example.InvestmentDataLoaderService.dto.DailyCandleRequestDto;
 import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
 import com.example.InvestmentDataLoaderService.repository.DailyCandleRepository;
 import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.FutureRepository;
 import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
-import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +22,12 @@ import java.time.ZoneId;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -39,10 +42,13 @@ public class DailyCandleService {
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final TinkoffApiClient tinkoffApiClient;
-    private final SystemLogRepository systemLogRepository;
+    private final SystemLogWriter systemLogWriter;
+    private final BulkWriter<DailyCandleEntity> dailyCandleBulkWriter;
     private final Executor dailyCandleExecutor;
     private final Executor dailyApiDataExecutor;
     private final Executor dailyBatchWriteExecutor;
+    private final PipelineMetrics pipelineMetrics;
+    private final CandleDayCacheService candleDayCacheService;
 
     public DailyCandleService(
             DailyCandleRepository dailyCandleRepository,
@@ -50,25 +56,43 @@ public class DailyCandleService {
             FutureRepository futureRepository,
             IndicativeRepository indicativeRepository,
             TinkoffApiClient tinkoffApiClient,
-            SystemLogRepository systemLogRepository,
+            SystemLogWriter systemLogWriter,
+            BulkWriter<DailyCandleEntity> dailyCandleBulkWriter,
             @Qualifier("dailyCandleExecutor") Executor dailyCandleExecutor,
             @Qualifier("dailyApiDataExecutor") Executor dailyApiDataExecutor,
-            @Qualifier("dailyBatchWriteExecutor") Executor dailyBatchWriteExecutor) {
+            @Qualifier("dailyBatchWriteExecutor") Executor dailyBatchWriteExecutor,
+            PipelineMetrics pipelineMetrics,
+            CandleDayCacheService candleDayCacheService) {
         this.dailyCandleRepository = dailyCandleRepository;
         this.shareRepository = shareRepository;
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.tinkoffApiClient = tinkoffApiClient;
-        this.systemLogRepository = systemLogRepository;
+        this.systemLogWriter = systemLogWriter;
+        this.dailyCandleBulkWriter = dailyCandleBulkWriter;
         this.dailyCandleExecutor = dailyCandleExecutor;
         this.dailyApiDataExecutor = dailyApiDataExecutor;
         this.dailyBatchWriteExecutor = dailyBatchWriteExecutor;
+        this.pipelineMetrics = pipelineMetrics;
+        this.candleDayCacheService = candleDayCacheService;
     }
 
     /**
      * Загрузка дневных свечей
      */
     public CompletableFuture<SaveResponseDto> saveDailyCandlesAsync(DailyCandleRequestDto request, String taskId) {
+        return saveDailyCandlesAsync(request, taskId, figi -> true);
+    }
+
+    /**
+     * Загрузка дневных свечей по части инструментов
+     * Future завершается, когда свечи всех инструментов записаны или истек таймаут ожидания;
+     * при таймауте ответ неуспешный
+     *
+     * @param figiFilter отбор инструментов (например, партиция FIGI узла кластера)
+     */
+    public CompletableFuture<SaveResponseDto> saveDailyCandlesAsync(DailyCandleRequestDto request, String taskId,
+                                                                 Predicate<String> figiFilter) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 log.info("=== НАЧАЛО ЗАГРУЗКИ ДНЕВНЫХ СВЕЧЕЙ ===");
@@ -90,6 +114,7 @@ public class DailyCandleService {
                 if (instrumentIds == null || instrumentIds.isEmpty()) {
                     instrumentIds = getAllInstrumentIds(assetTypes);
                 }
+                instrumentIds = instrumentIds.stream().filter(figiFilter).toList();
 
                 log.info("Загружаем дневные свечи для {} инструментов", instrumentIds.size());
                 log.info("Дата: {}", finalDate);
@@ -119,14 +144,17 @@ public class DailyCandleService {
                 CompletableFuture<Void> allBatches = CompletableFuture.allOf(
                     batchTasks.toArray(new CompletableFuture[0]));
 
+                String incompleteReason = null;
                 try {
                     // Таймаут 2 часа для загрузки всех свечей
                     allBatches.get(2, TimeUnit.HOURS);
                 } catch (TimeoutException e) {
                     log.error("Превышен таймаут ожидания завершения загрузки дневных свечей (2 часа)");
                     // Продолжаем работу, чтобы вернуть статистику по обработанным данным
+                    incompleteReason = "превышен таймаут ожидания (2 часа)";
                 } catch (Exception e) {
                     log.error("Ошибка ожидания завершения загрузки дневных свечей: {}", e.getMessage(), e);
+                    incompleteReason = e.getMessage();
                 }
 
                 log.info("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ДНЕВНЫХ СВЕЧЕЙ ===");
@@ -137,8 +165,10 @@ public class DailyCandleService {
                 log.info("Отсутствует в API: {}", missingFromApi.get());
 
                 return new SaveResponseDto(
-                    true,
-                    "Загрузка дневных свечей завершена успешно",
+                    incompleteReason == null,
+                    incompleteReason == null
+                        ? "Загрузка дневных свечей завершена успешно"
+                        : "Загрузка дневных свечей не завершена: " + incompleteReason,
                     totalRequested.get(),
                     newItemsSaved.get(),
                     existingItemsSkipped.get(),
@@ -165,8 +195,7 @@ public class DailyCandleService {
                                                      AtomicInteger totalRequested, AtomicInteger newItemsSaved,
                                                      AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
                                                      AtomicInteger missingFromApi, List<String> savedItems) {
-        // Создаем задачи для каждого инструмента в батче напрямую через dailyApiDataExecutor
-        // чтобы избежать вложенности executor'ов и блокировок
+        // Создаем задачи для каждого инструмента в батче: цепочки future без вложенных ожиданий
         List<CompletableFuture<Void>> instrumentTasks = batch.stream()
             .map(figi -> processInstrumentAsync(figi, date, taskId, totalRequested, 
                 newItemsSaved, existingItemsSkipped, invalidItemsFiltered, 
@@ -181,110 +210,145 @@ public class DailyCandleService {
 
     /**
      * Обрабатывает один инструмент асинхронно
-     * Использует dailyApiDataExecutor напрямую для избежания вложенности executor'ов
+     * Запрос к API и запись в БД связаны цепочкой future: поток пула не ждет ответа API,
+     * проверка и запись свечей выполняются в dailyBatchWriteExecutor после их получения
      */
     private CompletableFuture<Void> processInstrumentAsync(String figi, LocalDate date, String taskId,
                                                           AtomicInteger totalRequested, AtomicInteger newItemsSaved,
                                                           AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
                                                           AtomicInteger missingFromApi, List<String> savedItems) {
-        // Используем dailyApiDataExecutor напрямую, чтобы избежать вложенности и блокировок
-        return CompletableFuture.supplyAsync(() -> {
-            AtomicInteger figiNewItems = new AtomicInteger(0);
-            AtomicInteger figiExistingItems = new AtomicInteger(0);
-            AtomicInteger figiInvalidItems = new AtomicInteger(0);
-            Instant figiStartTime = Instant.now();
-            
-            try {
-                log.info("Обрабатываем инструмент: {}", figi);
-                
-                // Получаем дневные свечи из API синхронно (executor уже обрабатывает параллелизм)
-                List<com.example.InvestmentDataLoaderService.dto.CandleDto> candles;
-                try {
-                    candles = tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY");
-                } catch (Exception e) {
-                    log.error("Ошибка получения данных из API для {}: {}", figi, e.getMessage(), e);
-                    candles = null;
-                }
-                
-                if (candles == null || candles.isEmpty()) {
-                    log.info("Нет данных для инструмента: {}", figi);
-                    missingFromApi.incrementAndGet();
-                    
-                    // Логируем отсутствие данных для FIGI
-                    logFigiProcessing(taskId, figi, "NO_DATA", "Нет данных в API для инструмента " + figi, 
-                        figiStartTime, 0, 0, 0, 0);
-                    return null;
-                }
-
-                totalRequested.addAndGet(candles.size());
-                log.info("Получено {} дневных свечей для {}", candles.size(), figi);
+        Instant figiStartTime = Instant.now();
+        log.info("Обрабатываем инструмент: {}", figi);
 
-                // Сохраняем свечи в БД пакетно
-                List<DailyCandleEntity> entitiesToSave = new ArrayList<>();
-                List<String> existingTimes = new ArrayList<>();
-                
-                for (var candle : candles) {
-                    try {
-                        // Фильтруем незакрытые свечи (is_complete=false)
-                        if (!candle.isComplete()) {
-                            log.debug("Пропускаем незакрытую свечу для {} в {}", figi, candle.time());
-                            invalidItemsFiltered.incrementAndGet();
-                            continue;
-                        }
-                        
-                        DailyCandleEntity entity = convertToEntity(candle, figi);
-                        
-                        // Проверяем, существует ли уже такая свеча
-                        if (!dailyCandleRepository.existsByFigiAndTime(figi, entity.getTime())) {
-                            entitiesToSave.add(entity);
-                            savedItems.add(figi + ":" + entity.getTime());
-                        } else {
-                            existingTimes.add(entity.getTime().toString());
-                        }
-                    } catch (Exception e) {
-                        log.error("Ошибка конвертации свечи для {}: {}", figi, e.getMessage(), e);
-                        figiInvalidItems.incrementAndGet();
-                        invalidItemsFiltered.incrementAndGet();
-                    }
+        return fetchDailyCandles(figi, date)
+            .handle((candles, error) -> {
+                if (error == null) {
+                    return candles;
                 }
-
-                // Пакетная запись в БД асинхронно (не блокируем текущий поток)
-                if (!entitiesToSave.isEmpty()) {
-                    CompletableFuture.runAsync(() -> {
-                        try {
-                            saveDailyCandlesBatch(entitiesToSave);
-                            figiNewItems.addAndGet(entitiesToSave.size());
-                            newItemsSaved.addAndGet(entitiesToSave.size());
-                            log.info("Сохранено {} новых дневных свечей для {}", entitiesToSave.size(), figi);
-                        } catch (Exception e) {
-                            log.error("Ошибка пакетного сохранения для {}: {}", figi, e.getMessage(), e);
-                        }
-                    }, dailyBatchWriteExecutor);
-                    // Не ждем завершения сохранения - оно произойдет асинхронно
+                Throwable cause = unwrap(error);
+                if (cause instanceof TimeoutException) {
+                    log.error("Превышен таймаут получения данных из API для {} (5 минут)", figi);
+                } else {
+                    log.error("Ошибка получения данных из API для {}: {}", figi, cause.getMessage(), cause);
                 }
-
-                figiExistingItems.addAndGet(existingTimes.size());
-                existingItemsSkipped.addAndGet(existingTimes.size());
-
-                // Логируем успешную обработку FIGI
-                logFigiProcessing(taskId, figi, "SUCCESS", 
-                    "Успешно обработан инструмент " + figi + ". Получено " + candles.size() + " свечей", 
-                    figiStartTime, candles.size(), figiNewItems.get(), figiExistingItems.get(), figiInvalidItems.get());
-
-                // Убрана задержка - она уже есть в TinkoffApiClient (300ms перед каждым запросом)
                 return null;
-
-            } catch (Exception e) {
-                log.error("Ошибка обработки инструмента {}: {}", figi, e.getMessage(), e);
+            })
+            .thenAcceptAsync(candles -> saveInstrumentCandles(figi, date, candles, taskId, figiStartTime, totalRequested,
+                newItemsSaved, existingItemsSkipped, invalidItemsFiltered, missingFromApi, savedItems), dailyBatchWriteExecutor)
+            .exceptionally(error -> {
+                Throwable cause = unwrap(error);
+                log.error("Ошибка обработки инструмента {}: {}", figi, cause.getMessage(), cause);
                 invalidItemsFiltered.incrementAndGet();
                 
                 // Логируем ошибку обработки FIGI
                 logFigiProcessing(taskId, figi, "ERROR", 
-                    "Ошибка обработки инструмента " + figi + ": " + e.getMessage(), 
+                    "Ошибка обработки инструмента " + figi + ": " + cause.getMessage(), 
                     figiStartTime, 0, 0, 0, 0);
                 return null;
+            });
+    }
+
+    /**
+     * Запрашивает дневные свечи инструмента: через future-стаб без занятия потока
+     * (таймаут каждой попытки задает клиент, ожидание квоты в него не входит)
+     * или блокирующим вызовом в dailyApiDataExecutor с таймаутом 5 минут
+     */
+    private CompletableFuture<List<com.example.InvestmentDataLoaderService.dto.CandleDto>> fetchDailyCandles(String figi, LocalDate date) {
+        if (tinkoffApiClient.isAsyncStubsEnabled()) {
+            return tinkoffApiClient.getCandlesAsync(figi, date, "CANDLE_INTERVAL_DAY");
+        }
+        return CompletableFuture
+            .supplyAsync(() -> tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY"), dailyApiDataExecutor)
+            .orTimeout(5, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Фильтрует полученные свечи инструмента, отбрасывает уже сохраненные и записывает новые
+     * Завершенный день после успешной записи отмечается загруженным для кэша свечей
+     * Выполняется в dailyBatchWriteExecutor
+     */
+    private void saveInstrumentCandles(String figi, LocalDate date, List<com.example.InvestmentDataLoaderService.dto.CandleDto> candles,
+                                       String taskId, Instant figiStartTime,
+                                       AtomicInteger totalRequested, AtomicInteger newItemsSaved,
+                                       AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
+                                       AtomicInteger missingFromApi, List<String> savedItems) {
+        AtomicInteger figiNewItems = new AtomicInteger(0);
+        AtomicInteger figiExistingItems = new AtomicInteger(0);
+        AtomicInteger figiInvalidItems = new AtomicInteger(0);
+
+        if (candles == null || candles.isEmpty()) {
+            log.info("Нет данных для инструмента: {}", figi);
+            missingFromApi.incrementAndGet();
+            
+            // Логируем отсутствие данных для FIGI
+            logFigiProcessing(taskId, figi, "NO_DATA", "Нет данных в API для инструмента " + figi, 
+                figiStartTime, 0, 0, 0, 0);
+            return;
+        }
+
+        totalRequested.addAndGet(candles.size());
+        log.info("Получено {} дневных свечей для {}", candles.size(), figi);
+
+        // Сохраняем свечи в БД пакетно
+        List<DailyCandleEntity> entitiesToSave = new ArrayList<>();
+        List<String> existingTimes = new ArrayList<>();
+        
+        for (var candle : candles) {
+            try {
+                // Фильтруем незакрытые свечи (is_complete=false)
+                if (!candle.isComplete()) {
+                    log.debug("Пропускаем незакрытую свечу для {} в {}", figi, candle.time());
+                    invalidItemsFiltered.incrementAndGet();
+                    continue;
+                }
+                
+                DailyCandleEntity entity = convertToEntity(candle, figi);
+                
+                // Проверяем, существует ли уже такая свеча
+                if (!dailyCandleRepository.existsByFigiAndTime(figi, entity.getTime())) {
+                    entitiesToSave.add(entity);
+                    savedItems.add(figi + ":" + entity.getTime());
+                } else {
+                    existingTimes.add(entity.getTime().toString());
+                }
+            } catch (Exception e) {
+                log.error("Ошибка конвертации свечи для {}: {}", figi, e.getMessage(), e);
+                figiInvalidItems.incrementAndGet();
+                invalidItemsFiltered.incrementAndGet();
+            }
+        }
+        pipelineMetrics.countCandlesConverted(PipelineJob.DAILY, entitiesToSave.size() + existingTimes.size());
+        pipelineMetrics.countDedupHits(PipelineJob.DAILY, existingTimes.size());
+
+        // Пакетная запись в БД (уже в dailyBatchWriteExecutor)
+        boolean written = figiInvalidItems.get() == 0;
+        if (!entitiesToSave.isEmpty()) {
+            try {
+                int inserted = saveDailyCandlesBatch(entitiesToSave);
+                figiNewItems.addAndGet(inserted);
+                newItemsSaved.addAndGet(inserted);
+                log.info("Сохранено {} новых дневных свечей для {} ({})", inserted, figi, dailyCandleBulkWriter.getName());
+            } catch (Exception e) {
+                log.error("Ошибка пакетного сохранения для {}: {}", figi, e.getMessage(), e);
+                written = false;
             }
-        }, dailyApiDataExecutor).thenRun(() -> {}); // Преобразуем в CompletableFuture<Void>
+        }
+        if (written) {
+            candleDayCacheService.markLoaded(figi, CandleBackfillService.DAILY_INTERVAL, date,
+                entitiesToSave.size() + existingTimes.size());
+        }
+
+        figiExistingItems.addAndGet(existingTimes.size());
+        existingItemsSkipped.addAndGet(existingTimes.size());
+
+        // Логируем успешную обработку FIGI
+        logFigiProcessing(taskId, figi, "SUCCESS", 
+            "Успешно обработан инструмент " + figi + ". Получено " + candles.size() + " свечей", 
+            figiStartTime, candles.size(), figiNewItems.get(), figiExistingItems.get(), figiInvalidItems.get());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
@@ -345,10 +409,13 @@ public class DailyCandleService {
 
     /**
      * Транзакционное пакетное сохранение дневных свечей
+     * Способ записи (JPA или COPY) задается параметром bulk-writer.daily-candles
+     *
+     * @return количество фактически вставленных свечей
      */
     @Transactional
-    public void saveDailyCandlesBatch(List<DailyCandleEntity> entities) {
-        dailyCandleRepository.saveAll(entities);
+    public int saveDailyCandlesBatch(List<DailyCandleEntity> entities) {
+        return dailyCandleBulkWriter.write(entities);
     }
 
     /**
@@ -373,8 +440,9 @@ public class DailyCandleService {
             figiLog.setEndTime(Instant.now());
             figiLog.setDurationMs(Instant.now().toEpochMilli() - startTime.toEpochMilli());
             
-            systemLogRepository.save(figiLog);
-            log.info("Лог обработки FIGI сохранен: {} ({})", figi, status);
+            // Запись в system_logs пакетами в фоне, без отдельной транзакции на каждый FIGI
+            systemLogWriter.write(figiLog);
+            log.info("Лог обработки FIGI поставлен в очередь: {} ({})", figi, status);
             
         } catch (Exception e) {
             log.error("Ошибка сохранения лога обработки FIGI {}: {}", figi, e.getMessage(), e);
@@ -60,9 +60,6 @@ public class DividendService {
         // Загружаем дивиденды для всех FIGI
         for (String figi : figisToProcess) {
             try {
-                // Задержка для соблюдения лимитов API
-                Thread.sleep(200);
-                
                 // Получаем дивиденды из T-Bank API
                 List<DividendEntity> dividends = tinkoffApiClient.getDividends(figi, from, to);
                 totalFromApi += dividends.size();
@@ -322,9 +319,6 @@ public Map<String, Object> loadDividendsForAllSharesToDb(List<String> instrument
             // Получаем дивиденды для каждого FIGI
             for (String figi : allShareFigis) {
                 try {
-                    // Задержка для соблюдения лимитов API
-                    Thread.sleep(300);
-                    
                     List<DividendEntity> dividends = tinkoffApiClient.getDividends(figi, from, to);
                     allDividends.addAll(dividends);
                 } catch (Exception e) {
@@ -0,0 +1,140 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.dto.ClosePriceEveningSessionDto;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Расчет цен закрытия вечерней сессии одним запросом
+ *
+ * <p>Последняя минутная свеча каждого инструмента за сутки (по Москве) выбирается через
+ * {@code DISTINCT ON (figi) ... ORDER BY figi, time DESC} по диапазону времени, поэтому
+ * PostgreSQL читает только партицию дня. Метаданные инструментов подтягиваются в том же
+ * запросе, новые цены вставляются в {@code close_prices_evening_session} с
+ * {@code ON CONFLICT DO NOTHING}, а результат возвращает все найденные цены с признаком вставки.</p>
+ */
+@Service
+public class EveningSessionCloseService {
+
+    private static final Logger log = LoggerFactory.getLogger(EveningSessionCloseService.class);
+
+    public static final String TYPE_SHARE = "share";
+    public static final String TYPE_FUTURE = "future";
+    public static final String TYPE_INDICATIVE = "indicative";
+
+    public static final Set<String> ALL_TYPES = Set.of(TYPE_SHARE, TYPE_FUTURE, TYPE_INDICATIVE);
+
+    private static final String SHARES_SQL =
+        "SELECT figi, 'share' AS instrument_type, 'RUB' AS currency, 'moex_mrng_evng_e_wknd_dlr' AS exchange FROM invest.shares";
+    private static final String FUTURES_SQL =
+        "SELECT figi, 'future', 'RUB', 'FORTS_EVENING' FROM invest.futures";
+    private static final String INDICATIVES_SQL =
+        "SELECT figi, 'indicative', COALESCE(currency, 'USD'), 'MOEX' FROM invest.indicatives WHERE figi IS NOT NULL AND figi <> ''";
+
+    private static final String STORE_SQL_TEMPLATE =
+        "WITH instruments (figi, instrument_type, currency, exchange) AS (%s), " +
+        "last_close AS (" +
+        "    SELECT DISTINCT ON (c.figi) c.figi, c.close FROM invest.minute_candles c " +
+        "    WHERE c.time >= ? AND c.time < ? " +
+        "    ORDER BY c.figi, c.time DESC), " +
+        "candidates AS (" +
+        "    SELECT lc.figi, lc.close, i.instrument_type, i.currency, i.exchange " +
+        "    FROM last_close lc JOIN instruments i ON i.figi = lc.figi), " +
+        "inserted AS (" +
+        "    INSERT INTO invest.close_prices_evening_session " +
+        "        (price_date, figi, close_price, instrument_type, currency, exchange, created_at) " +
+        "    SELECT ?, figi, close, instrument_type, currency, exchange, now() FROM candidates WHERE close > 0 " +
+        "    ON CONFLICT (figi, price_date) DO NOTHING " +
+        "    RETURNING figi) " +
+        "SELECT c.figi, c.close, c.instrument_type, c.currency, c.exchange, " +
+        "       c.close > 0 AS valid, ins.figi IS NOT NULL AS inserted " +
+        "FROM candidates c LEFT JOIN inserted ins ON ins.figi = c.figi";
+
+    /**
+     * Итог расчета за дату
+     *
+     * @param found инструменты, для которых найдена последняя свеча
+     * @param existing цены, уже сохраненные ранее
+     * @param invalid цены закрытия &lt;= 0, не сохраняются
+     * @param savedItems вставленные цены
+     */
+    public record Result(int found, int existing, int invalid, List<ClosePriceEveningSessionDto> savedItems) {
+        public int saved() {
+            return savedItems.size();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PipelineMetrics pipelineMetrics;
+
+    public EveningSessionCloseService(JdbcTemplate jdbcTemplate, PipelineMetrics pipelineMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /**
+     * Рассчитывает и сохраняет цены закрытия вечерней сессии за дату
+     *
+     * @param date торговый день (сутки по Москве)
+     * @param instrumentTypes типы инструментов из {@link #ALL_TYPES}
+     */
+    public Result storeClosePrices(LocalDate date, Set<String> instrumentTypes) {
+        List<String> sources = new ArrayList<>();
+        if (instrumentTypes.contains(TYPE_SHARE)) {
+            sources.add(SHARES_SQL);
+        }
+        if (instrumentTypes.contains(TYPE_FUTURE)) {
+            sources.add(FUTURES_SQL);
+        }
+        if (instrumentTypes.contains(TYPE_INDICATIVE)) {
+            sources.add(INDICATIVES_SQL);
+        }
+        if (sources.isEmpty()) {
+            return new Result(0, 0, 0, List.of());
+        }
+
+        ZoneId zone = ZoneId.of("Europe/Moscow");
+        String sql = String.format(STORE_SQL_TEMPLATE, String.join(" UNION ALL ", sources));
+        int[] counters = new int[3]; // found, existing, invalid
+        List<ClosePriceEveningSessionDto> savedItems = new ArrayList<>();
+
+        long writeStart = System.nanoTime();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            counters[0]++;
+            if (!rs.getBoolean("valid")) {
+                counters[2]++;
+            } else if (rs.getBoolean("inserted")) {
+                savedItems.add(new ClosePriceEveningSessionDto(
+                    date,
+                    rs.getString("figi"),
+                    rs.getBigDecimal("close"),
+                    rs.getString("instrument_type"),
+                    rs.getString("currency"),
+                    rs.getString("exchange")));
+            } else {
+                counters[1]++;
+            }
+        },
+            Timestamp.from(date.atStartOfDay(zone).toInstant()),
+            Timestamp.from(date.plusDays(1).atStartOfDay(zone).toInstant()),
+            Date.valueOf(date));
+        pipelineMetrics.recordWrite(PipelineJob.EVENING, counters[0], System.nanoTime() - writeStart);
+        pipelineMetrics.countDedupHits(PipelineJob.EVENING, counters[1]);
+
+        log.info("Цены закрытия вечерней сессии за {} ({}): найдено {}, сохранено {}, существующих {}, невалидных {}",
+            date, instrumentTypes, counters[0], savedItems.size(), counters[1], counters[2]);
+        return new Result(counters[0], counters[1], counters[2], savedItems);
+    }
+}
@@ -1,14 +1,11 @@
 package com.example.InvestmentDataLoaderService.service;
 
+import com.example.InvestmentDataLoaderService.dto.ClosePriceEveningSessionDto;
 import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.entity.ClosePriceEveningSessionEntity;
-import com.example.InvestmentDataLoaderService.entity.FutureEntity;
-import com.example.InvestmentDataLoaderService.entity.ShareEntity;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
 import com.example.InvestmentDataLoaderService.repository.ClosePriceEveningSessionRepository;
-import com.example.InvestmentDataLoaderService.repository.FutureRepository;
 import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
-import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,10 +16,6 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с ценами вечерней сессии
@@ -33,25 +26,26 @@ public class EveningSessionService {
 
     private static final Logger logger = LoggerFactory.getLogger(EveningSessionService.class);
 
-    private final ShareRepository shareRepository;
-    private final FutureRepository futureRepository;
+    private static final Set<String> SHARES_AND_FUTURES =
+        Set.of(EveningSessionCloseService.TYPE_SHARE, EveningSessionCloseService.TYPE_FUTURE);
+
     private final MinuteCandleRepository minuteCandleRepository;
     private final ClosePriceEveningSessionRepository closePriceEveningSessionRepository;
     private final SystemLogRepository systemLogRepository;
-    private final ExecutorService executorService;
+    private final InstrumentRegistry instrumentRegistry;
+    private final EveningSessionCloseService eveningSessionCloseService;
 
     public EveningSessionService(
-            ShareRepository shareRepository,
-            FutureRepository futureRepository,
             MinuteCandleRepository minuteCandleRepository,
             ClosePriceEveningSessionRepository closePriceEveningSessionRepository,
-            SystemLogRepository systemLogRepository) {
-        this.shareRepository = shareRepository;
-        this.futureRepository = futureRepository;
+            SystemLogRepository systemLogRepository,
+            InstrumentRegistry instrumentRegistry,
+            EveningSessionCloseService eveningSessionCloseService) {
         this.minuteCandleRepository = minuteCandleRepository;
         this.closePriceEveningSessionRepository = closePriceEveningSessionRepository;
         this.systemLogRepository = systemLogRepository;
-        this.executorService = Executors.newFixedThreadPool(20);
+        this.instrumentRegistry = instrumentRegistry;
+        this.eveningSessionCloseService = eveningSessionCloseService;
     }
 
     /**
@@ -252,70 +246,16 @@ public class EveningSessionService {
 
     /**
      * Обработка цен вечерней сессии для всех инструментов за дату
+     * Последние свечи и вставка цен рассчитываются одним запросом ({@link EveningSessionCloseService})
      */
     private SaveResponseDto processEveningSessionPricesForDate(LocalDate date, String taskId) {
         try {
-            logger.info("[" + taskId + "] Начинаем загрузку данных из БД...");
-            
-            // Получаем все акции и фьючерсы из БД (блокирующий запрос)
             long startTime = System.currentTimeMillis();
-            List<ShareEntity> shares = shareRepository.findAll();
-            long sharesTime = System.currentTimeMillis();
-            logger.info("[" + taskId + "] Загрузка акций заняла: " + (sharesTime - startTime) + "мс");
-            
-            List<FutureEntity> futures = futureRepository.findAll();
-            long futuresTime = System.currentTimeMillis();
-            logger.info("[" + taskId + "] Загрузка фьючерсов заняла: " + (futuresTime - sharesTime) + "мс");
-            
-            logger.info("[" + taskId + "] Найдено акций: " + shares.size() + ", фьючерсов: " + futures.size());
-            
-            int totalRequested = shares.size() + futures.size();
-            AtomicInteger newItemsSaved = new AtomicInteger(0);
-            AtomicInteger existingItemsSkipped = new AtomicInteger(0);
-            AtomicInteger invalidItemsFiltered = new AtomicInteger(0);
-            AtomicInteger missingFromApi = new AtomicInteger(0);
-            List<Map<String, Object>> savedItems = Collections.synchronizedList(new ArrayList<>());
-            
-            logger.info("[" + taskId + "] Начинаем параллельную обработку " + shares.size() + " акций и " + futures.size() + " фьючерсов...");
-            
-            // Параллельная обработка акций с обработкой ошибок
-            List<CompletableFuture<Void>> shareFutures = shares.stream()
-                .map(share -> CompletableFuture.runAsync(() -> {
-                    try {
-                        processShareEveningSessionPrice(share, date, newItemsSaved, existingItemsSkipped, 
-                            invalidItemsFiltered, missingFromApi, savedItems, taskId);
-                    } catch (Exception e) {
-                        logger.error("[" + taskId + "] Ошибка обработки акции " + share.getTicker() + ": " + e.getMessage());
-                        missingFromApi.incrementAndGet();
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
-            
-            // Параллельная обработка фьючерсов с обработкой ошибок
-            List<CompletableFuture<Void>> futureFutures = futures.stream()
-                .map(future -> CompletableFuture.runAsync(() -> {
-                    try {
-                        processFutureEveningSessionPrice(future, date, newItemsSaved, existingItemsSkipped, 
-                            invalidItemsFiltered, missingFromApi, savedItems, taskId);
-                    } catch (Exception e) {
-                        logger.error("[" + taskId + "] Ошибка обработки фьючерса " + future.getTicker() + ": " + e.getMessage());
-                        missingFromApi.incrementAndGet();
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
-            
-            // Ждем завершения всех операций
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                shareFutures.toArray(new CompletableFuture[0])
-            ).thenCompose(v -> CompletableFuture.allOf(
-                futureFutures.toArray(new CompletableFuture[0])
-            ));
-            
-            logger.info("[" + taskId + "] Ждем завершения всех операций...");
-            long processingStartTime = System.currentTimeMillis();
-            allFutures.join();
-            long processingEndTime = System.currentTimeMillis();
-            logger.info("[" + taskId + "] Обработка завершена за: " + (processingEndTime - processingStartTime) + "мс");
+            EveningSessionCloseService.Result result = eveningSessionCloseService.storeClosePrices(date, SHARES_AND_FUTURES);
+            int totalRequested = instrumentRegistry.getShares().size() + instrumentRegistry.getFutures().size();
+            int missingFromApi = Math.max(0, totalRequested - result.found());
+            List<Map<String, Object>> savedItems = toSavedItems(result);
+            logger.info("[" + taskId + "] Обработка завершена за: " + (System.currentTimeMillis() - startTime) + "мс");
             
             // Логируем успешное завершение в БД (синхронно, как в InstrumentService)
             try {
@@ -324,7 +264,7 @@ public class EveningSessionService {
                 successLog.setEndpoint("/api/evening-session-prices/by-date/" + date);
                 successLog.setMethod("POST");
                 successLog.setStatus("COMPLETED");
-                successLog.setMessage("Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии из " + totalRequested + " найденных.");
+                successLog.setMessage("Успешно загружено " + result.saved() + " новых цен вечерней сессии из " + totalRequested + " найденных.");
                 successLog.setStartTime(Instant.now().minusMillis(1000)); // Примерное время начала
                 successLog.setEndTime(Instant.now());
                 systemLogRepository.save(successLog);
@@ -335,12 +275,12 @@ public class EveningSessionService {
             
             return new SaveResponseDto(
                 true,
-                "Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии из " + totalRequested + " найденных.",
+                "Успешно загружено " + result.saved() + " новых цен вечерней сессии из " + totalRequested + " найденных.",
                 totalRequested,
-                newItemsSaved.get(),
-                existingItemsSkipped.get(),
-                invalidItemsFiltered.get(),
-                missingFromApi.get(),
+                result.saved(),
+                result.existing(),
+                result.invalid(),
+                missingFromApi,
                 savedItems
             );
             
@@ -370,30 +310,16 @@ public class EveningSessionService {
 
     /**
      * Обработка цен вечерней сессии для акций за дату
+     * Последние свечи и вставка цен рассчитываются одним запросом ({@link EveningSessionCloseService})
      */
     private SaveResponseDto processSharesEveningSessionPricesForDate(LocalDate date, String taskId) {
         try {
-            // Получаем все акции из БД (блокирующий запрос)
-            List<ShareEntity> shares = shareRepository.findAll();
-            
-            logger.info("[" + taskId + "] Найдено акций: " + shares.size());
-            
-            int totalRequested = shares.size();
-            AtomicInteger newItemsSaved = new AtomicInteger(0);
-            AtomicInteger existingItemsSkipped = new AtomicInteger(0);
-            AtomicInteger invalidItemsFiltered = new AtomicInteger(0);
-            AtomicInteger missingFromApi = new AtomicInteger(0);
-            List<Map<String, Object>> savedItems = Collections.synchronizedList(new ArrayList<>());
-            
-            // Параллельная обработка акций
-            List<CompletableFuture<Void>> shareFutures = shares.stream()
-                .map(share -> CompletableFuture.runAsync(() -> 
-                    processShareEveningSessionPrice(share, date, newItemsSaved, existingItemsSkipped, 
-                        invalidItemsFiltered, missingFromApi, savedItems, taskId), executorService))
-                .collect(Collectors.toList());
-            
-            // Ждем завершения всех операций
-            CompletableFuture.allOf(shareFutures.toArray(new CompletableFuture[0])).join();
+            long startTime = System.currentTimeMillis();
+            EveningSessionCloseService.Result result = eveningSessionCloseService.storeClosePrices(date, Set.of(EveningSessionCloseService.TYPE_SHARE));
+            int totalRequested = instrumentRegistry.getShares().size();
+            int missingFromApi = Math.max(0, totalRequested - result.found());
+            List<Map<String, Object>> savedItems = toSavedItems(result);
+            logger.info("[" + taskId + "] Обработка завершена за: " + (System.currentTimeMillis() - startTime) + "мс");
             
             // Логируем успешное завершение в БД (синхронно, как в InstrumentService)
             try {
@@ -402,7 +328,7 @@ public class EveningSessionService {
                 successLog.setEndpoint("/api/evening-session-prices/shares/" + date);
                 successLog.setMethod("POST");
                 successLog.setStatus("COMPLETED");
-                successLog.setMessage("Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии для акций из " + totalRequested + " найденных.");
+                successLog.setMessage("Успешно загружено " + result.saved() + " новых цен вечерней сессии для акций из " + totalRequested + " найденных.");
                 successLog.setStartTime(Instant.now().minusMillis(1000)); // Примерное время начала
                 successLog.setEndTime(Instant.now());
                 systemLogRepository.save(successLog);
@@ -413,15 +339,15 @@ public class EveningSessionService {
             
             return new SaveResponseDto(
                 true,
-                "Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии для акций из " + totalRequested + " найденных.",
+                "Успешно загружено " + result.saved() + " новых цен вечерней сессии для акций из " + totalRequested + " найденных.",
                 totalRequested,
-                newItemsSaved.get(),
-                existingItemsSkipped.get(),
-                invalidItemsFiltered.get(),
-                missingFromApi.get(),
+                result.saved(),
+                result.existing(),
+                result.invalid(),
+                missingFromApi,
                 savedItems
             );
-
+            
         } catch (Exception e) {
             logger.error("[" + taskId + "] Ошибка обработки цен вечерней сессии для акций за " + date + ": " + e.getMessage());
             e.printStackTrace();
@@ -431,30 +357,16 @@ public class EveningSessionService {
 
     /**
      * Обработка цен вечерней сессии для фьючерсов за дату
+     * Последние свечи и вставка цен рассчитываются одним запросом ({@link EveningSessionCloseService})
      */
     private SaveResponseDto processFuturesEveningSessionPricesForDate(LocalDate date, String taskId) {
         try {
-            // Получаем все фьючерсы из БД (блокирующий запрос)
-            List<FutureEntity> futures = futureRepository.findAll();
-            
-            logger.info("[" + taskId + "] Найдено фьючерсов: " + futures.size());
-            
-            int totalRequested = futures.size();
-            AtomicInteger newItemsSaved = new AtomicInteger(0);
-            AtomicInteger existingItemsSkipped = new AtomicInteger(0);
-            AtomicInteger invalidItemsFiltered = new AtomicInteger(0);
-            AtomicInteger missingFromApi = new AtomicInteger(0);
-            List<Map<String, Object>> savedItems = Collections.synchronizedList(new ArrayList<>());
-            
-            // Параллельная обработка фьючерсов
-            List<CompletableFuture<Void>> futureFutures = futures.stream()
-                .map(future -> CompletableFuture.runAsync(() -> 
-                    processFutureEveningSessionPrice(future, date, newItemsSaved, existingItemsSkipped, 
-                        invalidItemsFiltered, missingFromApi, savedItems, taskId), executorService))
-                .collect(Collectors.toList());
-            
-            // Ждем завершения всех операций
-            CompletableFuture.allOf(futureFutures.toArray(new CompletableFuture[0])).join();
+            long startTime = System.currentTimeMillis();
+            EveningSessionCloseService.Result result = eveningSessionCloseService.storeClosePrices(date, Set.of(EveningSessionCloseService.TYPE_FUTURE));
+            int totalRequested = instrumentRegistry.getFutures().size();
+            int missingFromApi = Math.max(0, totalRequested - result.found());
+            List<Map<String, Object>> savedItems = toSavedItems(result);
+            logger.info("[" + taskId + "] Обработка завершена за: " + (System.currentTimeMillis() - startTime) + "мс");
             
             // Логируем успешное завершение в БД (синхронно, как в InstrumentService)
             try {
@@ -463,7 +375,7 @@ public class EveningSessionService {
                 successLog.setEndpoint("/api/evening-session-prices/futures/" + date);
                 successLog.setMethod("POST");
                 successLog.setStatus("COMPLETED");
-                successLog.setMessage("Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии для фьючерсов из " + totalRequested + " найденных.");
+                successLog.setMessage("Успешно загружено " + result.saved() + " новых цен вечерней сессии для фьючерсов из " + totalRequested + " найденных.");
                 successLog.setStartTime(Instant.now().minusMillis(1000)); // Примерное время начала
                 successLog.setEndTime(Instant.now());
                 systemLogRepository.save(successLog);
@@ -474,12 +386,12 @@ public class EveningSessionService {
             
             return new SaveResponseDto(
                 true,
-                "Успешно загружено " + newItemsSaved.get() + " новых цен вечерней сессии для фьючерсов из " + totalRequested + " найденных.",
+                "Успешно загружено " + result.saved() + " новых цен вечерней сессии для фьючерсов из " + totalRequested + " найденных.",
                 totalRequested,
-                newItemsSaved.get(),
-                existingItemsSkipped.get(),
-                invalidItemsFiltered.get(),
-                missingFromApi.get(),
+                result.saved(),
+                result.existing(),
+                result.invalid(),
+                missingFromApi,
                 savedItems
             );
             
@@ -528,15 +440,10 @@ public class EveningSessionService {
             
             // Определяем тип инструмента
             String instrumentType = "UNKNOWN";
-            boolean isShare = shareRepository.findAll().stream()
-                    .anyMatch(share -> share.getFigi().equals(figi));
-            boolean isFuture = futureRepository.findAll().stream()
-                    .anyMatch(future -> future.getFigi().equals(figi));
-            
-            if (isShare) {
+            if (instrumentRegistry.findShare(figi).isPresent()) {
                 instrumentType = "SHARE";
-            } else if (isFuture) {
-                    instrumentType = "FUTURE";
+            } else if (instrumentRegistry.findFuture(figi).isPresent()) {
+                instrumentType = "FUTURE";
             }
             
             // Создаем запись для сохранения
@@ -588,123 +495,27 @@ public class EveningSessionService {
     }
 
     /**
-     * Обработка цены вечерней сессии для акции
-     */
-    private void processShareEveningSessionPrice(ShareEntity share, LocalDate date, 
-            AtomicInteger newItemsSaved, AtomicInteger existingItemsSkipped, 
-            AtomicInteger invalidItemsFiltered, AtomicInteger missingFromApi, 
-            List<Map<String, Object>> savedItems, String taskId) {
-        try {
-            // Получаем последнюю свечу за день для акции (блокирующий запрос)
-            var lastCandle = minuteCandleRepository.findLastCandleForDate(share.getFigi(), date);
-            
-            if (lastCandle == null) {
-                missingFromApi.incrementAndGet();
-                return;
-            }
-            
-            BigDecimal lastClosePrice = lastCandle.getClose();
-            
-            // Проверяем, есть ли уже запись для этой даты и FIGI
-            if (closePriceEveningSessionRepository.existsByPriceDateAndFigi(date, share.getFigi())) {
-                existingItemsSkipped.incrementAndGet();
-                return;
-            }
-            
-            // Проверяем, что цена не равна 0 (невалидная цена)
-            if (lastClosePrice.compareTo(BigDecimal.ZERO) <= 0) {
-                invalidItemsFiltered.incrementAndGet();
-                return;
-            }
-            
-            // Создаем запись для сохранения
-                ClosePriceEveningSessionEntity entity = new ClosePriceEveningSessionEntity();
-            entity.setFigi(share.getFigi());
-            entity.setPriceDate(date);
-            entity.setClosePrice(lastClosePrice);
-            entity.setInstrumentType("SHARE");
-            entity.setCurrency("RUB");
-            entity.setExchange("MOEX");
-            
-            closePriceEveningSessionRepository.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", share.getFigi());
-            savedItem.put("ticker", share.getTicker());
-            savedItem.put("name", share.getName());
-            savedItem.put("priceDate", date.toString());
-            savedItem.put("closePrice", lastClosePrice);
-            savedItem.put("instrumentType", "SHARE");
-            savedItem.put("currency", "RUB");
-            savedItem.put("exchange", "MOEX");
-            
-            savedItems.add(savedItem);
-            newItemsSaved.incrementAndGet();
-            
-            } catch (Exception e) {
-            logger.error("[" + taskId + "] Ошибка обработки акции " + share.getTicker() + ": " + e.getMessage());
-            missingFromApi.incrementAndGet();
-        }
-    }
-
-    /**
-     * Обработка цены вечерней сессии для фьючерса
+     * Сохраненные цены в формате ответа (тикер и название берутся из реестра инструментов)
      */
-    private void processFutureEveningSessionPrice(FutureEntity future, LocalDate date, 
-            AtomicInteger newItemsSaved, AtomicInteger existingItemsSkipped, 
-            AtomicInteger invalidItemsFiltered, AtomicInteger missingFromApi, 
-            List<Map<String, Object>> savedItems, String taskId) {
-        try {
-            // Получаем последнюю свечу за день для фьючерса (блокирующий запрос)
-            var lastCandle = minuteCandleRepository.findLastCandleForDate(future.getFigi(), date);
-            
-            if (lastCandle == null) {
-                missingFromApi.incrementAndGet();
-                return;
-            }
-            
-            BigDecimal lastClosePrice = lastCandle.getClose();
-            
-            // Проверяем, есть ли уже запись для этой даты и FIGI
-            if (closePriceEveningSessionRepository.existsByPriceDateAndFigi(date, future.getFigi())) {
-                existingItemsSkipped.incrementAndGet();
-                return;
-            }
-            
-            // Проверяем, что цена не равна 0 (невалидная цена)
-            if (lastClosePrice.compareTo(BigDecimal.ZERO) <= 0) {
-                invalidItemsFiltered.incrementAndGet();
-                return;
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEveningSessionEntity entity = new ClosePriceEveningSessionEntity();
-            entity.setFigi(future.getFigi());
-            entity.setPriceDate(date);
-            entity.setClosePrice(lastClosePrice);
-            entity.setInstrumentType("FUTURE");
-            entity.setCurrency("RUB");
-            entity.setExchange("MOEX");
-            
-            closePriceEveningSessionRepository.save(entity);
-            
+    private List<Map<String, Object>> toSavedItems(EveningSessionCloseService.Result result) {
+        List<Map<String, Object>> savedItems = new ArrayList<>(result.saved());
+        for (ClosePriceEveningSessionDto dto : result.savedItems()) {
             Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", future.getFigi());
-            savedItem.put("ticker", future.getTicker());
-            savedItem.put("name", future.getTicker());
-            savedItem.put("priceDate", date.toString());
-            savedItem.put("closePrice", lastClosePrice);
-            savedItem.put("instrumentType", "FUTURE");
-            savedItem.put("currency", "RUB");
-            savedItem.put("exchange", "MOEX");
-            
+            savedItem.put("figi", dto.figi());
+            instrumentRegistry.findShare(dto.figi()).ifPresentOrElse(share -> {
+                savedItem.put("ticker", share.getTicker());
+                savedItem.put("name", share.getName());
+            }, () -> instrumentRegistry.findFuture(dto.figi()).ifPresent(future -> {
+                savedItem.put("ticker", future.getTicker());
+                savedItem.put("name", future.getTicker());
+            }));
+            savedItem.put("priceDate", dto.priceDate().toString());
+            savedItem.put("closePrice", dto.closePrice());
+            savedItem.put("instrumentType", dto.instrumentType());
+            savedItem.put("currency", dto.currency());
+            savedItem.put("exchange", dto.exchange());
             savedItems.add(savedItem);
-            newItemsSaved.incrementAndGet();
-            
-        } catch (Exception e) {
-            logger.error("[" + taskId + "] Ошибка обработки фьючерса " + future.getTicker() + ": " + e.getMessage());
-            missingFromApi.incrementAndGet();
         }
+        return savedItems;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,345 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.entity.IngestionJobEntity;
+import com.example.InvestmentDataLoaderService.entity.IngestionJobItemEntity;
+import com.example.InvestmentDataLoaderService.enums.IngestionJobType;
+import com.example.InvestmentDataLoaderService.repository.FutureRepository;
+import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
+import com.example.InvestmentDataLoaderService.repository.IngestionJobItemRepository;
+import com.example.InvestmentDataLoaderService.repository.IngestionJobRepository;
+import com.example.InvestmentDataLoaderService.repository.ShareRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Сервис заданий загрузки с хранением состояния в БД
+ *
+ * <p>Задание разворачивается в элементы (инструмент, дата) в {@code invest.ingestion_job_items}.
+ * Воркеры любого экземпляра сервиса захватывают элементы пачками через
+ * {@code FOR UPDATE SKIP LOCKED} и держат их в аренде до {@code lease_until}: два экземпляра
+ * никогда не получат один элемент, а элементы упавшего экземпляра после истечения аренды
+ * забирают остальные. Поэтому перезапуск продолжает задание с незавершенных элементов.</p>
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private static final String CLAIM_SQL =
+        "UPDATE invest.ingestion_job_items i " +
+        "SET status = 'RUNNING', lease_owner = ?, lease_until = now() + make_interval(secs => ?), " +
+        "    attempts = i.attempts + 1, updated_at = now() " +
+        "WHERE i.id IN (" +
+        "    SELECT id FROM invest.ingestion_job_items " +
+        "    WHERE status = 'PENDING' OR (status = 'RUNNING' AND lease_until < now()) " +
+        "    ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING i.id, i.job_id, i.job_type, i.figi, i.trade_date, i.attempts";
+
+    private static final String FINISH_JOBS_SQL =
+        "UPDATE invest.ingestion_jobs j SET " +
+        "    status = CASE WHEN EXISTS (SELECT 1 FROM invest.ingestion_job_items i " +
+        "                               WHERE i.job_id = j.id AND i.status = 'FAILED') " +
+        "                  THEN 'FAILED' ELSE 'COMPLETED' END, " +
+        "    finished_at = now(), updated_at = now() " +
+        "WHERE j.status IN ('PENDING', 'RUNNING') " +
+        "  AND NOT EXISTS (SELECT 1 FROM invest.ingestion_job_items i " +
+        "                  WHERE i.job_id = j.id AND i.status IN ('PENDING', 'RUNNING'))";
+
+    private static final String FINISH_JOBS_RETURNING = " RETURNING j.job_type, j.date_from, j.date_to";
+
+    private final IngestionJobRepository jobRepository;
+    private final IngestionJobItemRepository itemRepository;
+    private final ShareRepository shareRepository;
+    private final FutureRepository futureRepository;
+    private final IndicativeRepository indicativeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final VolumeRollupService volumeRollupService;
+
+    /**
+     * Элемент, захваченный воркером
+     */
+    public record ClaimedItem(long id, String jobId, IngestionJobType jobType, String figi, LocalDate tradeDate, int attempts) {
+    }
+
+    public IngestionJobService(IngestionJobRepository jobRepository,
+                               IngestionJobItemRepository itemRepository,
+                               ShareRepository shareRepository,
+                               FutureRepository futureRepository,
+                               IndicativeRepository indicativeRepository,
+                               JdbcTemplate jdbcTemplate,
+                               VolumeRollupService volumeRollupService) {
+        this.jobRepository = jobRepository;
+        this.itemRepository = itemRepository;
+        this.shareRepository = shareRepository;
+        this.futureRepository = futureRepository;
+        this.indicativeRepository = indicativeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.volumeRollupService = volumeRollupService;
+    }
+
+    /**
+     * Создает задание и все его элементы
+     *
+     * @param instruments FIGI инструментов; если не указаны, берутся все инструменты типов assetTypes
+     * @param assetTypes типы активов (SHARES, FUTURES, INDICATIVES); пустой список - все типы
+     * @param from первая дата (включительно)
+     * @param to последняя дата (включительно)
+     * @param source источник задания для статистики (API, SCHEDULER)
+     * @return ID задания
+     */
+    @Transactional
+    public String createJob(IngestionJobType jobType, List<String> instruments, List<String> assetTypes,
+                            LocalDate from, LocalDate to, String source) {
+        if (jobType == null) {
+            throw new IllegalArgumentException("Не указан тип задания");
+        }
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Некорректный диапазон дат: " + from + " - " + to);
+        }
+
+        List<String> figis = instruments != null && !instruments.isEmpty()
+            ? new ArrayList<>(new LinkedHashSet<>(instruments))
+            : getAllInstrumentIds(assetTypes);
+        if (figis.isEmpty()) {
+            throw new IllegalArgumentException("Не найдено инструментов для загрузки");
+        }
+
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        String jobId = UUID.randomUUID().toString();
+        // Строка задания нужна в БД до вставки элементов (внешний ключ)
+        jobRepository.saveAndFlush(new IngestionJobEntity(jobId, jobType.name(), from, to, figis.size() * days, source));
+
+        // Элементы вставляются пакетами JDBC: для больших диапазонов это сотни тысяч строк
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (String figi : figis) {
+                rows.add(new Object[]{jobId, jobType.name(), figi, Date.valueOf(date)});
+                if (rows.size() == INSERT_BATCH_SIZE) {
+                    insertItems(rows);
+                    rows.clear();
+                }
+            }
+        }
+        insertItems(rows);
+
+        log.info("Создано задание загрузки {} ({}): {} инструментов, {} - {}, {} элементов",
+            jobId, jobType, figis.size(), from, to, figis.size() * days);
+        return jobId;
+    }
+
+    /**
+     * Захватывает пачку элементов в аренду
+     * Элементы с истекшей арендой, исчерпавшие попытки, переводятся в FAILED до захвата
+     */
+    @Transactional
+    public List<ClaimedItem> claimItems(String workerId, int batchSize, int leaseSeconds, int maxAttempts) {
+        int expired = jdbcTemplate.update(
+            "UPDATE invest.ingestion_job_items SET status = 'FAILED', lease_owner = NULL, updated_at = now(), " +
+            "last_error = 'Аренда истекла после последней попытки' " +
+            "WHERE status = 'RUNNING' AND lease_until < now() AND attempts >= ?", maxAttempts);
+        if (expired > 0) {
+            log.warn("{} элементов заданий загрузки переведены в FAILED по истечении аренды", expired);
+        }
+
+        List<ClaimedItem> items = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new ClaimedItem(
+            rs.getLong("id"),
+            rs.getString("job_id"),
+            IngestionJobType.valueOf(rs.getString("job_type")),
+            rs.getString("figi"),
+            rs.getDate("trade_date").toLocalDate(),
+            rs.getInt("attempts")
+        ), workerId, leaseSeconds, batchSize);
+
+        Set<String> jobIds = new HashSet<>();
+        for (ClaimedItem item : items) {
+            jobIds.add(item.jobId());
+        }
+        for (String jobId : jobIds) {
+            jdbcTemplate.update("UPDATE invest.ingestion_jobs SET status = 'RUNNING', updated_at = now() " +
+                "WHERE id = ? AND status = 'PENDING'", jobId);
+        }
+        return items;
+    }
+
+    /**
+     * Отмечает элемент выполненным, если аренда все еще принадлежит воркеру
+     */
+    public void completeItem(ClaimedItem item, String workerId, int candlesLoaded) {
+        int updated = jdbcTemplate.update(
+            "UPDATE invest.ingestion_job_items SET status = 'DONE', candles_loaded = ?, last_error = NULL, " +
+            "lease_owner = NULL, lease_until = NULL, updated_at = now() " +
+            "WHERE id = ? AND status = 'RUNNING' AND lease_owner = ?",
+            candlesLoaded, item.id(), workerId);
+        if (updated == 0) {
+            log.warn("Аренда элемента {} ({} {}) потеряна до завершения", item.id(), item.figi(), item.tradeDate());
+        }
+    }
+
+    /**
+     * Возвращает элемент в очередь или переводит в FAILED после исчерпания попыток
+     */
+    public void failItem(ClaimedItem item, String workerId, int maxAttempts, String error) {
+        String status = item.attempts() >= maxAttempts ? IngestionJobItemEntity.STATUS_FAILED : IngestionJobItemEntity.STATUS_PENDING;
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(
+            "UPDATE invest.ingestion_job_items SET status = ?, last_error = ?, " +
+            "lease_owner = NULL, lease_until = NULL, updated_at = now() " +
+            "WHERE id = ? AND status = 'RUNNING' AND lease_owner = ?",
+            status, message, item.id(), workerId);
+    }
+
+    /**
+     * Завершает задание, если у него не осталось незавершенных элементов
+     */
+    public void refreshJobStatus(String jobId) {
+        if (finishJobs(FINISH_JOBS_SQL + " AND j.id = ?" + FINISH_JOBS_RETURNING, jobId) > 0) {
+            log.info("Задание загрузки {} завершено", jobId);
+        }
+    }
+
+    /**
+     * Завершает все задания без незавершенных элементов
+     * Нужен для заданий, последние элементы которых перешли в FAILED по истечении аренды
+     */
+    public void refreshActiveJobs() {
+        int updated = finishJobs(FINISH_JOBS_SQL + FINISH_JOBS_RETURNING);
+        if (updated > 0) {
+            log.info("Завершено заданий загрузки: {}", updated);
+        }
+    }
+
+    /**
+     * Завершает задания и пересчитывает агрегацию объемов за даты завершенных заданий минутных свечей
+     *
+     * @return количество завершенных заданий
+     */
+    private int finishJobs(String sql, Object... args) {
+        List<Object[]> finished = jdbcTemplate.query(sql, (rs, rowNum) -> new Object[]{
+            rs.getString("job_type"), rs.getDate("date_from").toLocalDate(), rs.getDate("date_to").toLocalDate()
+        }, args);
+        for (Object[] job : finished) {
+            if (IngestionJobType.MINUTE_CANDLES.name().equals(job[0])) {
+                try {
+                    volumeRollupService.rollupDays((LocalDate) job[1], (LocalDate) job[2]);
+                } catch (Exception e) {
+                    log.error("Ошибка пересчета агрегации объемов за {} - {}: {}", job[1], job[2], e.getMessage(), e);
+                }
+            }
+        }
+        return finished.size();
+    }
+
+    /**
+     * Возвращает FAILED-элементы задания в очередь
+     *
+     * @return количество возвращенных элементов
+     */
+    @Transactional
+    public int retryFailedItems(String jobId) {
+        int reset = itemRepository.resetFailedItems(jobId);
+        if (reset > 0) {
+            jdbcTemplate.update("UPDATE invest.ingestion_jobs SET status = 'RUNNING', finished_at = NULL, " +
+                "updated_at = now() WHERE id = ?", jobId);
+            log.info("Задание загрузки {}: {} элементов возвращены в очередь", jobId, reset);
+        }
+        return reset;
+    }
+
+    /**
+     * Состояние задания: статус, количество элементов по статусам и последние ошибки
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getJobStatus(String jobId) {
+        return jobRepository.findById(jobId).map(job -> {
+            Map<String, Long> byStatus = new TreeMap<>();
+            for (Object[] row : itemRepository.countByStatus(jobId)) {
+                byStatus.put((String) row[0], ((Number) row[1]).longValue());
+            }
+
+            List<Map<String, Object>> failed = new ArrayList<>();
+            for (IngestionJobItemEntity item : itemRepository.findTop100ByJobIdAndStatusOrderById(jobId, IngestionJobItemEntity.STATUS_FAILED)) {
+                Map<String, Object> failedItem = new LinkedHashMap<>();
+                failedItem.put("figi", item.getFigi());
+                failedItem.put("date", item.getTradeDate().toString());
+                failedItem.put("attempts", item.getAttempts());
+                failedItem.put("error", item.getLastError());
+                failed.add(failedItem);
+            }
+
+            Map<String, Object> status = toSummary(job);
+            status.put("items", byStatus);
+            status.put("candlesLoaded", itemRepository.sumCandlesLoaded(jobId));
+            status.put("failed", failed);
+            return status;
+        });
+    }
+
+    /**
+     * Последние задания загрузки
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getRecentJobs() {
+        return jobRepository.findTop50ByOrderByCreatedAtDesc().stream().map(this::toSummary).toList();
+    }
+
+    private Map<String, Object> toSummary(IngestionJobEntity job) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("jobId", job.getId());
+        summary.put("type", job.getJobType());
+        summary.put("status", job.getStatus());
+        summary.put("from", job.getDateFrom().toString());
+        summary.put("to", job.getDateTo().toString());
+        summary.put("totalItems", job.getTotalItems());
+        summary.put("source", job.getSource());
+        summary.put("createdAt", job.getCreatedAt().toString());
+        summary.put("finishedAt", job.getFinishedAt() != null ? job.getFinishedAt().toString() : null);
+        return summary;
+    }
+
+    private void insertItems(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO invest.ingestion_job_items (job_id, job_type, figi, trade_date, status) " +
+            "VALUES (?, ?, ?, ?, 'PENDING') ON CONFLICT (job_id, figi, trade_date) DO NOTHING", rows);
+    }
+
+    /**
+     * Получает все FIGI инструментов по типам активов
+     */
+    private List<String> getAllInstrumentIds(List<String> assetTypes) {
+        List<String> allIds = new ArrayList<>();
+
+        if (assetTypes == null || assetTypes.isEmpty() || assetTypes.contains("SHARES")) {
+            allIds.addAll(shareRepository.findAll().stream()
+                .map(share -> share.getFigi())
+                .toList());
+        }
+
+        if (assetTypes == null || assetTypes.isEmpty() || assetTypes.contains("FUTURES")) {
+            allIds.addAll(futureRepository.findAll().stream()
+                .map(future -> future.getFigi())
+                .toList());
+        }
+
+        if (assetTypes == null || assetTypes.isEmpty() || assetTypes.contains("INDICATIVES")) {
+            allIds.addAll(indicativeRepository.findAll().stream()
+                .map(indicative -> indicative.getFigi())
+                .toList());
+        }
+
+        return allIds;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Неизменяемый список инструментов со вторичными индексами по атрибутам
+ *
+ * <p>Для каждого атрибута хранится отображение значения (без учета регистра) в битовую
+ * маску позиций в списке. Запрос с несколькими фильтрами - пересечение масок, начиная
+ * с самой короткой; результат сохраняет порядок исходного списка. Пустые и null
+ * значения фильтра не ограничивают выборку, как и прежние фильтры {@code equalsIgnoreCase}.</p>
+ *
+ * @param <T> тип инструмента (DTO или сущность)
+ */
+public final class InstrumentIndex<T> {
+
+    public static final String FIGI = "figi";
+    public static final String TICKER = "ticker";
+    public static final String EXCHANGE = "exchange";
+    public static final String CURRENCY = "currency";
+    public static final String SECTOR = "sector";
+    public static final String TRADING_STATUS = "tradingStatus";
+    public static final String ASSET_TYPE = "assetType";
+
+    private final List<T> items;
+    private final Map<String, Map<String, BitSet>> indexes;
+
+    private InstrumentIndex(List<T> items, Map<String, Map<String, BitSet>> indexes) {
+        this.items = items;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Строит индексы по атрибутам
+     *
+     * @param items инструменты в порядке, в котором они будут возвращаться
+     * @param attributes имя атрибута -> извлечение значения
+     */
+    public static <T> InstrumentIndex<T> of(List<T> items, Map<String, Function<T, String>> attributes) {
+        List<T> copy = List.copyOf(items);
+        Map<String, Map<String, BitSet>> indexes = new HashMap<>();
+        for (Map.Entry<String, Function<T, String>> attribute : attributes.entrySet()) {
+            Map<String, BitSet> postings = new HashMap<>();
+            for (int i = 0; i < copy.size(); i++) {
+                String value = attribute.getValue().apply(copy.get(i));
+                if (value != null && !value.isEmpty()) {
+                    postings.computeIfAbsent(normalize(value), key -> new BitSet(copy.size())).set(i);
+                }
+            }
+            indexes.put(attribute.getKey(), Map.copyOf(postings));
+        }
+        return new InstrumentIndex<>(copy, Map.copyOf(indexes));
+    }
+
+    /**
+     * Инструменты, совпадающие со всеми непустыми фильтрами
+     *
+     * @param criteria имя атрибута -> значение (null и пустые значения игнорируются)
+     * @return новый изменяемый список в порядке исходного списка
+     * @throws IllegalArgumentException если атрибут не проиндексирован
+     */
+    public List<T> query(Map<String, String> criteria) {
+        List<BitSet> matches = new ArrayList<>();
+        for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+            String value = criterion.getValue();
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            Map<String, BitSet> postings = indexes.get(criterion.getKey());
+            if (postings == null) {
+                throw new IllegalArgumentException("Атрибут не проиндексирован: " + criterion.getKey());
+            }
+            BitSet positions = postings.get(normalize(value));
+            if (positions == null) {
+                return new ArrayList<>();
+            }
+            matches.add(positions);
+        }
+        if (matches.isEmpty()) {
+            return new ArrayList<>(items);
+        }
+
+        matches.sort(Comparator.comparingInt(BitSet::cardinality));
+        BitSet result = (BitSet) matches.get(0).clone();
+        for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+            result.and(matches.get(i));
+        }
+        List<T> found = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            found.add(items.get(i));
+        }
+        return found;
+    }
+
+    public List<T> all() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.entity.FutureEntity;
+import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
+import com.example.InvestmentDataLoaderService.entity.ShareEntity;
+import com.example.InvestmentDataLoaderService.repository.FutureRepository;
+import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
+import com.example.InvestmentDataLoaderService.repository.ShareRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Реестр инструментов в памяти с поиском за O(1)
+ *
+ * <p>Хранит неизменяемый снимок акций, фьючерсов и индикативов из БД, проиндексированный
+ * по FIGI, тикеру, uid и asset_uid; акции дополнительно индексируются по атрибутам фильтров
+ * ({@link InstrumentIndex}). Снимок заменяется целиком одной записью volatile-ссылки
+ * ({@link #refresh()}), поэтому читатели никогда не видят частично обновленные индексы.
+ * Обновляется ежедневным прогревом ({@code InstrumentPreloadSchedulerService}) и после каждого
+ * сохранения инструментов ({@code InstrumentService.save*Async}), первый снимок
+ * загружается при первом обращении.</p>
+ *
+ * <p>Возвращаемые сущности общие для всех читателей и не должны изменяться.</p>
+ */
+@Service
+public class InstrumentRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentRegistry.class);
+
+    public static final String TYPE_SHARE = "SHARE";
+    public static final String TYPE_FUTURE = "FUTURE";
+    public static final String TYPE_INDICATIVE = "INDICATIVE";
+
+    private final ShareRepository shareRepository;
+    private final FutureRepository futureRepository;
+    private final IndicativeRepository indicativeRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Неизменяемый снимок инструментов с индексами
+     */
+    private record Snapshot(
+        List<ShareEntity> shares,
+        List<FutureEntity> futures,
+        List<IndicativeEntity> indicatives,
+        Map<String, ShareEntity> sharesByFigi,
+        Map<String, FutureEntity> futuresByFigi,
+        Map<String, IndicativeEntity> indicativesByFigi,
+        Map<String, ShareEntity> sharesByTicker,
+        Map<String, FutureEntity> futuresByTicker,
+        Map<String, IndicativeEntity> indicativesByTicker,
+        Map<String, ShareEntity> sharesByAssetUid,
+        Map<String, IndicativeEntity> indicativesByUid,
+        InstrumentIndex<ShareEntity> shareIndex,
+        Instant loadedAt
+    ) {
+    }
+
+    public InstrumentRegistry(ShareRepository shareRepository,
+                              FutureRepository futureRepository,
+                              IndicativeRepository indicativeRepository) {
+        this.shareRepository = shareRepository;
+        this.futureRepository = futureRepository;
+        this.indicativeRepository = indicativeRepository;
+    }
+
+    /**
+     * Перечитывает инструменты из БД и атомарно заменяет снимок
+     */
+    public void refresh() {
+        List<ShareEntity> shares = List.copyOf(shareRepository.findAll());
+        List<FutureEntity> futures = List.copyOf(futureRepository.findAll());
+        List<IndicativeEntity> indicatives = List.copyOf(indicativeRepository.findAll());
+
+        snapshot = new Snapshot(
+            shares, futures, indicatives,
+            index(shares, ShareEntity::getFigi),
+            index(futures, FutureEntity::getFigi),
+            index(indicatives, IndicativeEntity::getFigi),
+            index(shares, ShareEntity::getTicker),
+            index(futures, FutureEntity::getTicker),
+            index(indicatives, IndicativeEntity::getTicker),
+            index(shares, ShareEntity::getAssetUid),
+            index(indicatives, IndicativeEntity::getUid),
+            InstrumentIndex.of(shares, Map.of(
+                InstrumentIndex.FIGI, ShareEntity::getFigi,
+                InstrumentIndex.TICKER, ShareEntity::getTicker,
+                InstrumentIndex.EXCHANGE, ShareEntity::getExchange,
+                InstrumentIndex.CURRENCY, ShareEntity::getCurrency,
+                InstrumentIndex.SECTOR, ShareEntity::getSector,
+                InstrumentIndex.TRADING_STATUS, ShareEntity::getTradingStatus
+            )),
+            Instant.now()
+        );
+        log.info("Реестр инструментов обновлен: {} акций, {} фьючерсов, {} индикативов",
+            shares.size(), futures.size(), indicatives.size());
+    }
+
+    public List<ShareEntity> getShares() {
+        return current().shares();
+    }
+
+    public List<FutureEntity> getFutures() {
+        return current().futures();
+    }
+
+    public List<IndicativeEntity> getIndicatives() {
+        return current().indicatives();
+    }
+
+    /**
+     * Акции, совпадающие со всеми непустыми фильтрами (атрибуты {@link InstrumentIndex}, без учета регистра)
+     */
+    public List<ShareEntity> findShares(Map<String, String> criteria) {
+        return current().shareIndex().query(criteria);
+    }
+
+    public Optional<ShareEntity> findShare(String figi) {
+        return Optional.ofNullable(current().sharesByFigi().get(figi));
+    }
+
+    public Optional<FutureEntity> findFuture(String figi) {
+        return Optional.ofNullable(current().futuresByFigi().get(figi));
+    }
+
+    public Optional<IndicativeEntity> findIndicative(String figi) {
+        return Optional.ofNullable(current().indicativesByFigi().get(figi));
+    }
+
+    public Optional<ShareEntity> findShareByTicker(String ticker) {
+        return Optional.ofNullable(current().sharesByTicker().get(ticker));
+    }
+
+    public Optional<FutureEntity> findFutureByTicker(String ticker) {
+        return Optional.ofNullable(current().futuresByTicker().get(ticker));
+    }
+
+    public Optional<IndicativeEntity> findIndicativeByTicker(String ticker) {
+        return Optional.ofNullable(current().indicativesByTicker().get(ticker));
+    }
+
+    public Optional<ShareEntity> findShareByAssetUid(String assetUid) {
+        return Optional.ofNullable(current().sharesByAssetUid().get(assetUid));
+    }
+
+    public Optional<IndicativeEntity> findIndicativeByUid(String uid) {
+        return Optional.ofNullable(current().indicativesByUid().get(uid));
+    }
+
+    /**
+     * Тип инструмента по FIGI
+     *
+     * @return {@link #TYPE_SHARE}, {@link #TYPE_FUTURE}, {@link #TYPE_INDICATIVE} или пустой Optional
+     */
+    public Optional<String> getInstrumentType(String figi) {
+        Snapshot current = current();
+        if (current.sharesByFigi().containsKey(figi)) {
+            return Optional.of(TYPE_SHARE);
+        }
+        if (current.futuresByFigi().containsKey(figi)) {
+            return Optional.of(TYPE_FUTURE);
+        }
+        if (current.indicativesByFigi().containsKey(figi)) {
+            return Optional.of(TYPE_INDICATIVE);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Валюта инструмента по FIGI (акции, фьючерсы, индикативы)
+     */
+    public Optional<String> getCurrency(String figi) {
+        Snapshot current = current();
+        ShareEntity share = current.sharesByFigi().get(figi);
+        if (share != null) {
+            return Optional.ofNullable(share.getCurrency());
+        }
+        FutureEntity future = current.futuresByFigi().get(figi);
+        if (future != null) {
+            return Optional.ofNullable(future.getCurrency());
+        }
+        IndicativeEntity indicative = current.indicativesByFigi().get(figi);
+        return indicative != null ? Optional.ofNullable(indicative.getCurrency()) : Optional.empty();
+    }
+
+    public boolean contains(String figi) {
+        return getInstrumentType(figi).isPresent();
+    }
+
+    public int size() {
+        Snapshot current = current();
+        return current.shares().size() + current.futures().size() + current.indicatives().size();
+    }
+
+    /**
+     * Время загрузки текущего снимка (null, если реестр еще не загружался)
+     */
+    public Instant getLoadedAt() {
+        Snapshot current = snapshot;
+        return current != null ? current.loadedAt() : null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Индекс по ключу; при совпадении ключей остается первый инструмент, пустые ключи пропускаются
+     */
+    private static <T> Map<String, T> index(List<T> items, Function<T, String> keyExtractor) {
+        Map<String, T> index = new HashMap<>(items.size() * 2);
+        for (T item : items) {
+            String key = keyExtractor.apply(item);
+            if (key != null && !key.isEmpty()) {
+                index.putIfAbsent(key, item);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+}
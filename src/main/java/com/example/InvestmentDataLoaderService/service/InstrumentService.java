@@ -10,14 +10,9 @@ import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
 import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import com.example.InvestmentDataLoaderService.client.TinkoffRestClient;
-import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import ru.tinkoff.piapi.contract.v1.*;
-import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc.InstrumentsServiceBlockingStub;
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -51,9 +46,9 @@ import com.fasterxml.jackson.databind.JsonNode;
  * 
  * <p>Сервис использует:</p>
  * <ul>
- *   <li>gRPC клиент для получения акций и фьючерсов</li>
- *   <li>REST клиент для получения индикативных инструментов</li>
- *   <li>Spring Cache для кэширования данных</li>
+ *   <li>{@link InstrumentUniverseService} - кэшированные полные списки инструментов из API с индексами</li>
+ *   <li>{@link InstrumentRegistry} - снимок инструментов из БД с индексами</li>
+ *   <li>REST клиент для поиска индикатива по FIGI</li>
  *   <li>JPA репозитории для работы с БД</li>
  * </ul>
  * 
@@ -65,39 +60,39 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class InstrumentService {
 
     private static final Logger log = LoggerFactory.getLogger(InstrumentService.class);
-    private final InstrumentsServiceBlockingStub instrumentsService;
     private final ShareRepository shareRepo;
     private final FutureRepository futureRepo;
     private final IndicativeRepository indicativeRepo;
     private final SystemLogRepository systemLogRepository;
     private final TinkoffRestClient restClient;
-    private final TinkoffApiClient tinkoffApiClient;
+    private final InstrumentUniverseService instrumentUniverseService;
+    private final InstrumentRegistry instrumentRegistry;
 
     /**
      * Конструктор сервиса инструментов
      * 
-     * @param instrumentsService gRPC клиент для получения акций и фьючерсов из Tinkoff API
      * @param shareRepo репозиторий для работы с акциями в БД
      * @param futureRepo репозиторий для работы с фьючерсами в БД
      * @param indicativeRepo репозиторий для работы с индикативными инструментами в БД
      * @param systemLogRepository репозиторий для логирования операций
      * @param restClient REST клиент для получения индикативных инструментов из Tinkoff API
-     * @param tinkoffApiClient API клиент для получения полной информации о фьючерсах
+     * @param instrumentUniverseService кэшированные полные списки инструментов из Tinkoff API с индексами
+     * @param instrumentRegistry снимок инструментов из БД с индексами
      */
-    public InstrumentService(InstrumentsServiceBlockingStub instrumentsService,
-                           ShareRepository shareRepo,
+    public InstrumentService(ShareRepository shareRepo,
                            FutureRepository futureRepo,
                            IndicativeRepository indicativeRepo,
                            SystemLogRepository systemLogRepository,
                            TinkoffRestClient restClient,
-                           TinkoffApiClient tinkoffApiClient) {
-        this.instrumentsService = instrumentsService;
+                           InstrumentUniverseService instrumentUniverseService,
+                           InstrumentRegistry instrumentRegistry) {
         this.shareRepo = shareRepo;
         this.futureRepo = futureRepo;
         this.indicativeRepo = indicativeRepo;
         this.systemLogRepository = systemLogRepository;
         this.restClient = restClient;
-        this.tinkoffApiClient = tinkoffApiClient;
+        this.instrumentUniverseService = instrumentUniverseService;
+        this.instrumentRegistry = instrumentRegistry;
     }
 
     // === МЕТОДЫ ДЛЯ РАБОТЫ С АКЦИЯМИ ===
@@ -105,8 +100,8 @@ public class InstrumentService {
     /**
      * Получение списка акций из Tinkoff API с фильтрацией через REST
      * 
-     * <p>Метод получает акции из внешнего API Tinkoff через REST с применением фильтров.
-     * Результат кэшируется для повышения производительности.</p>
+     * <p>Полный список акций по статусу кэшируется в {@link InstrumentUniverseService},
+     * фильтры применяются по индексам без обращения к API.</p>
      * 
      * <p>Преимущества REST API: включает поле assetUid в ответе, что позволяет
      * получить полную информацию об акциях за один запрос.</p>
@@ -118,56 +113,13 @@ public class InstrumentService {
      * @param figi уникальный идентификатор инструмента
      * @return список акций, отсортированный по тикеру (включая assetUid)
      */
-    @Cacheable(cacheNames = com.example.InvestmentDataLoaderService.config.CacheConfig.SHARES_CACHE,
-            key = "T(java.util.Objects).toString(#status,'') + '|' + T(java.util.Objects).toString(#exchange,'') + '|' + T(java.util.Objects).toString(#currency,'') + '|' + T(java.util.Objects).toString(#ticker,'') + '|' + T(java.util.Objects).toString(#figi,'')")
     public List<ShareDto> getShares(String status, String exchange, String currency, String ticker, String figi) {
-        // Получаем данные из T-Bank API через REST
-        JsonNode response = restClient.getShares(status);
-        
-        List<ShareDto> shares = new ArrayList<>();
-        
-        // Проверяем структуру ответа
-        JsonNode instrumentsList = response.get("instruments");
-        if (instrumentsList == null) {
-            // Если instrumentsList отсутствует, возможно массив находится в корне
-            if (response.isArray()) {
-                instrumentsList = response;
-            } else {
-                log.warn("Неожиданная структура ответа API: {}", response);
-                return shares;
-            }
-        }
-        
-        for (JsonNode instrument : instrumentsList) {
-            // Применяем фильтры
-            boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                     instrument.get("exchange").asText().equalsIgnoreCase(exchange));
-            boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                     instrument.get("currency").asText().equalsIgnoreCase(currency));
-            boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                   instrument.get("ticker").asText().equalsIgnoreCase(ticker));
-            boolean matchesFigi = (figi == null || figi.isEmpty() || 
-                                 instrument.get("figi").asText().equalsIgnoreCase(figi));
-            if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi) {
-                shares.add(new ShareDto(
-                    instrument.get("figi").asText(),
-                    instrument.get("ticker").asText(),
-                    instrument.get("name").asText(),
-                    instrument.get("currency").asText(),
-                    instrument.get("exchange").asText(),
-                    instrument.get("sector").asText(),
-                    instrument.get("tradingStatus").asText(),
-                    instrument.get("shortEnabledFlag").asBoolean(),
-                    instrument.get("assetUid").asText(),
-                    QuotationDto.minPriceIncrementToBigDecimal(instrument.get("minPriceIncrement")),
-                    instrument.has("lot") ? instrument.get("lot").asInt() : 1
-                ));
-            }
-        }
-        
-        // Сортируем по тикеру
-        shares.sort(Comparator.comparing(ShareDto::ticker, String.CASE_INSENSITIVE_ORDER));
-        return shares;
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(InstrumentIndex.EXCHANGE, exchange);
+        criteria.put(InstrumentIndex.CURRENCY, currency);
+        criteria.put(InstrumentIndex.TICKER, ticker);
+        criteria.put(InstrumentIndex.FIGI, figi);
+        return instrumentUniverseService.getShareUniverse(InstrumentUniverseService.normalizeStatus(status)).query(criteria);
     }
 
 
@@ -175,50 +127,40 @@ public class InstrumentService {
     /**
      * Получение акций из базы данных с фильтрацией
      * 
-     * <p>Метод получает акции из локальной БД с применением расширенных фильтров.
-     * Поддерживает фильтрацию по всем полям сущности акции.</p>
+     * <p>Фильтры применяются по индексам снимка {@link InstrumentRegistry} без чтения
+     * всей таблицы; снимок обновляется прогревом и после сохранения новых акций.</p>
      * 
      * @param filter фильтр для поиска акций в БД
      * @return список акций из БД, отсортированный по тикеру
      */
     public List<ShareDto> getSharesFromDatabase(ShareFilterDto filter) {
-        List<ShareEntity> entities = shareRepo.findAll();
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(InstrumentIndex.EXCHANGE, filter.getExchange());
+        criteria.put(InstrumentIndex.CURRENCY, filter.getCurrency());
+        criteria.put(InstrumentIndex.TICKER, filter.getTicker());
+        criteria.put(InstrumentIndex.FIGI, filter.getFigi());
+        criteria.put(InstrumentIndex.SECTOR, filter.getSector());
+        criteria.put(InstrumentIndex.TRADING_STATUS, filter.getTradingStatus());
+
         List<ShareDto> result = new ArrayList<>();
-        log.info("entities: {}", entities);
-        for (ShareEntity entity : entities) {
-            // Применяем фильтры
-            boolean matchesExchange = (filter.getExchange() == null || filter.getExchange().isEmpty() || 
-                                     entity.getExchange() != null && entity.getExchange().equalsIgnoreCase(filter.getExchange()));
-            boolean matchesCurrency = (filter.getCurrency() == null || filter.getCurrency().isEmpty() || 
-                                     entity.getCurrency() != null && entity.getCurrency().equalsIgnoreCase(filter.getCurrency()));
-            boolean matchesTicker = (filter.getTicker() == null || filter.getTicker().isEmpty() || 
-                                   entity.getTicker() != null && entity.getTicker().equalsIgnoreCase(filter.getTicker()));
-            boolean matchesFigi = (filter.getFigi() == null || filter.getFigi().isEmpty() || 
-                                 entity.getFigi() != null && entity.getFigi().equalsIgnoreCase(filter.getFigi()));
-            boolean matchesSector = (filter.getSector() == null || filter.getSector().isEmpty() || 
-                                   entity.getSector() != null && entity.getSector().equalsIgnoreCase(filter.getSector()));
-            boolean matchesTradingStatus = (filter.getTradingStatus() == null || filter.getTradingStatus().isEmpty() || 
-                                          entity.getTradingStatus() != null && entity.getTradingStatus().equalsIgnoreCase(filter.getTradingStatus()));
-            
-            if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi && matchesSector && matchesTradingStatus) {
-                result.add(new ShareDto(
-                    entity.getFigi(),
-                    entity.getTicker(),
-                    entity.getName(),
-                    entity.getCurrency(),
-                    entity.getExchange(),
-                    entity.getSector(),
-                    entity.getTradingStatus(),
-                    entity.getShortEnabled(),
-                    entity.getAssetUid(),
-                    entity.getMinPriceIncrement(),
-                    entity.getLot()
-                ));
-            }
+        for (ShareEntity entity : instrumentRegistry.findShares(criteria)) {
+            result.add(new ShareDto(
+                entity.getFigi(),
+                entity.getTicker(),
+                entity.getName(),
+                entity.getCurrency(),
+                entity.getExchange(),
+                entity.getSector(),
+                entity.getTradingStatus(),
+                entity.getShortEnabled(),
+                entity.getAssetUid(),
+                entity.getMinPriceIncrement(),
+                entity.getLot()
+            ));
         }
         
         // Сортируем по тикеру
-        result.sort(Comparator.comparing(ShareDto::ticker, String.CASE_INSENSITIVE_ORDER));
+        result.sort(Comparator.comparing(ShareDto::ticker, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
         return result;
     }
 
@@ -274,76 +216,21 @@ public class InstrumentService {
 
     // === МЕТОДЫ ДЛЯ РАБОТЫ С ФЬЮЧЕРСАМИ ===
 
-    @Cacheable(cacheNames = com.example.InvestmentDataLoaderService.config.CacheConfig.FUTURES_CACHE,
-            key = "T(java.util.Objects).toString(#status,'') + '|' + T(java.util.Objects).toString(#exchange,'') + '|' + T(java.util.Objects).toString(#currency,'') + '|' + T(java.util.Objects).toString(#ticker,'') + '|' + T(java.util.Objects).toString(#assetType,'')")
+    /**
+     * Получение списка фьючерсов из Tinkoff API с фильтрацией
+     *
+     * <p>Полный список фьючерсов по статусу кэшируется в {@link InstrumentUniverseService},
+     * фильтры применяются по индексам без обращения к API.</p>
+     *
+     * @return список фьючерсов, отсортированный по тикеру
+     */
     public List<FutureDto> getFutures(String status, String exchange, String currency, String ticker, String assetType) {
-        // Определяем статус инструмента для запроса к API
-        InstrumentStatus instrumentStatus = InstrumentStatus.INSTRUMENT_STATUS_BASE;
-        if (status != null && !status.isEmpty()) {
-            try {
-                instrumentStatus = InstrumentStatus.valueOf(status.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                // Если статус некорректный, используем значение по умолчанию
-                instrumentStatus = InstrumentStatus.INSTRUMENT_STATUS_BASE;
-            }
-        }
-
-        // Запрашиваем фьючерсы из T-Bank API
-        FuturesResponse response = instrumentsService.futures(InstrumentsRequest.newBuilder()
-                .setInstrumentStatus(instrumentStatus)
-                .build());
-        
-        // Задержка для соблюдения лимитов API
-        try {
-            Thread.sleep(200);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        List<FutureDto> futures = new ArrayList<>();
-        for (var instrument : response.getInstrumentsList()) {
-            // Применяем фильтры
-            boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                     instrument.getExchange().equalsIgnoreCase(exchange));
-            boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                     instrument.getCurrency().equalsIgnoreCase(currency));
-            boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                   instrument.getTicker().equalsIgnoreCase(ticker));
-            boolean matchesAssetType = (assetType == null || assetType.isEmpty() || 
-                                      instrument.getAssetType().equalsIgnoreCase(assetType));
-            
-            if (matchesExchange && matchesCurrency && matchesTicker && matchesAssetType) {
-                // Получаем дату экспирации из того же объекта instrument
-                LocalDateTime expirationDate = null;
-                
-                if (instrument.hasExpirationDate()) {
-                    expirationDate = tinkoffApiClient.convertTimestampToLocalDateTime(instrument.getExpirationDate());
-                }
-
-                
-                futures.add(new FutureDto(
-                    instrument.getFigi(),
-                    instrument.getTicker(),
-                    instrument.getAssetType(),
-                    instrument.getBasicAsset(),
-                    instrument.getCurrency(),
-                    instrument.getExchange(),
-                    true,
-                    expirationDate,
-                    convertQuotationToBigDecimal(instrument.getMinPriceIncrement()),
-                    instrument.getLot(),
-                    convertQuotationToBigDecimal(instrument.getBasicAssetSize())
-                ));
-            }
-        }
-        
-        // Сортируем по тикеру
-        futures.sort(Comparator.comparing(FutureDto::ticker, String.CASE_INSENSITIVE_ORDER));
-        
-       
-       
-        
-        return futures;
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(InstrumentIndex.EXCHANGE, exchange);
+        criteria.put(InstrumentIndex.CURRENCY, currency);
+        criteria.put(InstrumentIndex.TICKER, ticker);
+        criteria.put(InstrumentIndex.ASSET_TYPE, assetType);
+        return instrumentUniverseService.getFutureUniverse(InstrumentUniverseService.normalizeStatus(status)).query(criteria);
     }
 
 
@@ -393,164 +280,18 @@ public class InstrumentService {
 
     // === МЕТОДЫ ДЛЯ РАБОТЫ С ИНДИКАТИВНЫМИ ИНСТРУМЕНТАМИ ===
 
-    @Cacheable(cacheNames = com.example.InvestmentDataLoaderService.config.CacheConfig.INDICATIVES_CACHE,
-            key = "T(java.util.Objects).toString(#exchange,'') + '|' + T(java.util.Objects).toString(#currency,'') + '|' + T(java.util.Objects).toString(#ticker,'') + '|' + T(java.util.Objects).toString(#figi,'')")
+    /**
+     * Получение списка индикативов из Tinkoff API (при недоступности REST - из БД) с фильтрацией
+     *
+     * @return список индикативов, отсортированный по тикеру
+     */
     public List<IndicativeDto> getIndicatives(String exchange, String currency, String ticker, String figi) {
-        try {
-            // Используем REST API для получения индикативных инструментов
-            JsonNode response = restClient.getIndicatives();
-            
-            List<IndicativeDto> indicatives = new ArrayList<>();
-            
-            // Парсим JSON ответ
-            if (response.has("instruments")) {
-                JsonNode instruments = response.get("instruments");
-                if (instruments != null && instruments.isArray()) {
-                    for (JsonNode instrument : instruments) {
-                        // Применяем фильтры
-                        boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                                 instrument.get("exchange").asText().equalsIgnoreCase(exchange));
-                        boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                                 instrument.get("currency").asText().equalsIgnoreCase(currency));
-                        boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                               instrument.get("ticker").asText().equalsIgnoreCase(ticker));
-                        boolean matchesFigi = (figi == null || figi.isEmpty() || 
-                                             instrument.get("figi").asText().equalsIgnoreCase(figi));
-                        
-                        if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi) {
-                            String figiValue = instrument.get("figi").asText();
-                            // Пропускаем индикативы с пустым или null figi
-                            if (figiValue != null && !figiValue.trim().isEmpty()) {
-                                indicatives.add(new IndicativeDto(
-                                    figiValue,
-                                    instrument.get("ticker").asText(),
-                                    instrument.get("name").asText(),
-                                    instrument.get("currency").asText(),
-                                    instrument.get("exchange").asText(),
-                                    instrument.has("classCode") ? instrument.get("classCode").asText() : null,
-                                    instrument.has("uid") ? instrument.get("uid").asText() : null,
-                                    instrument.has("sellAvailableFlag") ? instrument.get("sellAvailableFlag").asBoolean() : null,
-                                    instrument.has("buyAvailableFlag") ? instrument.get("buyAvailableFlag").asBoolean() : null
-                                ));
-                            }
-                        }
-                    }
-                }
-            } else if (response.has("instrumentsList")) {
-                // Альтернативная структура ответа
-                JsonNode instruments = response.get("instrumentsList");
-                if (instruments != null && instruments.isArray()) {
-                    for (JsonNode instrument : instruments) {
-                        // Применяем фильтры
-                        boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                                 instrument.get("exchange").asText().equalsIgnoreCase(exchange));
-                        boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                                 instrument.get("currency").asText().equalsIgnoreCase(currency));
-                        boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                               instrument.get("ticker").asText().equalsIgnoreCase(ticker));
-                        boolean matchesFigi = (figi == null || figi.isEmpty() || 
-                                             instrument.get("figi").asText().equalsIgnoreCase(figi));
-                        
-                        if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi) {
-                            String figiValue = instrument.get("figi").asText();
-                            // Пропускаем индикативы с пустым или null figi
-                            if (figiValue != null && !figiValue.trim().isEmpty()) {
-                                indicatives.add(new IndicativeDto(
-                                    figiValue,
-                                    instrument.get("ticker").asText(),
-                                    instrument.get("name").asText(),
-                                    instrument.get("currency").asText(),
-                                    instrument.get("exchange").asText(),
-                                    instrument.has("classCode") ? instrument.get("classCode").asText() : null,
-                                    instrument.has("uid") ? instrument.get("uid").asText() : null,
-                                    instrument.has("sellAvailableFlag") ? instrument.get("sellAvailableFlag").asBoolean() : null,
-                                    instrument.has("buyAvailableFlag") ? instrument.get("buyAvailableFlag").asBoolean() : null
-                                ));
-                            }
-                        }
-                    }
-                }
-            }
-            
-            // Если ни один из вариантов не сработал, проверяем, не является ли ответ массивом напрямую
-            if (response.isArray()) {
-                for (JsonNode instrument : response) {
-                    // Применяем фильтры
-                    boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                             instrument.get("exchange").asText().equalsIgnoreCase(exchange));
-                    boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                             instrument.get("currency").asText().equalsIgnoreCase(currency));
-                    boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                           instrument.get("ticker").asText().equalsIgnoreCase(ticker));
-                    boolean matchesFigi = (figi == null || figi.isEmpty() || 
-                                         instrument.get("figi").asText().equalsIgnoreCase(figi));
-                    
-                    if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi) {
-                        String figiValue = instrument.get("figi").asText();
-                        // Пропускаем индикативы с пустым или null figi
-                        if (figiValue != null && !figiValue.trim().isEmpty()) {
-                            indicatives.add(new IndicativeDto(
-                                figiValue,
-                                instrument.get("ticker").asText(),
-                                instrument.get("name").asText(),
-                                instrument.get("currency").asText(),
-                                instrument.get("exchange").asText(),
-                                instrument.has("classCode") ? instrument.get("classCode").asText() : null,
-                                instrument.has("uid") ? instrument.get("uid").asText() : null,
-                                instrument.has("sellAvailableFlag") ? instrument.get("sellAvailableFlag").asBoolean() : null,
-                                instrument.has("buyAvailableFlag") ? instrument.get("buyAvailableFlag").asBoolean() : null
-                            ));
-                        }
-                    }
-                }
-            }
-            
-            // Сортируем по тикеру
-            indicatives.sort(Comparator.comparing(IndicativeDto::ticker, String.CASE_INSENSITIVE_ORDER));
-            return indicatives;
-            
-        } catch (Exception e) {
-            // Если REST API не доступен, используем данные из БД
-            log.warn("REST API method indicatives not available, using database: {}", e.getMessage());
-            
-            List<IndicativeDto> indicatives = new ArrayList<>();
-            
-            // Получаем все индикативные инструменты из БД
-            List<IndicativeEntity> entities = indicativeRepo.findAll();
-            
-            for (IndicativeEntity entity : entities) {
-                // Применяем фильтры
-                boolean matchesExchange = (exchange == null || exchange.isEmpty() || 
-                                         entity.getExchange().equalsIgnoreCase(exchange));
-                boolean matchesCurrency = (currency == null || currency.isEmpty() || 
-                                         entity.getCurrency().equalsIgnoreCase(currency));
-                boolean matchesTicker = (ticker == null || ticker.isEmpty() || 
-                                       entity.getTicker().equalsIgnoreCase(ticker));
-                boolean matchesFigi = (figi == null || figi.isEmpty() || 
-                                     entity.getFigi().equalsIgnoreCase(figi));
-                
-                if (matchesExchange && matchesCurrency && matchesTicker && matchesFigi) {
-                    indicatives.add(new IndicativeDto(
-                        entity.getFigi(),
-                        entity.getTicker(),
-                        entity.getName(),
-                        entity.getCurrency(),
-                        entity.getExchange(),
-                        entity.getClassCode(),
-                        entity.getUid(),
-                        entity.getSellAvailableFlag(),
-                        entity.getBuyAvailableFlag()
-                    ));
-                }
-            }
-            
-            // Сортируем по тикеру
-            indicatives.sort(Comparator.comparing(IndicativeDto::ticker, String.CASE_INSENSITIVE_ORDER));
-            
-            
-            
-            return indicatives;
-        }
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(InstrumentIndex.EXCHANGE, exchange);
+        criteria.put(InstrumentIndex.CURRENCY, currency);
+        criteria.put(InstrumentIndex.TICKER, ticker);
+        criteria.put(InstrumentIndex.FIGI, figi);
+        return instrumentUniverseService.getIndicativeUniverse().query(criteria);
     }
 
     public IndicativeDto getIndicativeBy(String figi) {
@@ -681,18 +422,6 @@ public class InstrumentService {
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Преобразует gRPC Quotation в BigDecimal
-     */
-    private BigDecimal convertQuotationToBigDecimal(ru.tinkoff.piapi.contract.v1.Quotation quotation) {
-        if (quotation == null) {
-            return BigDecimal.ZERO;
-        }
-        
-        QuotationDto quotationDto = new QuotationDto(quotation.getUnits(), quotation.getNano());
-        return quotationDto.toBigDecimal();
-    }
-
     // ==================== ВСПОМОГАТЕЛЬНЫЕ КЛАССЫ ====================
     
     /**
@@ -962,6 +691,11 @@ public class InstrumentService {
                     .filter(result -> result.hasError())
                     .count();
                 
+                // Новые и обновленные акции должны сразу попасть в индексы getSharesFromDatabase
+                if (!sharesFromApi.isEmpty()) {
+                    instrumentRegistry.refresh();
+                }
+                
                 // Формируем ответ
                 boolean success = !sharesFromApi.isEmpty();
                 String message;
@@ -1083,6 +817,11 @@ public class InstrumentService {
                     .filter(result -> result.hasError())
                     .count();
                 
+                // Новые и обновленные фьючерсы должны сразу попасть в реестр инструментов
+                if (!futuresFromApi.isEmpty()) {
+                    instrumentRegistry.refresh();
+                }
+                
                 // Формируем ответ
                 boolean success = !futuresFromApi.isEmpty();
                 String message;
@@ -1209,6 +948,11 @@ public class InstrumentService {
                     .filter(result -> result.hasError())
                     .count();
                 
+                // Существующие индикативы не обновляются, поэтому реестр перечитывается только после вставки
+                if (!savedIndicatives.isEmpty()) {
+                    instrumentRegistry.refresh();
+                }
+                
                 // Формируем ответ
                 boolean success = !indicativesFromApi.isEmpty();
                 String message;
@@ -0,0 +1,314 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
+import com.example.InvestmentDataLoaderService.client.TinkoffRestClient;
+import com.example.InvestmentDataLoaderService.config.CacheConfig;
+import com.example.InvestmentDataLoaderService.dto.FutureDto;
+import com.example.InvestmentDataLoaderService.dto.IndicativeDto;
+import com.example.InvestmentDataLoaderService.dto.QuotationDto;
+import com.example.InvestmentDataLoaderService.dto.ShareDto;
+import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
+import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import ru.tinkoff.piapi.contract.v1.FuturesResponse;
+import ru.tinkoff.piapi.contract.v1.InstrumentStatus;
+import ru.tinkoff.piapi.contract.v1.InstrumentsRequest;
+import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc.InstrumentsServiceBlockingStub;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Полные списки инструментов из T-Invest API с индексами для фильтрации
+ *
+ * <p>Кэшируется один индексированный снимок на тип инструмента (для акций и фьючерсов -
+ * на статус запроса), поэтому любые комбинации фильтров {@code GET /api/instruments/*}
+ * отвечаются из памяти без повторных запросов к API, а число записей кэша не зависит
+ * от фильтров клиентов. Фильтрация - {@link InstrumentIndex#query(Map)} в {@link InstrumentService}.</p>
+ *
+ * <p>Кэши обновляются с упреждением ({@code CacheConfig}): устаревший список перезагружается
+ * в фоне методами {@code load*}, а до публикации нового читатели получают прежний.</p>
+ */
+@Service
+public class InstrumentUniverseService {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentUniverseService.class);
+
+    /**
+     * Ключ кэша индикативов (у запроса нет статуса)
+     */
+    public static final String INDICATIVES_KEY = "ALL";
+
+    private final InstrumentsServiceBlockingStub instrumentsService;
+    private final TinkoffRestClient restClient;
+    private final TinkoffApiClient tinkoffApiClient;
+    private final IndicativeRepository indicativeRepo;
+    private final CacheManager cacheManager;
+
+    public InstrumentUniverseService(InstrumentsServiceBlockingStub instrumentsService,
+                                     TinkoffRestClient restClient,
+                                     TinkoffApiClient tinkoffApiClient,
+                                     IndicativeRepository indicativeRepo,
+                                     CacheManager cacheManager) {
+        this.instrumentsService = instrumentsService;
+        this.restClient = restClient;
+        this.tinkoffApiClient = tinkoffApiClient;
+        this.indicativeRepo = indicativeRepo;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Приводит статус запроса к имени {@link InstrumentStatus}; пустой и некорректный - INSTRUMENT_STATUS_BASE
+     *
+     * <p>Статус - единственная часть ключа кэша, поэтому произвольные строки клиентов
+     * не создают новых записей.</p>
+     */
+    public static String normalizeStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return InstrumentStatus.INSTRUMENT_STATUS_BASE.name();
+        }
+        try {
+            InstrumentStatus parsed = InstrumentStatus.valueOf(status.trim().toUpperCase());
+            return parsed == InstrumentStatus.UNRECOGNIZED ? InstrumentStatus.INSTRUMENT_STATUS_BASE.name() : parsed.name();
+        } catch (IllegalArgumentException e) {
+            return InstrumentStatus.INSTRUMENT_STATUS_BASE.name();
+        }
+    }
+
+    /**
+     * Все акции со статусом {@code status} (через REST, включая assetUid), отсортированные по тикеру
+     *
+     * @param status нормализованный статус ({@link #normalizeStatus(String)})
+     */
+    @Cacheable(cacheNames = CacheConfig.SHARES_CACHE, key = "#status", sync = true)
+    public InstrumentIndex<ShareDto> getShareUniverse(String status) {
+        return loadShareUniverse(status);
+    }
+
+    /**
+     * Загрузка списка акций из API без кэша (используется загрузчиком кэша при обновлении)
+     */
+    public InstrumentIndex<ShareDto> loadShareUniverse(String status) {
+        JsonNode response = restClient.getShares(status);
+
+        List<ShareDto> shares = new ArrayList<>();
+        JsonNode instrumentsList = response.get("instruments");
+        if (instrumentsList == null) {
+            // Если instrumentsList отсутствует, возможно массив находится в корне
+            if (response.isArray()) {
+                instrumentsList = response;
+            } else {
+                log.warn("Неожиданная структура ответа API: {}", response);
+                instrumentsList = JsonNodeFactory.instance.arrayNode();
+            }
+        }
+
+        for (JsonNode instrument : instrumentsList) {
+            shares.add(new ShareDto(
+                instrument.get("figi").asText(),
+                instrument.get("ticker").asText(),
+                instrument.get("name").asText(),
+                instrument.get("currency").asText(),
+                instrument.get("exchange").asText(),
+                instrument.get("sector").asText(),
+                instrument.get("tradingStatus").asText(),
+                instrument.get("shortEnabledFlag").asBoolean(),
+                instrument.get("assetUid").asText(),
+                QuotationDto.minPriceIncrementToBigDecimal(instrument.get("minPriceIncrement")),
+                instrument.has("lot") ? instrument.get("lot").asInt() : 1
+            ));
+        }
+
+        shares.sort(Comparator.comparing(ShareDto::ticker, String.CASE_INSENSITIVE_ORDER));
+        log.info("Загружен список акций ({}): {}", status, shares.size());
+        return InstrumentIndex.of(shares, Map.of(
+            InstrumentIndex.FIGI, ShareDto::figi,
+            InstrumentIndex.TICKER, ShareDto::ticker,
+            InstrumentIndex.EXCHANGE, ShareDto::exchange,
+            InstrumentIndex.CURRENCY, ShareDto::currency,
+            InstrumentIndex.SECTOR, ShareDto::sector,
+            InstrumentIndex.TRADING_STATUS, ShareDto::tradingStatus
+        ));
+    }
+
+    /**
+     * Все фьючерсы со статусом {@code status} (через gRPC), отсортированные по тикеру
+     *
+     * @param status нормализованный статус ({@link #normalizeStatus(String)})
+     */
+    @Cacheable(cacheNames = CacheConfig.FUTURES_CACHE, key = "#status", sync = true)
+    public InstrumentIndex<FutureDto> getFutureUniverse(String status) {
+        return loadFutureUniverse(status);
+    }
+
+    /**
+     * Загрузка списка фьючерсов из API без кэша (используется загрузчиком кэша при обновлении)
+     */
+    public InstrumentIndex<FutureDto> loadFutureUniverse(String status) {
+        FuturesResponse response = instrumentsService.futures(InstrumentsRequest.newBuilder()
+                .setInstrumentStatus(InstrumentStatus.valueOf(status))
+                .build());
+
+        List<FutureDto> futures = new ArrayList<>(response.getInstrumentsCount());
+        for (var instrument : response.getInstrumentsList()) {
+            LocalDateTime expirationDate = null;
+            if (instrument.hasExpirationDate()) {
+                expirationDate = tinkoffApiClient.convertTimestampToLocalDateTime(instrument.getExpirationDate());
+            }
+
+            futures.add(new FutureDto(
+                instrument.getFigi(),
+                instrument.getTicker(),
+                instrument.getAssetType(),
+                instrument.getBasicAsset(),
+                instrument.getCurrency(),
+                instrument.getExchange(),
+                true,
+                expirationDate,
+                convertQuotationToBigDecimal(instrument.getMinPriceIncrement()),
+                instrument.getLot(),
+                convertQuotationToBigDecimal(instrument.getBasicAssetSize())
+            ));
+        }
+
+        futures.sort(Comparator.comparing(FutureDto::ticker, String.CASE_INSENSITIVE_ORDER));
+        log.info("Загружен список фьючерсов ({}): {}", status, futures.size());
+        return InstrumentIndex.of(futures, Map.of(
+            InstrumentIndex.FIGI, FutureDto::figi,
+            InstrumentIndex.TICKER, FutureDto::ticker,
+            InstrumentIndex.EXCHANGE, FutureDto::exchange,
+            InstrumentIndex.CURRENCY, FutureDto::currency,
+            InstrumentIndex.ASSET_TYPE, FutureDto::assetType
+        ));
+    }
+
+    /**
+     * Все индикативы (через REST, при недоступности API - из БД), отсортированные по тикеру
+     */
+    @Cacheable(cacheNames = CacheConfig.INDICATIVES_CACHE, key = "T(com.example.InvestmentDataLoaderService.service.InstrumentUniverseService).INDICATIVES_KEY", sync = true)
+    public InstrumentIndex<IndicativeDto> getIndicativeUniverse() {
+        return loadIndicativeUniverse();
+    }
+
+    /**
+     * Загрузка списка индикативов без кэша (используется загрузчиком кэша при обновлении)
+     */
+    public InstrumentIndex<IndicativeDto> loadIndicativeUniverse() {
+        List<IndicativeDto> indicatives = new ArrayList<>();
+        try {
+            JsonNode response = restClient.getIndicatives();
+
+            JsonNode instruments = null;
+            if (response.has("instruments")) {
+                instruments = response.get("instruments");
+            } else if (response.has("instrumentsList")) {
+                // Альтернативная структура ответа
+                instruments = response.get("instrumentsList");
+            } else if (response.isArray()) {
+                instruments = response;
+            }
+
+            if (instruments != null && instruments.isArray()) {
+                for (JsonNode instrument : instruments) {
+                    String figiValue = instrument.get("figi").asText();
+                    // Пропускаем индикативы с пустым или null figi
+                    if (figiValue != null && !figiValue.trim().isEmpty()) {
+                        indicatives.add(new IndicativeDto(
+                            figiValue,
+                            instrument.get("ticker").asText(),
+                            instrument.get("name").asText(),
+                            instrument.get("currency").asText(),
+                            instrument.get("exchange").asText(),
+                            instrument.has("classCode") ? instrument.get("classCode").asText() : null,
+                            instrument.has("uid") ? instrument.get("uid").asText() : null,
+                            instrument.has("sellAvailableFlag") ? instrument.get("sellAvailableFlag").asBoolean() : null,
+                            instrument.has("buyAvailableFlag") ? instrument.get("buyAvailableFlag").asBoolean() : null
+                        ));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Если REST API не доступен, используем данные из БД
+            log.warn("REST API method indicatives not available, using database: {}", e.getMessage());
+
+            indicatives.clear();
+            for (IndicativeEntity entity : indicativeRepo.findAll()) {
+                indicatives.add(new IndicativeDto(
+                    entity.getFigi(),
+                    entity.getTicker(),
+                    entity.getName(),
+                    entity.getCurrency(),
+                    entity.getExchange(),
+                    entity.getClassCode(),
+                    entity.getUid(),
+                    entity.getSellAvailableFlag(),
+                    entity.getBuyAvailableFlag()
+                ));
+            }
+        }
+
+        indicatives.sort(Comparator.comparing(IndicativeDto::ticker, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        log.info("Загружен список индикативов: {}", indicatives.size());
+        return InstrumentIndex.of(indicatives, Map.of(
+            InstrumentIndex.FIGI, IndicativeDto::figi,
+            InstrumentIndex.TICKER, IndicativeDto::ticker,
+            InstrumentIndex.EXCHANGE, IndicativeDto::exchange,
+            InstrumentIndex.CURRENCY, IndicativeDto::currency
+        ));
+    }
+
+    /**
+     * Перезагружает закэшированные списки в фоне, не очищая кэш
+     *
+     * <p>Пока идет загрузка, читатели получают прежние списки; новые публикуются атомарно.
+     * Если списка со статусом по умолчанию еще нет, он загружается тем же способом.</p>
+     *
+     * @return завершается, когда все списки перезагружены
+     */
+    public CompletableFuture<Void> refreshAll() {
+        List<CompletableFuture<?>> refreshes = new ArrayList<>();
+        String defaultStatus = normalizeStatus(null);
+        refreshes.add(refresh(CacheConfig.SHARES_CACHE, defaultStatus));
+        refreshes.add(refresh(CacheConfig.FUTURES_CACHE, defaultStatus));
+        refreshes.add(refresh(CacheConfig.INDICATIVES_CACHE, INDICATIVES_KEY));
+        return CompletableFuture.allOf(refreshes.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<?> refresh(String cacheName, Object defaultKey) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || !(cache.getNativeCache() instanceof LoadingCache<?, ?> nativeCache)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        @SuppressWarnings("unchecked")
+        LoadingCache<Object, Object> loadingCache = (LoadingCache<Object, Object>) nativeCache;
+        Set<Object> keys = new HashSet<>(loadingCache.asMap().keySet());
+        keys.add(defaultKey);
+        log.info("Фоновое обновление кэша {}: {}", cacheName, keys);
+        return loadingCache.refreshAll(keys);
+    }
+
+    /**
+     * Преобразует gRPC Quotation в BigDecimal
+     */
+    private BigDecimal convertQuotationToBigDecimal(ru.tinkoff.piapi.contract.v1.Quotation quotation) {
+        if (quotation == null) {
+            return BigDecimal.ZERO;
+        }
+        return new QuotationDto(quotation.getUnits(), quotation.getNano()).toBigDecimal();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.InvestmentDataLoaderService.service;
 
 import com.example.InvestmentDataLoaderService.dto.LastTradeDto;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
 import com.google.protobuf.Timestamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +23,11 @@ public class LastTradeService {
 
     private static final Logger log = LoggerFactory.getLogger(LastTradeService.class);
     private final MarketDataServiceBlockingStub marketDataService;
+    private final ApiRateLimiter apiRateLimiter;
 
-    public LastTradeService(MarketDataServiceBlockingStub marketDataService) {
+    public LastTradeService(MarketDataServiceBlockingStub marketDataService, ApiRateLimiter apiRateLimiter) {
         this.marketDataService = marketDataService;
+        this.apiRateLimiter = apiRateLimiter;
     }
 
     public List<LastTradeDto> getLastTrades(String instrumentId, LocalDate date, String tradeSource) {
@@ -69,12 +73,8 @@ public class LastTradeService {
         log.info("  - From: {}", request.getFrom());
         log.info("  - To: {}", request.getTo());
         
-        // Выполняем запрос с задержкой для соблюдения лимитов API
-        try {
-            Thread.sleep(200); // Увеличена задержка до 200мс для снижения нагрузки
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // Ожидаем квоту MarketDataService
+        apiRateLimiter.acquire(ApiMethodGroup.MARKET_DATA);
 
         try {
             log.info("Calling T-Invest API...");
@@ -90,8 +90,7 @@ public class LastTradeService {
                 Instant tradeTime = Instant.ofEpochSecond(trade.getTime().getSeconds());
                 
                 // Конвертируем цену из Quotation в BigDecimal
-                BigDecimal price = BigDecimal.valueOf(trade.getPrice().getUnits())
-                        .add(BigDecimal.valueOf(trade.getPrice().getNano()).movePointLeft(9));
+                BigDecimal price = FixedPoint.toBigDecimal(trade.getPrice());
                 
                 log.info("Trade #{}:", (i + 1));
                 log.info("  - Direction: {}", trade.getDirection());
@@ -149,12 +148,8 @@ public class LastTradeService {
         log.info("  - To: {}", request.getTo());
         log.info("  - Request toString: {}", request.toString());
 
-        // Выполняем запрос с задержкой для соблюдения лимитов API
-        try {
-            Thread.sleep(200); // Увеличена задержка до 200мс для снижения нагрузки
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // Ожидаем квоту MarketDataService
+        apiRateLimiter.acquire(ApiMethodGroup.MARKET_DATA);
 
         try {
             log.info("Calling T-Invest API...");
@@ -169,8 +164,7 @@ public class LastTradeService {
                 Instant tradeTime = Instant.ofEpochSecond(trade.getTime().getSeconds());
                 
                 // Конвертируем цену из Quotation в BigDecimal
-                BigDecimal price = BigDecimal.valueOf(trade.getPrice().getUnits())
-                        .add(BigDecimal.valueOf(trade.getPrice().getNano()).movePointLeft(9));
+                BigDecimal price = FixedPoint.toBigDecimal(trade.getPrice());
                 
                 log.info("Trade #{}:", (i + 1));      
                 log.info("  - Direction: {}", trade.getDirection());
@@ -7,6 +7,8 @@ import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.entity.LastPriceEntity;
 import com.example.InvestmentDataLoaderService.entity.ShareEntity;
 import com.example.InvestmentDataLoaderService.entity.FutureEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
 import com.example.InvestmentDataLoaderService.repository.LastPriceRepository;
 import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.FutureRepository;
@@ -23,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 @Service
 public class LastTradesService {
@@ -31,29 +34,43 @@ public class LastTradesService {
     private final ShareRepository shareRepository;
     private final FutureRepository futureRepository;
     private final LastPriceRepository lastPriceRepository;
+    private final BulkWriter<LastPriceEntity> lastPriceBulkWriter;
     private final LastTradeService lastTradeService;
     private final CachedInstrumentService cachedInstrumentService;
+    private final ClusterLockService clusterLockService;
+    private final InstrumentRegistry instrumentRegistry;
+    private final PipelineMetrics pipelineMetrics;
 
     public LastTradesService(ShareRepository shareRepository, 
                            FutureRepository futureRepository,
                            LastPriceRepository lastPriceRepository,
+                           BulkWriter<LastPriceEntity> lastPriceBulkWriter,
                            LastTradeService lastTradeService,
-                           CachedInstrumentService cachedInstrumentService) {
+                           CachedInstrumentService cachedInstrumentService,
+                           ClusterLockService clusterLockService,
+                           InstrumentRegistry instrumentRegistry,
+                           PipelineMetrics pipelineMetrics) {
         this.shareRepository = shareRepository;
         this.futureRepository = futureRepository;
         this.lastPriceRepository = lastPriceRepository;
+        this.lastPriceBulkWriter = lastPriceBulkWriter;
         this.lastTradeService = lastTradeService;
         this.cachedInstrumentService = cachedInstrumentService;
+        this.clusterLockService = clusterLockService;
+        this.instrumentRegistry = instrumentRegistry;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
     /**
      * Ежедневная загрузка обезличенных сделок
      * Запускается в 3:00 по московскому времени
+     * В режиме кластера инструменты делятся на партиции FIGI между узлами
      */
     @Scheduled(cron = "0 0 3 * * *", zone = "Europe/Moscow")
     public void fetchAndStoreLastTrades() {
         try {
-            LocalDate previousDay = LocalDate.now(ZoneId.of("Europe/Moscow")).minusDays(1);
+            LocalDate today = LocalDate.now(ZoneId.of("Europe/Moscow"));
+            LocalDate previousDay = today.minusDays(1);
             String taskId = "LAST_TRADES_" + UUID.randomUUID().toString().substring(0, 8);
             
             log.info("=== НАЧАЛО ЗАГРУЗКИ ОБЕЗЛИЧЕННЫХ СДЕЛОК ===");
@@ -62,14 +79,18 @@ public class LastTradesService {
             
             // Торги проводятся в выходные дни, поэтому проверку убираем
             
-            SaveResponseDto response = processLastTrades(previousDay, taskId);
-            
-            log.info("[{}] Загрузка завершена:", taskId);
-            log.info("[{}] - Успех: {}", taskId, response.isSuccess());
-            log.info("[{}] - Сообщение: {}", taskId, response.getMessage());
-            log.info("[{}] - Всего запрошено: {}", taskId, response.getTotalRequested());
-            log.info("[{}] - Сохранено новых: {}", taskId, response.getNewItemsSaved());
-            log.info("[{}] - Пропущено существующих: {}", taskId, response.getExistingItemsSkipped());
+            clusterLockService.runPartitions("last-trades", today, partition -> {
+                String partitionTaskId = clusterLockService.isClusterEnabled() ? taskId + "_P" + partition : taskId;
+                SaveResponseDto response = processLastTrades(previousDay, partitionTaskId,
+                    figi -> clusterLockService.partitionOf(figi) == partition);
+                
+                log.info("[{}] Загрузка завершена:", partitionTaskId);
+                log.info("[{}] - Успех: {}", partitionTaskId, response.isSuccess());
+                log.info("[{}] - Сообщение: {}", partitionTaskId, response.getMessage());
+                log.info("[{}] - Всего запрошено: {}", partitionTaskId, response.getTotalRequested());
+                log.info("[{}] - Сохранено новых: {}", partitionTaskId, response.getNewItemsSaved());
+                log.info("[{}] - Пропущено существующих: {}", partitionTaskId, response.getExistingItemsSkipped());
+            });
             log.info("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ ОБЕЗЛИЧЕННЫХ СДЕЛОК ===");
             
         } catch (Exception e) {
@@ -82,12 +103,26 @@ public class LastTradesService {
      */
     @Transactional(readOnly = true)
     public SaveResponseDto processLastTrades(LocalDate date, String taskId) {
+        return processLastTrades(date, taskId, figi -> true);
+    }
+
+    /**
+     * Обрабатывает обезличенные сделки для указанной даты по части инструментов
+     *
+     * @param figiFilter отбор инструментов (например, партиция FIGI узла кластера)
+     */
+    @Transactional(readOnly = true)
+    public SaveResponseDto processLastTrades(LocalDate date, String taskId, Predicate<String> figiFilter) {
         try {
             log.info("[{}] Начало обработки обезличенных сделок за {}", taskId, date);
             
             // Получаем все акции и фьючерсы из кэша (с fallback на БД)
-            List<ShareEntity> shares = cachedInstrumentService.getAllShares();
-            List<FutureEntity> futures = cachedInstrumentService.getAllFutures();
+            List<ShareEntity> shares = cachedInstrumentService.getAllShares().stream()
+                .filter(share -> figiFilter.test(share.getFigi()))
+                .toList();
+            List<FutureEntity> futures = cachedInstrumentService.getAllFutures().stream()
+                .filter(future -> figiFilter.test(future.getFigi()))
+                .toList();
             log.info("[{}] {}", taskId, cachedInstrumentService.getCacheInfo());
             log.info("[{}] Найдено {} акций и {} фьючерсов для обработки", taskId, shares.size(), futures.size());
             
@@ -105,29 +140,33 @@ public class LastTradesService {
                     
                     List<LastTradesResponseDto> trades = fetchLastTradesForInstrument(share.getFigi(), date, "moex_mrng_evng_e_wknd_dlr", taskId);
                     
+                    List<LastPriceEntity> entitiesToSave = new ArrayList<>();
                     for (LastTradesResponseDto trade : trades) {
                         totalRequested++;
                         
-                        // Проверяем, есть ли уже запись для этого FIGI и времени
-                        if (lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
+                        // Проверяем, есть ли уже запись для этого FIGI и времени (при COPY дубликаты отбрасывает БД)
+                        if (!lastPriceBulkWriter.skipsDuplicates()
+                                && lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
                             existingCount++;
+                            pipelineMetrics.countDedupHits(PipelineJob.TRADES, 1);
                             continue;
                         }
                         
-                        // Сохраняем в БД
-                        LastPriceEntity entity = new LastPriceEntity(
+                        entitiesToSave.add(new LastPriceEntity(
                             trade.getFigi(),
                             trade.getTime(),
                             trade.getPrice(),
                             trade.getCurrency(),
                             trade.getExchange()
-                        );
-                        
-                        saveLastPriceEntity(entity);
+                        ));
                         savedItems.add(trade);
-                        savedCount++;
                     }
                     
+                    // Сохраняем сделки инструмента одним пакетом
+                    int inserted = saveLastPriceBatch(entitiesToSave);
+                    savedCount += inserted;
+                    existingCount += entitiesToSave.size() - inserted;
+                    
                 } catch (Exception e) {
                     log.error("[{}] Ошибка обработки акции {}: {}", taskId, share.getTicker(), e.getMessage(), e);
                 }
@@ -141,29 +180,33 @@ public class LastTradesService {
                     
                     List<LastTradesResponseDto> trades = fetchLastTradesForInstrument(future.getFigi(), date, "FORTS_EVENING", taskId);
                     
+                    List<LastPriceEntity> entitiesToSave = new ArrayList<>();
                     for (LastTradesResponseDto trade : trades) {
                         totalRequested++;
                         
-                        // Проверяем, есть ли уже запись для этого FIGI и времени
-                        if (lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
+                        // Проверяем, есть ли уже запись для этого FIGI и времени (при COPY дубликаты отбрасывает БД)
+                        if (!lastPriceBulkWriter.skipsDuplicates()
+                                && lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
                             existingCount++;
+                            pipelineMetrics.countDedupHits(PipelineJob.TRADES, 1);
                             continue;
                         }
                         
-                        // Сохраняем в БД
-                        LastPriceEntity entity = new LastPriceEntity(
+                        entitiesToSave.add(new LastPriceEntity(
                             trade.getFigi(),
                             trade.getTime(),
                             trade.getPrice(),
                             trade.getCurrency(),
                             trade.getExchange()
-                        );
-                        
-                        saveLastPriceEntity(entity);
+                        ));
                         savedItems.add(trade);
-                        savedCount++;
                     }
                     
+                    // Сохраняем сделки инструмента одним пакетом
+                    int inserted = saveLastPriceBatch(entitiesToSave);
+                    savedCount += inserted;
+                    existingCount += entitiesToSave.size() - inserted;
+                    
                 } catch (Exception e) {
                     log.error("[{}] Ошибка обработки фьючерса {}: {}", taskId, future.getTicker(), e.getMessage(), e);
                 }
@@ -211,54 +254,8 @@ public class LastTradesService {
             // Вызываем T-Invest API для получения обезличенных сделок
             List<LastTradeDto> tradesFromApi = lastTradeService.getLastTrades(figi, date, "TRADE_SOURCE_ALL");
             
-            // Получаем валюту инструмента из кэша (с fallback на БД)
-            String currency = "RUB"; // По умолчанию
-            try {
-                // Сначала пытаемся найти в кэше
-                if (cachedInstrumentService.isInstrumentInCache(figi)) {
-                    List<ShareEntity> shares = cachedInstrumentService.getAllShares();
-                    ShareEntity share = shares.stream()
-                            .filter(s -> s.getFigi().equals(figi))
-                            .findFirst()
-                            .orElse(null);
-                    
-                    if (share != null) {
-                        currency = share.getCurrency();
-                    } else {
-                        List<FutureEntity> futures = cachedInstrumentService.getAllFutures();
-                        FutureEntity future = futures.stream()
-                                .filter(f -> f.getFigi().equals(figi))
-                                .findFirst()
-                                .orElse(null);
-                        if (future != null) {
-                            currency = future.getCurrency();
-                        }
-                    }
-                } else {
-                    // Fallback на БД
-                    ShareEntity share = shareRepository.findById(figi).orElse(null);
-                    if (share != null) {
-                        currency = share.getCurrency();
-                    } else {
-                        FutureEntity future = futureRepository.findById(figi).orElse(null);
-                        if (future != null) {
-                            currency = future.getCurrency();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("[{}] Ошибка получения валюты из кэша, используем БД: {}", taskId, e.getMessage(), e);
-                // Fallback на БД
-                ShareEntity share = shareRepository.findById(figi).orElse(null);
-                if (share != null) {
-                    currency = share.getCurrency();
-                } else {
-                    FutureEntity future = futureRepository.findById(figi).orElse(null);
-                    if (future != null) {
-                        currency = future.getCurrency();
-                    }
-                }
-            }
+            // Валюта инструмента из реестра (с fallback на БД)
+            String currency = resolveCurrency(figi);
             
             // Конвертируем в LastTradesResponseDto
             List<LastTradesResponseDto> trades = new ArrayList<>();
@@ -281,6 +278,16 @@ public class LastTradesService {
         }
     }
 
+    /**
+     * Валюта инструмента: поиск в реестре по FIGI, затем в БД, по умолчанию RUB
+     */
+    private String resolveCurrency(String figi) {
+        return instrumentRegistry.getCurrency(figi)
+            .or(() -> shareRepository.findById(figi).map(ShareEntity::getCurrency))
+            .or(() -> futureRepository.findById(figi).map(FutureEntity::getCurrency))
+            .orElse("RUB");
+    }
+
     private List<LastTradesResponseDto> fetchLastTradesForLastHour(String figi, String exchange, String taskId) {
         try {
             log.info("[{}] Загрузка обезличенных сделок за последний час для {}", taskId, figi);
@@ -288,54 +295,8 @@ public class LastTradesService {
             // Вызываем T-Invest API для получения обезличенных сделок за последний час
             List<LastTradeDto> tradesFromApi = lastTradeService.getLastTradesForLastHour(figi, "TRADE_SOURCE_ALL");
             
-            // Получаем валюту инструмента из кэша (с fallback на БД)
-            String currency = "RUB"; // По умолчанию
-            try {
-                // Сначала пытаемся найти в кэше
-                if (cachedInstrumentService.isInstrumentInCache(figi)) {
-                    List<ShareEntity> shares = cachedInstrumentService.getAllShares();
-                    ShareEntity share = shares.stream()
-                            .filter(s -> s.getFigi().equals(figi))
-                            .findFirst()
-                            .orElse(null);
-                    
-                    if (share != null) {
-                        currency = share.getCurrency();
-                    } else {
-                        List<FutureEntity> futures = cachedInstrumentService.getAllFutures();
-                        FutureEntity future = futures.stream()
-                                .filter(f -> f.getFigi().equals(figi))
-                                .findFirst()
-                                .orElse(null);
-                        if (future != null) {
-                            currency = future.getCurrency();
-                        }
-                    }
-                } else {
-                    // Fallback на БД
-                    ShareEntity share = shareRepository.findById(figi).orElse(null);
-                    if (share != null) {
-                        currency = share.getCurrency();
-                    } else {
-                        FutureEntity future = futureRepository.findById(figi).orElse(null);
-                        if (future != null) {
-                            currency = future.getCurrency();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("[{}] Ошибка получения валюты из кэша, используем БД: {}", taskId, e.getMessage(), e);
-                // Fallback на БД
-                ShareEntity share = shareRepository.findById(figi).orElse(null);
-                if (share != null) {
-                    currency = share.getCurrency();
-                } else {
-                    FutureEntity future = futureRepository.findById(figi).orElse(null);
-                    if (future != null) {
-                        currency = future.getCurrency();
-                    }
-                }
-            }
+            // Валюта инструмента из реестра (с fallback на БД)
+            String currency = resolveCurrency(figi);
             
             // Конвертируем в LastTradesResponseDto
             List<LastTradesResponseDto> trades = new ArrayList<>();
@@ -391,29 +352,33 @@ public class LastTradesService {
             
             List<LastTradesResponseDto> trades = fetchLastTradesForInstrument(figi, date, exchange, taskId);
             
+            List<LastPriceEntity> entitiesToSave = new ArrayList<>();
             for (LastTradesResponseDto trade : trades) {
                 totalRequested++;
                 
-                // Проверяем, есть ли уже запись для этого FIGI и времени
-                if (lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
+                // Проверяем, есть ли уже запись для этого FIGI и времени (при COPY дубликаты отбрасывает БД)
+                if (!lastPriceBulkWriter.skipsDuplicates()
+                        && lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
                     existingCount++;
+                    pipelineMetrics.countDedupHits(PipelineJob.TRADES, 1);
                     continue;
                 }
                 
-                // Сохраняем в БД
-                LastPriceEntity entity = new LastPriceEntity(
+                entitiesToSave.add(new LastPriceEntity(
                     trade.getFigi(),
                     trade.getTime(),
                     trade.getPrice(),
                     trade.getCurrency(),
                     trade.getExchange()
-                );
-                
-                            saveLastPriceEntity(entity);
+                ));
                 savedItems.add(trade);
-                savedCount++;
             }
             
+            // Сохраняем сделки инструмента одним пакетом
+            int inserted = saveLastPriceBatch(entitiesToSave);
+            savedCount += inserted;
+            existingCount += entitiesToSave.size() - inserted;
+            
             log.info("[{}] Обработка завершена:", taskId);
             log.info("[{}] - Запрошено сделок: {}", taskId, totalRequested);
             log.info("[{}] - Сохранено новых: {}", taskId, savedCount);
@@ -541,29 +506,33 @@ public class LastTradesService {
                     // Получаем сделки за последний час
                     List<LastTradesResponseDto> trades = fetchLastTradesForLastHour(figi, exchange, taskId);
                         
+                        List<LastPriceEntity> entitiesToSave = new ArrayList<>();
                         for (LastTradesResponseDto trade : trades) {
                             totalRequested++;
                             
-                            // Проверяем, есть ли уже запись для этого FIGI и времени
-                            if (lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
+                            // Проверяем, есть ли уже запись для этого FIGI и времени (при COPY дубликаты отбрасывает БД)
+                            if (!lastPriceBulkWriter.skipsDuplicates()
+                                    && lastPriceRepository.existsById(new com.example.InvestmentDataLoaderService.entity.LastPriceKey(trade.getFigi(), trade.getTime()))) {
                                 existingCount++;
+                                pipelineMetrics.countDedupHits(PipelineJob.TRADES, 1);
                                 continue;
                             }
                             
-                            // Сохраняем в БД
-                            LastPriceEntity entity = new LastPriceEntity(
+                            entitiesToSave.add(new LastPriceEntity(
                                 trade.getFigi(),
                                 trade.getTime(),
                                 trade.getPrice(),
                                 trade.getCurrency(),
                                 trade.getExchange()
-                            );
-                            
-                            saveLastPriceEntity(entity);
+                            ));
                             savedItems.add(trade);
-                            savedCount++;
                         }
                         
+                        // Сохраняем сделки инструмента одним пакетом
+                        int inserted = saveLastPriceBatch(entitiesToSave);
+                        savedCount += inserted;
+                        existingCount += entitiesToSave.size() - inserted;
+                        
                 } catch (Exception e) {
                     log.error("[{}] Ошибка обработки инструмента {}: {}", taskId, figi, e.getMessage(), e);
                 }
@@ -619,11 +588,14 @@ public class LastTradesService {
     }
 
     /**
-     * Транзакционное сохранение LastPriceEntity
+     * Транзакционное пакетное сохранение LastPriceEntity
+     * Способ записи (JPA или COPY) задается параметром bulk-writer.last-prices
+     *
+     * @return количество фактически вставленных записей
      */
     @Transactional
-    public void saveLastPriceEntity(LastPriceEntity entity) {
-        lastPriceRepository.save(entity);
+    public int saveLastPriceBatch(List<LastPriceEntity> entities) {
+        return lastPriceBulkWriter.write(entities);
     }
 
     /**
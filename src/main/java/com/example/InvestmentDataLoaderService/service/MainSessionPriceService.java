@@ -1,37 +1,38 @@
 package com.example.InvestmentDataLoaderService.service;
 
 import com.example.InvestmentDataLoaderService.dto.*;
-import com.example.InvestmentDataLoaderService.entity.ClosePriceEntity;
-import com.example.InvestmentDataLoaderService.entity.ClosePriceKey;
 import com.example.InvestmentDataLoaderService.entity.FutureEntity;
 import com.example.InvestmentDataLoaderService.entity.ShareEntity;
 import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
-import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
-import com.example.InvestmentDataLoaderService.repository.ClosePriceRepository;
-import com.example.InvestmentDataLoaderService.repository.FutureRepository;
-import com.example.InvestmentDataLoaderService.repository.ShareRepository;
-import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
 import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
 import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import ru.tinkoff.piapi.contract.v1.*;
-import org.springframework.dao.DataIntegrityViolationException;
 import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc.MarketDataServiceBlockingStub;
 
 import java.math.BigDecimal;
+import java.sql.Date;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import com.example.InvestmentDataLoaderService.config.RateLimitConfig.BatchProcessingProperties;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,38 +40,40 @@ import java.util.concurrent.Executors;
 public class MainSessionPriceService {
 
     private static final Logger log = LoggerFactory.getLogger(MainSessionPriceService.class);
+
+    private static final String INSERT_CLOSE_PRICES_SQL =
+        "INSERT INTO invest.close_prices (price_date, figi, instrument_type, close_price, currency, exchange) VALUES %s " +
+        "ON CONFLICT (figi, price_date) DO NOTHING RETURNING figi, price_date";
+
     private final MarketDataServiceBlockingStub marketDataService;
-    private final ShareRepository shareRepo;
-    private final FutureRepository futureRepo;
-    private final ClosePriceRepository closePriceRepo;
-    private final IndicativeRepository indicativeRepo;
     private final MinuteCandleRepository minuteCandleRepo;
     private final SystemLogRepository systemLogRepository;
     private final RateLimitService rateLimitService;
     private final RetryService retryService;
     private final ExecutorService executorService;
     private final BatchProcessingProperties batchProcessingProperties;
+    private final InstrumentRegistry instrumentRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final PipelineMetrics pipelineMetrics;
 
     public MainSessionPriceService(MarketDataServiceBlockingStub marketDataService,
-                            ShareRepository shareRepo,
-                            FutureRepository futureRepo,
-                            ClosePriceRepository closePriceRepo,
-                            IndicativeRepository indicativeRepo,
                             MinuteCandleRepository minuteCandleRepo,
                             SystemLogRepository systemLogRepository,
                             RateLimitService rateLimitService,
                             RetryService retryService,
-                            BatchProcessingProperties batchProcessingProperties) {
+                            BatchProcessingProperties batchProcessingProperties,
+                            InstrumentRegistry instrumentRegistry,
+                            JdbcTemplate jdbcTemplate,
+                            PipelineMetrics pipelineMetrics) {
         this.marketDataService = marketDataService;
-        this.shareRepo = shareRepo;
-        this.futureRepo = futureRepo;
-        this.closePriceRepo = closePriceRepo;
-        this.indicativeRepo = indicativeRepo;
         this.minuteCandleRepo = minuteCandleRepo;
         this.systemLogRepository = systemLogRepository;
         this.rateLimitService = rateLimitService;
         this.retryService = retryService;
         this.batchProcessingProperties = batchProcessingProperties;
+        this.instrumentRegistry = instrumentRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pipelineMetrics = pipelineMetrics;
         this.executorService = Executors.newFixedThreadPool(10); // Ограничиваем количество потоков
     }
 
@@ -78,15 +81,7 @@ public class MainSessionPriceService {
      * Получение цен закрытия для всех акций из БД через T-INVEST API
      */
     public List<ClosePriceDto> getClosePricesForAllShares() {
-        List<String> shareFigis = new ArrayList<>();
-        
-        // Получаем только акции в рублях из таблицы shares
-        List<ShareEntity> shares = shareRepo.findAll();
-        for (ShareEntity share : shares) {
-            if ("RUB".equalsIgnoreCase(share.getCurrency())) {
-                shareFigis.add(share.getFigi());
-            }
-        }
+        List<String> shareFigis = rubShareFigis();
         
         if (shareFigis.isEmpty()) {
             return new ArrayList<>();
@@ -100,15 +95,7 @@ public class MainSessionPriceService {
      * Получение цен закрытия для всех фьючерсов из БД через T-INVEST API
      */
     public List<ClosePriceDto> getClosePricesForAllFutures() {
-        List<String> futureFigis = new ArrayList<>();
-        
-        // Получаем только фьючерсы в рублях из таблицы futures
-        List<FutureEntity> futures = futureRepo.findAll();
-        for (FutureEntity future : futures) {
-            if ("RUB".equalsIgnoreCase(future.getCurrency())) {
-                futureFigis.add(future.getFigi());
-            }
-        }
+        List<String> futureFigis = rubFutureFigis();
         
         if (futureFigis.isEmpty()) {
             return new ArrayList<>();
@@ -141,29 +128,6 @@ public class MainSessionPriceService {
         return validPrices;
     }
 
-    /**
-     * Фильтрация валидных цен закрытия с детальной статистикой
-     */
-    private List<ClosePriceDto> filterValidPricesWithStats(List<ClosePriceDto> prices) {
-        List<ClosePriceDto> validPrices = new ArrayList<>();
-        int invalidPricesCount = 0;
-        
-        for (ClosePriceDto price : prices) {
-            if ("1970-01-01".equals(price.tradingDate())) {
-                invalidPricesCount++;
-                log.debug("Фильтруем неверную цену с датой 1970-01-01 для FIGI: {}", price.figi());
-            } else {
-                validPrices.add(price);
-            }
-        }
-        
-        if (invalidPricesCount > 0) {
-            log.warn("Отфильтровано {} неверных цен с датой 1970-01-01", invalidPricesCount);
-        }
-        
-        return validPrices;
-    }
-
     public List<ClosePriceDto> getClosePrices(List<String> instrumentIds, String status) {
         log.info("=== ЗАПРОС ЦЕН ЗАКРЫТИЯ ===");
         log.info("Количество инструментов: {}", (instrumentIds != null ? instrumentIds.size() : 0));
@@ -223,15 +187,13 @@ public class MainSessionPriceService {
                     .toLocalDate()
                     .toString();
             Quotation qp = p.getPrice();
-            BigDecimal price = BigDecimal.valueOf(qp.getUnits())
-                    .add(BigDecimal.valueOf(qp.getNano()).movePointLeft(9));
+            BigDecimal price = FixedPoint.toBigDecimal(qp);
             
             // Обрабатываем eveningSessionPrice если оно есть
             BigDecimal eveningSessionPrice = null;
             if (p.hasEveningSessionPrice()) {
                 Quotation esp = p.getEveningSessionPrice();
-                eveningSessionPrice = BigDecimal.valueOf(esp.getUnits())
-                        .add(BigDecimal.valueOf(esp.getNano()).movePointLeft(9));
+                eveningSessionPrice = FixedPoint.toBigDecimal(esp);
             }
             
             list.add(new ClosePriceDto(p.getFigi(), date, price, eveningSessionPrice));
@@ -244,27 +206,9 @@ public class MainSessionPriceService {
     public SaveResponseDto saveClosePrices(ClosePriceRequestDto request) {
         List<String> instrumentIds = request.getInstruments();
         
-        // Если инструменты не указаны, получаем только RUB инструменты (shares, futures) из БД
+        // Если инструменты не указаны, загружаем только RUB инструменты (shares, futures)
         if (instrumentIds == null || instrumentIds.isEmpty()) {
-            List<String> allInstrumentIds = new ArrayList<>();
-            
-            // Получаем только акции в рублях из таблицы shares
-            List<ShareEntity> shares = shareRepo.findAll();
-            for (ShareEntity share : shares) {
-                if ("RUB".equalsIgnoreCase(share.getCurrency())) {
-                    allInstrumentIds.add(share.getFigi());
-                }
-            }
-            
-            // Получаем только фьючерсы в рублях из таблицы futures
-            List<FutureEntity> futures = futureRepo.findAll();
-            for (FutureEntity future : futures) {
-                if ("RUB".equalsIgnoreCase(future.getCurrency())) {
-                    allInstrumentIds.add(future.getFigi());
-                }
-            }
-            
-            instrumentIds = allInstrumentIds;
+            instrumentIds = Stream.concat(rubShareFigis().stream(), rubFutureFigis().stream()).toList();
         }
         
         // Если после получения из БД список все еще пуст, возвращаем пустой результат
@@ -276,181 +220,33 @@ public class MainSessionPriceService {
             );
         }
 
-        // Получаем цены закрытия из API по частям (только shares+futures)
-        List<ClosePriceDto> closePricesFromApi = new ArrayList<>();
         int requestedInstrumentsCount = instrumentIds.size();
-        
-        try {
-            // Если в запросе передан явный список инструментов — загружаем только по ним
-            int batchSize = 100;
-            if (request.getInstruments() != null && !request.getInstruments().isEmpty()) {
-                log.info("Запрашиваем цены закрытия точечно для {} инструментов батчами по {}", instrumentIds.size(), batchSize);
-                for (int i = 0; i < instrumentIds.size(); i += batchSize) {
-                    int toIndex = Math.min(i + batchSize, instrumentIds.size());
-                    List<String> batch = instrumentIds.subList(i, toIndex);
-                    List<ClosePriceDto> prices = getClosePrices(batch, null);
-                    closePricesFromApi.addAll(prices);
-                    log.info("Получено цен для батча точечных инструментов ({}): {}", batch.size(), prices.size());
-                    try { Thread.sleep(200); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                }
-            } else {
-                // Сначала получаем цены для shares и futures
-                List<String> sharesAndFuturesIds = new ArrayList<>();
-                List<ShareEntity> shares = shareRepo.findAll();
-                for (ShareEntity share : shares) {
-                    if ("RUB".equalsIgnoreCase(share.getCurrency())) {
-                        sharesAndFuturesIds.add(share.getFigi());
-                    }
-                }
-                List<FutureEntity> futures = futureRepo.findAll();
-                for (FutureEntity future : futures) {
-                    if ("RUB".equalsIgnoreCase(future.getCurrency())) {
-                        sharesAndFuturesIds.add(future.getFigi());
-                    }
-                }
-
-                // Батчим запросы по 100 инструментов, чтобы избежать лимитов API
-                if (!sharesAndFuturesIds.isEmpty()) {
-                    log.info("Запрашиваем цены закрытия для {} shares и futures батчами по {}", sharesAndFuturesIds.size(), batchSize);
-                    for (int i = 0; i < sharesAndFuturesIds.size(); i += batchSize) {
-                        int toIndex = Math.min(i + batchSize, sharesAndFuturesIds.size());
-                        List<String> batch = sharesAndFuturesIds.subList(i, toIndex);
-                        List<ClosePriceDto> sharesFuturesPrices = getClosePrices(batch, null);
-                        closePricesFromApi.addAll(sharesFuturesPrices);
-                        log.info("Получено цен для батча shares/futures ({}): {}", batch.size(), sharesFuturesPrices.size());
-                        try { Thread.sleep(200); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-                    }
-                }
-            }
-
-        } catch (Exception e) {
-            log.error("Ошибка при получении цен закрытия из API. Количество инструментов в запросе: {}", instrumentIds.size(), e);
-            
-            return new SaveResponseDto(
-                false,
-                "Ошибка при получении цен закрытия из API: " + e.getMessage() + 
-                ". Количество инструментов: " + instrumentIds.size(),
-                0, 0, 0, 0, 0, new ArrayList<>()
-            );
-        }
-        
-        // Фильтруем неверные цены и получаем статистику
-        List<ClosePriceDto> closePrices = filterValidPricesWithStats(closePricesFromApi);
-        int invalidPricesFiltered = closePricesFromApi.size() - closePrices.size();
-        
-        List<ClosePriceDto> savedPrices = new ArrayList<>();
-        int existingCount = 0;
-        int failedSavesCount = 0;
-        
         log.info("=== НАЧАЛО ОБРАБОТКИ ЦЕН ЗАКРЫТИЯ ===");
-        log.info("Всего получено цен из API: {}", closePricesFromApi.size());
-        log.info("Отфильтровано неверных цен (1970-01-01): {}", invalidPricesFiltered);
-        log.info("Валидных цен для обработки: {}", closePrices.size());
-        log.info("Запрашивалось инструментов: {}", requestedInstrumentsCount);
+        log.info("Запрашиваем цены закрытия для {} инструментов батчами по {}", requestedInstrumentsCount, batchProcessingProperties.getBatchSize());
         
-        for (ClosePriceDto closePriceDto : closePrices) {
-            LocalDate priceDate = LocalDate.parse(closePriceDto.tradingDate());
-            ClosePriceKey key = new ClosePriceKey(priceDate, closePriceDto.figi());
-            
-            log.debug("Обрабатываем: {} на дату: {} цена: {}", closePriceDto.figi(), priceDate, closePriceDto.closePrice());
-
-            // Определяем тип инструмента и получаем дополнительную информацию
-            String instrumentType = "UNKNOWN";
-            String currency = "UNKNOWN";
-            String exchange = "UNKNOWN";
-
-            // Проверяем в таблице shares
-            ShareEntity share = shareRepo.findById(closePriceDto.figi()).orElse(null);
-            if (share != null) {
-                instrumentType = "SHARE";
-                currency = share.getCurrency();
-                exchange = share.getExchange();
-            } else {
-                // Проверяем в таблице futures
-                FutureEntity future = futureRepo.findById(closePriceDto.figi()).orElse(null);
-                if (future != null) {
-                    instrumentType = "FUTURE";
-                    currency = future.getCurrency();
-                    exchange = future.getExchange();
-                } else {
-                    // Проверяем в таблице indicatives
-                    IndicativeEntity indicative = indicativeRepo.findById(closePriceDto.figi()).orElse(null);
-                    if (indicative != null) {
-                        instrumentType = "INDICATIVE";
-                        currency = indicative.getCurrency();
-                        exchange = indicative.getExchange();
-                    }
-                }
-            }
-
-            // Если запись уже существует в основной таблице — считаем как существующую и не пытаемся сохранять
-            try {
-                boolean existsInMain = closePriceRepo.existsById(key);
-                
-                if (existsInMain) {
-                    existingCount++;
-                    continue;
-                }
-            } catch (Exception e) {
-                log.error("existsById check failed for key ({}, {})", priceDate, closePriceDto.figi(), e);
-            }
-
-            // Создаем и сохраняем новую запись в invest.close_prices
-            ClosePriceEntity closePriceEntity = new ClosePriceEntity(
-                priceDate,
-                closePriceDto.figi(),
-                instrumentType,
-                closePriceDto.closePrice(),
-                currency,
-                exchange
-            );
-
-            try {
-                closePriceRepo.save(closePriceEntity);
-                savedPrices.add(closePriceDto);
-                log.info("Successfully saved to close_prices: {} on {}", closePriceDto.figi(), priceDate);
-            } catch (DataIntegrityViolationException dive) {
-                log.error("DataIntegrityViolation saving to close_prices for {} on {}", closePriceDto.figi(), priceDate, dive);
-                failedSavesCount++;
-            } catch (Exception e) {
-                log.error("Error saving to close_prices for {} on {}", closePriceDto.figi(), priceDate, e);
-                failedSavesCount++;
-            }
-        }
+        LoadResult result = loadClosePrices(instrumentIds, "close_prices");
+        List<ClosePriceDto> savedPrices = result.inserted().stream().map(ClosePriceRow::source).toList();
         
         log.info("=== ЗАВЕРШЕНИЕ ОБРАБОТКИ ЦЕН ЗАКРЫТИЯ ===");
         log.info("Запрошено инструментов: {}", requestedInstrumentsCount);
-        log.info("Получено цен из API: {}", closePricesFromApi.size());
-        log.info("Отфильтровано неверных цен: {}", invalidPricesFiltered);
-        log.info("Валидных цен для обработки: {}", closePrices.size());
+        log.info("Получено цен из API: {}", result.received());
+        log.info("Отфильтровано неверных цен: {}", result.invalid());
         log.info("Сохранено успешно: {}", savedPrices.size());
-        log.info("Уже существовало: {}", existingCount);
-        log.info("Ошибок сохранения: {}", failedSavesCount);
+        log.info("Уже существовало: {}", result.existing());
+        log.info("Ошибок загрузки и сохранения: {}", result.failed());
         
         // Подсчитываем "потерянные" цены
-        int missingPrices = requestedInstrumentsCount - closePricesFromApi.size();
-        int processedPrices = closePrices.size();
-        int unprocessedPrices = closePricesFromApi.size() - processedPrices;
-        
-        log.info("=== ДЕТАЛЬНАЯ СТАТИСТИКА ===");
-        log.info("Цены не получены из API: {}", missingPrices);
-        log.info("Цены отфильтрованы как неверные: {}", invalidPricesFiltered);
-        log.info("Цены обработаны: {}", processedPrices);
-        log.info("Цены не обработаны: {}", unprocessedPrices);
-        log.info("Проверка: {} = {} + {}", requestedInstrumentsCount, closePricesFromApi.size(), missingPrices);
-        
-        // Подсчитываем полученные цены и сохраненные
-        int receivedPricesCount = closePricesFromApi.size();
-        // Формируем ответ
+        int missingPrices = Math.max(0, requestedInstrumentsCount - result.received());
+        int receivedPricesCount = result.received();
         boolean success = receivedPricesCount > 0;
         String message;
         
         if (savedPrices.isEmpty()) {
-            if (closePricesFromApi.isEmpty()) {
+            if (receivedPricesCount == 0) {
                 message = "Новых цен закрытия не обнаружено. По заданным инструментам цены не найдены.";
             } else {
-                message = failedSavesCount > 0
-                    ? String.format("Новых цен закрытия не обнаружено. Ошибок сохранения: %d. Проверьте наличие инструментов и ограничения БД.", failedSavesCount)
+                message = result.failed() > 0
+                    ? String.format("Новых цен закрытия не обнаружено. Ошибок сохранения: %d. Проверьте наличие инструментов и ограничения БД.", result.failed())
                     : "Новых цен закрытия не обнаружено. Все найденные цены уже существуют в базе данных.";
             }
         } else {
@@ -459,7 +255,7 @@ public class MainSessionPriceService {
                 requestedInstrumentsCount,
                 receivedPricesCount,
                 savedPrices.size(),
-                existingCount
+                result.existing()
             );
         }
         
@@ -468,8 +264,8 @@ public class MainSessionPriceService {
             message,
             requestedInstrumentsCount,
             savedPrices.size(),
-            existingCount,
-            invalidPricesFiltered,
+            result.existing(),
+            result.invalid(),
             missingPrices,
             savedPrices
         );
@@ -480,7 +276,7 @@ public class MainSessionPriceService {
     /**
      * Асинхронное сохранение цен закрытия для акций и фьючерсов
      * 
-     * <p>Выполняет параллельную обработку акций и фьючерсов с логированием результатов.</p>
+     * <p>Выполняет конвейерную загрузку цен акций и фьючерсов с логированием результатов.</p>
      * 
      * @param taskId уникальный идентификатор задачи
      * @return CompletableFuture с результатом операции
@@ -490,109 +286,8 @@ public class MainSessionPriceService {
             try {
                 log.info("[{}] Начало асинхронного сохранения цен закрытия с пакетной обработкой", taskId);
                 
-                // Получаем все акции и фьючерсы (блокирующий запрос остается)
-                List<ShareEntity> shares = shareRepo.findAll();
-                List<FutureEntity> futures = futureRepo.findAll();
-                
-                log.info("[{}] Найдено акций: {}, фьючерсов: {}", taskId, shares.size(), futures.size());
-                
-                // Фильтруем только RUB инструменты
-                List<ShareEntity> rubShares = shares.stream()
-                    .filter(share -> "RUB".equalsIgnoreCase(share.getCurrency()))
-                    .collect(Collectors.toList());
-                
-                List<FutureEntity> rubFutures = futures.stream()
-                    .filter(future -> "RUB".equalsIgnoreCase(future.getCurrency()))
-                    .collect(Collectors.toList());
-                
-                log.info("[{}] RUB акций: {}, RUB фьючерсов: {}", taskId, rubShares.size(), rubFutures.size());
-                
-                // Разбиваем на пакеты
-                int batchSize = batchProcessingProperties.getBatchSize();
-                List<List<ShareEntity>> shareBatches = createBatches(rubShares, batchSize);
-                List<List<FutureEntity>> futureBatches = createBatches(rubFutures, batchSize);
-                
-                log.info("[{}] Создано пакетов акций: {}, пакетов фьючерсов: {}", taskId, shareBatches.size(), futureBatches.size());
-                
-                // Обрабатываем пакеты акций
-                List<CompletableFuture<List<ClosePriceProcessingResult>>> shareBatchFutures = new ArrayList<>();
-                for (int i = 0; i < shareBatches.size(); i++) {
-                    final int batchIndex = i;
-                    CompletableFuture<List<ClosePriceProcessingResult>> batchFuture = processShareBatchAsync(shareBatches.get(i), taskId + "_shares_batch_" + batchIndex);
-                    shareBatchFutures.add(batchFuture);
-                    
-                    // Добавляем задержку между пакетами
-                    if (i < shareBatches.size() - 1) {
-                        try {
-                            Thread.sleep(batchProcessingProperties.getBatchDelayMs());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-                
-                // Обрабатываем пакеты фьючерсов
-                List<CompletableFuture<List<ClosePriceProcessingResult>>> futureBatchFutures = new ArrayList<>();
-                for (int i = 0; i < futureBatches.size(); i++) {
-                    final int batchIndex = i;
-                    CompletableFuture<List<ClosePriceProcessingResult>> batchFuture = processFutureBatchAsync(futureBatches.get(i), taskId + "_futures_batch_" + batchIndex);
-                    futureBatchFutures.add(batchFuture);
-                    
-                    // Добавляем задержку между пакетами
-                    if (i < futureBatches.size() - 1) {
-                        try {
-                            Thread.sleep(batchProcessingProperties.getBatchDelayMs());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-                
-                // Объединяем все futures
-                List<CompletableFuture<List<ClosePriceProcessingResult>>> allBatchFutures = new ArrayList<>();
-                allBatchFutures.addAll(shareBatchFutures);
-                allBatchFutures.addAll(futureBatchFutures);
-                
-                // Ждем завершения всех пакетов
-                CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                    allBatchFutures.toArray(new CompletableFuture[0])
-                );
-                
-                // Получаем результаты
-                allCompleted.get();
-                
-                // Собираем все результаты
-                List<ClosePriceProcessingResult> results = new ArrayList<>();
-                for (CompletableFuture<List<ClosePriceProcessingResult>> batchFuture : allBatchFutures) {
-                    results.addAll(batchFuture.join());
-                }
-                
-                // Агрегируем статистику
-                int totalRequested = results.size();
-                int newItemsSaved = (int) results.stream().filter(ClosePriceProcessingResult::isSaved).count();
-                int existingItemsSkipped = (int) results.stream().filter(ClosePriceProcessingResult::isExisting).count();
-                int errorCount = (int) results.stream().filter(ClosePriceProcessingResult::hasError).count();
-                
-                List<Map<String, Object>> savedItems = results.stream()
-                    .filter(ClosePriceProcessingResult::isSaved)
-                    .map(ClosePriceProcessingResult::getSavedItem)
-                    .collect(Collectors.toList());
-                
-                String message = String.format("Пакетная обработка завершена. Загружено %d новых цен закрытия из %d найденных. Ошибок: %d", 
-                    newItemsSaved, totalRequested, errorCount);
-                
-                SaveResponseDto result = new SaveResponseDto(
-                    true,
-                    message,
-                    totalRequested,
-                    newItemsSaved,
-                    existingItemsSkipped,
-                    errorCount,
-                    0, // missingFromApi
-                    savedItems
-                );
+                List<String> figis = Stream.concat(rubShareFigis().stream(), rubFutureFigis().stream()).toList();
+                SaveResponseDto result = saveClosePricesForInstruments(figis, taskId, "Пакетная обработка завершена");
                 
                 log.info("[{}] Пакетная обработка завершена", taskId);
                 log.info("[{}] Результат: {}", taskId, result.getMessage());
@@ -645,80 +340,7 @@ public class MainSessionPriceService {
             try {
                 log.info("[{}] Начало асинхронного сохранения цен закрытия для акций с пакетной обработкой", taskId);
                 
-                // Получаем все акции (блокирующий запрос остается)
-                List<ShareEntity> shares = shareRepo.findAll();
-                
-                log.info("[{}] Найдено акций: {}", taskId, shares.size());
-                
-                // Фильтруем только RUB инструменты
-                List<ShareEntity> rubShares = shares.stream()
-                    .filter(share -> "RUB".equalsIgnoreCase(share.getCurrency()))
-                    .collect(Collectors.toList());
-                
-                log.info("[{}] RUB акций: {}", taskId, rubShares.size());
-                
-                // Разбиваем на пакеты
-                int batchSize = batchProcessingProperties.getBatchSize();
-                List<List<ShareEntity>> shareBatches = createBatches(rubShares, batchSize);
-                
-                log.info("[{}] Создано пакетов акций: {}", taskId, shareBatches.size());
-                
-                // Обрабатываем пакеты акций
-                List<CompletableFuture<List<ClosePriceProcessingResult>>> shareBatchFutures = new ArrayList<>();
-                for (int i = 0; i < shareBatches.size(); i++) {
-                    final int batchIndex = i;
-                    CompletableFuture<List<ClosePriceProcessingResult>> batchFuture = processShareBatchAsync(shareBatches.get(i), taskId + "_shares_batch_" + batchIndex);
-                    shareBatchFutures.add(batchFuture);
-                    
-                    // Добавляем задержку между пакетами
-                    if (i < shareBatches.size() - 1) {
-                        try {
-                            Thread.sleep(batchProcessingProperties.getBatchDelayMs());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-                
-                // Ждем завершения всех пакетов
-                CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                    shareBatchFutures.toArray(new CompletableFuture[0])
-                );
-                
-                // Получаем результаты
-                allCompleted.get();
-                
-                // Собираем все результаты
-                List<ClosePriceProcessingResult> results = new ArrayList<>();
-                for (CompletableFuture<List<ClosePriceProcessingResult>> batchFuture : shareBatchFutures) {
-                    results.addAll(batchFuture.join());
-                }
-                
-                // Агрегируем статистику
-                int totalRequested = results.size();
-                int newItemsSaved = (int) results.stream().filter(ClosePriceProcessingResult::isSaved).count();
-                int existingItemsSkipped = (int) results.stream().filter(ClosePriceProcessingResult::isExisting).count();
-                int errorCount = (int) results.stream().filter(ClosePriceProcessingResult::hasError).count();
-                
-                List<Map<String, Object>> savedItems = results.stream()
-                    .filter(ClosePriceProcessingResult::isSaved)
-                    .map(ClosePriceProcessingResult::getSavedItem)
-                    .collect(Collectors.toList());
-                
-                String message = String.format("Пакетная обработка акций завершена. Загружено %d новых цен закрытия из %d найденных. Ошибок: %d", 
-                    newItemsSaved, totalRequested, errorCount);
-                
-                SaveResponseDto result = new SaveResponseDto(
-                    true,
-                    message,
-                    totalRequested,
-                    newItemsSaved,
-                    existingItemsSkipped,
-                    errorCount,
-                    0, // missingFromApi
-                    savedItems
-                );
+                SaveResponseDto result = saveClosePricesForInstruments(rubShareFigis(), taskId, "Пакетная обработка акций завершена");
                 
                 log.info("[{}] Асинхронное сохранение цен закрытия для акций завершено", taskId);
                 log.info("[{}] Результат: {}", taskId, result.getMessage());
@@ -740,80 +362,7 @@ public class MainSessionPriceService {
             try {
                 log.info("[{}] Начало асинхронного сохранения цен закрытия для фьючерсов с пакетной обработкой", taskId);
                 
-                // Получаем все фьючерсы (блокирующий запрос остается)
-                List<FutureEntity> futures = futureRepo.findAll();
-                
-                log.info("[{}] Найдено фьючерсов: {}", taskId, futures.size());
-                
-                // Фильтруем только RUB инструменты
-                List<FutureEntity> rubFutures = futures.stream()
-                    .filter(future -> "RUB".equalsIgnoreCase(future.getCurrency()))
-                    .collect(Collectors.toList());
-                
-                log.info("[{}] RUB фьючерсов: {}", taskId, rubFutures.size());
-                
-                // Разбиваем на пакеты
-                int batchSize = batchProcessingProperties.getBatchSize();
-                List<List<FutureEntity>> futureBatches = createBatches(rubFutures, batchSize);
-                
-                log.info("[{}] Создано пакетов фьючерсов: {}", taskId, futureBatches.size());
-                
-                // Обрабатываем пакеты фьючерсов
-                List<CompletableFuture<List<ClosePriceProcessingResult>>> futureBatchFutures = new ArrayList<>();
-                for (int i = 0; i < futureBatches.size(); i++) {
-                    final int batchIndex = i;
-                    CompletableFuture<List<ClosePriceProcessingResult>> batchFuture = processFutureBatchAsync(futureBatches.get(i), taskId + "_futures_batch_" + batchIndex);
-                    futureBatchFutures.add(batchFuture);
-                    
-                    // Добавляем задержку между пакетами
-                    if (i < futureBatches.size() - 1) {
-                        try {
-                            Thread.sleep(batchProcessingProperties.getBatchDelayMs());
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    }
-                }
-                
-                // Ждем завершения всех пакетов
-                CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                    futureBatchFutures.toArray(new CompletableFuture[0])
-                );
-                
-                // Получаем результаты
-                allCompleted.get();
-                
-                // Собираем все результаты
-                List<ClosePriceProcessingResult> results = new ArrayList<>();
-                for (CompletableFuture<List<ClosePriceProcessingResult>> batchFuture : futureBatchFutures) {
-                    results.addAll(batchFuture.join());
-                }
-                
-                // Агрегируем статистику
-                int totalRequested = results.size();
-                int newItemsSaved = (int) results.stream().filter(ClosePriceProcessingResult::isSaved).count();
-                int existingItemsSkipped = (int) results.stream().filter(ClosePriceProcessingResult::isExisting).count();
-                int errorCount = (int) results.stream().filter(ClosePriceProcessingResult::hasError).count();
-                
-                List<Map<String, Object>> savedItems = results.stream()
-                    .filter(ClosePriceProcessingResult::isSaved)
-                    .map(ClosePriceProcessingResult::getSavedItem)
-                    .collect(Collectors.toList());
-                
-                String message = String.format("Пакетная обработка фьючерсов завершена. Загружено %d новых цен закрытия из %d найденных. Ошибок: %d", 
-                    newItemsSaved, totalRequested, errorCount);
-                
-                SaveResponseDto result = new SaveResponseDto(
-                    true,
-                    message,
-                    totalRequested,
-                    newItemsSaved,
-                    existingItemsSkipped,
-                    errorCount,
-                    0, // missingFromApi
-                    savedItems
-                );
+                SaveResponseDto result = saveClosePricesForInstruments(rubFutureFigis(), taskId, "Пакетная обработка фьючерсов завершена");
                 
                 log.info("[{}] Асинхронное сохранение цен закрытия для фьючерсов завершено", taskId);
                 log.info("[{}] Результат: {}", taskId, result.getMessage());
@@ -835,15 +384,11 @@ public class MainSessionPriceService {
             try {
                 log.info("[{}] Начало асинхронного сохранения цены закрытия для инструмента: {}", taskId, figi);
                 
-                // Получаем цену закрытия из API (блокирующий запрос остается)
-                List<ClosePriceDto> allClosePrices = getClosePrices(List.of(figi), null);
-                
-                // Фильтруем неверные цены
-                List<ClosePriceDto> validClosePrices = allClosePrices.stream()
-                    .filter(price -> !"1970-01-01".equals(price.tradingDate()))
-                    .collect(Collectors.toList());
+                LoadResult result = loadClosePriceBatch(List.of(figi), taskId);
+                boolean saved = !result.inserted().isEmpty();
+                boolean existing = result.existing() > 0;
                 
-                if (validClosePrices.isEmpty()) {
+                if (!saved && !existing && result.failed() == 0) {
                     String message = "Цена закрытия не найдена для инструмента: " + figi;
                     return new SaveResponseDto(
                         false,
@@ -851,33 +396,27 @@ public class MainSessionPriceService {
                         1,
                         0,
                         0,
-                        allClosePrices.size(),
-                        1 - allClosePrices.size(),
+                        result.invalid(),
+                        Math.max(0, 1 - result.received()),
                         new ArrayList<>()
                     );
                 }
                 
-                ClosePriceDto closePriceDto = validClosePrices.get(0);
-                ClosePriceProcessingResult result = processInstrumentClosePriceAsync(figi, closePriceDto);
-                
-                List<Map<String, Object>> savedItems = new ArrayList<>();
-                if (result.isSaved()) {
-                    savedItems.add(result.getSavedItem());
-                }
+                List<Map<String, Object>> savedItems = result.inserted().stream().map(ClosePriceRow::toSavedItem).collect(Collectors.toList());
                 
-                String message = result.isSaved() 
+                String message = saved 
                     ? "Цена закрытия успешно загружена для инструмента: " + figi
-                    : result.isExisting() 
+                    : existing 
                         ? "Цена закрытия уже существует для инструмента: " + figi
                         : "Ошибка загрузки цены закрытия для инструмента: " + figi;
                 
                 SaveResponseDto response = new SaveResponseDto(
-                    result.isSaved() || result.isExisting(),
+                    saved || existing,
                     message,
                     1,
-                    result.isSaved() ? 1 : 0,
-                    result.isExisting() ? 1 : 0,
-                    result.hasError() ? 1 : 0,
+                    saved ? 1 : 0,
+                    existing ? 1 : 0,
+                    result.failed() > 0 ? 1 : 0,
                     0,
                     savedItems
                 );
@@ -896,6 +435,7 @@ public class MainSessionPriceService {
 
     /**
      * Асинхронное сохранение цен основной сессии за дату
+     * Последние свечи всех инструментов за день выбираются одним запросом
      */
     public CompletableFuture<SaveResponseDto> saveMainSessionPricesForDateAsync(LocalDate date, String taskId) {
         return CompletableFuture.supplyAsync(() -> {
@@ -917,49 +457,47 @@ public class MainSessionPriceService {
                     );
                 }
                 
-                // Получаем все акции и фьючерсы (блокирующий запрос остается)
-        List<ShareEntity> shares = shareRepo.findAll();
-                List<FutureEntity> futures = futureRepo.findAll();
-                
+                List<ShareEntity> shares = instrumentRegistry.getShares();
+                List<FutureEntity> futures = instrumentRegistry.getFutures();
                 log.info("[{}] Найдено акций: {}, фьючерсов: {}", taskId, shares.size(), futures.size());
                 
-                // Параллельная обработка акций
-                List<CompletableFuture<ClosePriceProcessingResult>> shareFutures = shares.stream()
-                    .map(share -> CompletableFuture.supplyAsync(() -> processShareMainSessionPriceAsync(share, date), executorService))
-                    .collect(Collectors.toList());
-                
-                // Параллельная обработка фьючерсов
-                List<CompletableFuture<ClosePriceProcessingResult>> futureFutures = futures.stream()
-                    .map(future -> CompletableFuture.supplyAsync(() -> processFutureMainSessionPriceAsync(future, date), executorService))
-                    .collect(Collectors.toList());
-                
-                // Объединяем все futures
-                List<CompletableFuture<ClosePriceProcessingResult>> allFutures = new ArrayList<>();
-                allFutures.addAll(shareFutures);
-                allFutures.addAll(futureFutures);
+                Map<String, BigDecimal> lastCloses = findLastClosePricesForDate(date);
                 
-                // Ждем завершения всех операций
-                CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                    allFutures.toArray(new CompletableFuture[0])
-                );
+                List<ClosePriceRow> rows = new ArrayList<>();
+                for (ShareEntity share : shares) {
+                    BigDecimal closePrice = lastCloses.get(share.getFigi());
+                    if (closePrice != null) {
+                        rows.add(new ClosePriceRow(date, share.getFigi(), closePrice, "SHARE", "RUB",
+                            "moex_mrng_evng_e_wknd_dlr", share.getTicker(), share.getName(), null));
+                    }
+                }
+                for (FutureEntity future : futures) {
+                    BigDecimal closePrice = lastCloses.get(future.getFigi());
+                    if (closePrice != null) {
+                        rows.add(new ClosePriceRow(date, future.getFigi(), closePrice, "FUTURE", "RUB",
+                            "FORTS_MAIN", future.getTicker(), future.getTicker(), null));
+                    }
+                }
                 
-                // Получаем результаты
-                List<ClosePriceProcessingResult> results = allCompleted.thenApply(v ->
-                    allFutures.stream()
-                        .map(CompletableFuture::join)
-                        .collect(Collectors.toList())
-                ).join();
+                List<ClosePriceRow> inserted = new ArrayList<>();
+                int errorCount = 0;
+                for (List<ClosePriceRow> batch : createBatches(rows, batchProcessingProperties.getBatchSize())) {
+                    try {
+                        inserted.addAll(insertClosePrices(batch));
+                    } catch (Exception e) {
+                        log.error("[{}] Ошибка сохранения пакета цен основной сессии ({} строк)", taskId, batch.size(), e);
+                        errorCount += batch.size();
+                    }
+                }
                 
                 // Агрегируем статистику
-                int totalRequested = results.size();
-                int newItemsSaved = (int) results.stream().filter(ClosePriceProcessingResult::isSaved).count();
-                int existingItemsSkipped = (int) results.stream().filter(ClosePriceProcessingResult::isExisting).count();
-                int errorCount = (int) results.stream().filter(ClosePriceProcessingResult::hasError).count();
-                int missingFromApi = (int) results.stream().filter(r -> !r.isSaved() && !r.isExisting() && !r.hasError()).count();
+                int totalRequested = shares.size() + futures.size();
+                int newItemsSaved = inserted.size();
+                int existingItemsSkipped = rows.size() - newItemsSaved - errorCount;
+                int missingFromApi = totalRequested - rows.size();
                 
-                List<Map<String, Object>> savedItems = results.stream()
-                    .filter(ClosePriceProcessingResult::isSaved)
-                    .map(ClosePriceProcessingResult::getSavedItem)
+                List<Map<String, Object>> savedItems = inserted.stream()
+                    .map(ClosePriceRow::toSavedItem)
                     .collect(Collectors.toList());
                 
                 String message = String.format("Успешно загружено %d новых цен основной сессии из %d найденных. Ошибок: %d", 
@@ -1002,370 +540,162 @@ public class MainSessionPriceService {
         return batches;
     }
 
-    /**
-     * Обрабатывает пакет акций асинхронно
-     */
-    private CompletableFuture<List<ClosePriceProcessingResult>> processShareBatchAsync(List<ShareEntity> shareBatch, String taskId) {
-        return CompletableFuture.supplyAsync(() -> {
-            log.info("[{}] Обработка пакета акций: {} инструментов", taskId, shareBatch.size());
-            
-            List<CompletableFuture<ClosePriceProcessingResult>> futures = shareBatch.stream()
-                .map(share -> CompletableFuture.supplyAsync(() -> processShareClosePriceAsync(share), executorService))
-                .collect(Collectors.toList());
-            
-            // Ждем завершения всех операций в пакете
-            CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-            );
-            
-            try {
-                allCompleted.get();
-                
-                List<ClosePriceProcessingResult> results = futures.stream()
-                    .map(CompletableFuture::join)
-                    .collect(Collectors.toList());
-                
-                log.info("[{}] Пакет акций обработан: {} результатов", taskId, results.size());
-                return results;
-                
-            } catch (Exception e) {
-                log.error("[{}] Ошибка обработки пакета акций", taskId, e);
-                return new ArrayList<>();
-            }
-        }, executorService);
+    private List<String> rubShareFigis() {
+        return instrumentRegistry.getShares().stream()
+            .filter(share -> "RUB".equalsIgnoreCase(share.getCurrency()))
+            .map(ShareEntity::getFigi)
+            .toList();
+    }
+
+    private List<String> rubFutureFigis() {
+        return instrumentRegistry.getFutures().stream()
+            .filter(future -> "RUB".equalsIgnoreCase(future.getCurrency()))
+            .map(FutureEntity::getFigi)
+            .toList();
     }
 
     /**
-     * Обрабатывает пакет фьючерсов асинхронно
+     * Загрузка цен закрытия по списку инструментов с ответом в формате пакетной обработки
      */
-    private CompletableFuture<List<ClosePriceProcessingResult>> processFutureBatchAsync(List<FutureEntity> futureBatch, String taskId) {
-        return CompletableFuture.supplyAsync(() -> {
-            log.info("[{}] Обработка пакета фьючерсов: {} инструментов", taskId, futureBatch.size());
-            
-            List<CompletableFuture<ClosePriceProcessingResult>> futures = futureBatch.stream()
-                .map(future -> CompletableFuture.supplyAsync(() -> processFutureClosePriceAsync(future), executorService))
-                .collect(Collectors.toList());
-            
-            // Ждем завершения всех операций в пакете
-            CompletableFuture<Void> allCompleted = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-            );
-            
-            try {
-                allCompleted.get();
-                
-                List<ClosePriceProcessingResult> results = futures.stream()
-                    .map(CompletableFuture::join)
-                    .collect(Collectors.toList());
-                
-                log.info("[{}] Пакет фьючерсов обработан: {} результатов", taskId, results.size());
-                return results;
-                
-            } catch (Exception e) {
-                log.error("[{}] Ошибка обработки пакета фьючерсов", taskId, e);
-                return new ArrayList<>();
-            }
-        }, executorService);
+    private SaveResponseDto saveClosePricesForInstruments(List<String> figis, String taskId, String messagePrefix) {
+        log.info("[{}] Инструментов: {}, пакетов: {}", taskId, figis.size(),
+            createBatches(figis, batchProcessingProperties.getBatchSize()).size());
+        
+        LoadResult result = loadClosePrices(figis, taskId);
+        
+        int totalRequested = figis.size();
+        int newItemsSaved = result.inserted().size();
+        int existingItemsSkipped = result.existing();
+        int errorCount = Math.max(0, totalRequested - newItemsSaved - existingItemsSkipped);
+        
+        List<Map<String, Object>> savedItems = result.inserted().stream()
+            .map(ClosePriceRow::toSavedItem)
+            .collect(Collectors.toList());
+        
+        String message = String.format("%s. Загружено %d новых цен закрытия из %d найденных. Ошибок: %d", 
+            messagePrefix, newItemsSaved, totalRequested, errorCount);
+        
+        return new SaveResponseDto(
+            true,
+            message,
+            totalRequested,
+            newItemsSaved,
+            existingItemsSkipped,
+            errorCount,
+            0, // missingFromApi
+            savedItems
+        );
     }
 
     /**
-     * Обработка цены закрытия для акции
+     * Конвейерная загрузка цен закрытия из API
+     * 
+     * <p>Пакеты GetClosePrices отправляются параллельно; число одновременных запросов и их темп
+     * ограничивает {@link RateLimitService}, поэтому задержки между пакетами не нужны. Каждый пакет
+     * сохраняется сразу после ответа API, не дожидаясь остальных.</p>
      */
-    private ClosePriceProcessingResult processShareClosePriceAsync(ShareEntity share) {
-        try {
-            // Получаем цену закрытия из API с rate limiting
-            List<ClosePriceDto> allClosePrices = retryService.executeWithRetryAndRateLimit(
-                () -> getClosePricesDirectly(List.of(share.getFigi()), null),
-                "processShareClosePrice_" + share.getFigi(),
-                "close_prices",
-                rateLimitService
-            );
-            
-            // Фильтруем неверные цены
-            List<ClosePriceDto> validClosePrices = allClosePrices.stream()
-                .filter(price -> !"1970-01-01".equals(price.tradingDate()))
-                .collect(Collectors.toList());
-            
-            if (validClosePrices.isEmpty()) {
-                return new ClosePriceProcessingResult(share.getFigi(), false, false, true, "Цена закрытия не найдена", null);
-            }
-            
-            ClosePriceDto closePriceDto = validClosePrices.get(0);
-            LocalDate priceDate = LocalDate.parse(closePriceDto.tradingDate());
-            ClosePriceKey key = new ClosePriceKey(priceDate, closePriceDto.figi());
-            
-            // Проверяем, есть ли уже запись
-            if (closePriceRepo.existsById(key)) {
-                return new ClosePriceProcessingResult(share.getFigi(), false, true, false, "Цена закрытия уже существует", null);
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEntity entity = new ClosePriceEntity(
-                priceDate,
-                closePriceDto.figi(),
-                "SHARE",
-                closePriceDto.closePrice(),
-                share.getCurrency(),
-                share.getExchange()
-            );
-            
-            closePriceRepo.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", closePriceDto.figi());
-            savedItem.put("ticker", share.getTicker());
-            savedItem.put("name", share.getName());
-            savedItem.put("priceDate", priceDate.toString());
-            savedItem.put("closePrice", closePriceDto.closePrice());
-            savedItem.put("instrumentType", "SHARE");
-            savedItem.put("currency", share.getCurrency());
-            savedItem.put("exchange", share.getExchange());
-            
-            return new ClosePriceProcessingResult(share.getFigi(), true, false, false, null, savedItem);
-            
-        } catch (Exception e) {
-            log.error("Ошибка обработки цены закрытия для акции {}", share.getFigi(), e);
-            return new ClosePriceProcessingResult(share.getFigi(), false, false, true, e.getMessage(), null);
+    private LoadResult loadClosePrices(List<String> figis, String taskId) {
+        List<CompletableFuture<LoadResult>> batches = new ArrayList<>();
+        for (List<String> batch : createBatches(figis, batchProcessingProperties.getBatchSize())) {
+            batches.add(CompletableFuture.supplyAsync(() -> loadClosePriceBatch(batch, taskId), executorService));
         }
+        return batches.stream()
+            .map(CompletableFuture::join)
+            .reduce(LoadResult.EMPTY, LoadResult::merge);
     }
 
     /**
-     * Обработка цены закрытия для фьючерса
+     * Один пакет конвейера: запрос к API, разрешение метаданных из реестра и вставка одним запросом
      */
-    private ClosePriceProcessingResult processFutureClosePriceAsync(FutureEntity future) {
+    private LoadResult loadClosePriceBatch(List<String> figis, String taskId) {
+        List<ClosePriceDto> prices;
         try {
-            // Получаем цену закрытия из API с rate limiting
-            List<ClosePriceDto> allClosePrices = retryService.executeWithRetryAndRateLimit(
-                () -> getClosePricesDirectly(List.of(future.getFigi()), null),
-                "processFutureClosePrice_" + future.getFigi(),
+            prices = retryService.executeWithRetryAndRateLimit(
+                () -> getClosePricesDirectly(figis, null),
+                "getClosePrices",
                 "close_prices",
                 rateLimitService
             );
-            
-            // Фильтруем неверные цены
-            List<ClosePriceDto> validClosePrices = allClosePrices.stream()
-                .filter(price -> !"1970-01-01".equals(price.tradingDate()))
-                .collect(Collectors.toList());
-            
-            if (validClosePrices.isEmpty()) {
-                return new ClosePriceProcessingResult(future.getFigi(), false, false, true, "Цена закрытия не найдена", null);
-            }
-            
-            ClosePriceDto closePriceDto = validClosePrices.get(0);
-            LocalDate priceDate = LocalDate.parse(closePriceDto.tradingDate());
-            ClosePriceKey key = new ClosePriceKey(priceDate, closePriceDto.figi());
-            
-            // Проверяем, есть ли уже запись
-            if (closePriceRepo.existsById(key)) {
-                return new ClosePriceProcessingResult(future.getFigi(), false, true, false, "Цена закрытия уже существует", null);
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEntity entity = new ClosePriceEntity(
-                priceDate,
-                closePriceDto.figi(),
-                "FUTURE",
-                closePriceDto.closePrice(),
-                future.getCurrency(),
-                future.getExchange()
-            );
-            
-            closePriceRepo.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", closePriceDto.figi());
-            savedItem.put("ticker", future.getTicker());
-            savedItem.put("name", future.getTicker());
-            savedItem.put("priceDate", priceDate.toString());
-            savedItem.put("closePrice", closePriceDto.closePrice());
-            savedItem.put("instrumentType", "FUTURE");
-            savedItem.put("currency", future.getCurrency());
-            savedItem.put("exchange", future.getExchange());
-            
-            return new ClosePriceProcessingResult(future.getFigi(), true, false, false, null, savedItem);
-            
         } catch (Exception e) {
-            log.error("Ошибка обработки цены закрытия для фьючерса {}", future.getFigi(), e);
-            return new ClosePriceProcessingResult(future.getFigi(), false, false, true, e.getMessage(), null);
+            log.error("[{}] Ошибка получения цен закрытия для пакета из {} инструментов", taskId, figis.size(), e);
+            return new LoadResult(0, 0, 0, figis.size(), List.of());
         }
-    }
-
-    /**
-     * Обработка цены закрытия для конкретного инструмента
-     */
-    private ClosePriceProcessingResult processInstrumentClosePriceAsync(String figi, ClosePriceDto closePriceDto) {
+        
+        List<ClosePriceDto> validPrices = filterValidPrices(prices);
+        int invalid = prices.size() - validPrices.size();
+        List<ClosePriceRow> rows = validPrices.stream().map(this::toClosePriceRow).toList();
         try {
-            LocalDate priceDate = LocalDate.parse(closePriceDto.tradingDate());
-            ClosePriceKey key = new ClosePriceKey(priceDate, closePriceDto.figi());
-            
-            // Проверяем, есть ли уже запись
-            if (closePriceRepo.existsById(key)) {
-                return new ClosePriceProcessingResult(figi, false, true, false, "Цена закрытия уже существует", null);
-            }
-            
-            // Определяем тип инструмента
-            String instrumentType = "UNKNOWN";
-            String currency = "UNKNOWN";
-            String exchange = "UNKNOWN";
-            String ticker = figi;
-            String name = figi;
-            
-            // Проверяем в кэше акций
-            ShareEntity share = shareRepo.findById(figi).orElse(null);
-            if (share != null) {
-                instrumentType = "SHARE";
-                currency = share.getCurrency();
-                exchange = share.getExchange();
-                ticker = share.getTicker();
-                name = share.getName();
-            } else {
-                // Проверяем в кэше фьючерсов
-                FutureEntity future = futureRepo.findById(figi).orElse(null);
-                if (future != null) {
-                    instrumentType = "FUTURE";
-                    currency = future.getCurrency();
-                    exchange = future.getExchange();
-                    ticker = future.getTicker();
-                    name = future.getTicker();
-                } else {
-                    // Проверяем в кэше индикативов
-                    IndicativeEntity indicative = indicativeRepo.findById(figi).orElse(null);
-                    if (indicative != null) {
-                        instrumentType = "INDICATIVE";
-                        currency = indicative.getCurrency();
-                        exchange = indicative.getExchange();
-                        ticker = indicative.getTicker();
-                        name = indicative.getTicker();
-                    }
-                }
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEntity entity = new ClosePriceEntity(
-                priceDate,
-                closePriceDto.figi(),
-                instrumentType,
-                closePriceDto.closePrice(),
-                currency,
-                exchange
-            );
-            
-            closePriceRepo.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", closePriceDto.figi());
-            savedItem.put("ticker", ticker);
-            savedItem.put("name", name);
-            savedItem.put("priceDate", priceDate.toString());
-            savedItem.put("closePrice", closePriceDto.closePrice());
-            savedItem.put("instrumentType", instrumentType);
-            savedItem.put("currency", currency);
-            savedItem.put("exchange", exchange);
-            
-            return new ClosePriceProcessingResult(figi, true, false, false, null, savedItem);
-            
+            List<ClosePriceRow> inserted = insertClosePrices(rows);
+            return new LoadResult(prices.size(), invalid, rows.size() - inserted.size(), 0, inserted);
         } catch (Exception e) {
-            log.error("Ошибка обработки цены закрытия для инструмента {}", figi, e);
-            return new ClosePriceProcessingResult(figi, false, false, true, e.getMessage(), null);
+            log.error("[{}] Ошибка сохранения пакета цен закрытия ({} строк)", taskId, rows.size(), e);
+            return new LoadResult(prices.size(), invalid, 0, rows.size(), List.of());
         }
     }
 
     /**
-     * Обработка цены основной сессии для акции
+     * Строка close_prices с метаданными инструмента из реестра
      */
-    private ClosePriceProcessingResult processShareMainSessionPriceAsync(ShareEntity share, LocalDate date) {
-        try {
-            ClosePriceKey key = new ClosePriceKey(date, share.getFigi());
-            
-            // Проверяем, есть ли уже запись
-            if (closePriceRepo.existsById(key)) {
-                return new ClosePriceProcessingResult(share.getFigi(), false, true, false, "Цена основной сессии уже существует", null);
-            }
-            
-            // Ищем последнюю свечу за указанную дату
-            BigDecimal lastClosePrice = findLastClosePriceFromMinuteCandles(share.getFigi(), date);
-            
-            if (lastClosePrice == null) {
-                return new ClosePriceProcessingResult(share.getFigi(), false, false, false, "Свеча не найдена", null);
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEntity entity = new ClosePriceEntity(
-                date,
-                share.getFigi(),
-                "SHARE",
-                lastClosePrice,
-                "RUB",
-                "moex_mrng_evng_e_wknd_dlr"
-            );
-            
-            closePriceRepo.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", share.getFigi());
-            savedItem.put("ticker", share.getTicker());
-            savedItem.put("name", share.getName());
-            savedItem.put("priceDate", date.toString());
-            savedItem.put("closePrice", lastClosePrice);
-            savedItem.put("instrumentType", "SHARE");
-            savedItem.put("currency", "RUB");
-            savedItem.put("exchange", "moex_mrng_evng_e_wknd_dlr");
-            
-            return new ClosePriceProcessingResult(share.getFigi(), true, false, false, null, savedItem);
-            
-        } catch (Exception e) {
-            System.err.println("Ошибка обработки цены основной сессии для акции " + share.getFigi() + ": " + e.getMessage());
-            return new ClosePriceProcessingResult(share.getFigi(), false, false, true, e.getMessage(), null);
+    private ClosePriceRow toClosePriceRow(ClosePriceDto price) {
+        LocalDate priceDate = LocalDate.parse(price.tradingDate());
+        String figi = price.figi();
+        
+        ShareEntity share = instrumentRegistry.findShare(figi).orElse(null);
+        if (share != null) {
+            return new ClosePriceRow(priceDate, figi, price.closePrice(), "SHARE",
+                share.getCurrency(), share.getExchange(), share.getTicker(), share.getName(), price);
+        }
+        FutureEntity future = instrumentRegistry.findFuture(figi).orElse(null);
+        if (future != null) {
+            return new ClosePriceRow(priceDate, figi, price.closePrice(), "FUTURE",
+                future.getCurrency(), future.getExchange(), future.getTicker(), future.getTicker(), price);
+        }
+        IndicativeEntity indicative = instrumentRegistry.findIndicative(figi).orElse(null);
+        if (indicative != null) {
+            return new ClosePriceRow(priceDate, figi, price.closePrice(), "INDICATIVE",
+                indicative.getCurrency(), indicative.getExchange(), indicative.getTicker(), indicative.getTicker(), price);
         }
+        return new ClosePriceRow(priceDate, figi, price.closePrice(), "UNKNOWN", "UNKNOWN", "UNKNOWN", figi, figi, price);
     }
 
     /**
-     * Обработка цены основной сессии для фьючерса
+     * Вставляет строки одним многострочным INSERT ... ON CONFLICT DO NOTHING
+     * 
+     * @return вставленные строки; остальные уже были в close_prices
      */
-    private ClosePriceProcessingResult processFutureMainSessionPriceAsync(FutureEntity future, LocalDate date) {
-        try {
-            ClosePriceKey key = new ClosePriceKey(date, future.getFigi());
-            
-            // Проверяем, есть ли уже запись
-            if (closePriceRepo.existsById(key)) {
-                return new ClosePriceProcessingResult(future.getFigi(), false, true, false, "Цена основной сессии уже существует", null);
-            }
-            
-            // Ищем последнюю свечу за указанную дату
-            BigDecimal lastClosePrice = findLastClosePriceFromMinuteCandles(future.getFigi(), date);
-            
-            if (lastClosePrice == null) {
-                return new ClosePriceProcessingResult(future.getFigi(), false, false, false, "Свеча не найдена", null);
-            }
-            
-            // Создаем запись для сохранения
-            ClosePriceEntity entity = new ClosePriceEntity(
-                date,
-                future.getFigi(),
-                "FUTURE",
-                lastClosePrice,
-                "RUB",
-                "FORTS_MAIN"
-            );
-            
-            closePriceRepo.save(entity);
-            
-            Map<String, Object> savedItem = new HashMap<>();
-            savedItem.put("figi", future.getFigi());
-            savedItem.put("ticker", future.getTicker());
-            savedItem.put("name", future.getTicker());
-            savedItem.put("priceDate", date.toString());
-            savedItem.put("closePrice", lastClosePrice);
-            savedItem.put("instrumentType", "FUTURE");
-            savedItem.put("currency", "RUB");
-            savedItem.put("exchange", "FORTS_MAIN");
-            
-            return new ClosePriceProcessingResult(future.getFigi(), true, false, false, null, savedItem);
-            
-        } catch (Exception e) {
-            System.err.println("Ошибка обработки цены основной сессии для фьючерса " + future.getFigi() + ": " + e.getMessage());
-            return new ClosePriceProcessingResult(future.getFigi(), false, false, true, e.getMessage(), null);
+    private List<ClosePriceRow> insertClosePrices(List<ClosePriceRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        
+        // API может вернуть FIGI дважды - в одном INSERT оставляем первую строку
+        Map<String, ClosePriceRow> unique = new LinkedHashMap<>();
+        for (ClosePriceRow row : rows) {
+            unique.putIfAbsent(row.key(), row);
         }
+        
+        List<Object> params = new ArrayList<>(unique.size() * 6);
+        for (ClosePriceRow row : unique.values()) {
+            params.add(Date.valueOf(row.priceDate()));
+            params.add(row.figi());
+            params.add(row.instrumentType());
+            params.add(row.closePrice());
+            params.add(row.currency() != null ? row.currency() : "UNKNOWN");
+            params.add(row.exchange() != null ? row.exchange() : "UNKNOWN");
+        }
+        String sql = String.format(INSERT_CLOSE_PRICES_SQL,
+            String.join(", ", Collections.nCopies(unique.size(), "(?, ?, ?, ?, ?, ?)")));
+        
+        long writeStart = System.nanoTime();
+        Set<String> insertedKeys = new HashSet<>(jdbcTemplate.query(sql,
+            (rs, rowNum) -> rs.getString("figi") + "|" + rs.getDate("price_date").toLocalDate(),
+            params.toArray()));
+        pipelineMetrics.recordWrite(PipelineJob.CLOSE, unique.size(), System.nanoTime() - writeStart);
+        pipelineMetrics.countDedupHits(PipelineJob.CLOSE, rows.size() - insertedKeys.size());
+        
+        return unique.values().stream()
+            .filter(row -> insertedKeys.contains(row.key()))
+            .toList();
     }
 
     /**
@@ -1376,62 +706,64 @@ public class MainSessionPriceService {
     }
 
     /**
-     * Находит последнюю цену закрытия для указанной даты и FIGI из minute_candles
+     * Последние цены закрытия всех инструментов за дату (сутки по Москве) из minute_candles
      */
-    private BigDecimal findLastClosePriceFromMinuteCandles(String figi, LocalDate date) {
-        try {
-            log.info("Поиск свечи для {} за дату (MSK): {}", figi, date);
-
-            // Формируем точные границы суток в часовом поясе Europe/Moscow
-            ZoneId mskZone = ZoneId.of("Europe/Moscow");
-            var startInstant = date.atStartOfDay(mskZone).toInstant();
-            var endInstant = date.plusDays(1).atStartOfDay(mskZone).toInstant();
-
-            // Ищем свечи по точному временному диапазону и берем последнюю по времени
-            List<MinuteCandleEntity> candles = minuteCandleRepo.findByFigiAndTimeBetween(figi, startInstant, endInstant);
+    private Map<String, BigDecimal> findLastClosePricesForDate(LocalDate date) {
+        ZoneId mskZone = ZoneId.of("Europe/Moscow");
+        Instant startInstant = date.atStartOfDay(mskZone).toInstant();
+        Instant endInstant = date.plusDays(1).atStartOfDay(mskZone).toInstant();
+        
+        Map<String, BigDecimal> lastCloses = new HashMap<>();
+        for (Object[] row : minuteCandleRepo.findLastClosePricesBetween(startInstant, endInstant)) {
+            lastCloses.put((String) row[0], (BigDecimal) row[1]);
+        }
+        log.info("Найдены последние свечи за {} для {} инструментов", date, lastCloses.size());
+        return lastCloses;
+    }
 
-            if (!candles.isEmpty()) {
-                MinuteCandleEntity lastCandle = candles.get(candles.size() - 1);
-                log.info("Найдена свеча ({}) для {} с ценой закрытия: {}", lastCandle.getTime(), figi, lastCandle.getClose());
-                return lastCandle.getClose();
-            } else {
-                log.info("Свечи не найдены для {} за дату: {}", figi, date);
-            }
+    /**
+     * Строка для вставки в close_prices
+     */
+    private record ClosePriceRow(LocalDate priceDate, String figi, BigDecimal closePrice, String instrumentType,
+                                 String currency, String exchange, String ticker, String name, ClosePriceDto source) {
 
-            return null;
+        String key() {
+            return figi + "|" + priceDate;
+        }
 
-        } catch (Exception e) {
-            log.error("Ошибка поиска последней цены закрытия для {}", figi, e);
-            return null;
+        Map<String, Object> toSavedItem() {
+            Map<String, Object> savedItem = new HashMap<>();
+            savedItem.put("figi", figi);
+            savedItem.put("ticker", ticker);
+            savedItem.put("name", name);
+            savedItem.put("priceDate", priceDate.toString());
+            savedItem.put("closePrice", closePrice);
+            savedItem.put("instrumentType", instrumentType);
+            savedItem.put("currency", currency);
+            savedItem.put("exchange", exchange);
+            return savedItem;
         }
     }
 
     /**
-     * Результат обработки цены закрытия
+     * Итог загрузки цен закрытия
+     * 
+     * @param received цен получено из API
+     * @param invalid цен с датой 1970-01-01
+     * @param existing цен, уже сохраненных ранее
+     * @param failed инструментов и строк, не загруженных из-за ошибок API или БД
+     * @param inserted вставленные строки
      */
-    private static class ClosePriceProcessingResult {
-        private final String figi;
-        private final boolean saved;
-        private final boolean existing;
-        private final boolean hasError;
-        private final String errorMessage;
-        private final Map<String, Object> savedItem;
+    private record LoadResult(int received, int invalid, int existing, int failed, List<ClosePriceRow> inserted) {
 
-        public ClosePriceProcessingResult(String figi, boolean saved, boolean existing, boolean hasError, String errorMessage, Map<String, Object> savedItem) {
-            this.figi = figi;
-            this.saved = saved;
-            this.existing = existing;
-            this.hasError = hasError;
-            this.errorMessage = errorMessage;
-            this.savedItem = savedItem;
-        }
+        static final LoadResult EMPTY = new LoadResult(0, 0, 0, 0, List.of());
 
-        public String getFigi() { return figi; }
-        public boolean isSaved() { return saved; }
-        public boolean isExisting() { return existing; }
-        public boolean hasError() { return hasError; }
-        public String getErrorMessage() { return errorMessage; }
-        public Map<String, Object> getSavedItem() { return savedItem; }
+        LoadResult merge(LoadResult other) {
+            List<ClosePriceRow> rows = new ArrayList<>(inserted.size() + other.inserted.size());
+            rows.addAll(inserted);
+            rows.addAll(other.inserted);
+            return new LoadResult(received + other.received, invalid + other.invalid,
+                existing + other.existing, failed + other.failed, rows);
+        }
     }
-
 }
@@ -0,0 +1,589 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.entity.FutureEntity;
+import com.example.InvestmentDataLoaderService.entity.LastPriceEntity;
+import com.example.InvestmentDataLoaderService.entity.LastPriceKey;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleKey;
+import com.example.InvestmentDataLoaderService.entity.ShareEntity;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
+import com.example.InvestmentDataLoaderService.repository.LastPriceRepository;
+import com.example.InvestmentDataLoaderService.repository.MicroBatchWriter;
+import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.CandleInstrument;
+import ru.tinkoff.piapi.contract.v1.CandleSubscription;
+import ru.tinkoff.piapi.contract.v1.LastPrice;
+import ru.tinkoff.piapi.contract.v1.LastPriceInstrument;
+import ru.tinkoff.piapi.contract.v1.LastPriceSubscription;
+import ru.tinkoff.piapi.contract.v1.MarketDataRequest;
+import ru.tinkoff.piapi.contract.v1.MarketDataResponse;
+import ru.tinkoff.piapi.contract.v1.MarketDataStreamServiceGrpc.MarketDataStreamServiceStub;
+import ru.tinkoff.piapi.contract.v1.SubscribeCandlesRequest;
+import ru.tinkoff.piapi.contract.v1.SubscribeLastPriceRequest;
+import ru.tinkoff.piapi.contract.v1.SubscribeTradesRequest;
+import ru.tinkoff.piapi.contract.v1.SubscriptionAction;
+import ru.tinkoff.piapi.contract.v1.SubscriptionInterval;
+import ru.tinkoff.piapi.contract.v1.SubscriptionStatus;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeInstrument;
+import ru.tinkoff.piapi.contract.v1.TradeSubscription;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Загрузка рыночных данных в реальном времени через {@code MarketDataStreamService}
+ *
+ * <p>Акции и фьючерсы реестра инструментов делятся на группы по
+ * {@code market-data-stream.instruments-per-stream}; на каждую группу открывается
+ * двунаправленный поток с подписками на закрытые минутные свечи, обезличенные сделки и
+ * последние цены (у API есть лимит подписок на поток). Свечи и сделки пишутся в
+ * {@code minute_candles} и {@code last_prices} через {@link MicroBatchWriter} поверх
+ * тех же {@link BulkWriter}, что и у ночной загрузки; последние цены держатся в памяти.
+ * Если реализация записи сама не отбрасывает дубликаты (JPA), пакет перед записью сверяется
+ * с таблицей одним запросом по FIGI и диапазону времени пакета: уже записанные свечи и сделки
+ * (в том числе вторая сделка инструмента в ту же секунду) не перезаписываются.</p>
+ *
+ * <p>При обрыве поток открывается заново с экспоненциальной задержкой от
+ * {@code market-data-stream.reconnect-delay-ms} до {@code market-data-stream.max-reconnect-delay-ms}
+ * и повторяет подписки. Пропущенные за время обрыва свечи догружает ночная загрузка
+ * ({@code CandleSchedulerService}), которая пропускает уже записанные свечи.</p>
+ *
+ * <p>При {@code scheduler.cluster.enabled=true} узел подписывает только инструменты своих партиций
+ * FIGI ({@link ClusterLockService#claimPartitionShare}); доля перераспределяется каждые
+ * {@code scheduler.cluster.rebalance-interval-ms}, и при ее изменении потоки переподписываются.</p>
+ */
+@Service
+public class MarketDataStreamIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataStreamIngestionService.class);
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final String CLUSTER_RESOURCE = "market-data-stream";
+
+    // Биржи строк last_prices, как у LastTradesService
+    private static final String SHARE_EXCHANGE = "moex_mrng_evng_e_wknd_dlr";
+    private static final String FUTURE_EXCHANGE = "FORTS_EVENING";
+    private static final String DEFAULT_CURRENCY = "RUB";
+
+    /**
+     * Последняя цена инструмента из потока
+     */
+    public record StreamLastPrice(BigDecimal price, Instant time) {
+    }
+
+    /**
+     * Валюта и биржа инструмента для строк {@code last_prices}
+     */
+    private record InstrumentInfo(String currency, String exchange) {
+    }
+
+    private static final InstrumentInfo DEFAULT_INFO = new InstrumentInfo(DEFAULT_CURRENCY, SHARE_EXCHANGE);
+
+    private final MarketDataStreamServiceStub streamStub;
+    private final InstrumentRegistry instrumentRegistry;
+    private final TradingSessionCalendarService tradingSessionCalendarService;
+    private final ClusterLockService clusterLockService;
+    private final MinuteCandleRepository minuteCandleRepository;
+    private final LastPriceRepository lastPriceRepository;
+    private final MeterRegistry meterRegistry;
+    private final MicroBatchWriter<MinuteCandleEntity> candleWriter;
+    private final MicroBatchWriter<LastPriceEntity> tradeWriter;
+    private final boolean enabled;
+    private final int instrumentsPerStream;
+    private final long reconnectDelayMs;
+    private final long maxReconnectDelayMs;
+    private final ScheduledExecutorService reconnectExecutor;
+
+    private final List<StreamSession> sessions = new CopyOnWriteArrayList<>();
+    private final Map<String, StreamLastPrice> lastPrices = new ConcurrentHashMap<>();
+    private volatile Map<String, InstrumentInfo> instruments = Map.of();
+    private volatile Predicate<String> figiFilter = figi -> true;
+    private volatile Set<Integer> ownedPartitions = Set.of();
+    private volatile boolean active;
+    private volatile Instant startedAt;
+
+    private final AtomicLong candlesReceived = new AtomicLong();
+    private final AtomicLong tradesReceived = new AtomicLong();
+    private final AtomicLong lastPricesReceived = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    public MarketDataStreamIngestionService(MarketDataStreamServiceStub streamStub,
+                                            InstrumentRegistry instrumentRegistry,
+                                            TradingSessionCalendarService tradingSessionCalendarService,
+                                            ClusterLockService clusterLockService,
+                                            MinuteCandleRepository minuteCandleRepository,
+                                            LastPriceRepository lastPriceRepository,
+                                            BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter,
+                                            BulkWriter<LastPriceEntity> lastPriceBulkWriter,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${market-data-stream.enabled:false}") boolean enabled,
+                                            @Value("${market-data-stream.instruments-per-stream:100}") int instrumentsPerStream,
+                                            @Value("${market-data-stream.flush-interval-ms:500}") long flushIntervalMs,
+                                            @Value("${market-data-stream.batch-size:1000}") int batchSize,
+                                            @Value("${market-data-stream.queue-capacity:100000}") int queueCapacity,
+                                            @Value("${market-data-stream.offer-timeout-ms:100}") long offerTimeoutMs,
+                                            @Value("${market-data-stream.reconnect-delay-ms:1000}") long reconnectDelayMs,
+                                            @Value("${market-data-stream.max-reconnect-delay-ms:30000}") long maxReconnectDelayMs) {
+        this.streamStub = streamStub;
+        this.instrumentRegistry = instrumentRegistry;
+        this.tradingSessionCalendarService = tradingSessionCalendarService;
+        this.clusterLockService = clusterLockService;
+        this.minuteCandleRepository = minuteCandleRepository;
+        this.lastPriceRepository = lastPriceRepository;
+        this.meterRegistry = meterRegistry;
+        this.candleWriter = new MicroBatchWriter<>("minute_candles", minuteCandleBulkWriter, this::newCandles,
+            queueCapacity, batchSize, flushIntervalMs, offerTimeoutMs);
+        this.tradeWriter = new MicroBatchWriter<>("last_prices", lastPriceBulkWriter, this::newTrades,
+            queueCapacity, batchSize, flushIntervalMs, offerTimeoutMs);
+        this.enabled = enabled;
+        this.instrumentsPerStream = Math.max(1, instrumentsPerStream);
+        this.reconnectDelayMs = Math.max(1, reconnectDelayMs);
+        this.maxReconnectDelayMs = Math.max(this.reconnectDelayMs, maxReconnectDelayMs);
+        this.reconnectExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MarketDataStream-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("market_data_stream.connected", sessions, list -> list.stream().filter(StreamSession::isConnected).count())
+            .description("Потоки MarketDataStream с подтвержденными подписками")
+            .register(meterRegistry);
+        Gauge.builder("market_data_stream.queue.depth", candleWriter, MicroBatchWriter::getQueueDepth)
+            .tag("table", "minute_candles")
+            .register(meterRegistry);
+        Gauge.builder("market_data_stream.queue.depth", tradeWriter, MicroBatchWriter::getQueueDepth)
+            .tag("table", "last_prices")
+            .register(meterRegistry);
+        FunctionCounter.builder("market_data_stream.received", candlesReceived, AtomicLong::get)
+            .tag("type", "candle").register(meterRegistry);
+        FunctionCounter.builder("market_data_stream.received", tradesReceived, AtomicLong::get)
+            .tag("type", "trade").register(meterRegistry);
+        FunctionCounter.builder("market_data_stream.received", lastPricesReceived, AtomicLong::get)
+            .tag("type", "last_price").register(meterRegistry);
+        FunctionCounter.builder("market_data_stream.reconnects", reconnects, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Запуск потоков при старте приложения, если включен {@code market-data-stream.enabled}
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Ежедневная переподписка перед утренней сессией: состав инструментов берется из обновленного реестра
+     */
+    @Scheduled(cron = "${market-data-stream.resubscribe-cron:0 50 6 * * *}", zone = "Europe/Moscow")
+    public void resubscribe() {
+        if (enabled && active) {
+            start(figiFilter);
+        }
+    }
+
+    /**
+     * Перераспределение партиций FIGI между узлами кластера; при изменении доли узла потоки переподписываются
+     */
+    @Scheduled(fixedDelayString = "${scheduler.cluster.rebalance-interval-ms:30000}",
+        initialDelayString = "${scheduler.cluster.rebalance-interval-ms:30000}")
+    public synchronized void rebalance() {
+        if (!active || !clusterLockService.isClusterEnabled()) {
+            return;
+        }
+        Set<Integer> claimed = clusterLockService.claimPartitionShare(CLUSTER_RESOURCE);
+        if (!claimed.equals(ownedPartitions)) {
+            log.info("Партиции потоковой загрузки узла изменились: {} -> {}", ownedPartitions, claimed);
+            subscribe(figiFilter, claimed);
+        }
+    }
+
+    /**
+     * Подписывает акции и фьючерсы реестра; уже открытые потоки закрываются и открываются заново
+     *
+     * @return количество инструментов в подписках
+     */
+    public int start() {
+        return start(figi -> true);
+    }
+
+    /**
+     * Подписывает акции и фьючерсы реестра по части инструментов
+     *
+     * <p>В кластере в подписки попадают только инструменты партиций, захваченных этим узлом.</p>
+     *
+     * @param figiFilter отбор инструментов; сохраняется для ежедневной переподписки
+     * @return количество инструментов в подписках
+     */
+    public synchronized int start(Predicate<String> figiFilter) {
+        return subscribe(figiFilter, clusterLockService.claimPartitionShare(CLUSTER_RESOURCE));
+    }
+
+    private int subscribe(Predicate<String> figiFilter, Set<Integer> partitions) {
+        closeSessions();
+        this.figiFilter = figiFilter;
+        this.ownedPartitions = partitions;
+        this.active = true;
+        Predicate<String> selected = figiFilter.and(figi -> partitions.contains(clusterLockService.partitionOf(figi)));
+
+        Map<String, InstrumentInfo> universe = new LinkedHashMap<>();
+        for (ShareEntity share : instrumentRegistry.getShares()) {
+            if (selected.test(share.getFigi())) {
+                universe.put(share.getFigi(), new InstrumentInfo(currencyOrDefault(share.getCurrency()), SHARE_EXCHANGE));
+            }
+        }
+        for (FutureEntity future : instrumentRegistry.getFutures()) {
+            if (selected.test(future.getFigi())) {
+                universe.put(future.getFigi(), new InstrumentInfo(currencyOrDefault(future.getCurrency()), FUTURE_EXCHANGE));
+            }
+        }
+        instruments = universe;
+
+        candleWriter.start();
+        tradeWriter.start();
+
+        List<String> figis = new ArrayList<>(universe.keySet());
+        for (int from = 0; from < figis.size(); from += instrumentsPerStream) {
+            List<String> group = List.copyOf(figis.subList(from, Math.min(from + instrumentsPerStream, figis.size())));
+            StreamSession session = new StreamSession(sessions.size() + 1, group);
+            sessions.add(session);
+            session.connect();
+        }
+        startedAt = Instant.now();
+        log.info("Потоковая загрузка рыночных данных: {} инструментов в {} потоках, партиции {}",
+            figis.size(), sessions.size(), partitions);
+        return figis.size();
+    }
+
+    /**
+     * Закрывает потоки и записывает накопленные в очередях свечи и сделки
+     */
+    public synchronized void stop() {
+        boolean wasRunning = isRunning();
+        active = false;
+        closeSessions();
+        candleWriter.stop();
+        tradeWriter.stop();
+        if (clusterLockService.isClusterEnabled()) {
+            try {
+                clusterLockService.releasePartitionShare(CLUSTER_RESOURCE);
+            } catch (Exception e) {
+                log.warn("Не удалось освободить партиции потоковой загрузки: {}", e.getMessage());
+            }
+            ownedPartitions = Set.of();
+        }
+        if (wasRunning) {
+            log.info("Потоковая загрузка рыночных данных остановлена");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stop();
+        reconnectExecutor.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return !sessions.isEmpty();
+    }
+
+    /**
+     * Последняя цена инструмента, полученная из потока с момента запуска
+     */
+    public Optional<StreamLastPrice> getLastPrice(String figi) {
+        return Optional.ofNullable(lastPrices.get(figi));
+    }
+
+    /**
+     * Состояние потоков, счетчики сообщений и очередей записи
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", isRunning());
+        status.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        status.put("instruments", instruments.size());
+        status.put("partitions", ownedPartitions);
+        status.put("streams", sessions.size());
+        status.put("connectedStreams", sessions.stream().filter(StreamSession::isConnected).count());
+        status.put("candlesReceived", candlesReceived.get());
+        status.put("tradesReceived", tradesReceived.get());
+        status.put("lastPricesReceived", lastPricesReceived.get());
+        status.put("reconnects", reconnects.get());
+        status.put("minuteCandlesWriter", candleWriter.getStats());
+        status.put("lastPricesWriter", tradeWriter.getStats());
+        return status;
+    }
+
+    private void closeSessions() {
+        for (StreamSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+    }
+
+    private void onCandle(Candle candle) {
+        if (candle.getInterval() != SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE) {
+            return;
+        }
+        candlesReceived.incrementAndGet();
+        // Подписка с waiting_close: приходят только закрытые свечи
+        candleWriter.offer(MinuteCandleMapper.toEntity(
+            candle.getFigi(),
+            candle.getTime().getSeconds(),
+            FixedPoint.of(candle.getOpen()),
+            FixedPoint.of(candle.getHigh()),
+            FixedPoint.of(candle.getLow()),
+            FixedPoint.of(candle.getClose()),
+            candle.getVolume(),
+            true,
+            tradingSessionCalendarService.current()));
+    }
+
+    private void onTrade(Trade trade) {
+        tradesReceived.incrementAndGet();
+        InstrumentInfo info = instruments.getOrDefault(trade.getFigi(), DEFAULT_INFO);
+        // Время сделки с точностью до секунды по Москве, как у ночной загрузки сделок
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(trade.getTime().getSeconds()), MOSCOW);
+        tradeWriter.offer(new LastPriceEntity(trade.getFigi(), time, FixedPoint.toBigDecimal(trade.getPrice()),
+            info.currency(), info.exchange()));
+    }
+
+    private void onLastPrice(LastPrice lastPrice) {
+        lastPricesReceived.incrementAndGet();
+        lastPrices.put(lastPrice.getFigi(), new StreamLastPrice(FixedPoint.toBigDecimal(lastPrice.getPrice()),
+            Instant.ofEpochSecond(lastPrice.getTime().getSeconds(), lastPrice.getTime().getNanos())));
+    }
+
+    /**
+     * Свечи пакета, которых еще нет в {@code minute_candles}
+     */
+    private List<MinuteCandleEntity> newCandles(List<MinuteCandleEntity> candles) {
+        if (candles.isEmpty()) {
+            return candles;
+        }
+        Set<String> figis = new HashSet<>();
+        candles.forEach(candle -> figis.add(candle.getFigi()));
+        Instant from = candles.stream().map(MinuteCandleEntity::getTime).min(Comparator.naturalOrder()).orElseThrow();
+        Instant to = candles.stream().map(MinuteCandleEntity::getTime).max(Comparator.naturalOrder()).orElseThrow();
+        return withoutKeys(candles, candle -> new MinuteCandleKey(candle.getFigi(), candle.getTime()),
+            minuteCandleRepository.findKeysByFigiInAndTimeBetween(figis, from, to));
+    }
+
+    /**
+     * Сделки пакета, которых еще нет в {@code last_prices}; из сделок инструмента за одну секунду
+     * остается первая, как при записи через COPY с ON CONFLICT DO NOTHING
+     */
+    private List<LastPriceEntity> newTrades(List<LastPriceEntity> trades) {
+        if (trades.isEmpty()) {
+            return trades;
+        }
+        Set<String> figis = new HashSet<>();
+        trades.forEach(trade -> figis.add(trade.getId().getFigi()));
+        LocalDateTime from = trades.stream().map(trade -> trade.getId().getTime()).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = trades.stream().map(trade -> trade.getId().getTime()).max(Comparator.naturalOrder()).orElseThrow();
+        return withoutKeys(trades, LastPriceEntity::getId,
+            lastPriceRepository.findIdsByFigiInAndTimeBetween(figis, from, to));
+    }
+
+    /**
+     * Отбрасывает строки с ключами, которые уже есть в таблице или встретились раньше в пакете
+     */
+    private static <T, K> List<T> withoutKeys(List<T> rows, Function<T, K> keyOf, Collection<K> existingKeys) {
+        Set<K> seenKeys = new HashSet<>(existingKeys);
+        List<T> result = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (seenKeys.add(keyOf.apply(row))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static String currencyOrDefault(String currency) {
+        return currency != null && !currency.isBlank() ? currency : DEFAULT_CURRENCY;
+    }
+
+    private static MarketDataRequest candlesRequest(List<String> figis) {
+        SubscribeCandlesRequest.Builder request = SubscribeCandlesRequest.newBuilder()
+            .setSubscriptionAction(SubscriptionAction.SUBSCRIPTION_ACTION_SUBSCRIBE)
+            .setWaitingClose(true);
+        for (String figi : figis) {
+            request.addInstruments(CandleInstrument.newBuilder()
+                .setInstrumentId(figi)
+                .setInterval(SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE));
+        }
+        return MarketDataRequest.newBuilder().setSubscribeCandlesRequest(request).build();
+    }
+
+    private static MarketDataRequest tradesRequest(List<String> figis) {
+        SubscribeTradesRequest.Builder request = SubscribeTradesRequest.newBuilder()
+            .setSubscriptionAction(SubscriptionAction.SUBSCRIPTION_ACTION_SUBSCRIBE);
+        for (String figi : figis) {
+            request.addInstruments(TradeInstrument.newBuilder().setInstrumentId(figi));
+        }
+        return MarketDataRequest.newBuilder().setSubscribeTradesRequest(request).build();
+    }
+
+    private static MarketDataRequest lastPricesRequest(List<String> figis) {
+        SubscribeLastPriceRequest.Builder request = SubscribeLastPriceRequest.newBuilder()
+            .setSubscriptionAction(SubscriptionAction.SUBSCRIPTION_ACTION_SUBSCRIBE);
+        for (String figi : figis) {
+            request.addInstruments(LastPriceInstrument.newBuilder().setInstrumentId(figi));
+        }
+        return MarketDataRequest.newBuilder().setSubscribeLastPriceRequest(request).build();
+    }
+
+    /**
+     * Один двунаправленный поток с подписками группы инструментов
+     */
+    private final class StreamSession implements StreamObserver<MarketDataResponse> {
+
+        private final int id;
+        private final List<String> figis;
+        private volatile StreamObserver<MarketDataRequest> requests;
+        private volatile boolean connected;
+        private volatile boolean closed;
+        private int attempt;
+
+        private StreamSession(int id, List<String> figis) {
+            this.id = id;
+            this.figis = figis;
+        }
+
+        boolean isConnected() {
+            return connected;
+        }
+
+        synchronized void connect() {
+            if (closed) {
+                return;
+            }
+            try {
+                requests = streamStub.marketDataStream(this);
+                requests.onNext(candlesRequest(figis));
+                requests.onNext(tradesRequest(figis));
+                requests.onNext(lastPricesRequest(figis));
+            } catch (RuntimeException e) {
+                log.warn("Поток {}: не удалось открыть подписки: {}", id, e.getMessage());
+                scheduleReconnect();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            connected = false;
+            if (requests instanceof ClientCallStreamObserver<MarketDataRequest> call) {
+                call.cancel("Остановка потоковой загрузки", null);
+            }
+        }
+
+        @Override
+        public void onNext(MarketDataResponse response) {
+            try {
+                if (response.hasCandle()) {
+                    onCandle(response.getCandle());
+                } else if (response.hasTrade()) {
+                    onTrade(response.getTrade());
+                } else if (response.hasLastPrice()) {
+                    onLastPrice(response.getLastPrice());
+                } else if (response.hasSubscribeCandlesResponse()) {
+                    onSubscribed("свечи", response.getSubscribeCandlesResponse().getCandlesSubscriptionsList().stream()
+                        .map(CandleSubscription::getSubscriptionStatus).toList());
+                } else if (response.hasSubscribeTradesResponse()) {
+                    onSubscribed("сделки", response.getSubscribeTradesResponse().getTradeSubscriptionsList().stream()
+                        .map(TradeSubscription::getSubscriptionStatus).toList());
+                } else if (response.hasSubscribeLastPriceResponse()) {
+                    onSubscribed("последние цены", response.getSubscribeLastPriceResponse().getLastPriceSubscriptionsList().stream()
+                        .map(LastPriceSubscription::getSubscriptionStatus).toList());
+                }
+            } catch (RuntimeException e) {
+                // Ошибка разбора одного сообщения не должна обрывать поток
+                log.warn("Поток {}: ошибка обработки сообщения: {}", id, e.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            connected = false;
+            if (!closed) {
+                log.warn("Поток {} ({} инструментов) оборван: {}", id, figis.size(), error.getMessage());
+                scheduleReconnect();
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            connected = false;
+            if (!closed) {
+                log.warn("Поток {} ({} инструментов) закрыт сервером", id, figis.size());
+                scheduleReconnect();
+            }
+        }
+
+        private synchronized void onSubscribed(String type, List<SubscriptionStatus> statuses) {
+            long failed = statuses.stream().filter(status -> status != SubscriptionStatus.SUBSCRIPTION_STATUS_SUCCESS).count();
+            if (failed > 0) {
+                log.warn("Поток {}: подписка на {} не оформлена для {} из {} инструментов", id, type, failed, statuses.size());
+            } else {
+                log.debug("Поток {}: подписка на {} оформлена для {} инструментов", id, type, statuses.size());
+            }
+            connected = true;
+            attempt = 0;
+        }
+
+        private synchronized void scheduleReconnect() {
+            if (closed) {
+                return;
+            }
+            long delay = Math.min(maxReconnectDelayMs, reconnectDelayMs << Math.min(attempt, 16));
+            attempt++;
+            reconnects.incrementAndGet();
+            log.info("Поток {}: переподключение через {} мс (попытка {})", id, delay, attempt);
+            reconnectExecutor.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
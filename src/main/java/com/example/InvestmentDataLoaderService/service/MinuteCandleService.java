@@ -4,11 +4,14 @@ import com.example.InvestmentDataLoaderService.dto.MinuteCandleRequestDto;
 import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
 import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
 import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
 import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
 import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.FutureRepository;
 import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
-import com.example.InvestmentDataLoaderService.repository.SystemLogRepository;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +24,12 @@ import java.time.ZoneId;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -39,10 +44,15 @@ public class MinuteCandleService {
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final TinkoffApiClient tinkoffApiClient;
-    private final SystemLogRepository systemLogRepository;
+    private final SystemLogWriter systemLogWriter;
+    private final BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter;
     private final Executor minuteCandleExecutor;
     private final Executor apiDataExecutor;
     private final Executor batchWriteExecutor;
+    private final VolumeRollupService volumeRollupService;
+    private final PipelineMetrics pipelineMetrics;
+    private final TradingSessionCalendarService tradingSessionCalendarService;
+    private final CandleDayCacheService candleDayCacheService;
 
     public MinuteCandleService(
             MinuteCandleRepository minuteCandleRepository,
@@ -50,25 +60,47 @@ public class MinuteCandleService {
             FutureRepository futureRepository,
             IndicativeRepository indicativeRepository,
             TinkoffApiClient tinkoffApiClient,
-            SystemLogRepository systemLogRepository,
+            SystemLogWriter systemLogWriter,
+            BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter,
             @Qualifier("minuteCandleExecutor") Executor minuteCandleExecutor,
             @Qualifier("apiDataExecutor") Executor apiDataExecutor,
-            @Qualifier("batchWriteExecutor") Executor batchWriteExecutor) {
+            @Qualifier("batchWriteExecutor") Executor batchWriteExecutor,
+            VolumeRollupService volumeRollupService,
+            PipelineMetrics pipelineMetrics,
+            TradingSessionCalendarService tradingSessionCalendarService,
+            CandleDayCacheService candleDayCacheService) {
         this.minuteCandleRepository = minuteCandleRepository;
         this.shareRepository = shareRepository;
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.tinkoffApiClient = tinkoffApiClient;
-        this.systemLogRepository = systemLogRepository;
+        this.systemLogWriter = systemLogWriter;
+        this.minuteCandleBulkWriter = minuteCandleBulkWriter;
         this.minuteCandleExecutor = minuteCandleExecutor;
         this.apiDataExecutor = apiDataExecutor;
         this.batchWriteExecutor = batchWriteExecutor;
+        this.volumeRollupService = volumeRollupService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tradingSessionCalendarService = tradingSessionCalendarService;
+        this.candleDayCacheService = candleDayCacheService;
     }
 
     /**
      * Загрузка минутных свечей
      */
     public CompletableFuture<SaveResponseDto> saveMinuteCandlesAsync(MinuteCandleRequestDto request, String taskId) {
+        return saveMinuteCandlesAsync(request, taskId, figi -> true);
+    }
+
+    /**
+     * Загрузка минутных свечей по части инструментов
+     * Future завершается, когда свечи всех инструментов записаны или истек таймаут ожидания;
+     * при таймауте ответ неуспешный
+     *
+     * @param figiFilter отбор инструментов (например, партиция FIGI узла кластера)
+     */
+    public CompletableFuture<SaveResponseDto> saveMinuteCandlesAsync(MinuteCandleRequestDto request, String taskId,
+                                                                 Predicate<String> figiFilter) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 log.info("=== НАЧАЛО ЗАГРУЗКИ МИНУТНЫХ СВЕЧЕЙ ===");
@@ -90,6 +122,7 @@ public class MinuteCandleService {
                 if (instrumentIds == null || instrumentIds.isEmpty()) {
                     instrumentIds = getAllInstrumentIds(assetTypes);
                 }
+                instrumentIds = instrumentIds.stream().filter(figiFilter).toList();
 
                 log.info("Загружаем минутные свечи для {} инструментов", instrumentIds.size());
                 log.info("Дата: {}", finalDate);
@@ -119,14 +152,26 @@ public class MinuteCandleService {
                 CompletableFuture<Void> allBatches = CompletableFuture.allOf(
                     batchTasks.toArray(new CompletableFuture[0]));
 
+                String incompleteReason = null;
                 try {
                     // Таймаут 2 часа для загрузки всех свечей
                     allBatches.get(2, TimeUnit.HOURS);
                 } catch (TimeoutException e) {
                     log.error("Превышен таймаут ожидания завершения загрузки минутных свечей (2 часа)");
                     // Продолжаем работу, чтобы вернуть статистику по обработанным данным
+                    incompleteReason = "превышен таймаут ожидания (2 часа)";
                 } catch (Exception e) {
                     log.error("Ошибка ожидания завершения загрузки минутных свечей: {}", e.getMessage(), e);
+                    incompleteReason = e.getMessage();
+                }
+
+                // Пересчитываем агрегацию объемов только за загруженный день
+                if (newItemsSaved.get() > 0) {
+                    try {
+                        volumeRollupService.rollupDays(finalDate, finalDate);
+                    } catch (Exception e) {
+                        log.error("Ошибка пересчета агрегации объемов за {}: {}", finalDate, e.getMessage(), e);
+                    }
                 }
 
                 log.info("=== ЗАВЕРШЕНИЕ ЗАГРУЗКИ МИНУТНЫХ СВЕЧЕЙ ===");
@@ -137,8 +182,10 @@ public class MinuteCandleService {
                 log.info("Отсутствует в API: {}", missingFromApi.get());
 
                 return new SaveResponseDto(
-                    true,
-                    "Загрузка минутных свечей завершена успешно",
+                    incompleteReason == null,
+                    incompleteReason == null
+                        ? "Загрузка минутных свечей завершена успешно"
+                        : "Загрузка минутных свечей не завершена: " + incompleteReason,
                     totalRequested.get(),
                     newItemsSaved.get(),
                     existingItemsSkipped.get(),
@@ -160,157 +207,173 @@ public class MinuteCandleService {
 
     /**
      * Обрабатывает батч инструментов
+     * Не занимает поток: future завершается, когда обработаны все инструменты батча
      */
     private CompletableFuture<Void> processBatchAsync(List<String> batch, LocalDate date, String taskId,
                                                      AtomicInteger totalRequested, AtomicInteger newItemsSaved,
                                                      AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
                                                      AtomicInteger missingFromApi, List<String> savedItems) {
-        return CompletableFuture.runAsync(() -> {
-            log.info("Обрабатываем батч из {} инструментов", batch.size());
-            
-            // Создаем задачи для каждого инструмента в батче
-            List<CompletableFuture<Void>> instrumentTasks = batch.stream()
-                .map(figi -> processInstrumentAsync(figi, date, taskId, totalRequested, 
-                    newItemsSaved, existingItemsSkipped, invalidItemsFiltered, 
-                    missingFromApi, savedItems))
-                .collect(Collectors.toList());
-
-            // Ждем завершения всех инструментов в батче с таймаутом
-            try {
-                CompletableFuture.allOf(instrumentTasks.toArray(new CompletableFuture[0]))
-                    .get(1, TimeUnit.HOURS);
-            } catch (TimeoutException e) {
-                log.error("Превышен таймаут ожидания завершения обработки батча (1 час)");
-            } catch (Exception e) {
-                log.error("Ошибка ожидания завершения обработки батча: {}", e.getMessage(), e);
-            }
-            
-            log.info("Батч из {} инструментов обработан", batch.size());
-        }, minuteCandleExecutor);
+        log.info("Обрабатываем батч из {} инструментов", batch.size());
+
+        // Создаем задачи для каждого инструмента в батче
+        List<CompletableFuture<Void>> instrumentTasks = batch.stream()
+            .map(figi -> processInstrumentAsync(figi, date, taskId, totalRequested, 
+                newItemsSaved, existingItemsSkipped, invalidItemsFiltered, 
+                missingFromApi, savedItems))
+            .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(instrumentTasks.toArray(new CompletableFuture[0]))
+            .thenRun(() -> log.info("Батч из {} инструментов обработан", batch.size()));
     }
 
     /**
      * Обрабатывает один инструмент асинхронно
+     * Запрос к API и запись в БД связаны цепочкой future: поток пула не ждет ответа API,
+     * запись выполняется в batchWriteExecutor после получения свечей
      */
     private CompletableFuture<Void> processInstrumentAsync(String figi, LocalDate date, String taskId,
                                                           AtomicInteger totalRequested, AtomicInteger newItemsSaved,
                                                           AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
                                                           AtomicInteger missingFromApi, List<String> savedItems) {
-        return CompletableFuture.runAsync(() -> {
-            AtomicInteger figiNewItems = new AtomicInteger(0);
-            AtomicInteger figiExistingItems = new AtomicInteger(0);
-            AtomicInteger figiInvalidItems = new AtomicInteger(0);
-            Instant figiStartTime = Instant.now();
-            
-            try {
-                log.info("Обрабатываем инструмент: {}", figi);
-                
-                // Получаем минутные свечи из API асинхронно
-                CompletableFuture<List<com.example.InvestmentDataLoaderService.dto.CandleDto>> apiTask = 
-                    CompletableFuture.supplyAsync(() -> {
-                        try {
-                            return tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
-                        } catch (Exception e) {
-                            log.error("Ошибка получения данных из API для {}: {}", figi, e.getMessage(), e);
-                            return null;
-                        }
-                    }, apiDataExecutor);
-
-                List<com.example.InvestmentDataLoaderService.dto.CandleDto> candles;
-                try {
-                    // Таймаут 5 минут для получения данных из API
-                    candles = apiTask.get(5, TimeUnit.MINUTES);
-                } catch (TimeoutException e) {
+        Instant figiStartTime = Instant.now();
+        log.info("Обрабатываем инструмент: {}", figi);
+
+        return fetchMinuteCandles(figi, date)
+            .handle((candles, error) -> {
+                if (error == null) {
+                    return candles;
+                }
+                Throwable cause = unwrap(error);
+                if (cause instanceof TimeoutException) {
                     log.error("Превышен таймаут получения данных из API для {} (5 минут)", figi);
-                    candles = null;
-                } catch (Exception e) {
-                    log.error("Ошибка получения данных из API для {}: {}", figi, e.getMessage(), e);
-                    candles = null;
+                } else {
+                    log.error("Ошибка получения данных из API для {}: {}", figi, cause.getMessage(), cause);
                 }
+                return null;
+            })
+            .thenAcceptAsync(candles -> saveInstrumentCandles(figi, date, candles, taskId, figiStartTime, totalRequested,
+                newItemsSaved, existingItemsSkipped, invalidItemsFiltered, missingFromApi, savedItems), batchWriteExecutor)
+            .exceptionally(error -> {
+                Throwable cause = unwrap(error);
+                log.error("Ошибка обработки инструмента {}: {}", figi, cause.getMessage(), cause);
+                invalidItemsFiltered.incrementAndGet();
                 
-                if (candles == null || candles.isEmpty()) {
-                    log.info("Нет данных для инструмента: {}", figi);
-                    missingFromApi.incrementAndGet();
-                    
-                    // Логируем отсутствие данных для FIGI
-                    logFigiProcessing(taskId, figi, "NO_DATA", "Нет данных в API для инструмента " + figi, 
-                        figiStartTime, 0, 0, 0, 0);
-                    return;
-                }
+                // Логируем ошибку обработки FIGI
+                logFigiProcessing(taskId, figi, "ERROR", 
+                    "Ошибка обработки инструмента " + figi + ": " + cause.getMessage(), 
+                    figiStartTime, 0, 0, 0, 0);
+                return null;
+            });
+    }
+
+    /**
+     * Запрашивает минутные свечи инструмента за день: через future-стаб без занятия потока
+     * (таймаут каждой попытки задает клиент, ожидание квоты в него не входит)
+     * или блокирующим вызовом в apiDataExecutor с таймаутом 5 минут
+     */
+    private CompletableFuture<List<com.example.InvestmentDataLoaderService.dto.CandleDto>> fetchMinuteCandles(String figi, LocalDate date) {
+        if (tinkoffApiClient.isAsyncStubsEnabled()) {
+            return tinkoffApiClient.getCandlesAsync(figi, date, "CANDLE_INTERVAL_1_MIN");
+        }
+        return CompletableFuture
+            .supplyAsync(() -> tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN"), apiDataExecutor)
+            .orTimeout(5, TimeUnit.MINUTES);
+    }
 
-                totalRequested.addAndGet(candles.size());
-                log.info("Получено {} минутных свечей для {}", candles.size(), figi);
+    /**
+     * Фильтрует полученные свечи инструмента, отбрасывает уже сохраненные и записывает новые
+     * Завершенный день после успешной записи отмечается загруженным для кэша свечей
+     * Выполняется в batchWriteExecutor
+     */
+    private void saveInstrumentCandles(String figi, LocalDate date, List<com.example.InvestmentDataLoaderService.dto.CandleDto> candles,
+                                       String taskId, Instant figiStartTime,
+                                       AtomicInteger totalRequested, AtomicInteger newItemsSaved,
+                                       AtomicInteger existingItemsSkipped, AtomicInteger invalidItemsFiltered,
+                                       AtomicInteger missingFromApi, List<String> savedItems) {
+        AtomicInteger figiNewItems = new AtomicInteger(0);
+        AtomicInteger figiExistingItems = new AtomicInteger(0);
+        AtomicInteger figiInvalidItems = new AtomicInteger(0);
+
+        if (candles == null || candles.isEmpty()) {
+            log.info("Нет данных для инструмента: {}", figi);
+            missingFromApi.incrementAndGet();
+            
+            // Логируем отсутствие данных для FIGI
+            logFigiProcessing(taskId, figi, "NO_DATA", "Нет данных в API для инструмента " + figi, 
+                figiStartTime, 0, 0, 0, 0);
+            return;
+        }
 
-                // Сохраняем свечи в БД пакетно
-                List<MinuteCandleEntity> entitiesToSave = new ArrayList<>();
-                List<String> existingTimes = new ArrayList<>();
+        totalRequested.addAndGet(candles.size());
+        log.info("Получено {} минутных свечей для {}", candles.size(), figi);
+
+        // Сохраняем свечи в БД пакетно
+        List<MinuteCandleEntity> entitiesToSave = new ArrayList<>();
+        List<String> existingTimes = new ArrayList<>();
+        
+        // Загружаем время уже сохраненных свечей одним запросом по диапазону
+        Set<Instant> existingCandleTimes = loadExistingCandleTimes(figi, candles);
+        TradingSessionCalendar sessions = tradingSessionCalendarService.current();
+        
+        for (var candle : candles) {
+            try {
+                // Фильтруем незакрытые свечи (is_complete=false)
+                if (!candle.isComplete()) {
+                    log.info("Пропускаем незакрытую свечу для {} в {}", figi, candle.time());
+                    invalidItemsFiltered.incrementAndGet();
+                    continue;
+                }
                 
-                for (var candle : candles) {
-                    try {
-                        // Фильтруем незакрытые свечи (is_complete=false)
-                        if (!candle.isComplete()) {
-                            log.info("Пропускаем незакрытую свечу для {} в {}", figi, candle.time());
-                            invalidItemsFiltered.incrementAndGet();
-                            continue;
-                        }
-                        
-                        MinuteCandleEntity entity = convertToEntity(candle, figi);
-                        
-                        // Проверяем, существует ли уже такая свеча
-                        if (!minuteCandleRepository.existsByFigiAndTime(figi, entity.getTime())) {
-                            entitiesToSave.add(entity);
-                            savedItems.add(figi + ":" + entity.getTime());
-                        } else {
-                            existingTimes.add(entity.getTime().toString());
-                        }
-                    } catch (Exception e) {
-                        log.error("Ошибка конвертации свечи для {}: {}", figi, e.getMessage(), e);
-                        figiInvalidItems.incrementAndGet();
-                        invalidItemsFiltered.incrementAndGet();
-                    }
+                MinuteCandleEntity entity = MinuteCandleMapper.toEntity(figi, candle, sessions);
+                
+                // Проверяем, существует ли уже такая свеча (в БД или ранее в этом же ответе API)
+                if (existingCandleTimes.add(entity.getTime())) {
+                    entitiesToSave.add(entity);
+                    savedItems.add(figi + ":" + entity.getTime());
+                } else {
+                    existingTimes.add(entity.getTime().toString());
                 }
+            } catch (Exception e) {
+                log.error("Ошибка конвертации свечи для {}: {}", figi, e.getMessage(), e);
+                figiInvalidItems.incrementAndGet();
+                invalidItemsFiltered.incrementAndGet();
+            }
+        }
+        pipelineMetrics.countCandlesConverted(PipelineJob.MINUTE, entitiesToSave.size() + existingTimes.size());
+        pipelineMetrics.countDedupHits(PipelineJob.MINUTE, existingTimes.size());
 
-                // Пакетная запись в БД
-                if (!entitiesToSave.isEmpty()) {
-                    try {
-                        CompletableFuture<Void> saveTask = CompletableFuture.runAsync(() -> {
-                            try {
-                                saveMinuteCandlesBatch(entitiesToSave);
-                                figiNewItems.addAndGet(entitiesToSave.size());
-                                newItemsSaved.addAndGet(entitiesToSave.size());
-                                log.info("Сохранено {} новых свечей для {}", entitiesToSave.size(), figi);
-                            } catch (Exception e) {
-                                log.error("Ошибка пакетного сохранения для {}: {}", figi, e.getMessage(), e);
-                            }
-                        }, batchWriteExecutor);
-                        
-                        // Таймаут 10 минут для сохранения батча
-                        saveTask.get(10, TimeUnit.MINUTES);
-                    } catch (TimeoutException e) {
-                        log.error("Превышен таймаут сохранения батча для {} (10 минут)", figi);
-                    } catch (Exception e) {
-                        log.error("Ошибка ожидания сохранения батча для {}: {}", figi, e.getMessage(), e);
-                    }
-                }
+        // Пакетная запись в БД (уже в batchWriteExecutor)
+        boolean written = figiInvalidItems.get() == 0;
+        if (!entitiesToSave.isEmpty()) {
+            try {
+                int inserted = saveMinuteCandlesBatch(entitiesToSave);
+                figiNewItems.addAndGet(inserted);
+                newItemsSaved.addAndGet(inserted);
+                // Строки, отброшенные ON CONFLICT, появились в БД параллельно с проверкой
+                figiExistingItems.addAndGet(entitiesToSave.size() - inserted);
+                existingItemsSkipped.addAndGet(entitiesToSave.size() - inserted);
+                log.info("Сохранено {} новых свечей для {} ({})", inserted, figi, minuteCandleBulkWriter.getName());
+            } catch (Exception e) {
+                log.error("Ошибка пакетного сохранения для {}: {}", figi, e.getMessage(), e);
+                written = false;
+            }
+        }
+        if (written) {
+            candleDayCacheService.markLoaded(figi, CandleBackfillService.MINUTE_INTERVAL, date,
+                entitiesToSave.size() + existingTimes.size());
+        }
 
-                figiExistingItems.addAndGet(existingTimes.size());
-                existingItemsSkipped.addAndGet(existingTimes.size());
+        figiExistingItems.addAndGet(existingTimes.size());
+        existingItemsSkipped.addAndGet(existingTimes.size());
 
-                // Логируем успешную обработку FIGI
-                logFigiProcessing(taskId, figi, "SUCCESS", 
-                    "Успешно обработан инструмент " + figi + ". Получено " + candles.size() + " свечей", 
-                    figiStartTime, candles.size(), figiNewItems.get(), figiExistingItems.get(), figiInvalidItems.get());
+        // Логируем успешную обработку FIGI
+        logFigiProcessing(taskId, figi, "SUCCESS", 
+            "Успешно обработан инструмент " + figi + ". Получено " + candles.size() + " свечей", 
+            figiStartTime, candles.size(), figiNewItems.get(), figiExistingItems.get(), figiInvalidItems.get());
+    }
 
-            } catch (Exception e) {
-                log.error("Ошибка обработки инструмента {}: {}", figi, e.getMessage(), e);
-                invalidItemsFiltered.incrementAndGet();
-                
-                // Логируем ошибку обработки FIGI
-                logFigiProcessing(taskId, figi, "ERROR", 
-                    "Ошибка обработки инструмента " + figi + ": " + e.getMessage(), 
-                    figiStartTime, 0, 0, 0, 0);
-            }
-        }, minuteCandleExecutor);
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
@@ -342,22 +405,34 @@ public class MinuteCandleService {
     }
 
     /**
-     * Конвертирует DTO свечи в Entity
+     * Загружает время уже сохраненных свечей инструмента одним запросом
+     * Диапазон берется по минимальному и максимальному времени полученных свечей,
+     * что позволяет задействовать партиционирование и индекс (figi, time)
      */
-    private MinuteCandleEntity convertToEntity(com.example.InvestmentDataLoaderService.dto.CandleDto candle, String figi) {
-        return new MinuteCandleEntity(
-            figi,
-            candle.volume(),
-            candle.high(),
-            candle.low(),
-            candle.time(),
-            candle.close(),
-            candle.open(),
-            candle.isComplete()
-        );
+    private Set<Instant> loadExistingCandleTimes(String figi, List<com.example.InvestmentDataLoaderService.dto.CandleDto> candles) {
+        Instant minTime = null;
+        Instant maxTime = null;
+        for (var candle : candles) {
+            Instant time = candle.time();
+            if (time == null) {
+                continue;
+            }
+            if (minTime == null || time.isBefore(minTime)) {
+                minTime = time;
+            }
+            if (maxTime == null || time.isAfter(maxTime)) {
+                maxTime = time;
+            }
+        }
+        
+        if (minTime == null) {
+            return new HashSet<>();
+        }
+        
+        List<Instant> existingTimes = minuteCandleRepository.findTimesByFigiAndTimeBetween(figi, minTime, maxTime);
+        return existingTimes != null ? new HashSet<>(existingTimes) : new HashSet<>();
     }
 
-
     /**
      * Разбивает список на части указанного размера
      */
@@ -371,10 +446,13 @@ public class MinuteCandleService {
 
     /**
      * Транзакционное пакетное сохранение минутных свечей
+     * Способ записи (JPA или COPY) задается параметром bulk-writer.minute-candles
+     *
+     * @return количество фактически вставленных свечей
      */
     @Transactional
-    public void saveMinuteCandlesBatch(List<MinuteCandleEntity> entities) {
-        minuteCandleRepository.saveAll(entities);
+    public int saveMinuteCandlesBatch(List<MinuteCandleEntity> entities) {
+        return minuteCandleBulkWriter.write(entities);
     }
 
     /**
@@ -399,8 +477,9 @@ public class MinuteCandleService {
             figiLog.setEndTime(Instant.now());
             figiLog.setDurationMs(Instant.now().toEpochMilli() - startTime.toEpochMilli());
             
-            systemLogRepository.save(figiLog);
-            log.info("Лог обработки FIGI сохранен: {} ({})", figi, status);
+            // Запись в system_logs пакетами в фоне, без отдельной транзакции на каждый FIGI
+            systemLogWriter.write(figiLog);
+            log.info("Лог обработки FIGI поставлен в очередь: {} ({})", figi, status);
             
         } catch (Exception e) {
             log.error("Ошибка сохранения лога обработки FIGI {}: {}", figi, e.getMessage(), e);
@@ -7,6 +7,7 @@ import com.example.InvestmentDataLoaderService.entity.OpenPriceEntity;
 import com.example.InvestmentDataLoaderService.entity.FutureEntity;
 import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
 import com.example.InvestmentDataLoaderService.entity.ShareEntity;
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
 import com.example.InvestmentDataLoaderService.repository.OpenPriceRepository;
 import com.example.InvestmentDataLoaderService.repository.FutureRepository;
 import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
@@ -14,6 +15,7 @@ import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.MinuteCandleRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -21,7 +23,11 @@ import java.time.LocalDate;
 
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -29,22 +35,33 @@ import java.util.concurrent.CompletableFuture;
 public class MorningSessionService {
 
     private static final Logger log = LoggerFactory.getLogger(MorningSessionService.class);
+
+    private static final String INSERT_OPEN_PRICE_SQL =
+        "INSERT INTO invest.open_prices (price_date, figi, instrument_type, open_price, currency, exchange, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, now(), now()) ON CONFLICT (figi, price_date) DO NOTHING";
+
     private final ShareRepository shareRepository;
     private final FutureRepository futureRepository;
     private final IndicativeRepository indicativeRepository;
     private final MinuteCandleRepository minuteCandleRepository;
     private final OpenPriceRepository openPriceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PipelineMetrics pipelineMetrics;
 
     public MorningSessionService(ShareRepository shareRepository, 
                                FutureRepository futureRepository,
                                IndicativeRepository indicativeRepository,
                                OpenPriceRepository openPriceRepository,
-                               MinuteCandleRepository minuteCandleRepository) {
+                               MinuteCandleRepository minuteCandleRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PipelineMetrics pipelineMetrics) {
         this.shareRepository = shareRepository;
         this.futureRepository = futureRepository;
         this.indicativeRepository = indicativeRepository;
         this.openPriceRepository = openPriceRepository;
         this.minuteCandleRepository = minuteCandleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
     /**
@@ -57,6 +74,10 @@ public class MorningSessionService {
     /**
      * Обрабатывает цены открытия утренней сессии для указанной даты
      * includeIndicatives: включать ли индикативные инструменты
+     *
+     * <p>Первые цены открытия всех инструментов за сутки берутся одним запросом
+     * ({@code DISTINCT ON (figi)}), существующие записи - одним запросом по дате,
+     * новые записи вставляются одним пакетом с {@code ON CONFLICT DO NOTHING}.</p>
      */
     public SaveResponseDto processMorningSessionPrices(LocalDate date, String taskId, boolean includeIndicatives) {
         try {
@@ -68,174 +89,71 @@ public class MorningSessionService {
             List<IndicativeEntity> indicatives = includeIndicatives ? indicativeRepository.findAll() : new ArrayList<>();
             log.info("[{}] Найдено {} акций, {} фьючерсов и {} индикативных инструментов для обработки", taskId, shares.size(), futures.size(), indicatives.size());
             
-            List<OpenPriceDto> savedItems = new ArrayList<>();
-            int totalRequested = 0;
-            int savedCount = 0;
+            Map<String, BigDecimal> firstOpenPrices = findFirstOpenPricesForDate(date, taskId);
+            Set<String> existingFigis = new HashSet<>(openPriceRepository.findFigisByPriceDate(date));
+            log.info("[{}] Найдено первых свечей: {}, существующих записей: {}", taskId, firstOpenPrices.size(), existingFigis.size());
+            
+            List<OpenPriceDto> candidates = new ArrayList<>();
             int existingCount = 0;
-            int processedInstruments = 0;
             
-            // Обрабатываем акции
+            // Акции
             for (ShareEntity share : shares) {
-                try {
-                    processedInstruments++;
-                    log.info("[{}] Обработка акции {}/{}: {} ({})", taskId, processedInstruments, (shares.size() + futures.size()), share.getTicker(), share.getFigi());
-                    
-                    // Проверяем, есть ли уже запись для этой даты и FIGI
-                    if (openPriceRepository.existsByPriceDateAndFigi(date, share.getFigi())) {
-                        existingCount++;
-                        log.info("[{}] Запись уже существует для {} за {}", taskId, share.getTicker(), date);
-                        continue;
-                    }
-                    
-                    // Ищем первую свечу за указанную дату до 06:59:59
-                    BigDecimal firstOpenPrice = findFirstOpenPriceForDate(share.getFigi(), date, taskId, "share");
-                    
-                    if (firstOpenPrice != null) {
-                        totalRequested++;
-                        
-                        // Создаем DTO для сохранения
-                        OpenPriceDto dto = new OpenPriceDto(
-                            share.getFigi(),
-                            date,
-                            firstOpenPrice,
-                            "share",
-                            "RUB",
-                            "moex_mrng_evng_e_wknd_dlr"
-                        );
-                        
-                        // Сохраняем в БД
-                        OpenPriceEntity entity = new OpenPriceEntity();
-                        entity.setId(new com.example.InvestmentDataLoaderService.entity.OpenPriceKey(date, share.getFigi()));
-                        entity.setInstrumentType(dto.instrumentType());
-                        entity.setOpenPrice(dto.openPrice());
-                        entity.setCurrency(dto.currency());
-                        entity.setExchange(dto.exchange());
-                        
-                        openPriceRepository.save(entity);
-                        savedItems.add(dto);
-                        savedCount++;
-                        
-                        log.info("[{}] Сохранена цена открытия для {}: {}", taskId, share.getTicker(), firstOpenPrice);
-                    } else {
-                        log.info("[{}] Не найдена свеча для {} за {}", taskId, share.getTicker(), date);
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("[{}] Ошибка обработки акции {}", taskId, share.getTicker(), e);
+                if (existingFigis.contains(share.getFigi())) {
+                    existingCount++;
+                    continue;
+                }
+                BigDecimal firstOpenPrice = firstOpenPrices.get(share.getFigi());
+                if (firstOpenPrice != null) {
+                    candidates.add(new OpenPriceDto(share.getFigi(), date, firstOpenPrice,
+                        "share", "RUB", "moex_mrng_evng_e_wknd_dlr"));
                 }
             }
             
-            // Обрабатываем фьючерсы
+            // Фьючерсы
             for (FutureEntity future : futures) {
-                try {
-                    processedInstruments++;
-                    log.info("[{}] Обработка фьючерса {}/{}: {} ({})", taskId, processedInstruments, (shares.size() + futures.size()), future.getTicker(), future.getFigi());
-                    
-                    // Проверяем, есть ли уже запись для этой даты и FIGI
-                    if (openPriceRepository.existsByPriceDateAndFigi(date, future.getFigi())) {
-                        existingCount++;
-                        log.info("[{}] Запись уже существует для {} за {}", taskId, future.getTicker(), date);
-                        continue;
-                    }
-                    
-                    // Ищем первую свечу за указанную дату до 08:59:59
-                    BigDecimal firstOpenPrice = findFirstOpenPriceForDate(future.getFigi(), date, taskId, "future");
-                    
-                    if (firstOpenPrice != null) {
-                        totalRequested++;
-                        
-                        // Создаем DTO для сохранения
-                        OpenPriceDto dto = new OpenPriceDto(
-                            future.getFigi(),
-                            date,
-                            firstOpenPrice,
-                            "future",
-                            "RUB",
-                            "FORTS_EVENING"
-                        );
-                        
-                        // Сохраняем в БД
-                        OpenPriceEntity entity = new OpenPriceEntity();
-                        entity.setId(new com.example.InvestmentDataLoaderService.entity.OpenPriceKey(date, future.getFigi()));
-                        entity.setInstrumentType(dto.instrumentType());
-                        entity.setOpenPrice(dto.openPrice());
-                        entity.setCurrency(dto.currency());
-                        entity.setExchange(dto.exchange());
-                        
-                        openPriceRepository.save(entity);
-                        savedItems.add(dto);
-                        savedCount++;
-                        
-                        log.info("[{}] Сохранена цена открытия для {}: {}", taskId, future.getTicker(), firstOpenPrice);
-                    } else {
-                        log.info("[{}] Не найдена свеча для {} за {}", taskId, future.getTicker(), date);
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("[{}] Ошибка обработки фьючерса {}", taskId, future.getTicker(), e);
+                if (existingFigis.contains(future.getFigi())) {
+                    existingCount++;
+                    continue;
+                }
+                BigDecimal firstOpenPrice = firstOpenPrices.get(future.getFigi());
+                if (firstOpenPrice != null) {
+                    candidates.add(new OpenPriceDto(future.getFigi(), date, firstOpenPrice,
+                        "future", "RUB", "FORTS_EVENING"));
                 }
             }
             
-            // Обрабатываем индикативные инструменты (опционально)
-            if (includeIndicatives) {
-                for (IndicativeEntity indicative : indicatives) {
-                    // Пропускаем пустые или null FIGI
-                    if (indicative.getFigi() == null || indicative.getFigi().trim().isEmpty()) {
-                        log.warn("[{}] Skipping empty or null FIGI for indicative: {}", taskId, indicative.getTicker());
-                        continue;
-                    }
-                    
-                    try {
-                        processedInstruments++;
-                        log.info("[{}] Обработка индикативного инструмента {}/{}: {} ({})", taskId, processedInstruments, (shares.size() + futures.size() + indicatives.size()), indicative.getTicker(), indicative.getFigi());
-                        
-                        // Проверяем, есть ли уже запись для этой даты и FIGI
-                        if (openPriceRepository.existsByPriceDateAndFigi(date, indicative.getFigi())) {
-                            existingCount++;
-                            log.info("[{}] Запись уже существует для {} за {}", taskId, indicative.getTicker(), date);
-                            continue;
-                        }
-                        
-                        BigDecimal firstOpenPrice = findFirstOpenPriceForDate(indicative.getFigi(), date, taskId, "indicative");
-                        
-                        if (firstOpenPrice != null) {
-                            totalRequested++;
-                            
-                            // Создаем DTO для сохранения
-                            OpenPriceDto dto = new OpenPriceDto(
-                                indicative.getFigi(),
-                                date,
-                                firstOpenPrice,
-                                "indicative",
-                                indicative.getCurrency() != null ? indicative.getCurrency() : "USD",
-                                "MOEX"
-                            );
-                            
-                            // Сохраняем в БД
-                            OpenPriceEntity entity = new OpenPriceEntity();
-                            entity.setId(new com.example.InvestmentDataLoaderService.entity.OpenPriceKey(date, indicative.getFigi()));
-                            entity.setInstrumentType(dto.instrumentType());
-                            entity.setOpenPrice(dto.openPrice());
-                            entity.setCurrency(dto.currency());
-                            entity.setExchange(dto.exchange());
-                            
-                            openPriceRepository.save(entity);
-                            savedItems.add(dto);
-                            savedCount++;
-                            
-                            log.info("[{}] Сохранена цена открытия для {}: {}", taskId, indicative.getTicker(), firstOpenPrice);
-                        } else {
-                            log.info("[{}] Не найдена свеча для {} за {}", taskId, indicative.getTicker(), date);
-                        }
-                        
-                    } catch (Exception e) {
-                        log.error("[{}] Ошибка обработки индикативного инструмента {}", taskId, indicative.getTicker(), e);
-                    }
+            // Индикативные инструменты (опционально)
+            for (IndicativeEntity indicative : indicatives) {
+                // Пропускаем пустые или null FIGI
+                if (indicative.getFigi() == null || indicative.getFigi().trim().isEmpty()) {
+                    log.warn("[{}] Skipping empty or null FIGI for indicative: {}", taskId, indicative.getTicker());
+                    continue;
                 }
+                if (existingFigis.contains(indicative.getFigi())) {
+                    existingCount++;
+                    continue;
+                }
+                BigDecimal firstOpenPrice = firstOpenPrices.get(indicative.getFigi());
+                if (firstOpenPrice != null) {
+                    candidates.add(new OpenPriceDto(indicative.getFigi(), date, firstOpenPrice,
+                        "indicative", indicative.getCurrency() != null ? indicative.getCurrency() : "USD", "MOEX"));
+                }
+            }
+            
+            int totalRequested = candidates.size();
+            List<OpenPriceDto> savedItems;
+            try {
+                savedItems = insertOpenPrices(candidates);
+                // Записи, вставленные параллельным запуском между чтением и вставкой
+                existingCount += totalRequested - savedItems.size();
+            } catch (Exception e) {
+                log.error("[{}] Ошибка пакетного сохранения цен открытия за {}", taskId, date, e);
+                savedItems = new ArrayList<>();
             }
+            int savedCount = savedItems.size();
             
             log.info("[{}] Обработка завершена:", taskId);
-            log.info("[{}] - Обработано инструментов: {} (акций: {}, фьючерсов: {}, индикативных: {})", taskId, processedInstruments, shares.size(), futures.size(), indicatives.size());
+            log.info("[{}] - Обработано инструментов: {} (акций: {}, фьючерсов: {}, индикативных: {})", taskId, shares.size() + futures.size() + indicatives.size(), shares.size(), futures.size(), indicatives.size());
             log.info("[{}] - Запрошено цен: {}", taskId, totalRequested);
             log.info("[{}] - Сохранено новых: {}", taskId, savedCount);
             log.info("[{}] - Пропущено существующих: {}", taskId, existingCount);
@@ -266,6 +184,53 @@ public class MorningSessionService {
         }
     }
 
+    /**
+     * Первые цены открытия всех инструментов за сутки (по Москве) одним запросом
+     */
+    private Map<String, BigDecimal> findFirstOpenPricesForDate(LocalDate date, String taskId) {
+        Map<String, BigDecimal> prices = new HashMap<>();
+        try {
+            var zone = ZoneId.of("Europe/Moscow");
+            List<Object[]> rows = minuteCandleRepository.findFirstOpenPricesBetween(
+                date.atStartOfDay(zone).toInstant(), date.plusDays(1).atStartOfDay(zone).toInstant());
+            for (Object[] row : rows) {
+                prices.put((String) row[0], (BigDecimal) row[1]);
+            }
+        } catch (Exception e) {
+            log.error("[{}] Ошибка поиска первых свечей за {}", taskId, date, e);
+        }
+        return prices;
+    }
+
+    /**
+     * Пакетная вставка цен открытия, дубликаты по (price_date, figi) отбрасываются БД
+     *
+     * @return фактически вставленные записи
+     */
+    private List<OpenPriceDto> insertOpenPrices(List<OpenPriceDto> prices) {
+        if (prices.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object[]> rows = new ArrayList<>(prices.size());
+        for (OpenPriceDto price : prices) {
+            rows.add(new Object[]{price.priceDate(), price.figi(), price.instrumentType(),
+                price.openPrice(), price.currency(), price.exchange()});
+        }
+        long writeStart = System.nanoTime();
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_OPEN_PRICE_SQL, rows);
+        pipelineMetrics.recordWrite(PipelineJob.MORNING, prices.size(), System.nanoTime() - writeStart);
+
+        List<OpenPriceDto> inserted = new ArrayList<>(prices.size());
+        for (int i = 0; i < prices.size(); i++) {
+            // SUCCESS_NO_INFO (-2) при переписывании пакета драйвером считаем вставкой
+            if (i >= counts.length || counts[i] != 0) {
+                inserted.add(prices.get(i));
+            }
+        }
+        pipelineMetrics.countDedupHits(PipelineJob.MORNING, prices.size() - inserted.size());
+        return inserted;
+    }
+
     /**
      * Находит цену открытия как цену первой минутной свечи за сутки (по Москве) для указанной даты и FIGI
      * Без ограничений по времени: берется самая ранняя свеча в дне.
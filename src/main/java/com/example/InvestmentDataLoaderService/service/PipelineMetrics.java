@@ -0,0 +1,121 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.enums.PipelineJob;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики этапов конвейера загрузки (Micrometer)
+ *
+ * <ul>
+ *   <li>{@code pipeline.api.calls} - длительность вызовов T-Invest API по методу и результату (gRPC-статус)</li>
+ *   <li>{@code pipeline.api.retries} - повторные попытки по методу и причине (RESOURCE_EXHAUSTED и др.)</li>
+ *   <li>{@code pipeline.candles.converted} - свечи, преобразованные из ответа API в строки БД</li>
+ *   <li>{@code pipeline.db.write} и {@code pipeline.db.write.rows} - длительность пакетной записи и строк в пакете</li>
+ *   <li>{@code pipeline.dedup.hits} - строки, отброшенные как уже существующие</li>
+ * </ul>
+ *
+ * <p>Метрики заданий помечены тегом {@code job} ({@link PipelineJob}). Пулы {@code AsyncConfig}
+ * публикуются как {@code pipeline.executor.*}.</p>
+ */
+@Service
+public class PipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Вызов API
+     *
+     * @param method короткое имя метода, например {@code MarketDataService/GetCandles}
+     * @param outcome код gRPC-статуса ({@code OK}, {@code RESOURCE_EXHAUSTED}, ...)
+     */
+    public void recordApiCall(String method, String outcome, long durationNanos) {
+        Timer.builder("pipeline.api.calls")
+            .description("Длительность вызовов T-Invest API")
+            .tag("method", method)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Повторная попытка вызова API
+     *
+     * @param reason код gRPC-статуса или класс исключения
+     */
+    public void countRetry(String method, String reason) {
+        Counter.builder("pipeline.api.retries")
+            .description("Повторные попытки вызовов T-Invest API")
+            .tag("method", method)
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Свечи, преобразованные из ответа API в строки для записи
+     */
+    public void countCandlesConverted(PipelineJob job, int count) {
+        if (count > 0) {
+            counter("pipeline.candles.converted", job).increment(count);
+        }
+    }
+
+    /**
+     * Пакетная запись в БД
+     *
+     * @param rows строк в пакете
+     */
+    public void recordWrite(PipelineJob job, int rows, long durationNanos) {
+        Timer.builder("pipeline.db.write")
+            .description("Длительность пакетной записи в БД")
+            .tag("job", job.getTag())
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("pipeline.db.write.rows")
+            .description("Строк в пакете записи")
+            .tag("job", job.getTag())
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(rows);
+    }
+
+    /**
+     * Строки, отброшенные как уже существующие (проверкой перед записью или ON CONFLICT)
+     */
+    public void countDedupHits(PipelineJob job, int count) {
+        if (count > 0) {
+            counter("pipeline.dedup.hits", job).increment(count);
+        }
+    }
+
+    /**
+     * Причина повторной попытки: код gRPC-статуса из цепочки причин или класс исключения
+     */
+    public static String retryReason(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StatusRuntimeException statusError) {
+                return statusError.getStatus().getCode().name();
+            }
+        }
+        return error != null ? error.getClass().getSimpleName() : "UNKNOWN";
+    }
+
+    private Counter counter(String name, PipelineJob job) {
+        return Counter.builder(name)
+            .tag("job", job.getTag())
+            .register(meterRegistry);
+    }
+}
@@ -1,18 +1,22 @@
 package com.example.InvestmentDataLoaderService.service;
 
+import com.example.InvestmentDataLoaderService.config.RateLimitConfig.RateLimitProperties;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Сервис для управления ограничением скорости запросов к API
  * Предотвращает превышение лимитов API (HTTP 429)
+ *
+ * <p>Ограничивает число одновременных запросов, а темп запросов отдает общему
+ * {@link ApiRateLimiter}, которым пользуются и остальные клиенты T-Invest API.</p>
  */
 @Service
 public class RateLimitService {
@@ -22,17 +26,18 @@ public class RateLimitService {
     // Семафор для ограничения количества одновременных запросов
     private final Semaphore apiSemaphore;
     
-    // Карта для отслеживания времени последнего запроса для каждого типа операции
-    private final ConcurrentHashMap<String, Instant> lastRequestTimes = new ConcurrentHashMap<>();
-    
-    // Минимальный интервал между запросами (в миллисекундах)
-    private static final long MIN_REQUEST_INTERVAL_MS = 100; // 100ms между запросами
+    // Типы операций, по которым уже выполнялись запросы
+    private final Set<String> operationTypes = ConcurrentHashMap.newKeySet();
     
     // Максимальное количество одновременных запросов
-    private static final int MAX_CONCURRENT_REQUESTS = 5;
+    private final int maxConcurrentRequests;
+
+    private final ApiRateLimiter apiRateLimiter;
 
-    public RateLimitService() {
-        this.apiSemaphore = new Semaphore(MAX_CONCURRENT_REQUESTS);
+    public RateLimitService(RateLimitProperties rateLimitProperties, ApiRateLimiter apiRateLimiter) {
+        this.maxConcurrentRequests = Math.max(1, rateLimitProperties.getMaxConcurrentRequests());
+        this.apiSemaphore = new Semaphore(maxConcurrentRequests);
+        this.apiRateLimiter = apiRateLimiter;
     }
 
     /**
@@ -45,18 +50,13 @@ public class RateLimitService {
         // Получаем разрешение на выполнение запроса
         apiSemaphore.acquire();
         
-        try {
-            // Проверяем минимальный интервал между запросами
-            waitForMinimumInterval(operationType);
-            
-            // Обновляем время последнего запроса
-            lastRequestTimes.put(operationType, Instant.now());
-            
-        } catch (InterruptedException e) {
-            // Если произошла ошибка, освобождаем семафор
+        // Ожидаем токен в квоте группы методов
+        if (!apiRateLimiter.acquire(resolveGroup(operationType))) {
+            // Если поток прерван, освобождаем семафор
             apiSemaphore.release();
-            throw e;
+            throw new InterruptedException("Прервано ожидание квоты API для " + operationType);
         }
+        operationTypes.add(operationType);
     }
 
     /**
@@ -85,19 +85,21 @@ public class RateLimitService {
     }
 
     /**
-     * Ожидает минимальный интервал между запросами
+     * Определяет группу методов API по типу операции
      */
-    private void waitForMinimumInterval(String operationType) throws InterruptedException {
-        Instant lastRequest = lastRequestTimes.get(operationType);
-        if (lastRequest != null) {
-            Instant now = Instant.now();
-            Duration elapsed = Duration.between(lastRequest, now);
-            
-            if (elapsed.toMillis() < MIN_REQUEST_INTERVAL_MS) {
-                long waitTime = MIN_REQUEST_INTERVAL_MS - elapsed.toMillis();
-                System.out.println("Rate limiting: ожидание " + waitTime + "ms перед следующим запросом для " + operationType);
-                Thread.sleep(waitTime);
-            }
+    static ApiMethodGroup resolveGroup(String operationType) {
+        if (operationType == null) {
+            return ApiMethodGroup.MARKET_DATA;
+        }
+        switch (operationType) {
+            case "instruments":
+            case "dividends":
+            case "fundamentals":
+                return ApiMethodGroup.INSTRUMENTS;
+            case "accounts":
+                return ApiMethodGroup.USERS;
+            default:
+                return ApiMethodGroup.MARKET_DATA;
         }
     }
 
@@ -107,8 +109,9 @@ public class RateLimitService {
     public RateLimitStats getStats() {
         return new RateLimitStats(
             apiSemaphore.availablePermits(),
-            MAX_CONCURRENT_REQUESTS,
-            lastRequestTimes.size()
+            maxConcurrentRequests,
+            operationTypes.size(),
+            apiRateLimiter.getStats()
         );
     }
 
@@ -127,17 +130,20 @@ public class RateLimitService {
         private final int availablePermits;
         private final int maxPermits;
         private final int activeOperationTypes;
+        private final Map<String, Object> quotas;
 
-        public RateLimitStats(int availablePermits, int maxPermits, int activeOperationTypes) {
+        public RateLimitStats(int availablePermits, int maxPermits, int activeOperationTypes, Map<String, Object> quotas) {
             this.availablePermits = availablePermits;
             this.maxPermits = maxPermits;
             this.activeOperationTypes = activeOperationTypes;
+            this.quotas = quotas;
         }
 
         public int getAvailablePermits() { return availablePermits; }
         public int getMaxPermits() { return maxPermits; }
         public int getActiveOperationTypes() { return activeOperationTypes; }
         public int getUsedPermits() { return maxPermits - availablePermits; }
+        public Map<String, Object> getQuotas() { return quotas; }
     }
 }
 
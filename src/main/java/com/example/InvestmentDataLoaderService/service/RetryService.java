@@ -25,6 +25,12 @@ public class RetryService {
     // Максимальная задержка между попытками (в миллисекундах)
     private static final long MAX_RETRY_DELAY_MS = 10000;
 
+    private final PipelineMetrics pipelineMetrics;
+
+    public RetryService(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
     /**
      * Выполняет операцию с повторными попытками при ошибках
      * 
@@ -59,6 +65,7 @@ public class RetryService {
                 
                 if (attempt < MAX_RETRY_ATTEMPTS) {
                     long delay = calculateRetryDelay(attempt);
+                    pipelineMetrics.countRetry(operationName, PipelineMetrics.retryReason(e));
                     log.error("[{}] Ошибка на попытке {}: {}", operationName, attempt, e.getMessage());
                     log.error("[{}] Повтор через {}ms", operationName, delay);
                     
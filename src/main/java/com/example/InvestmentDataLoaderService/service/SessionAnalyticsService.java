@@ -0,0 +1,112 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.dto.CandleColumns;
+import com.example.InvestmentDataLoaderService.dto.DayPriceSummaryDto;
+import com.example.InvestmentDataLoaderService.dto.SessionAnalyticsDto;
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+import com.example.InvestmentDataLoaderService.repository.CandleColumnsRepository;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Аналитика торгового дня по минутным свечам в колоночном виде ({@link CandleColumns})
+ *
+ * <p>Свечи дня читаются одним проходом курсора, агрегаты по сессиям и ценам считаются
+ * циклами по массивам; BigDecimal создаются только для полей ответа.</p>
+ */
+@Service
+public class SessionAnalyticsService {
+
+    private static final int AVG_SCALE = 2;
+
+    private final CandleColumnsRepository candleColumnsRepository;
+
+    public SessionAnalyticsService(CandleColumnsRepository candleColumnsRepository) {
+        this.candleColumnsRepository = candleColumnsRepository;
+    }
+
+    /**
+     * Объемы и количество свечей по торговым сессиям за день
+     *
+     * @param figi инструмент или null - все инструменты со свечами за день
+     */
+    public List<SessionAnalyticsDto> getSessionAnalytics(LocalDate date, String figi) {
+        CandleColumns columns = candleColumnsRepository.loadMinuteDay(date, figi);
+        long[] volumes = new long[CandleColumns.SESSION_CODES];
+        long[] counts = new long[CandleColumns.SESSION_CODES];
+
+        List<SessionAnalyticsDto> result = new ArrayList<>(columns.figiCount());
+        for (int k = 0; k < columns.figiCount(); k++) {
+            columns.sessionTotals(k, volumes, counts);
+            long totalVolume = sum(volumes);
+            long totalCandles = sum(counts);
+            long morningVolume = volumes[TradingSession.MORNING.getCode()];
+            long morningCandles = counts[TradingSession.MORNING.getCode()];
+            long mainVolume = volumes[TradingSession.MAIN.getCode()];
+            long mainCandles = counts[TradingSession.MAIN.getCode()];
+            long eveningVolume = volumes[TradingSession.EVENING.getCode()];
+            long eveningCandles = counts[TradingSession.EVENING.getCode()];
+            long weekendVolume = volumes[TradingSession.WEEKEND_EXCHANGE.getCode()]
+                + volumes[TradingSession.WEEKEND_OTC.getCode()];
+            long weekendCandles = counts[TradingSession.WEEKEND_EXCHANGE.getCode()]
+                + counts[TradingSession.WEEKEND_OTC.getCode()];
+
+            result.add(new SessionAnalyticsDto(
+                columns.figi(k), date,
+                totalVolume, totalCandles, average(totalVolume, totalCandles),
+                morningVolume, morningCandles, average(morningVolume, morningCandles),
+                mainVolume, mainCandles, average(mainVolume, mainCandles),
+                eveningVolume, eveningCandles, average(eveningVolume, eveningCandles),
+                weekendVolume, weekendCandles, average(weekendVolume, weekendCandles)
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Первая цена открытия, последняя цена закрытия, экстремумы и объем за день
+     *
+     * @param figi инструмент или null - все инструменты со свечами за день
+     */
+    public List<DayPriceSummaryDto> getDayPriceSummary(LocalDate date, String figi) {
+        CandleColumns columns = candleColumnsRepository.loadMinuteDay(date, figi);
+
+        List<DayPriceSummaryDto> result = new ArrayList<>(columns.figiCount());
+        for (int k = 0; k < columns.figiCount(); k++) {
+            result.add(new DayPriceSummaryDto(
+                columns.figi(k), date,
+                FixedPoint.toBigDecimal(columns.firstOpen(k)),
+                FixedPoint.toBigDecimal(columns.lastClose(k)),
+                FixedPoint.toBigDecimal(columns.maxHigh(k)),
+                FixedPoint.toBigDecimal(columns.minLow(k)),
+                columns.totalVolume(k),
+                (long) columns.candles(k),
+                Instant.ofEpochSecond(columns.time(columns.from(k))),
+                Instant.ofEpochSecond(columns.time(columns.to(k) - 1))
+            ));
+        }
+        return result;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static BigDecimal average(long volume, long candles) {
+        if (candles == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(volume).divide(BigDecimal.valueOf(candles), AVG_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.entity.SystemLogEntity;
+import com.example.InvestmentDataLoaderService.util.BatchingQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Неблокирующая запись логов в {@code invest.system_logs}
+ *
+ * <p>Записи кладутся в {@link BatchingQueue} ({@code system-logs.queue-capacity}), фоновый поток
+ * которой вставляет их пакетами через {@code JdbcTemplate.batchUpdate} каждые
+ * {@code system-logs.flush-interval-ms} или по накоплении {@code system-logs.batch-size} строк.
+ * При переполненной очереди вызывающий поток ждет не дольше {@code system-logs.offer-timeout-ms}
+ * (0 - не ждет), после чего запись отбрасывается и учитывается в счетчике {@code dropped}.</p>
+ *
+ * <p>Последняя еще не записанная запись каждой задачи доступна через {@link #findPending},
+ * чтобы статус задачи был виден до сброса пакета в БД.</p>
+ */
+@Service
+public class SystemLogWriter {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO invest.system_logs (task_id, endpoint, method, status, message, start_time, end_time, duration_ms, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BatchingQueue<SystemLogEntity> queue;
+
+    // Последняя незаписанная запись по taskId
+    private final Map<String, SystemLogEntity> pending = new ConcurrentHashMap<>();
+
+    public SystemLogWriter(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${system-logs.queue-capacity:10000}") int queueCapacity,
+                           @Value("${system-logs.batch-size:500}") int batchSize,
+                           @Value("${system-logs.flush-interval-ms:500}") long flushIntervalMs,
+                           @Value("${system-logs.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.queue = new BatchingQueue<>("SystemLogWriter", queueCapacity, batchSize, flushIntervalMs, offerTimeoutMs,
+            this::insert);
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("system_logs.queue.depth", queue, BatchingQueue::size)
+            .description("Записи system_logs, ожидающие вставки")
+            .register(meterRegistry);
+        FunctionCounter.builder("system_logs.written", queue, BatchingQueue::getWritten).register(meterRegistry);
+        FunctionCounter.builder("system_logs.dropped", queue, BatchingQueue::getDropped).register(meterRegistry);
+        FunctionCounter.builder("system_logs.failed", queue, BatchingQueue::getFailed).register(meterRegistry);
+        queue.start();
+    }
+
+    /**
+     * Останавливает фоновый поток и записывает оставшиеся в очереди логи
+     */
+    @PreDestroy
+    public void stop() {
+        queue.stop();
+    }
+
+    /**
+     * Ставит запись в очередь на вставку
+     *
+     * @return false, если очередь переполнена и запись отброшена
+     */
+    public boolean write(SystemLogEntity entry) {
+        // Запись становится ожидающей до постановки в очередь: поток сброса может записать ее сразу
+        if (entry.getTaskId() != null) {
+            pending.merge(entry.getTaskId(), entry, (current, next) -> isNewer(next, current) ? next : current);
+        }
+        if (!queue.offer(entry)) {
+            if (entry.getTaskId() != null) {
+                pending.remove(entry.getTaskId(), entry);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Последняя еще не записанная в БД запись задачи
+     */
+    public Optional<SystemLogEntity> findPending(String taskId) {
+        return Optional.ofNullable(pending.get(taskId));
+    }
+
+    /**
+     * Состояние очереди и счетчики записи для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        return queue.getStats();
+    }
+
+    private void insert(List<SystemLogEntity> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setString(1, entry.getTaskId());
+                ps.setString(2, entry.getEndpoint());
+                ps.setString(3, entry.getMethod());
+                ps.setString(4, entry.getStatus());
+                ps.setString(5, entry.getMessage());
+                ps.setTimestamp(6, toTimestamp(entry.getStartTime() != null ? entry.getStartTime() : entry.getCreatedAt()));
+                ps.setTimestamp(7, toTimestamp(entry.getEndTime()));
+                ps.setObject(8, entry.getDurationMs());
+                ps.setTimestamp(9, toTimestamp(entry.getCreatedAt()));
+            });
+        } finally {
+            // Записи пакета больше не считаются ожидающими (если по задаче не пришло новых), даже при ошибке вставки
+            for (SystemLogEntity entry : batch) {
+                if (entry.getTaskId() != null) {
+                    pending.remove(entry.getTaskId(), entry);
+                }
+            }
+        }
+    }
+
+    private static boolean isNewer(SystemLogEntity candidate, SystemLogEntity current) {
+        Comparator<SystemLogEntity> byCreatedAt = Comparator.comparing(SystemLogEntity::getCreatedAt,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+        return byCreatedAt.compare(candidate, current) >= 0;
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+}
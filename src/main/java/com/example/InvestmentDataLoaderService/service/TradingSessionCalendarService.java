@@ -0,0 +1,73 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Кэш специальных торговых часов для вычисления session_code минутных свечей
+ *
+ * <p>Активные строки {@code invest_candles.special_trading_hours} загружаются в неизменяемый
+ * {@link TradingSessionCalendar}, который заменяется целиком одной записью volatile-ссылки.
+ * Первый снимок загружается при первом обращении, далее перечитывается раз в
+ * {@code trading-sessions.refresh-interval-ms}. Код сессии вычисляется при маппинге свечи
+ * ({@code MinuteCandleMapper}), поэтому запись через COPY и JPA не обращается к таблице часов.</p>
+ */
+@Service
+public class TradingSessionCalendarService {
+
+    private static final Logger log = LoggerFactory.getLogger(TradingSessionCalendarService.class);
+
+    private static final String SELECT_SQL =
+        "SELECT figi, day_type, start_hour, start_minute, end_hour, end_minute " +
+        "FROM invest_candles.special_trading_hours WHERE is_active";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile TradingSessionCalendar calendar;
+
+    public TradingSessionCalendarService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Текущий календарь; при ошибке первой загрузки используется стандартное расписание
+     */
+    public TradingSessionCalendar current() {
+        TradingSessionCalendar current = calendar;
+        if (current == null) {
+            synchronized (this) {
+                if (calendar == null) {
+                    refresh();
+                }
+                current = calendar;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Перечитывает специальные торговые часы и атомарно заменяет календарь
+     */
+    @Scheduled(fixedDelayString = "${trading-sessions.refresh-interval-ms:600000}",
+        initialDelayString = "${trading-sessions.refresh-interval-ms:600000}")
+    public void refresh() {
+        try {
+            List<TradingSessionCalendar.Window> windows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) ->
+                TradingSessionCalendar.Window.of(rs.getString("figi"), rs.getString("day_type"),
+                    rs.getInt("start_hour"), rs.getInt("start_minute"), rs.getInt("end_hour"), rs.getInt("end_minute")));
+            calendar = TradingSessionCalendar.of(windows);
+            log.debug("Специальные торговые часы обновлены: {} окон, {} инструментов", windows.size(), calendar.size());
+        } catch (Exception e) {
+            log.error("Ошибка загрузки специальных торговых часов", e);
+            if (calendar == null) {
+                calendar = TradingSessionCalendar.EMPTY;
+            }
+        }
+    }
+}
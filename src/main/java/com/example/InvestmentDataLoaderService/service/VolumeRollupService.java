@@ -0,0 +1,77 @@
+package com.example.InvestmentDataLoaderService.service;
+
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Инкрементальная агрегация объемов минутных свечей по дням
+ *
+ * <p>Объемы и количество свечей по сессиям хранятся в {@code invest.daily_volume_rollup} по ключу
+ * (figi, trade_date) и пересчитываются только за загруженные дни: запрос ограничен диапазоном
+ * времени и читает партиции minute_candles этих дней, поэтому стоимость не растет с историей.
+ * Сессия свечи берется из {@code session_code}, вычисленного при записи свечи ({@link TradingSession}).
+ * Представление {@code invest.daily_volume_aggregation} суммирует строки по FIGI.</p>
+ */
+@Service
+public class VolumeRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(VolumeRollupService.class);
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final String DELETE_SQL =
+        "DELETE FROM invest.daily_volume_rollup WHERE trade_date BETWEEN ? AND ?";
+
+    private static final String ROLLUP_SQL =
+        "INSERT INTO invest.daily_volume_rollup " +
+        "SELECT mc.figi, (mc.time AT TIME ZONE 'Europe/Moscow')::date, " +
+        "       CASE WHEN s.figi IS NOT NULL THEN 'share' WHEN f.figi IS NOT NULL THEN 'future' ELSE 'unknown' END, " +
+        "       sum(mc.volume), count(*), " +
+        sessionColumns(TradingSession.MORNING) + ", " +
+        sessionColumns(TradingSession.MAIN) + ", " +
+        sessionColumns(TradingSession.EVENING) + ", " +
+        sessionColumns(TradingSession.WEEKEND_EXCHANGE) + ", " +
+        sessionColumns(TradingSession.WEEKEND_OTC) + ", " +
+        "       min(mc.time), max(mc.time), now() " +
+        "FROM invest.minute_candles mc " +
+        "LEFT JOIN invest.shares s ON s.figi = mc.figi " +
+        "LEFT JOIN invest.futures f ON f.figi = mc.figi " +
+        "WHERE mc.time >= ? AND mc.time < ? " +
+        "GROUP BY mc.figi, (mc.time AT TIME ZONE 'Europe/Moscow')::date, s.figi, f.figi";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VolumeRollupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пересчитывает агрегаты за дни [from, to] (по Москве)
+     *
+     * @return количество строк (figi, trade_date) после пересчета
+     */
+    @Transactional
+    public int rollupDays(LocalDate from, LocalDate to) {
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.update(DELETE_SQL, Date.valueOf(from), Date.valueOf(to));
+        int rows = jdbcTemplate.update(ROLLUP_SQL,
+            Timestamp.from(from.atStartOfDay(MOSCOW).toInstant()),
+            Timestamp.from(to.plusDays(1).atStartOfDay(MOSCOW).toInstant()));
+        log.info("Агрегация объемов за {} - {}: {} строк за {} мс", from, to, rows, System.currentTimeMillis() - startTime);
+        return rows;
+    }
+
+    private static String sessionColumns(TradingSession session) {
+        String filter = " FILTER (WHERE mc.session_code = " + session.getCode() + ")";
+        return "coalesce(sum(mc.volume)" + filter + ", 0), count(*)" + filter;
+    }
+}
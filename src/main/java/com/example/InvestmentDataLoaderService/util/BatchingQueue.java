@@ -0,0 +1,206 @@
+package com.example.InvestmentDataLoaderService.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченная очередь с фоновым потоком, сбрасывающим элементы пакетами
+ *
+ * <p>Элементы передаются обработчику пакетами не больше {@code batchSize} каждые
+ * {@code flushIntervalMs} или сразу по накоплении полного пакета. При переполненной очереди
+ * вызывающий поток ждет не дольше {@code offerTimeoutMs} (0 - не ждет), после чего элемент
+ * отбрасывается и учитывается в {@code dropped}. Исключение обработчика не останавливает поток:
+ * элементы пакета учитываются в {@code failed}. {@link #stop} дожидается потока и сбрасывает
+ * остаток очереди в вызывающем потоке.</p>
+ *
+ * @param <T> тип элемента очереди
+ */
+public class BatchingQueue<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingQueue.class);
+
+    /**
+     * Обработчик пакета; список действителен только на время вызова
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        void handle(List<T> batch) throws Exception;
+    }
+
+    private final String name;
+    private final BatchHandler<T> handler;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * @param name имя очереди для потока сброса и сообщений лога
+     */
+    public BatchingQueue(String name, int queueCapacity, int batchSize, long flushIntervalMs, long offerTimeoutMs,
+                         BatchHandler<T> handler) {
+        this.name = name;
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(10, flushIntervalMs);
+        this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, name);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Останавливает фоновый поток и сбрасывает оставшиеся в очереди элементы
+     */
+    public synchronized void stop() {
+        running = false;
+        if (flusher != null) {
+            try {
+                // Поток завершится после текущего пакета (не позже двух интервалов ожидания)
+                flusher.join(2 * flushIntervalMs + TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flushAll();
+    }
+
+    /**
+     * Ставит элемент в очередь
+     *
+     * @return false, если очередь переполнена и элемент отброшен
+     */
+    public boolean offer(T element) {
+        boolean offered;
+        try {
+            offered = offerTimeoutMs > 0
+                ? queue.offer(element, offerTimeoutMs, TimeUnit.MILLISECONDS)
+                : queue.offer(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            offered = false;
+        }
+        if (!offered) {
+            // Логируем каждую тысячную потерю, чтобы не засорять лог при длительной перегрузке
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("Очередь {} переполнена ({}), отброшено элементов: {}", name, queue.size(), dropped.get());
+            }
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Состояние очереди и счетчики сброса для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueRemainingCapacity", queue.remainingCapacity());
+        stats.put("accepted", accepted.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private void runFlusher() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                T first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Добираем пакет до batchSize, но ждем не дольше интервала сброса
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushAll() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<T> batch) {
+        try {
+            handler.handle(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Ошибка записи пакета {} элементов очереди {}: {}", batch.size(), name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.InvestmentDataLoaderService.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Расширенная статистика свечи, посчитанная по ценам с фиксированной точкой
+ *
+ * <p>Значения и масштабы совпадают с {@code calculateExtendedStatistics()} сущностей свечей,
+ * но арифметика идет в {@code long}: BigDecimal создаются только для итоговых полей.</p>
+ */
+public record CandleStatistics(
+    BigDecimal priceChange,
+    BigDecimal priceChangePercent,
+    String candleType,
+    BigDecimal bodySize,
+    BigDecimal upperShadow,
+    BigDecimal lowerShadow,
+    BigDecimal highLowRange,
+    BigDecimal averagePrice
+) {
+
+    private static final int PERCENT_SCALE = 4;
+    private static final long PERCENT_FACTOR = 10_000;
+    private static final int AVERAGE_SCALE = 2;
+    private static final long AVERAGE_DIVISOR = FixedPoint.ONE / 100;
+
+    /**
+     * Статистика минутной свечи: средняя цена - (high + low + open + close) / 4
+     */
+    public static CandleStatistics minute(long open, long high, long low, long close) {
+        return of(open, high, low, close, average(high, low, open, close, 4));
+    }
+
+    /**
+     * Статистика дневной свечи: средняя цена - (high + low + close) / 3
+     */
+    public static CandleStatistics daily(long open, long high, long low, long close) {
+        return of(open, high, low, close, average(high, low, close, 0, 3));
+    }
+
+    private static CandleStatistics of(long open, long high, long low, long close, BigDecimal averagePrice) {
+        long change = close - open;
+        String candleType = change > 0 ? "BULLISH" : change < 0 ? "BEARISH" : "DOJI";
+        return new CandleStatistics(
+            FixedPoint.toBigDecimal(change),
+            percent(change, open),
+            candleType,
+            FixedPoint.toBigDecimal(Math.abs(change)),
+            FixedPoint.toBigDecimal(high - Math.max(close, open)),
+            FixedPoint.toBigDecimal(Math.min(open, close) - low),
+            FixedPoint.toBigDecimal(high - low),
+            averagePrice
+        );
+    }
+
+    /**
+     * (a + b + c + d) / count с 2 знаками (HALF_UP); сумма вне диапазона long считается в BigDecimal
+     */
+    private static BigDecimal average(long a, long b, long c, long d, int count) {
+        try {
+            long sum = Math.addExact(Math.addExact(Math.addExact(a, b), c), d);
+            return BigDecimal.valueOf(FixedPoint.divideHalfUp(sum, AVERAGE_DIVISOR * count), AVERAGE_SCALE);
+        } catch (ArithmeticException e) {
+            return FixedPoint.toBigDecimal(a).add(FixedPoint.toBigDecimal(b))
+                .add(FixedPoint.toBigDecimal(c)).add(FixedPoint.toBigDecimal(d))
+                .divide(BigDecimal.valueOf(count), AVERAGE_SCALE, RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * change / open с 4 знаками (HALF_UP), умноженное на 100 - масштаб 4, как у BigDecimal-версии
+     */
+    private static BigDecimal percent(long change, long open) {
+        if (open <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (Math.abs(change) > Long.MAX_VALUE / PERCENT_FACTOR) {
+            return FixedPoint.toBigDecimal(change)
+                .divide(FixedPoint.toBigDecimal(open), PERCENT_SCALE, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+        }
+        return BigDecimal.valueOf(FixedPoint.divideHalfUp(change * PERCENT_FACTOR, open) * 100, PERCENT_SCALE);
+    }
+}
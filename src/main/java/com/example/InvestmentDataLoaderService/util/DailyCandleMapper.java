@@ -1,5 +1,6 @@
 package com.example.InvestmentDataLoaderService.util;
 
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
 import com.example.InvestmentDataLoaderService.dto.DailyCandleExtendedDto;
 import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
 import com.example.InvestmentDataLoaderService.entity.ShareEntity;
@@ -12,6 +13,34 @@ import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
  */
 public class DailyCandleMapper {
     
+    /**
+     * Конвертирует свечу пакета в DailyCandleEntity
+     * Статистика считается в long ({@link CandleStatistics}), BigDecimal создаются только для полей сущности
+     */
+    public static DailyCandleEntity toEntity(CandleBatch batch, int index) {
+        DailyCandleEntity entity = new DailyCandleEntity();
+        entity.setFigi(batch.figi());
+        entity.setTime(batch.instant(index));
+        entity.setOpen(FixedPoint.toBigDecimal(batch.open(index)));
+        entity.setHigh(FixedPoint.toBigDecimal(batch.high(index)));
+        entity.setLow(FixedPoint.toBigDecimal(batch.low(index)));
+        entity.setClose(FixedPoint.toBigDecimal(batch.close(index)));
+        entity.setVolume(batch.volume(index));
+        entity.setComplete(batch.isComplete(index));
+
+        CandleStatistics statistics = CandleStatistics.daily(
+            batch.open(index), batch.high(index), batch.low(index), batch.close(index));
+        entity.setPriceChange(statistics.priceChange());
+        entity.setPriceChangePercent(statistics.priceChangePercent());
+        entity.setCandleType(statistics.candleType());
+        entity.setBodySize(statistics.bodySize());
+        entity.setUpperShadow(statistics.upperShadow());
+        entity.setLowerShadow(statistics.lowerShadow());
+        entity.setHighLowRange(statistics.highLowRange());
+        entity.setAveragePrice(statistics.averagePrice());
+        return entity;
+    }
+    
     /**
      * Конвертирует DailyCandleEntity в DailyCandleExtendedDto с информацией об инструменте
      */
@@ -0,0 +1,68 @@
+package com.example.InvestmentDataLoaderService.util;
+
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+import java.math.BigDecimal;
+
+/**
+ * Цены с фиксированной точкой: {@code long} в единицах 1e-9, как units/nano у Quotation
+ *
+ * <p>Внутри конвейера свечей цены хранятся и сравниваются как {@code long}; {@link BigDecimal}
+ * создается один раз на значение на границе с JDBC/JSON ({@link #toBigDecimal(long)}).
+ * Диапазон - до ~9.2 млрд единиц цены, чего с запасом хватает для котировок MOEX.</p>
+ */
+public final class FixedPoint {
+
+    /** Знаков после запятой (масштаб BigDecimal, совпадает с nano у Quotation) */
+    public static final int SCALE = 9;
+
+    /** Единица цены в единицах 1e-9 */
+    public static final long ONE = 1_000_000_000L;
+
+    private static final long MAX_UNITS = Long.MAX_VALUE / ONE - 1;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Quotation в единицах 1e-9
+     *
+     * @throws ArithmeticException если значение не помещается в long
+     */
+    public static long of(Quotation quotation) {
+        return Math.addExact(Math.multiplyExact(quotation.getUnits(), ONE), quotation.getNano());
+    }
+
+    /**
+     * Значение в единицах 1e-9 как BigDecimal с масштабом {@link #SCALE}
+     */
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * Quotation как BigDecimal с масштабом {@link #SCALE} - одно создание объекта вместо четырех
+     * у {@code valueOf(units).add(valueOf(nano).movePointLeft(9))}, результат тот же
+     */
+    public static BigDecimal toBigDecimal(Quotation quotation) {
+        long units = quotation.getUnits();
+        if (units > MAX_UNITS || units < -MAX_UNITS) {
+            return BigDecimal.valueOf(units).add(BigDecimal.valueOf(quotation.getNano(), SCALE));
+        }
+        return BigDecimal.valueOf(units * ONE + quotation.getNano(), SCALE);
+    }
+
+    /**
+     * Деление с округлением HALF_UP, как {@code BigDecimal.divide(..., RoundingMode.HALF_UP)}
+     *
+     * @param divisor положительный делитель
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.InvestmentDataLoaderService.util;
 
+import com.example.InvestmentDataLoaderService.dto.CandleBatch;
 import com.example.InvestmentDataLoaderService.dto.CandleDto;
 import com.example.InvestmentDataLoaderService.dto.MinuteCandleExtendedDto;
 import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 
 /**
  * Маппер для конвертации между DTO и Entity для минутных свечей
@@ -14,14 +16,21 @@ public class MinuteCandleMapper {
 
     /**
      * Конвертирует CandleDto в MinuteCandleEntity
+     * Код торговой сессии вычисляется по календарю {@code sessions} (special_trading_hours)
      */
-    public static MinuteCandleEntity toEntity(CandleDto candleDto) {
+    public static MinuteCandleEntity toEntity(CandleDto candleDto, TradingSessionCalendar sessions) {
         if (candleDto == null) {
             return null;
         }
+        return toEntity(candleDto.figi(), candleDto, sessions);
+    }
 
-        return new MinuteCandleEntity(
-            candleDto.figi(),
+    /**
+     * Конвертирует CandleDto в MinuteCandleEntity инструмента {@code figi}
+     */
+    public static MinuteCandleEntity toEntity(String figi, CandleDto candleDto, TradingSessionCalendar sessions) {
+        MinuteCandleEntity entity = new MinuteCandleEntity(
+            figi,
             candleDto.volume(),
             candleDto.high(),
             candleDto.low(),
@@ -30,6 +39,49 @@ public class MinuteCandleMapper {
             candleDto.open(),
             candleDto.isComplete()
         );
+        entity.setSessionCode(sessions.sessionCode(figi, candleDto.time()));
+        return entity;
+    }
+
+    /**
+     * Конвертирует свечу пакета в MinuteCandleEntity
+     * Статистика считается в long ({@link CandleStatistics}), BigDecimal создаются только для полей сущности
+     */
+    public static MinuteCandleEntity toEntity(CandleBatch batch, int index, TradingSessionCalendar sessions) {
+        return toEntity(batch.figi(), batch.time(index), batch.open(index), batch.high(index), batch.low(index),
+            batch.close(index), batch.volume(index), batch.isComplete(index), sessions);
+    }
+
+    /**
+     * Конвертирует свечу с ценами в единицах 1e-9 ({@link FixedPoint}) в MinuteCandleEntity
+     *
+     * @param timeSeconds время открытия свечи, epoch seconds
+     * @param sessions    календарь сессий для session_code
+     */
+    public static MinuteCandleEntity toEntity(String figi, long timeSeconds, long open, long high, long low, long close,
+                                              long volume, boolean complete, TradingSessionCalendar sessions) {
+        Instant time = Instant.ofEpochSecond(timeSeconds);
+        MinuteCandleEntity entity = new MinuteCandleEntity();
+        entity.setFigi(figi);
+        entity.setTime(time);
+        entity.setOpen(FixedPoint.toBigDecimal(open));
+        entity.setHigh(FixedPoint.toBigDecimal(high));
+        entity.setLow(FixedPoint.toBigDecimal(low));
+        entity.setClose(FixedPoint.toBigDecimal(close));
+        entity.setVolume(volume);
+        entity.setComplete(complete);
+        entity.setSessionCode(sessions.sessionCode(figi, time));
+
+        CandleStatistics statistics = CandleStatistics.minute(open, high, low, close);
+        entity.setPriceChange(statistics.priceChange());
+        entity.setPriceChangePercent(statistics.priceChangePercent());
+        entity.setCandleType(statistics.candleType());
+        entity.setBodySize(statistics.bodySize());
+        entity.setUpperShadow(statistics.upperShadow());
+        entity.setLowerShadow(statistics.lowerShadow());
+        entity.setHighLowRange(statistics.highLowRange());
+        entity.setAveragePrice(statistics.averagePrice());
+        return entity;
     }
 
     /**
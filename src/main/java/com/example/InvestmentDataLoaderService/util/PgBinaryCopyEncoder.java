@@ -0,0 +1,169 @@
+package com.example.InvestmentDataLoaderService.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Кодировщик строк в бинарный формат PostgreSQL COPY ({@code COPY ... FROM STDIN (FORMAT BINARY)})
+ *
+ * <p>Поддерживает только типы, используемые в таблицах свечей и цен:
+ * text/varchar, smallint, bigint, boolean, numeric, timestamp и timestamptz.</p>
+ */
+public class PgBinaryCopyEncoder {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /**
+     * Эпоха PostgreSQL (2000-01-01 00:00:00 UTC) в микросекундах от эпохи Unix
+     */
+    private static final long PG_EPOCH_MICROS = 946_684_800_000_000L;
+
+    private static final short NUMERIC_POS = 0x0000;
+    private static final short NUMERIC_NEG = 0x4000;
+    private static final BigInteger NBASE = BigInteger.valueOf(10_000);
+
+    private final ByteArrayOutputStream buffer;
+    private final DataOutputStream out;
+
+    public PgBinaryCopyEncoder(int expectedRows) {
+        this.buffer = new ByteArrayOutputStream(Math.max(1024, expectedRows * 256));
+        this.out = new DataOutputStream(buffer);
+        try {
+            out.write(SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // длина расширения заголовка
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка записи заголовка COPY", e);
+        }
+    }
+
+    /**
+     * Начинает новую строку с указанным количеством колонок
+     */
+    public void startRow(int columnCount) throws IOException {
+        out.writeShort(columnCount);
+    }
+
+    public void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    public void writeText(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * smallint; null пишется как NULL
+     */
+    public void writeShort(Short value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(2);
+        out.writeShort(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeInt(1);
+        out.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * timestamptz: микросекунды от 2000-01-01 UTC
+     */
+    public void writeTimestamptz(Instant value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        long micros = Math.addExact(Math.multiplyExact(value.getEpochSecond(), 1_000_000L), value.getNano() / 1_000);
+        out.writeInt(8);
+        out.writeLong(micros - PG_EPOCH_MICROS);
+    }
+
+    /**
+     * timestamp without time zone: локальное время кодируется так же, как UTC
+     */
+    public void writeTimestamp(LocalDateTime value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeTimestamptz(value.toInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * numeric: ndigits, weight, sign, dscale и цифры по основанию 10000
+     */
+    public void writeNumeric(BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+
+        short sign = value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS;
+        BigDecimal abs = value.abs();
+        int dscale = Math.max(abs.scale(), 0);
+        // Выравниваем масштаб до кратного 4, чтобы дробная часть разбивалась на целые группы
+        int alignedScale = ((dscale + 3) / 4) * 4;
+        BigInteger unscaled = abs.setScale(alignedScale).unscaledValue();
+
+        // Группы по основанию 10000, начиная с младшей
+        short[] groups = new short[unscaled.toString().length() / 4 + 1];
+        int count = 0;
+        while (unscaled.signum() > 0) {
+            BigInteger[] qr = unscaled.divideAndRemainder(NBASE);
+            groups[count++] = qr[1].shortValue();
+            unscaled = qr[0];
+        }
+
+        int weight = count - alignedScale / 4 - 1;
+
+        // Младшие нулевые группы не передаем
+        int lowest = 0;
+        while (lowest < count && groups[lowest] == 0) {
+            lowest++;
+        }
+        int ndigits = count - lowest;
+        if (ndigits == 0) {
+            weight = 0;
+        }
+
+        out.writeInt(8 + ndigits * 2);
+        out.writeShort(ndigits);
+        out.writeShort(weight);
+        out.writeShort(sign);
+        out.writeShort(dscale);
+        for (int i = count - 1; i >= lowest; i--) {
+            out.writeShort(groups[i]);
+        }
+    }
+
+    /**
+     * Завершает поток COPY и возвращает закодированные данные
+     */
+    public byte[] finish() throws IOException {
+        out.writeShort(-1);
+        out.flush();
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.InvestmentDataLoaderService.util;
+
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Календарь торговых сессий: код {@link TradingSession} минутной свечи по московскому времени
+ *
+ * <p>Повторяет функцию {@code invest.minute_candle_session_code}: если для инструмента заданы
+ * активные специальные торговые часы ({@code invest_candles.special_trading_hours}) на тип дня,
+ * свечи вне них получают {@link TradingSession#NONE}, иначе сессия определяется по стандартному
+ * расписанию. Окна специальных часов сравниваются с точностью до минуты, границы включаются.
+ * Экземпляр неизменяем и безопасен для чтения из нескольких потоков.</p>
+ */
+public final class TradingSessionCalendar {
+
+    public static final String DAY_TYPE_ALL = "all";
+    public static final String DAY_TYPE_WEEKDAY = "weekday";
+    public static final String DAY_TYPE_WEEKEND = "weekend";
+
+    /**
+     * Календарь без специальных часов: только стандартное расписание
+     */
+    public static final TradingSessionCalendar EMPTY = new TradingSessionCalendar(List.of());
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final LocalTime MORNING_START = LocalTime.of(6, 59, 59);
+    private static final LocalTime OTC_MORNING_START = LocalTime.of(2, 0);
+    private static final LocalTime MAIN_START = LocalTime.of(10, 0);
+    private static final LocalTime EVENING_START = LocalTime.of(19, 0);
+    private static final LocalTime EVENING_END = LocalTime.of(23, 51);
+
+    /**
+     * Окно специальных торговых часов инструмента, минуты от начала дня включительно
+     */
+    public record Window(String figi, String dayType, int startMinute, int endMinute) {
+
+        public static Window of(String figi, String dayType, int startHour, int startMinute, int endHour, int endMinute) {
+            return new Window(figi, dayType, startHour * 60 + startMinute, endHour * 60 + endMinute);
+        }
+
+        boolean appliesTo(boolean weekend) {
+            return DAY_TYPE_ALL.equals(dayType) || (weekend ? DAY_TYPE_WEEKEND : DAY_TYPE_WEEKDAY).equals(dayType);
+        }
+
+        boolean contains(int minuteOfDay) {
+            return startMinute <= minuteOfDay && minuteOfDay <= endMinute;
+        }
+    }
+
+    private final Map<String, List<Window>> windowsByFigi;
+
+    private TradingSessionCalendar(List<Window> windows) {
+        Map<String, List<Window>> byFigi = new HashMap<>();
+        for (Window window : windows) {
+            byFigi.computeIfAbsent(window.figi(), figi -> new ArrayList<>()).add(window);
+        }
+        byFigi.replaceAll((figi, list) -> List.copyOf(list));
+        this.windowsByFigi = Map.copyOf(byFigi);
+    }
+
+    public static TradingSessionCalendar of(List<Window> windows) {
+        return windows.isEmpty() ? EMPTY : new TradingSessionCalendar(windows);
+    }
+
+    /**
+     * Количество инструментов со специальными часами
+     */
+    public int size() {
+        return windowsByFigi.size();
+    }
+
+    public TradingSession sessionOf(String figi, Instant time) {
+        LocalDateTime local = LocalDateTime.ofInstant(time, MOSCOW);
+        LocalTime localTime = local.toLocalTime();
+        boolean weekend = local.getDayOfWeek() == DayOfWeek.SATURDAY || local.getDayOfWeek() == DayOfWeek.SUNDAY;
+
+        if (!inSpecialHours(figi, localTime.getHour() * 60 + localTime.getMinute(), weekend)) {
+            return TradingSession.NONE;
+        }
+        if (!weekend) {
+            if (!localTime.isBefore(MORNING_START) && localTime.isBefore(MAIN_START)) {
+                return TradingSession.MORNING;
+            }
+            if (!localTime.isBefore(MAIN_START) && localTime.isBefore(EVENING_START)) {
+                return TradingSession.MAIN;
+            }
+            if (!localTime.isBefore(EVENING_START) && localTime.isBefore(EVENING_END)) {
+                return TradingSession.EVENING;
+            }
+            return TradingSession.NONE;
+        }
+        if (!localTime.isBefore(MAIN_START) && localTime.isBefore(EVENING_START)) {
+            return TradingSession.WEEKEND_EXCHANGE;
+        }
+        if (!localTime.isBefore(OTC_MORNING_START) && localTime.isBefore(MAIN_START)
+            || !localTime.isBefore(EVENING_START) && localTime.isBefore(EVENING_END)) {
+            return TradingSession.WEEKEND_OTC;
+        }
+        return TradingSession.NONE;
+    }
+
+    /**
+     * Код сессии для {@code minute_candles.session_code}
+     */
+    public short sessionCode(String figi, Instant time) {
+        return sessionOf(figi, time).getCode();
+    }
+
+    /**
+     * true, если для инструмента нет специальных часов на этот тип дня или время попадает в одно из окон
+     */
+    private boolean inSpecialHours(String figi, int minuteOfDay, boolean weekend) {
+        List<Window> windows = windowsByFigi.get(figi);
+        if (windows == null) {
+            return true;
+        }
+        boolean restricted = false;
+        for (Window window : windows) {
+            if (window.appliesTo(weekend)) {
+                if (window.contains(minuteOfDay)) {
+                    return true;
+                }
+                restricted = true;
+            }
+        }
+        return !restricted;
+    }
+}
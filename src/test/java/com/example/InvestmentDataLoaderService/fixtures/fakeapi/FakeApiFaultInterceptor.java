@@ -0,0 +1,140 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Серверный интерсептор фейкового API: задержка, квоты и всплески RESOURCE_EXHAUSTED
+ *
+ * <p>Квота считается по сервису в фиксированных окнах {@code quotaWindowSeconds}: ответ несет
+ * заголовки {@code x-ratelimit-limit/remaining/reset} (в headers при успехе, в trailers
+ * при ошибке), как реальный API. Сверх квоты и во время всплесков вызов завершается
+ * RESOURCE_EXHAUSTED без обращения к сервису.</p>
+ */
+public class FakeApiFaultInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> LIMIT_HEADER =
+        Metadata.Key.of("x-ratelimit-limit", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> REMAINING_HEADER =
+        Metadata.Key.of("x-ratelimit-remaining", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> RESET_HEADER =
+        Metadata.Key.of("x-ratelimit-reset", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Окно квоты сервиса: номер окна и число вызовов в нем
+     */
+    private static final class QuotaWindow {
+        private long window = -1;
+        private int used;
+    }
+
+    private final FakeApiSettings settings;
+    private final Map<String, AtomicLong> callsByMethod = new ConcurrentHashMap<>();
+    private final Map<String, QuotaWindow> windows = new ConcurrentHashMap<>();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public FakeApiFaultInterceptor(FakeApiSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getFullMethodName();
+        long callNumber = callsByMethod.computeIfAbsent(method, key -> new AtomicLong()).incrementAndGet();
+
+        if (settings.latencyMs() > 0) {
+            try {
+                Thread.sleep(settings.latencyMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.close(Status.CANCELLED, new Metadata());
+                return new ServerCall.Listener<>() {
+                };
+            }
+        }
+
+        int limit = settings.quotaLimit();
+        Metadata quota = null;
+        boolean overQuota = false;
+        if (limit > 0) {
+            long windowMillis = Math.max(1, settings.quotaWindowSeconds()) * 1000L;
+            long now = System.currentTimeMillis();
+            int used = takeQuota(call.getMethodDescriptor().getServiceName(), now / windowMillis);
+            long resetSeconds = (windowMillis - now % windowMillis + 999) / 1000;
+            quota = quotaHeaders(limit, Math.max(0, limit - used), resetSeconds);
+            overQuota = used > limit;
+        }
+        if (overQuota || inExhaustedBurst(callNumber)) {
+            exhausted.incrementAndGet();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("fake api: quota exceeded"),
+                quota != null ? quota : quotaHeaders(Math.max(limit, 0), 0, 1));
+            return new ServerCall.Listener<>() {
+            };
+        }
+
+        if (quota == null) {
+            return next.startCall(call, headers);
+        }
+        Metadata quotaHeaders = quota;
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendHeaders(Metadata responseHeaders) {
+                responseHeaders.merge(quotaHeaders);
+                super.sendHeaders(responseHeaders);
+            }
+        }, headers);
+    }
+
+    /**
+     * Количество вызовов метода (полное имя, например {@code tinkoff.public.invest.api.contract.v1.MarketDataService/GetCandles})
+     */
+    public long getCallCount(String fullMethodName) {
+        AtomicLong calls = callsByMethod.get(fullMethodName);
+        return calls != null ? calls.get() : 0;
+    }
+
+    /**
+     * Количество ответов RESOURCE_EXHAUSTED
+     */
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    private boolean inExhaustedBurst(long callNumber) {
+        int every = settings.exhaustedEvery();
+        int burst = Math.min(settings.exhaustedBurst(), every - 1);
+        return every > 0 && burst > 0 && (callNumber - 1) % every >= every - burst;
+    }
+
+    /**
+     * Учитывает вызов в текущем окне квоты сервиса и возвращает число вызовов в окне
+     */
+    private int takeQuota(String serviceName, long window) {
+        QuotaWindow state = windows.computeIfAbsent(serviceName, key -> new QuotaWindow());
+        synchronized (state) {
+            if (state.window != window) {
+                state.window = window;
+                state.used = 0;
+            }
+            return ++state.used;
+        }
+    }
+
+    private static Metadata quotaHeaders(int limit, int remaining, long resetSeconds) {
+        Metadata metadata = new Metadata();
+        metadata.put(LIMIT_HEADER, String.valueOf(limit));
+        metadata.put(REMAINING_HEADER, String.valueOf(remaining));
+        metadata.put(RESET_HEADER, String.valueOf(resetSeconds));
+        return metadata;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+/**
+ * Параметры фейкового T-Invest API
+ *
+ * @param shares количество синтетических акций
+ * @param futures количество синтетических фьючерсов
+ * @param candlesPerDay минутных свечей на инструмент за торговый день (не больше 1010, с 07:00 по Москве)
+ * @param tradesPerInstrument обезличенных сделок на инструмент за запрошенный интервал
+ * @param latencyMs задержка перед обработкой каждого вызова
+ * @param exhaustedEvery в каждой серии из стольких вызовов метода последние {@code exhaustedBurst}
+ *                       отвечают RESOURCE_EXHAUSTED (0 - без всплесков)
+ * @param exhaustedBurst длина всплеска RESOURCE_EXHAUSTED
+ * @param quotaLimit квота вызовов сервиса за окно (0 - без ограничения, заголовки не отправляются)
+ * @param quotaWindowSeconds длина окна квоты
+ * @param seed начальное значение генератора данных
+ */
+public record FakeApiSettings(
+    int shares,
+    int futures,
+    int candlesPerDay,
+    int tradesPerInstrument,
+    long latencyMs,
+    int exhaustedEvery,
+    int exhaustedBurst,
+    int quotaLimit,
+    int quotaWindowSeconds,
+    long seed
+) {
+
+    /**
+     * Небольшая вселенная без задержек и ошибок
+     */
+    public static FakeApiSettings defaults() {
+        return new FakeApiSettings(20, 10, 900, 50, 0, 0, 0, 0, 1, 42);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.FuturesResponse;
+import ru.tinkoff.piapi.contract.v1.GetDividendsRequest;
+import ru.tinkoff.piapi.contract.v1.GetDividendsResponse;
+import ru.tinkoff.piapi.contract.v1.InstrumentsRequest;
+import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.SharesResponse;
+
+/**
+ * Фейковый InstrumentsService: списки акций и фьючерсов, дивиденды (пустые)
+ */
+public class FakeInstrumentsService extends InstrumentsServiceGrpc.InstrumentsServiceImplBase {
+
+    private final FakeMarketData data;
+
+    public FakeInstrumentsService(FakeMarketData data) {
+        this.data = data;
+    }
+
+    @Override
+    public void shares(InstrumentsRequest request, StreamObserver<SharesResponse> responseObserver) {
+        responseObserver.onNext(SharesResponse.newBuilder().addAllInstruments(data.shares()).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void futures(InstrumentsRequest request, StreamObserver<FuturesResponse> responseObserver) {
+        responseObserver.onNext(FuturesResponse.newBuilder().addAllInstruments(data.futures()).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getDividends(GetDividendsRequest request, StreamObserver<GetDividendsResponse> responseObserver) {
+        responseObserver.onNext(GetDividendsResponse.getDefaultInstance());
+        responseObserver.onCompleted();
+    }
+}
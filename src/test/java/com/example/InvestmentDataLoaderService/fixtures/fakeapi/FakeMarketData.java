@@ -0,0 +1,322 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import com.example.InvestmentDataLoaderService.entity.FutureEntity;
+import com.example.InvestmentDataLoaderService.entity.ShareEntity;
+import com.google.protobuf.Timestamp;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.CandleInterval;
+import ru.tinkoff.piapi.contract.v1.Future;
+import ru.tinkoff.piapi.contract.v1.HistoricCandle;
+import ru.tinkoff.piapi.contract.v1.InstrumentClosePriceResponse;
+import ru.tinkoff.piapi.contract.v1.Quotation;
+import ru.tinkoff.piapi.contract.v1.SecurityTradingStatus;
+import ru.tinkoff.piapi.contract.v1.Share;
+import ru.tinkoff.piapi.contract.v1.SubscriptionInterval;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeDirection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированный генератор инструментов и рыночных данных фейкового API
+ *
+ * <p>Все значения зависят только от seed, FIGI и даты: повторный запрос возвращает те же
+ * свечи, сделки и цены, поэтому повторная загрузка проверяет дедупликацию. FIGI синтетических
+ * инструментов начинаются с {@link #FIGI_PREFIX}, чтобы их можно было отделить от реальных.</p>
+ */
+public class FakeMarketData {
+
+    public static final String FIGI_PREFIX = "FAKE";
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final int MAX_MINUTES_PER_DAY = 1010; // 07:00 - 23:50
+
+    private final FakeApiSettings settings;
+
+    public FakeMarketData(FakeApiSettings settings) {
+        this.settings = settings;
+    }
+
+    public static String shareFigi(int index) {
+        return String.format("%sSHR%05d", FIGI_PREFIX, index);
+    }
+
+    public static String futureFigi(int index) {
+        return String.format("%sFUT%05d", FIGI_PREFIX, index);
+    }
+
+    public List<String> shareFigis() {
+        List<String> figis = new ArrayList<>(settings.shares());
+        for (int i = 0; i < settings.shares(); i++) {
+            figis.add(shareFigi(i));
+        }
+        return figis;
+    }
+
+    public List<String> futureFigis() {
+        List<String> figis = new ArrayList<>(settings.futures());
+        for (int i = 0; i < settings.futures(); i++) {
+            figis.add(futureFigi(i));
+        }
+        return figis;
+    }
+
+    public List<String> allFigis() {
+        List<String> figis = new ArrayList<>(shareFigis());
+        figis.addAll(futureFigis());
+        return figis;
+    }
+
+    /**
+     * Минутных свечей на инструмент за завершенный день
+     */
+    public int candlesPerDay() {
+        return Math.max(1, Math.min(settings.candlesPerDay(), MAX_MINUTES_PER_DAY));
+    }
+
+    // ==================== ИНСТРУМЕНТЫ ====================
+
+    public List<Share> shares() {
+        List<Share> shares = new ArrayList<>(settings.shares());
+        for (int i = 0; i < settings.shares(); i++) {
+            shares.add(Share.newBuilder()
+                .setFigi(shareFigi(i))
+                .setTicker(String.format("FS%04d", i))
+                .setName("Fake Share " + i)
+                .setCurrency("rub")
+                .setExchange("MOEX")
+                .setSector("fake")
+                .setTradingStatus(SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING)
+                .setShortEnabledFlag(i % 2 == 0)
+                .setAssetUid("fake-asset-" + i)
+                .setMinPriceIncrement(quotation(1))
+                .setLot(10)
+                .build());
+        }
+        return shares;
+    }
+
+    public List<Future> futures() {
+        List<Future> futures = new ArrayList<>(settings.futures());
+        Instant expiration = LocalDate.now(MOSCOW).plusMonths(3).atStartOfDay(MOSCOW).toInstant();
+        for (int i = 0; i < settings.futures(); i++) {
+            futures.add(Future.newBuilder()
+                .setFigi(futureFigi(i))
+                .setTicker(String.format("FF%04d", i))
+                .setName("Fake Future " + i)
+                .setAssetType("TYPE_SECURITY")
+                .setBasicAsset(String.format("FS%04d", i % Math.max(1, settings.shares())))
+                .setCurrency("rub")
+                .setExchange("FORTS")
+                .setShortEnabledFlag(true)
+                .setExpirationDate(Timestamp.newBuilder().setSeconds(expiration.getEpochSecond()))
+                .setMinPriceIncrement(quotation(1))
+                .setLot(1)
+                .setBasicAssetSize(quotation(10_000))
+                .build());
+        }
+        return futures;
+    }
+
+    /**
+     * Акции для заполнения {@code invest.shares}
+     */
+    public List<ShareEntity> shareEntities() {
+        List<ShareEntity> entities = new ArrayList<>();
+        for (Share share : shares()) {
+            ShareEntity entity = new ShareEntity();
+            entity.setFigi(share.getFigi());
+            entity.setTicker(share.getTicker());
+            entity.setName(share.getName());
+            entity.setCurrency("RUB");
+            entity.setExchange(share.getExchange());
+            entity.setSector(share.getSector());
+            entity.setTradingStatus(share.getTradingStatus().name());
+            entity.setShortEnabled(share.getShortEnabledFlag());
+            entity.setAssetUid(share.getAssetUid());
+            entity.setMinPriceIncrement(BigDecimal.valueOf(1, 2));
+            entity.setLot(share.getLot());
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Фьючерсы для заполнения {@code invest.futures}
+     */
+    public List<FutureEntity> futureEntities() {
+        List<FutureEntity> entities = new ArrayList<>();
+        for (Future future : futures()) {
+            entities.add(new FutureEntity(future.getFigi(), future.getTicker(), future.getAssetType(), future.getBasicAsset(),
+                "RUB", future.getExchange(), future.getShortEnabledFlag(),
+                LocalDateTime.ofInstant(Instant.ofEpochSecond(future.getExpirationDate().getSeconds()), MOSCOW),
+                BigDecimal.valueOf(1, 2), future.getLot(), BigDecimal.valueOf(100)));
+        }
+        return entities;
+    }
+
+    // ==================== РЫНОЧНЫЕ ДАННЫЕ ====================
+
+    /**
+     * Свечи инструмента, попадающие в [from, to)
+     */
+    public List<HistoricCandle> candles(String figi, Instant from, Instant to, CandleInterval interval) {
+        List<HistoricCandle> candles = new ArrayList<>();
+        Instant now = Instant.now();
+        LocalDate last = to.minusNanos(1).atZone(MOSCOW).toLocalDate();
+        for (LocalDate date = from.atZone(MOSCOW).toLocalDate(); !date.isAfter(last); date = date.plusDays(1)) {
+            if (interval == CandleInterval.CANDLE_INTERVAL_DAY) {
+                Instant dayStart = date.atStartOfDay(MOSCOW).toInstant();
+                if (!dayStart.isBefore(from) && dayStart.isBefore(to)) {
+                    candles.add(dailyCandle(figi, date, !date.plusDays(1).atStartOfDay(MOSCOW).toInstant().isAfter(now)));
+                }
+                continue;
+            }
+            for (HistoricCandle candle : minuteCandles(figi, date)) {
+                Instant time = Instant.ofEpochSecond(candle.getTime().getSeconds());
+                if (!time.isBefore(from) && time.isBefore(to)) {
+                    boolean complete = !time.plusSeconds(60).isAfter(now);
+                    candles.add(complete ? candle : candle.toBuilder().setIsComplete(false).build());
+                }
+            }
+        }
+        return candles;
+    }
+
+    /**
+     * Первые {@code count} минутных свечей дня в виде сообщений MarketDataStream (те же значения, что у GetCandles)
+     */
+    public List<Candle> streamCandles(String figi, LocalDate date, int count) {
+        List<HistoricCandle> minutes = minuteCandles(figi, date);
+        List<Candle> candles = new ArrayList<>(Math.min(count, minutes.size()));
+        for (HistoricCandle minute : minutes.subList(0, Math.min(count, minutes.size()))) {
+            candles.add(Candle.newBuilder()
+                .setFigi(figi)
+                .setInterval(SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE)
+                .setOpen(minute.getOpen())
+                .setHigh(minute.getHigh())
+                .setLow(minute.getLow())
+                .setClose(minute.getClose())
+                .setVolume(minute.getVolume())
+                .setTime(minute.getTime())
+                .build());
+        }
+        return candles;
+    }
+
+    /**
+     * Время первой минутной свечи дня
+     */
+    public Instant firstMinute(LocalDate date) {
+        return date.atTime(7, 0).atZone(MOSCOW).toInstant();
+    }
+
+    /**
+     * Обезличенные сделки инструмента в [from, to), не чаще одной в секунду
+     */
+    public List<Trade> lastTrades(String figi, Instant from, Instant to) {
+        long seconds = Math.max(1, to.getEpochSecond() - from.getEpochSecond());
+        int count = (int) Math.min(settings.tradesPerInstrument(), seconds);
+        SplittableRandom random = random(figi, from.getEpochSecond());
+        long price = basePrice(figi);
+        List<Trade> trades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            price = Math.max(1, price + random.nextInt(-5, 6));
+            trades.add(Trade.newBuilder()
+                .setFigi(figi)
+                .setDirection(random.nextBoolean() ? TradeDirection.TRADE_DIRECTION_BUY : TradeDirection.TRADE_DIRECTION_SELL)
+                .setPrice(quotation(price))
+                .setQuantity(random.nextLong(1, 1000))
+                .setTime(Timestamp.newBuilder().setSeconds(from.getEpochSecond() + i * seconds / count))
+                .build());
+        }
+        return trades;
+    }
+
+    /**
+     * Цена закрытия инструмента за последний завершенный день
+     */
+    public InstrumentClosePriceResponse closePrice(String figi) {
+        LocalDate date = LocalDate.now(MOSCOW).minusDays(1);
+        List<HistoricCandle> candles = minuteCandles(figi, date);
+        HistoricCandle last = candles.get(candles.size() - 1);
+        Instant time = date.atTime(18, 45).atZone(MOSCOW).toInstant();
+        return InstrumentClosePriceResponse.newBuilder()
+            .setFigi(figi)
+            .setInstrumentUid("fake-uid-" + figi)
+            .setPrice(last.getClose())
+            .setEveningSessionPrice(last.getClose())
+            .setTime(Timestamp.newBuilder().setSeconds(time.getEpochSecond()))
+            .build();
+    }
+
+    private List<HistoricCandle> minuteCandles(String figi, LocalDate date) {
+        int count = candlesPerDay();
+        SplittableRandom random = random(figi, date.toEpochDay());
+        long start = firstMinute(date).getEpochSecond();
+        long price = basePrice(figi);
+        List<HistoricCandle> candles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long open = price;
+            long close = Math.max(1, open + random.nextInt(-20, 21));
+            long high = Math.max(open, close) + random.nextInt(0, 10);
+            long low = Math.max(1, Math.min(open, close) - random.nextInt(0, 10));
+            price = close;
+            candles.add(HistoricCandle.newBuilder()
+                .setOpen(quotation(open))
+                .setClose(quotation(close))
+                .setHigh(quotation(high))
+                .setLow(quotation(low))
+                .setVolume(random.nextLong(1, 50_000))
+                .setTime(Timestamp.newBuilder().setSeconds(start + i * 60L))
+                .setIsComplete(true)
+                .build());
+        }
+        return candles;
+    }
+
+    private HistoricCandle dailyCandle(String figi, LocalDate date, boolean complete) {
+        List<HistoricCandle> minutes = minuteCandles(figi, date);
+        HistoricCandle.Builder daily = HistoricCandle.newBuilder()
+            .setOpen(minutes.get(0).getOpen())
+            .setClose(minutes.get(minutes.size() - 1).getClose())
+            .setTime(Timestamp.newBuilder().setSeconds(date.atStartOfDay(MOSCOW).toEpochSecond()))
+            .setIsComplete(complete);
+        long high = Long.MIN_VALUE;
+        long low = Long.MAX_VALUE;
+        long volume = 0;
+        for (HistoricCandle minute : minutes) {
+            high = Math.max(high, kopecks(minute.getHigh()));
+            low = Math.min(low, kopecks(minute.getLow()));
+            volume += minute.getVolume();
+        }
+        return daily.setHigh(quotation(high)).setLow(quotation(low)).setVolume(volume).build();
+    }
+
+    private long basePrice(String figi) {
+        // 10 - 1000 руб. в копейках
+        return 1_000 + Math.floorMod(figi.hashCode() * 31L + settings.seed(), 99_000);
+    }
+
+    private SplittableRandom random(String figi, long salt) {
+        return new SplittableRandom(settings.seed() * 1_000_003L + figi.hashCode() * 31L + salt);
+    }
+
+    private static Quotation quotation(long kopecks) {
+        return Quotation.newBuilder()
+            .setUnits(kopecks / 100)
+            .setNano((int) (kopecks % 100) * 10_000_000)
+            .build();
+    }
+
+    private static long kopecks(Quotation quotation) {
+        return quotation.getUnits() * 100 + quotation.getNano() / 10_000_000;
+    }
+}
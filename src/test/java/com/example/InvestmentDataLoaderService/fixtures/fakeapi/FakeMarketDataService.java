@@ -0,0 +1,78 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import com.google.protobuf.Timestamp;
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.GetCandlesRequest;
+import ru.tinkoff.piapi.contract.v1.GetCandlesResponse;
+import ru.tinkoff.piapi.contract.v1.GetClosePricesRequest;
+import ru.tinkoff.piapi.contract.v1.GetClosePricesResponse;
+import ru.tinkoff.piapi.contract.v1.GetLastTradesRequest;
+import ru.tinkoff.piapi.contract.v1.GetLastTradesResponse;
+import ru.tinkoff.piapi.contract.v1.GetTradingStatusResponse;
+import ru.tinkoff.piapi.contract.v1.GetTradingStatusesRequest;
+import ru.tinkoff.piapi.contract.v1.GetTradingStatusesResponse;
+import ru.tinkoff.piapi.contract.v1.InstrumentClosePriceRequest;
+import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.SecurityTradingStatus;
+
+import java.time.Instant;
+
+/**
+ * Фейковый MarketDataService: свечи, обезличенные сделки, цены закрытия и торговые статусы
+ */
+public class FakeMarketDataService extends MarketDataServiceGrpc.MarketDataServiceImplBase {
+
+    private final FakeMarketData data;
+
+    public FakeMarketDataService(FakeMarketData data) {
+        this.data = data;
+    }
+
+    @Override
+    public void getCandles(GetCandlesRequest request, StreamObserver<GetCandlesResponse> responseObserver) {
+        String figi = !request.getInstrumentId().isEmpty() ? request.getInstrumentId() : request.getFigi();
+        responseObserver.onNext(GetCandlesResponse.newBuilder()
+            .addAllCandles(data.candles(figi, toInstant(request.getFrom()), toInstant(request.getTo()), request.getInterval()))
+            .build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getLastTrades(GetLastTradesRequest request, StreamObserver<GetLastTradesResponse> responseObserver) {
+        String figi = !request.getInstrumentId().isEmpty() ? request.getInstrumentId() : request.getFigi();
+        responseObserver.onNext(GetLastTradesResponse.newBuilder()
+            .addAllTrades(data.lastTrades(figi, toInstant(request.getFrom()), toInstant(request.getTo())))
+            .build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getClosePrices(GetClosePricesRequest request, StreamObserver<GetClosePricesResponse> responseObserver) {
+        GetClosePricesResponse.Builder response = GetClosePricesResponse.newBuilder();
+        for (InstrumentClosePriceRequest instrument : request.getInstrumentsList()) {
+            response.addClosePrices(data.closePrice(instrument.getInstrumentId()));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getTradingStatuses(GetTradingStatusesRequest request, StreamObserver<GetTradingStatusesResponse> responseObserver) {
+        GetTradingStatusesResponse.Builder response = GetTradingStatusesResponse.newBuilder();
+        for (String instrumentId : request.getInstrumentIdList()) {
+            response.addTradingStatuses(GetTradingStatusResponse.newBuilder()
+                .setFigi(instrumentId)
+                .setTradingStatus(SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING)
+                .setLimitOrderAvailableFlag(true)
+                .setMarketOrderAvailableFlag(true)
+                .setApiTradeAvailableFlag(true)
+                .build());
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.CandleInstrument;
+import ru.tinkoff.piapi.contract.v1.CandleSubscription;
+import ru.tinkoff.piapi.contract.v1.LastPrice;
+import ru.tinkoff.piapi.contract.v1.LastPriceInstrument;
+import ru.tinkoff.piapi.contract.v1.LastPriceSubscription;
+import ru.tinkoff.piapi.contract.v1.MarketDataRequest;
+import ru.tinkoff.piapi.contract.v1.MarketDataResponse;
+import ru.tinkoff.piapi.contract.v1.MarketDataStreamServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.SubscribeCandlesResponse;
+import ru.tinkoff.piapi.contract.v1.SubscribeLastPriceResponse;
+import ru.tinkoff.piapi.contract.v1.SubscribeTradesResponse;
+import ru.tinkoff.piapi.contract.v1.SubscriptionStatus;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeInstrument;
+import ru.tinkoff.piapi.contract.v1.TradeSubscription;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фейковый MarketDataStreamService: на подписку отвечает статусами и сразу отдает данные дня
+ *
+ * <p>Подписка на минутные свечи отдает первые {@link #STREAM_MINUTES} свечей дня
+ * {@link #setStreamDate} по каждому инструменту, подписка на сделки - сделки этих минут,
+ * подписка на последние цены - цену последней из них. Повторная подписка после
+ * переподключения отдает те же данные. {@link #disconnectAll()} обрывает открытые
+ * потоки ошибкой UNAVAILABLE.</p>
+ */
+public class FakeMarketDataStreamService extends MarketDataStreamServiceGrpc.MarketDataStreamServiceImplBase {
+
+    public static final int STREAM_MINUTES = 60;
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private final FakeMarketData data;
+    private final Set<StreamObserver<MarketDataResponse>> open = ConcurrentHashMap.newKeySet();
+    private final AtomicLong candleSubscriptions = new AtomicLong();
+    private volatile LocalDate streamDate = LocalDate.now(MOSCOW).minusDays(1);
+
+    public FakeMarketDataStreamService(FakeMarketData data) {
+        this.data = data;
+    }
+
+    @Override
+    public StreamObserver<MarketDataRequest> marketDataStream(StreamObserver<MarketDataResponse> responseObserver) {
+        open.add(responseObserver);
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(MarketDataRequest request) {
+                handle(request, responseObserver);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                open.remove(responseObserver);
+            }
+
+            @Override
+            public void onCompleted() {
+                synchronized (responseObserver) {
+                    if (open.remove(responseObserver)) {
+                        responseObserver.onCompleted();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * День, данные которого отдаются в поток (по умолчанию вчера по Москве)
+     */
+    public void setStreamDate(LocalDate streamDate) {
+        this.streamDate = streamDate;
+    }
+
+    /**
+     * Обрывает все открытые потоки ошибкой UNAVAILABLE
+     *
+     * @return количество оборванных потоков
+     */
+    public int disconnectAll() {
+        int disconnected = 0;
+        for (StreamObserver<MarketDataResponse> stream : List.copyOf(open)) {
+            synchronized (stream) {
+                if (open.remove(stream)) {
+                    stream.onError(Status.UNAVAILABLE.withDescription("fake api: stream reset").asRuntimeException());
+                    disconnected++;
+                }
+            }
+        }
+        return disconnected;
+    }
+
+    public int getOpenStreams() {
+        return open.size();
+    }
+
+    /**
+     * Количество принятых подписок на свечи (по одной на поток и каждое переподключение)
+     */
+    public long getCandleSubscriptions() {
+        return candleSubscriptions.get();
+    }
+
+    private void handle(MarketDataRequest request, StreamObserver<MarketDataResponse> out) {
+        synchronized (out) {
+            if (!open.contains(out)) {
+                return;
+            }
+            LocalDate date = streamDate;
+            Instant from = data.firstMinute(date);
+            Instant to = from.plusSeconds(STREAM_MINUTES * 60L);
+
+            if (request.hasSubscribeCandlesRequest()) {
+                List<CandleInstrument> instruments = request.getSubscribeCandlesRequest().getInstrumentsList();
+                SubscribeCandlesResponse.Builder response = SubscribeCandlesResponse.newBuilder().setTrackingId("fake");
+                for (CandleInstrument instrument : instruments) {
+                    response.addCandlesSubscriptions(CandleSubscription.newBuilder()
+                        .setFigi(instrument.getInstrumentId())
+                        .setInterval(instrument.getInterval())
+                        .setSubscriptionStatus(SubscriptionStatus.SUBSCRIPTION_STATUS_SUCCESS));
+                }
+                out.onNext(MarketDataResponse.newBuilder().setSubscribeCandlesResponse(response).build());
+                candleSubscriptions.incrementAndGet();
+                for (CandleInstrument instrument : instruments) {
+                    for (Candle candle : data.streamCandles(instrument.getInstrumentId(), date, STREAM_MINUTES)) {
+                        out.onNext(MarketDataResponse.newBuilder().setCandle(candle).build());
+                    }
+                }
+            } else if (request.hasSubscribeTradesRequest()) {
+                List<TradeInstrument> instruments = request.getSubscribeTradesRequest().getInstrumentsList();
+                SubscribeTradesResponse.Builder response = SubscribeTradesResponse.newBuilder().setTrackingId("fake");
+                for (TradeInstrument instrument : instruments) {
+                    response.addTradeSubscriptions(TradeSubscription.newBuilder()
+                        .setFigi(instrument.getInstrumentId())
+                        .setSubscriptionStatus(SubscriptionStatus.SUBSCRIPTION_STATUS_SUCCESS));
+                }
+                out.onNext(MarketDataResponse.newBuilder().setSubscribeTradesResponse(response).build());
+                for (TradeInstrument instrument : instruments) {
+                    for (Trade trade : data.lastTrades(instrument.getInstrumentId(), from, to)) {
+                        out.onNext(MarketDataResponse.newBuilder().setTrade(trade).build());
+                    }
+                }
+            } else if (request.hasSubscribeLastPriceRequest()) {
+                List<LastPriceInstrument> instruments = request.getSubscribeLastPriceRequest().getInstrumentsList();
+                SubscribeLastPriceResponse.Builder response = SubscribeLastPriceResponse.newBuilder().setTrackingId("fake");
+                for (LastPriceInstrument instrument : instruments) {
+                    response.addLastPriceSubscriptions(LastPriceSubscription.newBuilder()
+                        .setFigi(instrument.getInstrumentId())
+                        .setSubscriptionStatus(SubscriptionStatus.SUBSCRIPTION_STATUS_SUCCESS));
+                }
+                out.onNext(MarketDataResponse.newBuilder().setSubscribeLastPriceResponse(response).build());
+                for (LastPriceInstrument instrument : instruments) {
+                    List<Trade> trades = data.lastTrades(instrument.getInstrumentId(), from, to);
+                    if (!trades.isEmpty()) {
+                        Trade last = trades.get(trades.size() - 1);
+                        out.onNext(MarketDataResponse.newBuilder().setLastPrice(LastPrice.newBuilder()
+                            .setFigi(last.getFigi())
+                            .setPrice(last.getPrice())
+                            .setTime(last.getTime())).build());
+                    }
+                }
+            }
+        }
+    }
+}
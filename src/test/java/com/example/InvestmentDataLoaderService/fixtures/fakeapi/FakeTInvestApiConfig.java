@@ -0,0 +1,39 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Поднимает {@link FakeTInvestServer} в контексте теста (вместе с профилем {@code fake-api})
+ * и направляет канал приложения к нему через in-process транспорт
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class FakeTInvestApiConfig {
+
+    @Bean(destroyMethod = "close")
+    public FakeTInvestServer fakeTInvestServer(@Value("${tinkoff.api.in-process-name}") String name,
+                                               @Value("${fake-api.shares:20}") int shares,
+                                               @Value("${fake-api.futures:10}") int futures,
+                                               @Value("${fake-api.candles-per-day:900}") int candlesPerDay,
+                                               @Value("${fake-api.trades-per-instrument:50}") int tradesPerInstrument,
+                                               @Value("${fake-api.latency-ms:0}") long latencyMs,
+                                               @Value("${fake-api.exhausted-every:0}") int exhaustedEvery,
+                                               @Value("${fake-api.exhausted-burst:0}") int exhaustedBurst,
+                                               @Value("${fake-api.quota-limit:0}") int quotaLimit,
+                                               @Value("${fake-api.quota-window-seconds:1}") int quotaWindowSeconds,
+                                               @Value("${fake-api.seed:42}") long seed) {
+        return new FakeTInvestServer(name, new FakeApiSettings(shares, futures, candlesPerDay, tradesPerInstrument,
+            latencyMs, exhaustedEvery, exhaustedBurst, quotaLimit, quotaWindowSeconds, seed)).start();
+    }
+
+    /**
+     * Транспорт канала {@code GrpcConfig#investChannel}: in-process вместо TLS к реальному API
+     */
+    @Bean
+    public ManagedChannelBuilder<?> fakeTInvestChannelBuilder(@Value("${tinkoff.api.in-process-name}") String name) {
+        return InProcessChannelBuilder.forName(name);
+    }
+}
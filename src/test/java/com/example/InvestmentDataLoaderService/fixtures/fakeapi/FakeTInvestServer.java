@@ -0,0 +1,64 @@
+package com.example.InvestmentDataLoaderService.fixtures.fakeapi;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * In-process сервер фейкового T-Invest API
+ *
+ * <p>Клиент приложения подключается к нему через {@code tinkoff.api.in-process-name}
+ * (см. {@code GrpcConfig}): все вызовы MarketDataService, MarketDataStreamService и InstrumentsService проходят
+ * через {@link FakeApiFaultInterceptor} и обслуживаются {@link FakeMarketData}.</p>
+ */
+public class FakeTInvestServer implements AutoCloseable {
+
+    private final String name;
+    private final FakeMarketData data;
+    private final FakeApiFaultInterceptor faults;
+    private final FakeMarketDataStreamService stream;
+    private Server server;
+
+    public FakeTInvestServer(String name, FakeApiSettings settings) {
+        this.name = name;
+        this.data = new FakeMarketData(settings);
+        this.faults = new FakeApiFaultInterceptor(settings);
+        this.stream = new FakeMarketDataStreamService(data);
+    }
+
+    public FakeTInvestServer start() {
+        try {
+            server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(new FakeMarketDataService(data), faults))
+                .addService(ServerInterceptors.intercept(stream, faults))
+                .addService(ServerInterceptors.intercept(new FakeInstrumentsService(data), faults))
+                .build()
+                .start();
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить фейковый T-Invest API " + name, e);
+        }
+    }
+
+    public FakeMarketData data() {
+        return data;
+    }
+
+    public FakeApiFaultInterceptor faults() {
+        return faults;
+    }
+
+    public FakeMarketDataStreamService stream() {
+        return stream;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.shutdownNow();
+        }
+    }
+}
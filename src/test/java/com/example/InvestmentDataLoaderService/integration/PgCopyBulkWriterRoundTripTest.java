@@ -0,0 +1,159 @@
+package com.example.InvestmentDataLoaderService.integration;
+
+import com.example.InvestmentDataLoaderService.repository.PgCopyBulkWriter;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * COPY в бинарном формате через {@link PgCopyBulkWriter}: записанные строки читаются из PostgreSQL без искажений
+ *
+ * <p>Использует БД тестового профиля ({@code application-test.properties}); если она недоступна,
+ * тест пропускается. Целевая таблица временная, схема БД не меняется.</p>
+ */
+@Epic("Bulk Writer")
+@Feature("Pg Copy Bulk Writer")
+@DisplayName("Pg Copy Bulk Writer Round Trip Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("integration")
+public class PgCopyBulkWriterRoundTripTest {
+
+    private static final String TABLE = "pg_temp.copy_round_trip";
+
+    private record Row(long id, String label, Short code, boolean flag, BigDecimal price, BigDecimal amount,
+                       Instant time, LocalDateTime localTime) {
+    }
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static PgCopyBulkWriter<Row> writer;
+
+    @BeforeAll
+    static void connect() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = PgCopyBulkWriterRoundTripTest.class.getResourceAsStream("/application-test.properties")) {
+            properties.load(in);
+        }
+        String url = properties.getProperty("spring.datasource.url");
+        String username = properties.getProperty("spring.datasource.username");
+        String password = properties.getProperty("spring.datasource.password");
+        try (Connection ignored = DriverManager.getConnection(url, username, password)) {
+            // БД доступна
+        } catch (Exception e) {
+            assumeTrue(false, "БД тестового профиля недоступна: " + e.getMessage());
+        }
+
+        // Одно соединение: временные таблицы видны только в своей сессии
+        dataSource = new SingleConnectionDataSource(url, username, password, true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TEMP TABLE copy_round_trip (" +
+            "id bigint primary key, label text, code smallint, flag boolean not null, " +
+            "price numeric(18, 9), amount numeric, time timestamptz, local_time timestamp)");
+        writer = new PgCopyBulkWriter<>(jdbcTemplate, new DataSourceTransactionManager(dataSource), TABLE,
+            List.of("id", "label", "code", "flag", "price", "amount", "time", "local_time"), List.of("id"),
+            (row, encoder) -> {
+                encoder.writeLong(row.id());
+                encoder.writeText(row.label());
+                encoder.writeShort(row.code());
+                encoder.writeBoolean(row.flag());
+                encoder.writeNumeric(row.price());
+                encoder.writeNumeric(row.amount());
+                encoder.writeTimestamptz(row.time());
+                encoder.writeTimestamp(row.localTime());
+            });
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE " + TABLE);
+    }
+
+    private static Row read(long id) {
+        return jdbcTemplate.queryForObject("SELECT * FROM " + TABLE + " WHERE id = ?", (rs, rowNum) -> {
+            Object code = rs.getObject("code");
+            OffsetDateTime time = rs.getObject("time", OffsetDateTime.class);
+            return new Row(rs.getLong("id"), rs.getString("label"),
+                code != null ? ((Number) code).shortValue() : null,
+                rs.getBoolean("flag"), rs.getBigDecimal("price"), rs.getBigDecimal("amount"),
+                time != null ? time.toInstant() : null, rs.getObject("local_time", LocalDateTime.class));
+        }, id);
+    }
+
+    @Test
+    @DisplayName("numeric, timestamptz, timestamp, smallint и text читаются такими же, как записаны")
+    void write_ShouldRoundTripAllTypes() {
+        List<Row> rows = List.of(
+            new Row(1, "Сбербанк", (short) 2, true, new BigDecimal("250.750000000"), new BigDecimal("0"),
+                Instant.parse("2024-06-03T07:00:00Z"), LocalDateTime.parse("2024-06-03T10:00:00")),
+            new Row(2, "", (short) -1, false, new BigDecimal("-0.000000001"), new BigDecimal("-12345.678"),
+                Instant.parse("1999-12-31T23:59:59.999999Z"), LocalDateTime.parse("1999-12-31T23:00:00")),
+            new Row(3, "spread", (short) 0, true, new BigDecimal("0E-9"), new BigDecimal("0.00001"),
+                Instant.parse("1969-12-31T23:59:59.5Z"), LocalDateTime.parse("1900-01-01T00:00:00")),
+            new Row(4, null, null, false, null, null, null, null),
+            new Row(5, "max", Short.MAX_VALUE, true, new BigDecimal("999999999.999999999"),
+                new BigDecimal("123456789012345678901234567890.123456789012"),
+                Instant.parse("2000-01-01T00:00:00Z"), LocalDateTime.parse("2000-01-01T00:00:00"))
+        );
+
+        assertEquals(rows.size(), writer.write(rows));
+
+        for (Row expected : rows) {
+            Row actual = read(expected.id());
+            assertEquals(expected.label(), actual.label());
+            assertEquals(expected.code(), actual.code());
+            assertEquals(expected.flag(), actual.flag());
+            // numeric без ограничения масштаба сохраняет dscale: сравнение вместе с масштабом
+            assertEquals(expected.amount(), actual.amount(), "amount " + expected.id());
+            if (expected.price() != null) {
+                assertEquals(0, expected.price().compareTo(actual.price()), "price " + expected.id());
+            } else {
+                assertNull(actual.price());
+            }
+            assertEquals(expected.time(), actual.time(), "time " + expected.id());
+            assertEquals(expected.localTime(), actual.localTime(), "local_time " + expected.id());
+        }
+    }
+
+    @Test
+    @DisplayName("Повторная запись тех же ключей не вставляет строк: дубликаты отбрасывает ON CONFLICT")
+    void write_ShouldSkipDuplicates() {
+        Row row = new Row(10, "dup", (short) 1, true, BigDecimal.ONE, BigDecimal.TEN,
+            Instant.parse("2024-06-03T07:00:00Z"), LocalDateTime.parse("2024-06-03T10:00:00"));
+
+        assertEquals(1, writer.write(List.of(row)));
+        assertEquals(0, writer.write(List.of(row)));
+        assertEquals(1, writer.write(List.of(row, new Row(11, "new", null, false, null, null, null, null))));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM " + TABLE, Integer.class));
+    }
+}
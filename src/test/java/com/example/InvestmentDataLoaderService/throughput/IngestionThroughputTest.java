@@ -0,0 +1,242 @@
+package com.example.InvestmentDataLoaderService.throughput;
+
+import com.example.InvestmentDataLoaderService.dto.ClosePriceRequestDto;
+import com.example.InvestmentDataLoaderService.dto.MinuteCandleRequestDto;
+import com.example.InvestmentDataLoaderService.dto.SaveResponseDto;
+import com.example.InvestmentDataLoaderService.fixtures.fakeapi.FakeMarketData;
+import com.example.InvestmentDataLoaderService.fixtures.fakeapi.FakeMarketDataStreamService;
+import com.example.InvestmentDataLoaderService.fixtures.fakeapi.FakeTInvestApiConfig;
+import com.example.InvestmentDataLoaderService.fixtures.fakeapi.FakeTInvestServer;
+import com.example.InvestmentDataLoaderService.repository.FutureRepository;
+import com.example.InvestmentDataLoaderService.repository.ShareRepository;
+import com.example.InvestmentDataLoaderService.service.InstrumentRegistry;
+import com.example.InvestmentDataLoaderService.service.LastTradesService;
+import com.example.InvestmentDataLoaderService.service.MainSessionPriceService;
+import com.example.InvestmentDataLoaderService.service.MarketDataStreamIngestionService;
+import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сквозные замеры пропускной способности загрузки на фейковом T-Invest API
+ *
+ * <p>Загрузки идут по всей синтетической вселенной ({@code fake-api.*}) в реальную БД
+ * тестового профиля; партиции на дату загрузки должны существовать. Дата задается
+ * системным свойством {@code throughput.date} (по умолчанию вчера по Москве).
+ * Тесты не проверяют пороги скорости - они фиксируют время и строки в секунду
+ * (stdout и вложение Allure) и полноту загруженных данных.</p>
+ *
+ * <p>Исключены из обычного прогона тегом {@code throughput}:
+ * {@code mvn test -Dgroups=throughput -DexcludedGroups=none}.</p>
+ */
+@SpringBootTest
+@ActiveProfiles({"test", "fake-api"})
+@TestPropertySource(locations = "classpath:application-test.properties")
+@Import(FakeTInvestApiConfig.class)
+@Tag("throughput")
+@Epic("Throughput Tests")
+@Feature("Ingestion Throughput")
+@DisplayName("Ingestion Throughput Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.NORMAL)
+public class IngestionThroughputTest {
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final String FAKE_FIGIS = FakeMarketData.FIGI_PREFIX + "%";
+
+    @Autowired
+    private FakeTInvestServer fakeApi;
+
+    @Autowired
+    private ShareRepository shareRepository;
+
+    @Autowired
+    private FutureRepository futureRepository;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private MinuteCandleService minuteCandleService;
+
+    @Autowired
+    private MainSessionPriceService mainSessionPriceService;
+
+    @Autowired
+    private LastTradesService lastTradesService;
+
+    @Autowired
+    private MarketDataStreamIngestionService marketDataStreamIngestionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDate date;
+    private List<String> figis;
+
+    @BeforeEach
+    void setUp() {
+        date = LocalDate.parse(System.getProperty("throughput.date", LocalDate.now(MOSCOW).minusDays(1).toString()));
+        figis = fakeApi.data().allFigis();
+        cleanUp();
+        // Список инструментов в приложении приходит через REST, поэтому синтетическую вселенную кладем в БД напрямую
+        shareRepository.saveAll(fakeApi.data().shareEntities());
+        futureRepository.saveAll(fakeApi.data().futureEntities());
+        instrumentRegistry.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+        instrumentRegistry.refresh();
+    }
+
+    @Test
+    @DisplayName("Минутные свечи по всей вселенной")
+    @Tag("candles")
+    void minuteCandlesFullUniverse() throws Exception {
+        long started = System.nanoTime();
+        SaveResponseDto response = minuteCandleService
+            .saveMinuteCandlesAsync(new MinuteCandleRequestDto(figis, date, null), taskId())
+            .get();
+        long elapsedNanos = System.nanoTime() - started;
+
+        long rows = countFakeRows("invest.minute_candles");
+        report("minute_candles", rows, elapsedNanos);
+
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals((long) figis.size() * fakeApi.data().candlesPerDay(), rows,
+            "Должны быть загружены все минутные свечи синтетической вселенной");
+    }
+
+    @Test
+    @DisplayName("Цены закрытия по всей вселенной")
+    @Tag("close-prices")
+    void closePricesFullUniverse() {
+        long started = System.nanoTime();
+        SaveResponseDto response = mainSessionPriceService.saveClosePrices(new ClosePriceRequestDto(figis));
+        long elapsedNanos = System.nanoTime() - started;
+
+        long rows = countFakeRows("invest.close_prices");
+        report("close_prices", rows, elapsedNanos);
+
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals(figis.size(), rows, "Должна быть загружена цена закрытия каждого инструмента");
+    }
+
+    @Test
+    @DisplayName("Обезличенные сделки по всей вселенной")
+    @Tag("trades")
+    void lastTradesFullUniverse() {
+        long started = System.nanoTime();
+        SaveResponseDto response = lastTradesService.processLastTrades(date, taskId(),
+            figi -> figi.startsWith(FakeMarketData.FIGI_PREFIX));
+        long elapsedNanos = System.nanoTime() - started;
+
+        long rows = countFakeRows("invest.last_prices");
+        report("last_prices", rows, elapsedNanos);
+
+        assertTrue(response.isSuccess(), response.getMessage());
+        Long instruments = jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT figi) FROM invest.last_prices WHERE figi LIKE ?", Long.class, FAKE_FIGIS);
+        assertEquals(figis.size(), instruments, "Сделки должны быть загружены по каждому инструменту");
+    }
+
+    @Test
+    @DisplayName("Потоковая загрузка по всей вселенной с обрывом потока")
+    @Tag("stream")
+    void marketDataStreamWithReconnect() throws Exception {
+        FakeMarketDataStreamService stream = fakeApi.stream();
+        stream.setStreamDate(date);
+        long expectedCandles = (long) figis.size() * FakeMarketDataStreamService.STREAM_MINUTES;
+
+        try {
+            long started = System.nanoTime();
+            int instruments = marketDataStreamIngestionService.start(figi -> figi.startsWith(FakeMarketData.FIGI_PREFIX));
+            assertEquals(figis.size(), instruments, "Потоки должны быть открыты по всей синтетической вселенной");
+
+            awaitTrue(() -> countFakeRows("invest.minute_candles") >= expectedCandles,
+                "Все свечи из потока должны быть записаны");
+            report("minute_candles (stream)", countFakeRows("invest.minute_candles"), System.nanoTime() - started);
+
+            // Обрыв всех потоков: сервис должен переподключиться и повторить подписки
+            long subscriptions = stream.getCandleSubscriptions();
+            assertTrue(stream.disconnectAll() > 0, "Должны быть открытые потоки");
+            awaitTrue(() -> stream.getCandleSubscriptions() >= 2 * subscriptions,
+                "После обрыва все потоки должны переподписаться");
+            awaitTrue(() -> {
+                Map<String, Object> status = marketDataStreamIngestionService.getStatus();
+                return ((Number) status.get("connectedStreams")).longValue() == ((Number) status.get("streams")).longValue();
+            }, "Все потоки должны быть снова подключены");
+            awaitTrue(() -> countFakeInstruments("invest.last_prices") == figis.size(),
+                "Сделки из потока должны быть записаны по каждому инструменту");
+        } finally {
+            marketDataStreamIngestionService.stop();
+        }
+
+        Map<String, Object> status = marketDataStreamIngestionService.getStatus();
+        assertTrue(((Number) status.get("reconnects")).longValue() > 0, "Обрыв должен быть учтен в счетчике переподключений");
+        assertEquals(expectedCandles, countFakeRows("invest.minute_candles"),
+            "Повторная выдача после переподключения не должна дублировать свечи");
+        assertTrue(marketDataStreamIngestionService.getLastPrice(figis.get(0)).isPresent(),
+            "Последняя цена из потока должна быть доступна");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    private void report(String table, long rows, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        String summary = String.format("%s: %d строк за %.2f с (%.0f строк/с), RESOURCE_EXHAUSTED: %d",
+            table, rows, seconds, seconds > 0 ? rows / seconds : 0, fakeApi.faults().getExhaustedCount());
+        System.out.println("[throughput] " + summary);
+        Allure.addAttachment("Пропускная способность " + table, "text/plain", summary);
+    }
+
+    private long countFakeRows(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE figi LIKE ?", Long.class, FAKE_FIGIS);
+        return count != null ? count : 0;
+    }
+
+    private long countFakeInstruments(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT figi) FROM " + table + " WHERE figi LIKE ?", Long.class, FAKE_FIGIS);
+        return count != null ? count : 0;
+    }
+
+    private void cleanUp() {
+        for (String table : List.of("invest.minute_candles", "invest.close_prices", "invest.last_prices",
+                "invest.shares", "invest.futures")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE figi LIKE ?", FAKE_FIGIS);
+        }
+    }
+
+    private static String taskId() {
+        return "THROUGHPUT_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
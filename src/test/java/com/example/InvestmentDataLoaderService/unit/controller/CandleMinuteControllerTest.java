@@ -5,6 +5,8 @@ import com.example.InvestmentDataLoaderService.controller.CandlesMinuteControlle
 import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
 import com.example.InvestmentDataLoaderService.fixtures.TestDataFactory;
 
@@ -19,6 +21,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -52,12 +56,16 @@ public class CandleMinuteControllerTest {
     private IndicativeRepository indicativeRepository;
     @MockitoBean
     private SystemLogRepository systemLogRepository;
+    @MockitoBean
+    private CandleStreamService candleStreamService;
+    @MockitoBean
+    private SystemLogWriter systemLogWriter;
 
     @BeforeEach
     @Step("Подготовка тестовых данных для CandlesMinuteController")
     public void setUp() {
         reset(minuteCandleService, tinkoffApiClient, shareRepository, futureRepository, 
-              indicativeRepository, systemLogRepository);
+              indicativeRepository, systemLogRepository, candleStreamService, systemLogWriter);
     }
 
     // ========== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ==========
@@ -634,6 +642,42 @@ public class CandleMinuteControllerTest {
         });
     }
 
+    @Test
+    @DisplayName("Получение минутных свечей акций - потоковый ответ NDJSON")
+    @Description("Тест проверяет, что при Accept: application/x-ndjson ответ отдается потоком из CandleStreamService")
+    @Story("Minute Candles Retrieval")
+    @Tag("positive")
+    @Tag("streaming")
+    void streamSharesMinuteCandlesForDate_ShouldReturnNdjson_WhenAcceptNdjson() throws Exception {
+        Allure.step("Подготовка тестовых данных", () -> {
+            ShareEntity share = new ShareEntity();
+            share.setFigi("BBG004730N88");
+            share.setTicker("SBER");
+            share.setName("Сбербанк");
+            when(shareRepository.findAll()).thenReturn(List.of(share));
+            StreamingResponseBody body = out -> out.write("{\"figi\":\"BBG004730N88\"}\n{\"type\":\"summary\"}\n".getBytes());
+            when(candleStreamService.streamMinuteCandles(eq("SHARES"), eq(LocalDate.of(2024, 1, 15)), anyString(), anyList()))
+                .thenReturn(body);
+        });
+
+        Allure.step("Выполнение HTTP запроса и проверка ответа", () -> {
+            MvcResult result = mockMvc.perform(get("/api/candles/minute/shares/2024-01-15")
+                    .accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                    .andExpect(content().string("{\"figi\":\"BBG004730N88\"}\n{\"type\":\"summary\"}\n"));
+        });
+
+        Allure.step("Проверка вызовов сервиса", () -> {
+            verify(candleStreamService).streamMinuteCandles(eq("SHARES"), eq(LocalDate.of(2024, 1, 15)),
+                eq("/api/candles/minute/shares/2024-01-15"), argThat(list -> list.size() == 1 && "SBER".equals(list.get(0).ticker())));
+            verifyNoInteractions(tinkoffApiClient);
+        });
+    }
+
     @Test
     @DisplayName("Загрузка минутных свечей фьючерсов - ошибка сервиса")
     @Description("Тест проверяет обработку ошибки сервиса при загрузке минутных свечей фьючерсов")
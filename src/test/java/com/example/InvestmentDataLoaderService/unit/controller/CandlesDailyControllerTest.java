@@ -34,6 +34,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.example.InvestmentDataLoaderService.client.TinkoffApiClient;
 import com.example.InvestmentDataLoaderService.controller.CandlesDailyController;
+import com.example.InvestmentDataLoaderService.service.CandleStreamService;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
 import com.example.InvestmentDataLoaderService.repository.ShareRepository;
 import com.example.InvestmentDataLoaderService.repository.FutureRepository;
@@ -73,6 +75,11 @@ public class CandlesDailyControllerTest {
     @MockitoBean
     private SystemLogRepository systemLogRepository;
 
+    @MockitoBean
+    private CandleStreamService candleStreamService;
+    @MockitoBean
+    private SystemLogWriter systemLogWriter;
+
 
 
     @BeforeEach
@@ -84,6 +91,7 @@ public class CandlesDailyControllerTest {
         reset(futureRepository);    
         reset(indicativeRepository);
         reset(systemLogRepository);
+        reset(candleStreamService, systemLogWriter);
     }
 
     // ==================== ТЕСТОВЫЕ ДАННЫЕ ====================
@@ -5,6 +5,7 @@ import com.example.InvestmentDataLoaderService.controller.CandlesInstrumentContr
 import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleDayCacheService;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
 import com.example.InvestmentDataLoaderService.fixtures.TestDataFactory;
@@ -52,11 +53,13 @@ public class CandlesInstrumentControllerTest {
     private TinkoffApiClient tinkoffApiClient;
     @MockitoBean
     private SystemLogRepository systemLogRepository;
+    @MockitoBean
+    private CandleDayCacheService candleDayCacheService;
 
     @BeforeEach
     @Step("Подготовка тестовых данных для CandlesInstrumentController")
     public void setUp() {
-        reset(minuteCandleService, dailyCandleService, tinkoffApiClient, systemLogRepository);
+        reset(minuteCandleService, dailyCandleService, tinkoffApiClient, systemLogRepository, candleDayCacheService);
     }
 
     // ========== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ==========
@@ -78,7 +81,7 @@ public class CandlesInstrumentControllerTest {
             List<CandleDto> candles = TestDataFactory.createCandleDtoList();
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(candles);
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(candles);
 
             // When & Then
             mockMvc.perform(get("/api/candles/instrument/minute/{figi}/{date}", figi, date)
@@ -94,7 +97,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
         });
     }
 
@@ -112,7 +115,7 @@ public class CandlesInstrumentControllerTest {
             LocalDate date = LocalDate.of(2024, 1, 15);
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(Collections.emptyList());
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(Collections.emptyList());
 
             // When & Then
             mockMvc.perform(get("/api/candles/instrument/minute/{figi}/{date}", figi, date)
@@ -127,7 +130,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
         });
     }
 
@@ -145,7 +148,7 @@ public class CandlesInstrumentControllerTest {
             LocalDate date = LocalDate.of(2024, 1, 15);
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(null);
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN")).thenReturn(null);
 
             // When & Then
             mockMvc.perform(get("/api/candles/instrument/minute/{figi}/{date}", figi, date)
@@ -160,7 +163,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
         });
     }
 
@@ -216,7 +219,7 @@ public class CandlesInstrumentControllerTest {
             List<CandleDto> candles = TestDataFactory.createCandleDtoList();
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY")).thenReturn(candles);
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_DAY")).thenReturn(candles);
 
             // When & Then
             mockMvc.perform(get("/api/candles/instrument/daily/{figi}/{date}", figi, date)
@@ -232,7 +235,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
         });
     }
 
@@ -250,7 +253,7 @@ public class CandlesInstrumentControllerTest {
             LocalDate date = LocalDate.of(2024, 1, 15);
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY")).thenReturn(Collections.emptyList());
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_DAY")).thenReturn(Collections.emptyList());
 
             // When & Then
             mockMvc.perform(get("/api/candles/instrument/daily/{figi}/{date}", figi, date)
@@ -265,7 +268,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
         });
     }
 
@@ -320,7 +323,7 @@ public class CandlesInstrumentControllerTest {
             LocalDate date = LocalDate.of(2024, 1, 15);
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN"))
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_1_MIN"))
                 .thenThrow(new RuntimeException("API error"));
 
             // When & Then
@@ -334,7 +337,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_1_MIN");
         });
     }
 
@@ -387,7 +390,7 @@ public class CandlesInstrumentControllerTest {
             LocalDate date = LocalDate.of(2024, 1, 15);
 
             when(systemLogRepository.save(any(SystemLogEntity.class))).thenReturn(new SystemLogEntity());
-            when(tinkoffApiClient.getCandles(figi, date, "CANDLE_INTERVAL_DAY"))
+            when(candleDayCacheService.getCandles(figi, date, "CANDLE_INTERVAL_DAY"))
                 .thenThrow(new RuntimeException("API error"));
 
             // When & Then
@@ -401,7 +404,7 @@ public class CandlesInstrumentControllerTest {
 
             // Verify
             verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
-            verify(tinkoffApiClient).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
+            verify(candleDayCacheService).getCandles(figi, date, "CANDLE_INTERVAL_DAY");
         });
     }
 
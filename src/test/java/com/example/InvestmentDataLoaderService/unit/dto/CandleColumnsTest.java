@@ -0,0 +1,163 @@
+package com.example.InvestmentDataLoaderService.unit.dto;
+
+import com.example.InvestmentDataLoaderService.dto.CandleColumns;
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Колоночное представление свечей: диапазоны инструментов, рост массивов, агрегаты по сессиям
+ */
+@Epic("Session Analytics")
+@Feature("Candle Columns")
+@DisplayName("Candle Columns Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("dto")
+public class CandleColumnsTest {
+
+    private static final long BASE_TIME = 1_717_398_000L;
+
+    private static short code(TradingSession session) {
+        return session.getCode();
+    }
+
+    @Test
+    @DisplayName("Новый FIGI начинает непрерывный диапазон [from, to)")
+    void build_ShouldSplitRowsIntoFigiRanges() {
+        CandleColumns columns = new CandleColumns.Builder(8)
+            .add("A", BASE_TIME, 10, 12, 9, 11, 100, code(TradingSession.MAIN))
+            .add("A", BASE_TIME + 60, 11, 13, 10, 12, 50, code(TradingSession.MAIN))
+            .add("A", BASE_TIME + 120, 12, 15, 8, 14, 25, code(TradingSession.EVENING))
+            .add("B", BASE_TIME, 100, 101, 99, 100, 7, code(TradingSession.MORNING))
+            .build();
+
+        assertEquals(4, columns.size());
+        assertEquals(2, columns.figiCount());
+        assertEquals("A", columns.figi(0));
+        assertEquals("B", columns.figi(1));
+        assertEquals(0, columns.indexOf("A"));
+        assertEquals(1, columns.indexOf("B"));
+        assertEquals(-1, columns.indexOf("C"));
+
+        assertEquals(0, columns.from(0));
+        assertEquals(3, columns.to(0));
+        assertEquals(3, columns.from(1));
+        assertEquals(4, columns.to(1));
+        assertEquals(3, columns.candles(0));
+        assertEquals(1, columns.candles(1));
+
+        assertEquals(10, columns.firstOpen(0));
+        assertEquals(14, columns.lastClose(0));
+        assertEquals(15, columns.maxHigh(0));
+        assertEquals(8, columns.minLow(0));
+        assertEquals(175, columns.totalVolume(0));
+        assertEquals(BASE_TIME + 120, columns.time(columns.to(0) - 1));
+    }
+
+    @Test
+    @DisplayName("Массивы строк и словарь FIGI растут сверх начальной емкости без потери данных")
+    void add_ShouldGrowBeyondInitialCapacity() {
+        // Емкость 0 -> 1 строка; 200 инструментов больше начального словаря на 64 FIGI
+        CandleColumns.Builder builder = new CandleColumns.Builder(0);
+        int figis = 200;
+        int candlesPerFigi = 7;
+        for (int k = 0; k < figis; k++) {
+            for (int i = 0; i < candlesPerFigi; i++) {
+                long price = k * 1_000L + i;
+                builder.add("FIGI" + String.format("%03d", k), BASE_TIME + i * 60L,
+                    price, price + 5, price - 5, price + 1, i + 1, code(TradingSession.MAIN));
+            }
+        }
+        CandleColumns columns = builder.build();
+
+        assertEquals(figis * candlesPerFigi, columns.size());
+        assertEquals(figis, columns.figiCount());
+        for (int k = 0; k < figis; k++) {
+            assertEquals(k, columns.indexOf("FIGI" + String.format("%03d", k)));
+            assertEquals(k * candlesPerFigi, columns.from(k));
+            assertEquals((k + 1) * candlesPerFigi, columns.to(k));
+            assertEquals(k * 1_000L, columns.firstOpen(k));
+            assertEquals(k * 1_000L + candlesPerFigi - 1 + 1, columns.lastClose(k));
+            assertEquals(k * 1_000L + candlesPerFigi - 1 + 5, columns.maxHigh(k));
+            assertEquals(k * 1_000L - 5, columns.minLow(k));
+            assertEquals(28, columns.totalVolume(k));
+        }
+    }
+
+    @Test
+    @DisplayName("sessionTotals раскладывает объемы и свечи по кодам сессий и обнуляет массивы")
+    void sessionTotals_ShouldAggregateByCode() {
+        CandleColumns columns = new CandleColumns.Builder(4)
+            .add("A", BASE_TIME, 1, 1, 1, 1, 10, code(TradingSession.MORNING))
+            .add("A", BASE_TIME + 60, 1, 1, 1, 1, 20, code(TradingSession.MAIN))
+            .add("A", BASE_TIME + 120, 1, 1, 1, 1, 30, code(TradingSession.MAIN))
+            .add("B", BASE_TIME, 1, 1, 1, 1, 5, code(TradingSession.WEEKEND_OTC))
+            .build();
+        long[] volumes = new long[CandleColumns.SESSION_CODES];
+        long[] counts = new long[CandleColumns.SESSION_CODES];
+
+        columns.sessionTotals(0, volumes, counts);
+        assertEquals(10, volumes[TradingSession.MORNING.getCode()]);
+        assertEquals(50, volumes[TradingSession.MAIN.getCode()]);
+        assertEquals(1, counts[TradingSession.MORNING.getCode()]);
+        assertEquals(2, counts[TradingSession.MAIN.getCode()]);
+        assertEquals(0, counts[TradingSession.WEEKEND_OTC.getCode()]);
+
+        // Повторный вызов по другому инструменту не накапливает значения предыдущего
+        columns.sessionTotals(1, volumes, counts);
+        assertEquals(0, volumes[TradingSession.MAIN.getCode()]);
+        assertEquals(5, volumes[TradingSession.WEEKEND_OTC.getCode()]);
+        assertEquals(1, counts[TradingSession.WEEKEND_OTC.getCode()]);
+    }
+
+    @Test
+    @DisplayName("Неизвестные и отрицательные коды сессий считаются NONE")
+    void add_ShouldMapUnknownSessionCodeToNone() {
+        CandleColumns columns = new CandleColumns.Builder(3)
+            .add("A", BASE_TIME, 1, 1, 1, 1, 10, (short) CandleColumns.SESSION_CODES)
+            .add("A", BASE_TIME + 60, 1, 1, 1, 1, 20, (short) -1)
+            .add("A", BASE_TIME + 120, 1, 1, 1, 1, 30, Short.MAX_VALUE)
+            .build();
+        long[] volumes = new long[CandleColumns.SESSION_CODES];
+        long[] counts = new long[CandleColumns.SESSION_CODES];
+
+        columns.sessionTotals(0, volumes, counts);
+
+        for (int row = 0; row < columns.size(); row++) {
+            assertEquals(TradingSession.NONE.getCode(), columns.session(row));
+        }
+        assertEquals(60, volumes[TradingSession.NONE.getCode()]);
+        assertEquals(3, counts[TradingSession.NONE.getCode()]);
+    }
+
+    @Test
+    @DisplayName("Пустой построитель: нет инструментов, значит нет и пустых диапазонов для maxHigh/minLow")
+    void build_ShouldHaveNoInstruments_WhenNoRowsAdded() {
+        CandleColumns columns = new CandleColumns.Builder(0).build();
+
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.figiCount());
+        assertEquals(-1, columns.indexOf("A"));
+    }
+
+    @Test
+    @DisplayName("Инструмент с одной свечой: экстремумы равны ее high и low, отрицательные цены допустимы")
+    void maxHighMinLow_ShouldUseSingleCandle() {
+        CandleColumns columns = new CandleColumns.Builder(1)
+            .add("SPREAD", BASE_TIME, -5, -1, -9, -3, 0, code(TradingSession.MAIN))
+            .build();
+
+        assertEquals(1, columns.candles(0));
+        assertEquals(-1, columns.maxHigh(0));
+        assertEquals(-9, columns.minLow(0));
+        assertEquals(0, columns.totalVolume(0));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.InvestmentDataLoaderService.unit.repository;
+
+import com.example.InvestmentDataLoaderService.dto.CandleColumns;
+import com.example.InvestmentDataLoaderService.repository.CandleColumnsRepository;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Чтение свечей в колоночный вид без БД: границы суток по Москве, параметры курсора,
+ * разбор строк в {@link CandleColumns} и read-only транзакция REPEATABLE READ
+ */
+@Epic("Session Analytics")
+@Feature("Candle Columns Repository")
+@DisplayName("Candle Columns Repository Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("repository")
+@ExtendWith(MockitoExtension.class)
+class CandleColumnsRepositoryTest {
+
+    private static final int FETCH_SIZE = 500;
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 3);
+    /** 2024-06-03 00:00 по Москве */
+    private static final Timestamp DAY_START = Timestamp.from(Instant.parse("2024-06-02T21:00:00Z"));
+    /** 2024-06-04 00:00 по Москве */
+    private static final Timestamp DAY_END = Timestamp.from(Instant.parse("2024-06-03T21:00:00Z"));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private TransactionStatus transactionStatus;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+
+    private CandleColumnsRepository repository;
+
+    /**
+     * Строка результата: figi, time, open, high, low, close, volume, session_code
+     */
+    private record Row(String figi, long time, long open, long high, long low, long close, long volume, short session) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        repository = new CandleColumnsRepository(jdbcTemplate, transactionManager, FETCH_SIZE);
+    }
+
+    private void stubRows(List<Row> rows) throws Exception {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class)))
+            .thenReturn((long) rows.size());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Row row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(row.figi());
+                when(rs.getLong(2)).thenReturn(row.time());
+                when(rs.getLong(3)).thenReturn(row.open());
+                when(rs.getLong(4)).thenReturn(row.high());
+                when(rs.getLong(5)).thenReturn(row.low());
+                when(rs.getLong(6)).thenReturn(row.close());
+                when(rs.getLong(7)).thenReturn(row.volume());
+                when(rs.getShort(8)).thenReturn(row.session());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    /**
+     * Выполняет захваченный PreparedStatementCreator на моке соединения и возвращает SQL
+     */
+    private String applyStatementCreator() throws Exception {
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(connection.prepareStatement(sql.capture(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+            .thenReturn(statement);
+
+        assertSame(statement, creator.getValue().createPreparedStatement(connection));
+        return sql.getValue();
+    }
+
+    @Test
+    @DisplayName("Минутные свечи дня: сутки по Москве, fetch size, фильтр FIGI и коды сессий с COALESCE")
+    void loadMinuteDay_ShouldQueryMoscowDayWithCursor() throws Exception {
+        stubRows(List.of(
+            new Row("A", 100, 10, 12, 9, 11, 5, (short) 2),
+            new Row("A", 160, 11, 13, 10, 12, 7, (short) 3)));
+
+        CandleColumns columns = repository.loadMinuteDay(DATE, "A");
+
+        verify(jdbcTemplate).queryForObject(contains("invest.minute_candles"), eq(Long.class),
+            eq(new Object[]{DAY_START, DAY_END, "A"}));
+        String sql = applyStatementCreator();
+        assertTrue(sql.contains("FROM invest.minute_candles"), sql);
+        assertTrue(sql.contains("COALESCE(session_code, 0)"), sql);
+        assertTrue(sql.contains("AND figi = ?"), sql);
+        assertTrue(sql.contains("ORDER BY figi, time"), sql);
+        verify(statement).setFetchSize(FETCH_SIZE);
+        verify(statement).setTimestamp(1, DAY_START);
+        verify(statement).setTimestamp(2, DAY_END);
+        verify(statement).setString(3, "A");
+
+        assertEquals(2, columns.size());
+        assertEquals(1, columns.figiCount());
+        assertEquals(10, columns.firstOpen(0));
+        assertEquals(12, columns.lastClose(0));
+        assertEquals(13, columns.maxHigh(0));
+        assertEquals(9, columns.minLow(0));
+        assertEquals(12, columns.totalVolume(0));
+        assertEquals(3, columns.session(1));
+    }
+
+    @Test
+    @DisplayName("Без FIGI: два параметра и нет условия по инструменту")
+    void loadMinuteDay_ShouldNotFilterFigi_WhenFigiIsNull() throws Exception {
+        stubRows(List.of(
+            new Row("A", 100, 1, 1, 1, 1, 1, (short) 2),
+            new Row("B", 100, 2, 2, 2, 2, 2, (short) 2)));
+
+        CandleColumns columns = repository.loadMinuteDay(DATE, null);
+
+        verify(jdbcTemplate).queryForObject(argThat((String sql) -> !sql.contains("figi = ?")), eq(Long.class),
+            eq(new Object[]{DAY_START, DAY_END}));
+        String sql = applyStatementCreator();
+        assertFalse(sql.contains("figi = ?"), sql);
+        verify(statement, never()).setString(anyInt(), anyString());
+        assertEquals(2, columns.figiCount());
+    }
+
+    @Test
+    @DisplayName("Дневные свечи: конец диапазона - начало дня после to, код сессии NONE")
+    void loadDailyDays_ShouldUseExclusiveEndAfterLastDay() throws Exception {
+        stubRows(List.of());
+
+        CandleColumns columns = repository.loadDailyDays(DATE.minusDays(2), DATE, null);
+
+        Timestamp start = Timestamp.from(Instant.parse("2024-05-31T21:00:00Z"));
+        verify(jdbcTemplate).queryForObject(contains("invest.daily_candles"), eq(Long.class),
+            eq(new Object[]{start, DAY_END}));
+        String sql = applyStatementCreator();
+        assertTrue(sql.contains("FROM invest.daily_candles"), sql);
+        assertTrue(sql.contains("0 AS session_code"), sql);
+        verify(statement).setTimestamp(1, start);
+        verify(statement).setTimestamp(2, DAY_END);
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.figiCount());
+    }
+
+    @Test
+    @DisplayName("Чтение идет в read-only транзакции REPEATABLE READ, которая фиксируется")
+    void load_ShouldRunInReadOnlyRepeatableReadTransaction() throws Exception {
+        stubRows(List.of());
+
+        repository.loadMinuteDay(DATE, null);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definition.getValue().getIsolationLevel());
+        verify(transactionManager).commit(transactionStatus);
+    }
+}
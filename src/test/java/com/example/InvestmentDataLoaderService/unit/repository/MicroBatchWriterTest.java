@@ -0,0 +1,219 @@
+package com.example.InvestmentDataLoaderService.unit.repository;
+
+import com.example.InvestmentDataLoaderService.repository.BulkWriter;
+import com.example.InvestmentDataLoaderService.repository.MicroBatchWriter;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запись потока строк микропакетами: размер пакета, сброс по интервалу, переполнение, ошибки записи
+ * и отбор новых строк для записи без ON CONFLICT
+ */
+@Epic("Market Data Stream")
+@Feature("Micro Batch Writer")
+@DisplayName("Micro Batch Writer Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("repository")
+class MicroBatchWriterTest {
+
+    /**
+     * BulkWriter, запоминающий пакеты; первые {@code failures} вызовов падают
+     */
+    private static class RecordingBulkWriter implements BulkWriter<Integer> {
+
+        private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger failures;
+        private final boolean skipsDuplicates;
+
+        RecordingBulkWriter(int failures) {
+            this(failures, false);
+        }
+
+        RecordingBulkWriter(int failures, boolean skipsDuplicates) {
+            this.failures = new AtomicInteger(failures);
+            this.skipsDuplicates = skipsDuplicates;
+        }
+
+        @Override
+        public boolean skipsDuplicates() {
+            return skipsDuplicates;
+        }
+
+        @Override
+        public int write(List<Integer> rows) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("connection reset");
+            }
+            batches.add(List.copyOf(rows));
+            return rows.size();
+        }
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        int rows() {
+            synchronized (batches) {
+                return batches.stream().mapToInt(List::size).sum();
+            }
+        }
+    }
+
+    private MicroBatchWriter<Integer> writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    private static void awaitWritten(MicroBatchWriter<Integer> writer, long expected) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (writer.getWritten() < expected) {
+                Thread.sleep(5);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Полный пакет записывается сразу, не дожидаясь интервала сброса")
+    void offer_ShouldWriteFullBatchBeforeFlushInterval() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0);
+        writer = new MicroBatchWriter<>("test", delegate, 100, 3, 60_000, 0);
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.offer(i));
+        }
+
+        awaitWritten(writer, 3);
+        assertEquals(List.of(List.of(0, 1, 2)), delegate.batches);
+    }
+
+    @Test
+    @DisplayName("Неполный пакет записывается по истечении интервала сброса")
+    void offer_ShouldWritePartialBatchAfterFlushInterval() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0);
+        writer = new MicroBatchWriter<>("test", delegate, 100, 1000, 50, 0);
+        writer.start();
+
+        writer.offer(1);
+        writer.offer(2);
+
+        awaitWritten(writer, 2);
+        assertEquals(2, delegate.rows());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("stop записывает остаток очереди пакетами не больше batch-size")
+    void stop_ShouldFlushRemainingRowsInBatches() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0);
+        writer = new MicroBatchWriter<>("test", delegate, 100, 2, 60_000, 0);
+
+        for (int i = 0; i < 5; i++) {
+            writer.offer(i);
+        }
+        writer.stop();
+
+        assertEquals(List.of(List.of(0, 1), List.of(2, 3), List.of(4)), delegate.batches);
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(5L, stats.get("written"));
+        assertEquals(5L, stats.get("inserted"));
+        assertEquals(3L, stats.get("batches"));
+        assertEquals("recording", stats.get("writer"));
+    }
+
+    @Test
+    @DisplayName("При переполненной очереди строка отбрасывается и учитывается в dropped")
+    void offer_ShouldDropRow_WhenQueueFull() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0);
+        writer = new MicroBatchWriter<>("test", delegate, 2, 10, 60_000, 0);
+
+        assertTrue(writer.offer(1));
+        assertTrue(writer.offer(2));
+        assertFalse(writer.offer(3));
+
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("accepted"));
+        assertEquals(1L, stats.get("dropped"));
+        assertEquals(2, writer.getQueueDepth());
+        assertEquals(0, stats.get("queueRemainingCapacity"));
+    }
+
+    @Test
+    @DisplayName("Ошибка записи пакета учитывается в failed и не останавливает запись следующих")
+    void write_ShouldCountFailedBatchAndContinue() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(1);
+        writer = new MicroBatchWriter<>("test", delegate, 100, 2, 60_000, 0);
+
+        for (int i = 0; i < 4; i++) {
+            writer.offer(i);
+        }
+        writer.stop();
+
+        assertEquals(List.of(List.of(2, 3)), delegate.batches);
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(2L, stats.get("failed"));
+        assertEquals(2L, stats.get("written"));
+        assertEquals(1L, stats.get("batches"));
+    }
+
+    @Test
+    @DisplayName("Для записи без отбрасывания дубликатов пакет проходит отбор новых строк, отброшенные учитываются в duplicates")
+    void write_ShouldFilterExistingRows_WhenDelegateDoesNotSkipDuplicates() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0);
+        List<List<Integer>> filtered = new ArrayList<>();
+        writer = new MicroBatchWriter<>("test", delegate, batch -> {
+            filtered.add(List.copyOf(batch));
+            return batch.stream().filter(row -> row % 2 == 0).toList();
+        }, 100, 3, 60_000, 0);
+
+        for (int i = 0; i < 6; i++) {
+            writer.offer(i);
+        }
+        writer.offer(1);
+        writer.stop();
+
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(1)), filtered);
+        // Пакет без новых строк в BulkWriter не передается
+        assertEquals(List.of(List.of(0, 2), List.of(4)), delegate.batches);
+        Map<String, Object> stats = writer.getStats();
+        assertEquals(7L, stats.get("written"));
+        assertEquals(3L, stats.get("inserted"));
+        assertEquals(4L, stats.get("duplicates"));
+    }
+
+    @Test
+    @DisplayName("Если BulkWriter сам отбрасывает дубликаты, отбор новых строк не вызывается")
+    void write_ShouldSkipFilter_WhenDelegateSkipsDuplicates() {
+        RecordingBulkWriter delegate = new RecordingBulkWriter(0, true);
+        writer = new MicroBatchWriter<>("test", delegate, batch -> fail("Отбор не нужен для ON CONFLICT"),
+            100, 10, 60_000, 0);
+
+        writer.offer(1);
+        writer.offer(1);
+        writer.stop();
+
+        assertEquals(List.of(List.of(1, 1)), delegate.batches);
+        assertEquals(0L, writer.getStats().get("duplicates"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.InvestmentDataLoaderService.unit.service;
+
+import com.example.InvestmentDataLoaderService.config.RateLimitConfig.RateLimitProperties;
+import com.example.InvestmentDataLoaderService.enums.ApiMethodGroup;
+import com.example.InvestmentDataLoaderService.service.ApiQuotaTracker;
+import com.example.InvestmentDataLoaderService.service.ApiRateLimiter;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Token-bucket лимитер запросов к T-Invest API: burst, пополнение, очередь и блокирующее ожидание
+ */
+@Epic("Rate Limiting")
+@Feature("Api Rate Limiter")
+@DisplayName("Api Rate Limiter Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("service")
+class ApiRateLimiterTest {
+
+    private static final ApiMethodGroup GROUP = ApiMethodGroup.INSTRUMENTS;
+
+    private static ApiRateLimiter limiter(int requestsPerMinute, int burstSize, ApiQuotaTracker quotaTracker) {
+        RateLimitProperties properties = new RateLimitProperties();
+        Map<ApiMethodGroup, Integer> requestsPerMinuteByGroup = new EnumMap<>(ApiMethodGroup.class);
+        requestsPerMinuteByGroup.put(GROUP, requestsPerMinute);
+        properties.setRequestsPerMinute(requestsPerMinuteByGroup);
+        properties.setBurstSize(burstSize);
+        return new ApiRateLimiter(properties, quotaTracker);
+    }
+
+    private static double availableTokens(ApiRateLimiter limiter) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) limiter.getStats().get(GROUP.name());
+        return (double) stats.get("availableTokens");
+    }
+
+    @Test
+    @DisplayName("Первые burst-size запросов проходят сразу, следующий ждет один интервал пополнения")
+    void reserve_ShouldAllowBurstThenDelay() {
+        // 60 запросов в минуту - один токен в секунду
+        ApiRateLimiter limiter = limiter(60, 3, new ApiQuotaTracker());
+
+        assertEquals(0, limiter.reserve(GROUP));
+        assertEquals(0, limiter.reserve(GROUP));
+        assertEquals(0, limiter.reserve(GROUP));
+
+        long wait = limiter.reserve(GROUP);
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900) && wait <= TimeUnit.SECONDS.toNanos(1),
+            "ожидание четвертого запроса: " + wait);
+    }
+
+    @Test
+    @DisplayName("Запросы сверх burst выстраиваются в очередь: каждый следующий ждет на интервал дольше")
+    void reserve_ShouldQueueReservationsInDebt() {
+        ApiRateLimiter limiter = limiter(60, 1, new ApiQuotaTracker());
+
+        assertEquals(0, limiter.reserve(GROUP));
+        long second = limiter.reserve(GROUP);
+        long third = limiter.reserve(GROUP);
+
+        long interval = TimeUnit.SECONDS.toNanos(1);
+        assertTrue(Math.abs((third - second) - interval) < TimeUnit.MILLISECONDS.toNanos(100),
+            "разница ожиданий: " + (third - second));
+        assertEquals(0.0, availableTokens(limiter));
+    }
+
+    @Test
+    @DisplayName("Корзина пополняется со временем, но не выше burst-size")
+    void reserve_ShouldRefillUpToCapacity() throws InterruptedException {
+        // 60000 запросов в минуту - один токен в миллисекунду
+        ApiRateLimiter limiter = limiter(60_000, 2, new ApiQuotaTracker());
+
+        assertEquals(0, limiter.reserve(GROUP));
+        assertEquals(0, limiter.reserve(GROUP));
+        assertTrue(limiter.reserve(GROUP) > 0);
+
+        Thread.sleep(50);
+
+        assertEquals(2.0, availableTokens(limiter));
+        assertEquals(0, limiter.reserve(GROUP));
+        assertEquals(0, limiter.reserve(GROUP));
+    }
+
+    @Test
+    @DisplayName("Блокирующий acquire ждет ровно до пополнения токена")
+    void acquire_ShouldBlockUntilTokenAvailable() {
+        // 600 запросов в минуту - один токен каждые 100 мс
+        ApiRateLimiter limiter = limiter(600, 1, new ApiQuotaTracker());
+
+        assertTrue(limiter.acquire(GROUP));
+
+        long elapsedNanos = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            long start = System.nanoTime();
+            assertTrue(limiter.acquire(GROUP));
+            return System.nanoTime() - start;
+        });
+        assertTrue(elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(80), "ожидание acquire: " + elapsedNanos);
+    }
+
+    @Test
+    @DisplayName("Прерванный поток не получает разрешение и сохраняет флаг прерывания")
+    void acquire_ShouldReturnFalse_WhenInterrupted() {
+        ApiRateLimiter limiter = limiter(60, 1, new ApiQuotaTracker());
+        assertTrue(limiter.acquire(GROUP));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(limiter.acquire(GROUP));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    @DisplayName("Исчерпанная на сервере квота продлевает ожидание до ее сброса")
+    void reserve_ShouldWaitForServerQuotaReset() {
+        ApiQuotaTracker quotaTracker = new ApiQuotaTracker();
+        ApiRateLimiter limiter = limiter(600, 10, quotaTracker);
+
+        quotaTracker.record("tinkoff.public.invest.api.contract.v1.InstrumentsService/Shares", GROUP, 200, 0, 5);
+
+        long wait = limiter.reserve(GROUP);
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(4) && wait <= TimeUnit.SECONDS.toNanos(5), "ожидание: " + wait);
+        assertEquals(0, limiter.reserve(ApiMethodGroup.MARKET_DATA));
+    }
+}
@@ -5,7 +5,13 @@ import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.fixtures.TestDataFactory;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleDayCacheService;
 import com.example.InvestmentDataLoaderService.service.MinuteCandleService;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
+import com.example.InvestmentDataLoaderService.service.TradingSessionCalendarService;
+import com.example.InvestmentDataLoaderService.service.VolumeRollupService;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
 
 import io.qameta.allure.*;
 
@@ -54,13 +60,23 @@ public class CandleMinuteServiceTest {
     @Mock
     private TinkoffApiClient tinkoffApiClient;
     @Mock
-    private SystemLogRepository systemLogRepository;
+    private SystemLogWriter systemLogWriter;
+    @Mock
+    private BulkWriter<MinuteCandleEntity> minuteCandleBulkWriter;
     @Mock
     private Executor minuteCandleExecutor;
     @Mock
     private Executor apiDataExecutor;
     @Mock
     private Executor batchWriteExecutor;
+    @Mock
+    private VolumeRollupService volumeRollupService;
+    @Mock
+    private PipelineMetrics pipelineMetrics;
+    @Mock
+    private TradingSessionCalendarService tradingSessionCalendarService;
+    @Mock
+    private CandleDayCacheService candleDayCacheService;
 
     @InjectMocks
     private MinuteCandleService minuteCandleService;
@@ -71,7 +87,8 @@ public class CandleMinuteServiceTest {
     @Description("Сброс всех моков перед каждым тестом")
     void setUp() {
         reset(minuteCandleRepository, shareRepository, futureRepository, indicativeRepository, 
-              tinkoffApiClient, systemLogRepository, minuteCandleExecutor, apiDataExecutor, batchWriteExecutor);
+              tinkoffApiClient, systemLogWriter, minuteCandleBulkWriter, minuteCandleExecutor, apiDataExecutor, batchWriteExecutor, volumeRollupService, pipelineMetrics, tradingSessionCalendarService);
+        lenient().when(tradingSessionCalendarService.current()).thenReturn(TradingSessionCalendar.EMPTY);
     }
 
     // ========== ПОЗИТИВНЫЕ ТЕСТЫ ==========
@@ -99,12 +116,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -131,9 +148,10 @@ public class CandleMinuteServiceTest {
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
             verify(tinkoffApiClient, atLeastOnce()).getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN"));
-            verify(minuteCandleRepository, atLeastOnce()).existsByFigiAndTime(anyString(), any());
-            verify(minuteCandleRepository, atLeastOnce()).saveAll(anyList());
-            verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
+            verify(minuteCandleRepository, atLeastOnce()).findTimesByFigiAndTimeBetween(anyString(), any(), any());
+            verify(minuteCandleRepository, never()).existsByFigiAndTime(anyString(), any());
+            verify(minuteCandleBulkWriter, atLeastOnce()).write(anyList());
+            verify(systemLogWriter, atLeastOnce()).write(any(SystemLogEntity.class));
         });
     }
 
@@ -164,12 +182,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), any(LocalDate.class), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -217,12 +235,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(anyString(), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -271,12 +289,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков - некоторые свечи уже существуют", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(eq("BBG004730N88"), any()))
-                .thenReturn(true, false); // Первая свеча существует, вторая - новая
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(eq("BBG004730N88"), any(), any()))
+                .thenReturn(List.of(testCandles.get(0).time())); // Первая свеча существует, вторая - новая
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -325,12 +343,12 @@ public class CandleMinuteServiceTest {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share1, share2));
             when(tinkoffApiClient.getCandles(anyString(), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -386,12 +404,12 @@ public class CandleMinuteServiceTest {
             when(indicativeRepository.findAll()).thenReturn(Arrays.asList(indicative));
             when(tinkoffApiClient.getCandles(anyString(), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -440,12 +458,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -490,8 +508,8 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков - API выбрасывает исключение", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenThrow(new RuntimeException("API недоступен"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -533,8 +551,8 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков - API возвращает пустой список", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -577,12 +595,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков - БД выбрасывает исключение", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
                 .thenThrow(new RuntimeException("Ошибка базы данных"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -667,8 +685,8 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList()); // API не возвращает данных для будущих дат
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -711,12 +729,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -758,8 +776,8 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков для выброса исключения в основном потоке", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenThrow(new RuntimeException("Критическая ошибка"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -853,12 +871,12 @@ public class CandleMinuteServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(anyString(), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(testCandles);
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -907,12 +925,12 @@ public class CandleMinuteServiceTest {
                 .thenReturn(testCandles);
             when(tinkoffApiClient.getCandles(eq("BBG004730ZJ29"), eq(request.getDate()), eq("CANDLE_INTERVAL_1_MIN")))
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList());
-            when(minuteCandleRepository.existsByFigiAndTime(anyString(), any()))
-                .thenReturn(false);
-            when(minuteCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(minuteCandleRepository.findTimesByFigiAndTimeBetween(anyString(), any(), any()))
+                .thenReturn(List.of());
+            when(minuteCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
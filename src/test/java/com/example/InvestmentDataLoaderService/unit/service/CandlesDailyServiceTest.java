@@ -5,7 +5,10 @@ import com.example.InvestmentDataLoaderService.dto.*;
 import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.fixtures.TestDataFactory;
 import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.CandleDayCacheService;
 import com.example.InvestmentDataLoaderService.service.DailyCandleService;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
+import com.example.InvestmentDataLoaderService.service.SystemLogWriter;
 
 import io.qameta.allure.*;
 
@@ -54,13 +57,19 @@ public class CandlesDailyServiceTest {
     @Mock
     private TinkoffApiClient tinkoffApiClient;
     @Mock
-    private SystemLogRepository systemLogRepository;
+    private SystemLogWriter systemLogWriter;
+    @Mock
+    private BulkWriter<DailyCandleEntity> dailyCandleBulkWriter;
     @Mock
     private Executor dailyCandleExecutor;
     @Mock
     private Executor dailyApiDataExecutor;
     @Mock
     private Executor dailyBatchWriteExecutor;
+    @Mock
+    private PipelineMetrics pipelineMetrics;
+    @Mock
+    private CandleDayCacheService candleDayCacheService;
 
     @InjectMocks
     private DailyCandleService dailyCandleService;
@@ -71,7 +80,7 @@ public class CandlesDailyServiceTest {
     @Description("Сброс всех моков перед каждым тестом")
     void setUp() {
         reset(dailyCandleRepository, shareRepository, futureRepository, indicativeRepository, 
-              tinkoffApiClient, systemLogRepository, dailyCandleExecutor, dailyApiDataExecutor, dailyBatchWriteExecutor);
+              tinkoffApiClient, systemLogWriter, dailyCandleBulkWriter, dailyCandleExecutor, dailyApiDataExecutor, dailyBatchWriteExecutor, pipelineMetrics);
     }
 
     // ========== ПОЗИТИВНЫЕ ТЕСТЫ ==========
@@ -101,10 +110,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -132,8 +141,8 @@ public class CandlesDailyServiceTest {
         Allure.step("Проверка взаимодействий", () -> {
             verify(tinkoffApiClient, atLeastOnce()).getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_DAY"));
             verify(dailyCandleRepository, atLeastOnce()).existsByFigiAndTime(anyString(), any());
-            verify(dailyCandleRepository, atLeastOnce()).saveAll(anyList());
-            verify(systemLogRepository, atLeastOnce()).save(any(SystemLogEntity.class));
+            verify(dailyCandleBulkWriter, atLeastOnce()).write(anyList());
+            verify(systemLogWriter, atLeastOnce()).write(any(SystemLogEntity.class));
         });
     }
 
@@ -166,10 +175,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -219,10 +228,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -273,10 +282,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(eq("BBG004730N88"), any()))
                 .thenReturn(true, false); // Первая свеча существует, вторая - новая
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -327,10 +336,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -388,10 +397,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -442,10 +451,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -490,8 +499,8 @@ public class CandlesDailyServiceTest {
         Allure.step("Настройка моков - API выбрасывает исключение", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_DAY")))
                 .thenThrow(new RuntimeException("API недоступен"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -533,8 +542,8 @@ public class CandlesDailyServiceTest {
         Allure.step("Настройка моков - API возвращает пустой список", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_DAY")))
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -579,10 +588,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
+            when(dailyCandleBulkWriter.write(anyList()))
                 .thenThrow(new RuntimeException("Ошибка базы данных"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -667,8 +676,8 @@ public class CandlesDailyServiceTest {
         Allure.step("Настройка моков", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_DAY")))
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList()); // API не возвращает данных для будущих дат
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -713,10 +722,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -758,8 +767,8 @@ public class CandlesDailyServiceTest {
         Allure.step("Настройка моков для выброса исключения в основном потоке", () -> {
             when(tinkoffApiClient.getCandles(eq("BBG004730N88"), eq(request.getDate()), eq("CANDLE_INTERVAL_DAY")))
                 .thenThrow(new RuntimeException("Критическая ошибка"));
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -855,10 +864,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(testCandles);
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -909,10 +918,10 @@ public class CandlesDailyServiceTest {
                 .thenReturn(TestDataFactory.createEmptyCandleDtoList());
             when(dailyCandleRepository.existsByFigiAndTime(anyString(), any()))
                 .thenReturn(false);
-            when(dailyCandleRepository.saveAll(anyList()))
-                .thenReturn(Arrays.asList());
-            when(systemLogRepository.save(any(SystemLogEntity.class)))
-                .thenReturn(new SystemLogEntity());
+            when(dailyCandleBulkWriter.write(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+            when(systemLogWriter.write(any(SystemLogEntity.class)))
+                .thenReturn(true);
             setupExecutorMocks();
         });
 
@@ -0,0 +1,344 @@
+package com.example.InvestmentDataLoaderService.unit.service;
+
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Координация узлов кластера без БД: захват и завершение запуска, захват партиций через
+ * SKIP LOCKED с ограничением попыток, перехват просроченной аренды и перераспределение доли партиций
+ */
+@ExtendWith(MockitoExtension.class)
+@Epic("Scheduler Cluster")
+@Feature("Cluster Lock Service")
+@DisplayName("Cluster Lock Service Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("service")
+class ClusterLockServiceTest {
+
+    private static final String NODE = "node-1";
+    private static final String TASK = "candles";
+    private static final String RESOURCE = "market-data-stream";
+    private static final LocalDate RUN_DATE = LocalDate.of(2024, 6, 3);
+    private static final Date DATE = Date.valueOf(RUN_DATE);
+    private static final int PARTITIONS = 4;
+    private static final int PARTITION_LEASE = 60;
+    private static final int RUN_LEASE = 30;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int SHARE_LEASE = 30;
+
+    private static final String CLAIM_RUN = "INSERT INTO invest.scheduled_runs";
+    private static final String FINISH_RUN = "UPDATE invest.scheduled_runs SET status";
+    private static final String CLAIM_PARTITION = "UPDATE invest.scheduled_run_partitions p";
+    private static final String FINISH_PARTITION = "UPDATE invest.scheduled_run_partitions SET status";
+    private static final String PARTITION_EXPIRY = "SELECT min(";
+    private static final String RENEW_SHARE = "UPDATE invest.cluster_partition_leases SET lease_until";
+    private static final String CLAIM_SHARE = "UPDATE invest.cluster_partition_leases p";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchArgs;
+
+    private ClusterLockService service;
+
+    @BeforeEach
+    void setUp() {
+        service = cluster(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private ClusterLockService cluster(boolean enabled) {
+        return new ClusterLockService(jdbcTemplate, enabled, PARTITIONS, PARTITION_LEASE, RUN_LEASE,
+            MAX_ATTEMPTS, SHARE_LEASE, NODE);
+    }
+
+    private void stubClaimRun(int rows) {
+        when(jdbcTemplate.update(startsWith(CLAIM_RUN), any(Object[].class))).thenReturn(rows);
+    }
+
+    @SafeVarargs
+    private void stubClaimPartitions(List<Integer>... claims) {
+        var stub = when(jdbcTemplate.queryForList(startsWith(CLAIM_PARTITION), eq(Integer.class), any(Object[].class)));
+        for (List<Integer> claim : claims) {
+            stub = stub.thenReturn(claim);
+        }
+    }
+
+    private void stubFinishPartition(int rows) {
+        when(jdbcTemplate.update(startsWith(FINISH_PARTITION), any(Object[].class))).thenReturn(rows);
+    }
+
+    @Test
+    @DisplayName("Без кластера задача выполняется сразу, без обращения к БД")
+    void runExclusive_ShouldRunDirectly_WhenClusterDisabled() {
+        ClusterLockService single = cluster(false);
+        AtomicInteger runs = new AtomicInteger();
+        try {
+            assertTrue(single.runExclusive(TASK, RUN_DATE, runs::incrementAndGet));
+            assertEquals(1, single.runPartitions(TASK, RUN_DATE, partition -> assertEquals(0, partition)));
+            assertEquals(Set.of(0), single.claimPartitionShare(RESOURCE));
+            assertEquals(0, single.partitionOf("BBG004730N88"));
+        } finally {
+            single.shutdown();
+        }
+
+        assertEquals(1, runs.get());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Успешная задача завершает запуск статусом DONE")
+    void runExclusive_ShouldFinishDone_WhenTaskSucceeds() {
+        stubClaimRun(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(service.runExclusive(TASK, RUN_DATE, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        verify(jdbcTemplate).update(startsWith(FINISH_RUN), eq("DONE"), eq(TASK), eq(DATE), eq(NODE));
+    }
+
+    @Test
+    @DisplayName("Исключение задачи завершает запуск статусом FAILED и не выходит из runExclusive")
+    void runExclusive_ShouldFinishFailed_WhenTaskThrows() {
+        stubClaimRun(1);
+
+        assertTrue(service.runExclusive(TASK, RUN_DATE, () -> {
+            throw new IllegalStateException("Загрузка не выполнена");
+        }));
+
+        verify(jdbcTemplate).update(startsWith(FINISH_RUN), eq("FAILED"), eq(TASK), eq(DATE), eq(NODE));
+        verify(jdbcTemplate, never()).update(startsWith(FINISH_RUN), eq("DONE"), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Запуск, захваченный другим узлом, не выполняется")
+    void runExclusive_ShouldSkipTask_WhenRunOwnedByAnotherNode() {
+        stubClaimRun(0);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertFalse(service.runExclusive(TASK, RUN_DATE, runs::incrementAndGet));
+
+        assertEquals(0, runs.get());
+        verify(jdbcTemplate, never()).update(startsWith(FINISH_RUN), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Запуск с истекшей арендой или упавший забирается, пока не исчерпаны попытки")
+    void runExclusive_ShouldTakeOverRun_WhenLeaseExpired() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.update(sql.capture(), eq(TASK), eq(DATE), eq(NODE), eq(RUN_LEASE), eq(MAX_ATTEMPTS)))
+            .thenReturn(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(service.runExclusive(TASK, RUN_DATE, runs::incrementAndGet));
+
+        String claim = sql.getAllValues().get(0);
+        assertTrue(claim.startsWith(CLAIM_RUN), claim);
+        assertTrue(claim.contains("ON CONFLICT (task_name, run_date) DO UPDATE"), claim);
+        assertTrue(claim.contains("SET owner = excluded.owner"), claim);
+        assertTrue(claim.contains("r.attempts < ?"), claim);
+        assertTrue(claim.contains("r.status = 'FAILED' OR (r.status = 'RUNNING' AND r.lease_until < now())"), claim);
+        assertEquals(1, runs.get());
+        verify(jdbcTemplate).update(startsWith(FINISH_RUN), eq("DONE"), eq(TASK), eq(DATE), eq(NODE));
+    }
+
+    @Test
+    @DisplayName("Партиции захватываются по одной, пока есть свободные, каждая завершается DONE")
+    void runPartitions_ShouldProcessClaimedPartitionsUntilNoneLeft() {
+        stubClaimPartitions(List.of(0), List.of(2), List.of());
+        stubFinishPartition(1);
+        List<Integer> processed = new ArrayList<>();
+
+        assertEquals(2, service.runPartitions(TASK, RUN_DATE, processed::add));
+
+        assertEquals(List.of(0, 2), processed);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (task_name, run_date, partition_no) DO NOTHING"),
+            batchArgs.capture());
+        assertEquals(PARTITIONS, batchArgs.getValue().size());
+        assertArrayEquals(new Object[]{TASK, DATE, 3}, batchArgs.getValue().get(3));
+        verify(jdbcTemplate, times(3)).queryForList(startsWith(CLAIM_PARTITION), eq(Integer.class),
+            eq(NODE), eq(PARTITION_LEASE), eq(TASK), eq(DATE), eq(MAX_ATTEMPTS));
+        verify(jdbcTemplate).update(startsWith(FINISH_PARTITION), eq("DONE"), eq(TASK), eq(DATE), eq(0), eq(NODE));
+        verify(jdbcTemplate).update(startsWith(FINISH_PARTITION), eq("DONE"), eq(TASK), eq(DATE), eq(2), eq(NODE));
+    }
+
+    @Test
+    @DisplayName("Захват партиции: SKIP LOCKED, ограничение попыток и перехват просроченной аренды")
+    void runPartitions_ShouldClaimWithSkipLockedAndAttemptsLimit() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.queryForList(sql.capture(), eq(Integer.class), any(Object[].class))).thenReturn(List.of());
+
+        assertEquals(0, service.runPartitions(TASK, RUN_DATE, partition -> fail("Партиция не захвачена")));
+
+        String claim = sql.getValue();
+        assertTrue(claim.contains("LIMIT 1 FOR UPDATE SKIP LOCKED"), claim);
+        assertTrue(claim.contains("status = 'PENDING'"), claim);
+        assertTrue(claim.contains("attempts < ? AND (status = 'FAILED' OR (status = 'RUNNING' AND lease_until < now()))"),
+            claim);
+        assertTrue(claim.contains("SET status = 'RUNNING', owner = ?"), claim);
+    }
+
+    @Test
+    @DisplayName("Партиции, которые выполняют другие узлы, не выдаются второму узлу")
+    void runPartitions_ShouldNotProcess_WhenPartitionsClaimedByOtherNodes() {
+        stubClaimPartitions(List.of());
+        // Ждать нечего: партиции других узлов завершены или исчерпали попытки
+        when(jdbcTemplate.queryForObject(startsWith(PARTITION_EXPIRY), eq(Long.class), any(Object[].class)))
+            .thenReturn(null);
+
+        assertEquals(0, service.runPartitions(TASK, RUN_DATE, partition -> fail("Партиция другого узла")));
+
+        verify(jdbcTemplate).queryForObject(startsWith(PARTITION_EXPIRY), eq(Long.class),
+            eq(TASK), eq(DATE), eq(MAX_ATTEMPTS));
+        verify(jdbcTemplate, never()).update(startsWith(FINISH_PARTITION), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Узел без свободных партиций дожидается конца чужой аренды и забирает просроченную партицию")
+    void runPartitions_ShouldTakeOverPartition_WhenOtherNodeLeaseExpires() {
+        stubClaimPartitions(List.of(), List.of(3), List.of());
+        when(jdbcTemplate.queryForObject(startsWith(PARTITION_EXPIRY), eq(Long.class), any(Object[].class)))
+            .thenReturn(0L)
+            .thenReturn(null);
+        stubFinishPartition(1);
+        List<Integer> processed = new ArrayList<>();
+
+        assertEquals(1, service.runPartitions(TASK, RUN_DATE, processed::add));
+
+        assertEquals(List.of(3), processed);
+        verify(jdbcTemplate, times(3)).queryForList(startsWith(CLAIM_PARTITION), eq(Integer.class), any(Object[].class));
+        verify(jdbcTemplate).update(startsWith(FINISH_PARTITION), eq("DONE"), eq(TASK), eq(DATE), eq(3), eq(NODE));
+    }
+
+    @Test
+    @DisplayName("Исключение обработчика помечает партицию FAILED, остальные партиции обрабатываются")
+    void runPartitions_ShouldFinishPartitionFailed_WhenProcessorThrows() {
+        stubClaimPartitions(List.of(1), List.of(2), List.of());
+        stubFinishPartition(1);
+        List<Integer> processed = new ArrayList<>();
+
+        assertEquals(2, service.runPartitions(TASK, RUN_DATE, partition -> {
+            if (partition == 1) {
+                throw new IllegalStateException("Загрузка партиции не выполнена");
+            }
+            processed.add(partition);
+        }));
+
+        assertEquals(List.of(2), processed);
+        verify(jdbcTemplate).update(startsWith(FINISH_PARTITION), eq("FAILED"), eq(TASK), eq(DATE), eq(1), eq(NODE));
+        verify(jdbcTemplate).update(startsWith(FINISH_PARTITION), eq("DONE"), eq(TASK), eq(DATE), eq(2), eq(NODE));
+    }
+
+    @Test
+    @DisplayName("Результат партиции с потерянной арендой не записывается и не прерывает обработку")
+    void runPartitions_ShouldContinue_WhenPartitionLeaseLost() {
+        stubClaimPartitions(List.of(0), List.of(1), List.of());
+        stubFinishPartition(0);
+        List<Integer> processed = new ArrayList<>();
+
+        assertEquals(2, service.runPartitions(TASK, RUN_DATE, processed::add));
+
+        assertEquals(List.of(0, 1), processed);
+        // Условие owner = ? не дает перезаписать статус партиции, которую забрал другой узел
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), eq("DONE"), eq(TASK), eq(DATE), anyInt(), eq(NODE));
+        assertTrue(sql.getValue().endsWith("AND owner = ? AND status = 'RUNNING'"), sql.getValue());
+    }
+
+    @Test
+    @DisplayName("Доля партиций: при подключении узла лишние партиции освобождаются")
+    void claimPartitionShare_ShouldReleaseExtraPartitions_WhenNodeJoins() {
+        when(jdbcTemplate.queryForObject(contains("FROM invest.cluster_members"), eq(Integer.class), any(Object[].class)))
+            .thenReturn(2);
+        when(jdbcTemplate.queryForList(startsWith(RENEW_SHARE), eq(Integer.class), any(Object[].class)))
+            .thenReturn(List.of(3, 0, 2, 1));
+
+        Set<Integer> owned = service.claimPartitionShare(RESOURCE);
+
+        assertEquals(Set.of(0, 1), owned);
+        verify(jdbcTemplate).update(contains("INSERT INTO invest.cluster_members"), eq(RESOURCE), eq(NODE), eq(SHARE_LEASE));
+        verify(jdbcTemplate).batchUpdate(contains("SET owner = NULL"), batchArgs.capture());
+        assertEquals(2, batchArgs.getValue().size());
+        assertArrayEquals(new Object[]{RESOURCE, 2, NODE}, batchArgs.getValue().get(0));
+        assertArrayEquals(new Object[]{RESOURCE, 3, NODE}, batchArgs.getValue().get(1));
+        verify(jdbcTemplate, never()).queryForList(startsWith(CLAIM_SHARE), eq(Integer.class), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Доля партиций: недостающие партиции забираются из свободных и просроченных через SKIP LOCKED")
+    void claimPartitionShare_ShouldClaimMissingPartitions() {
+        when(jdbcTemplate.queryForObject(contains("FROM invest.cluster_members"), eq(Integer.class), any(Object[].class)))
+            .thenReturn(2);
+        when(jdbcTemplate.queryForList(startsWith(RENEW_SHARE), eq(Integer.class), any(Object[].class)))
+            .thenReturn(List.of(1));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.queryForList(sql.capture(), eq(Integer.class), eq(NODE), eq(SHARE_LEASE), eq(RESOURCE), eq(1)))
+            .thenReturn(List.of(3));
+
+        Set<Integer> owned = service.claimPartitionShare(RESOURCE);
+
+        assertEquals(Set.of(1, 3), owned);
+        verify(jdbcTemplate).update(contains("generate_series"), eq(RESOURCE), eq(PARTITIONS));
+        String claim = sql.getValue();
+        assertTrue(claim.startsWith(CLAIM_SHARE), claim);
+        assertTrue(claim.contains("owner IS NULL OR lease_until < now()"), claim);
+        assertTrue(claim.contains("LIMIT ? FOR UPDATE SKIP LOCKED"), claim);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Доля партиций: единственный живой узел держит все партиции")
+    void claimPartitionShare_ShouldClaimAllPartitions_WhenSingleNode() {
+        when(jdbcTemplate.queryForObject(contains("FROM invest.cluster_members"), eq(Integer.class), any(Object[].class)))
+            .thenReturn(1);
+        when(jdbcTemplate.queryForList(startsWith(RENEW_SHARE), eq(Integer.class), any(Object[].class)))
+            .thenReturn(List.of(0, 1, 2, 3));
+
+        assertEquals(Set.of(0, 1, 2, 3), service.claimPartitionShare(RESOURCE));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate, never()).queryForList(startsWith(CLAIM_SHARE), eq(Integer.class), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Партиция инструмента стабильна и лежит в диапазоне партиций")
+    void partitionOf_ShouldBeStableAndInRange() {
+        for (String figi : List.of("BBG004730N88", "BBG004731032", "FUTSI0624000", "")) {
+            int partition = service.partitionOf(figi);
+            assertTrue(partition >= 0 && partition < PARTITIONS, figi);
+            assertEquals(partition, service.partitionOf(figi));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.InvestmentDataLoaderService.unit.service;
+
+import com.example.InvestmentDataLoaderService.entity.IngestionJobEntity;
+import com.example.InvestmentDataLoaderService.enums.IngestionJobType;
+import com.example.InvestmentDataLoaderService.repository.FutureRepository;
+import com.example.InvestmentDataLoaderService.repository.IndicativeRepository;
+import com.example.InvestmentDataLoaderService.repository.IngestionJobItemRepository;
+import com.example.InvestmentDataLoaderService.repository.IngestionJobRepository;
+import com.example.InvestmentDataLoaderService.repository.ShareRepository;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService.ClaimedItem;
+import com.example.InvestmentDataLoaderService.service.VolumeRollupService;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Задания загрузки без БД: захват элементов в аренду, завершение и повторы с учетом владельца аренды,
+ * перевод в FAILED по исчерпании попыток и завершение заданий
+ */
+@ExtendWith(MockitoExtension.class)
+@Epic("Ingestion Jobs")
+@Feature("Ingestion Job Service")
+@DisplayName("Ingestion Job Service Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("service")
+class IngestionJobServiceTest {
+
+    private static final String WORKER = "node-1";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 3);
+
+    @Mock
+    private IngestionJobRepository jobRepository;
+    @Mock
+    private IngestionJobItemRepository itemRepository;
+    @Mock
+    private ShareRepository shareRepository;
+    @Mock
+    private FutureRepository futureRepository;
+    @Mock
+    private IndicativeRepository indicativeRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private VolumeRollupService volumeRollupService;
+
+    private IngestionJobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IngestionJobService(jobRepository, itemRepository, shareRepository, futureRepository,
+            indicativeRepository, jdbcTemplate, volumeRollupService);
+    }
+
+    private static ClaimedItem item(long id, String jobId, int attempts) {
+        return new ClaimedItem(id, jobId, IngestionJobType.MINUTE_CANDLES, "FIGI" + id, DATE, attempts);
+    }
+
+    /**
+     * Строки, которые вернет UPDATE ... RETURNING захвата элементов
+     */
+    @SuppressWarnings("unchecked")
+    private void givenClaimedRows(ClaimedItem... rows) {
+        when(jdbcTemplate.query(contains("FOR UPDATE SKIP LOCKED"), any(RowMapper.class), eq(WORKER), eq(300), eq(20)))
+            .thenAnswer(invocation -> {
+                RowMapper<ClaimedItem> mapper = invocation.getArgument(1);
+                List<ClaimedItem> result = new ArrayList<>();
+                for (int i = 0; i < rows.length; i++) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong("id")).thenReturn(rows[i].id());
+                    when(rs.getString("job_id")).thenReturn(rows[i].jobId());
+                    when(rs.getString("job_type")).thenReturn(rows[i].jobType().name());
+                    when(rs.getString("figi")).thenReturn(rows[i].figi());
+                    when(rs.getDate("trade_date")).thenReturn(Date.valueOf(rows[i].tradeDate()));
+                    when(rs.getInt("attempts")).thenReturn(rows[i].attempts());
+                    result.add(mapper.mapRow(rs, i));
+                }
+                return result;
+            });
+    }
+
+    /**
+     * Строки, которые вернет UPDATE ... RETURNING завершения заданий
+     */
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<String> givenFinishedJobs(IngestionJobType type, LocalDate from, LocalDate to) {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.query(sql.capture(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            if (type == null) {
+                return List.of();
+            }
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("job_type")).thenReturn(type.name());
+            when(rs.getDate("date_from")).thenReturn(Date.valueOf(from));
+            when(rs.getDate("date_to")).thenReturn(Date.valueOf(to));
+            RowMapper<Object[]> mapper = invocation.getArgument(1);
+            return List.<Object[]>of(mapper.mapRow(rs, 0));
+        });
+        return sql;
+    }
+
+    @Test
+    @DisplayName("Захват: сначала просроченные элементы с исчерпанными попытками уходят в FAILED, затем пачка берется через SKIP LOCKED")
+    void claimItems_ShouldExpireExhaustedLeasesBeforeClaim() {
+        givenClaimedRows(item(1, "job-a", 1), item(2, "job-a", 2), item(3, "job-b", 1));
+        when(jdbcTemplate.update(contains("SET status = 'FAILED'"), eq(MAX_ATTEMPTS))).thenReturn(4);
+
+        List<ClaimedItem> items = service.claimItems(WORKER, 20, 300, MAX_ATTEMPTS);
+
+        assertEquals(List.of(item(1, "job-a", 1), item(2, "job-a", 2), item(3, "job-b", 1)), items);
+        InOrder order = inOrder(jdbcTemplate);
+        ArgumentCaptor<String> expireSql = ArgumentCaptor.forClass(String.class);
+        order.verify(jdbcTemplate).update(expireSql.capture(), eq(MAX_ATTEMPTS));
+        assertTrue(expireSql.getValue().contains("status = 'RUNNING' AND lease_until < now() AND attempts >= ?"),
+            expireSql.getValue());
+        order.verify(jdbcTemplate).query(contains("FOR UPDATE SKIP LOCKED"), any(RowMapper.class), eq(WORKER), eq(300), eq(20));
+        // Задание переводится в RUNNING один раз, сколько бы его элементов ни было в пачке
+        verify(jdbcTemplate).update(contains("UPDATE invest.ingestion_jobs SET status = 'RUNNING'"), eq("job-a"));
+        verify(jdbcTemplate).update(contains("UPDATE invest.ingestion_jobs SET status = 'RUNNING'"), eq("job-b"));
+    }
+
+    @Test
+    @DisplayName("Захват берет PENDING и RUNNING с истекшей арендой, увеличивая число попыток")
+    @SuppressWarnings("unchecked")
+    void claimItems_ShouldClaimPendingAndExpiredLeases() {
+        givenClaimedRows();
+
+        assertTrue(service.claimItems(WORKER, 20, 300, MAX_ATTEMPTS).isEmpty());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), eq(WORKER), eq(300), eq(20));
+        assertTrue(sql.getValue().contains("WHERE status = 'PENDING' OR (status = 'RUNNING' AND lease_until < now())"), sql.getValue());
+        assertTrue(sql.getValue().contains("attempts = i.attempts + 1"), sql.getValue());
+        assertTrue(sql.getValue().contains("lease_owner = ?"), sql.getValue());
+        verify(jdbcTemplate, never()).update(contains("invest.ingestion_jobs"), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Захват -> завершение: DONE только у элемента, аренда которого принадлежит воркеру")
+    void completeItem_ShouldMarkDone_WhenLeaseIsOwned() {
+        ClaimedItem claimed = item(7, "job-a", 1);
+        when(jdbcTemplate.update(anyString(), eq(120), eq(7L), eq(WORKER))).thenReturn(1);
+
+        service.completeItem(claimed, WORKER, 120);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).update(sql.capture(), eq(120), eq(7L), eq(WORKER));
+        assertTrue(sql.getValue().contains("SET status = 'DONE'"), sql.getValue());
+        assertTrue(sql.getValue().contains("WHERE id = ? AND status = 'RUNNING' AND lease_owner = ?"), sql.getValue());
+    }
+
+    @Test
+    @DisplayName("Просроченная аренда: результат воркера не перезаписывает элемент, захваченный другим узлом")
+    void completeAndFail_ShouldNotTouchItem_WhenLeaseWasLost() {
+        ClaimedItem stale = item(7, "job-a", 1);
+        // Элемент уже захвачен другим узлом: условие lease_owner = ? не выполняется
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        assertDoesNotThrow(() -> service.completeItem(stale, WORKER, 120));
+        assertDoesNotThrow(() -> service.failItem(stale, WORKER, MAX_ATTEMPTS, "timeout"));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), any(Object[].class));
+        sql.getAllValues().forEach(update ->
+            assertTrue(update.contains("AND status = 'RUNNING' AND lease_owner = ?"), update));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Захват -> ошибка: элемент возвращается в PENDING, пока попытки не исчерпаны, затем FAILED")
+    void failItem_ShouldRequeueUntilMaxAttempts() {
+        service.failItem(item(7, "job-a", 1), WORKER, MAX_ATTEMPTS, "timeout");
+        service.failItem(item(7, "job-a", 2), WORKER, MAX_ATTEMPTS, "timeout");
+        service.failItem(item(7, "job-a", 3), WORKER, MAX_ATTEMPTS, "timeout");
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate, times(2)).update(anyString(), eq("PENDING"), eq("timeout"), eq(7L), eq(WORKER));
+        order.verify(jdbcTemplate).update(anyString(), eq("FAILED"), eq("timeout"), eq(7L), eq(WORKER));
+    }
+
+    @Test
+    @DisplayName("Текст ошибки обрезается до 2000 символов")
+    void failItem_ShouldTruncateLongError() {
+        String error = "x".repeat(5000);
+
+        service.failItem(item(7, "job-a", 1), WORKER, MAX_ATTEMPTS, error);
+
+        verify(jdbcTemplate).update(anyString(), eq("PENDING"), eq("x".repeat(2000)), eq(7L), eq(WORKER));
+    }
+
+    @Test
+    @DisplayName("Задание завершается COMPLETED или FAILED только без PENDING и RUNNING элементов")
+    void refreshJobStatus_ShouldFinishJobWithoutUnfinishedItems() {
+        ArgumentCaptor<String> sql = givenFinishedJobs(IngestionJobType.DAILY_CANDLES, DATE, DATE);
+
+        service.refreshJobStatus("job-a");
+
+        String finish = sql.getValue();
+        assertTrue(finish.contains("WHEN EXISTS (SELECT 1 FROM invest.ingestion_job_items i " +
+            "                               WHERE i.job_id = j.id AND i.status = 'FAILED') " +
+            "                  THEN 'FAILED' ELSE 'COMPLETED' END"), finish);
+        assertTrue(finish.contains("NOT EXISTS (SELECT 1 FROM invest.ingestion_job_items i " +
+            "                  WHERE i.job_id = j.id AND i.status IN ('PENDING', 'RUNNING'))"), finish);
+        assertTrue(finish.contains("WHERE j.status IN ('PENDING', 'RUNNING')"), finish);
+        assertTrue(finish.endsWith(" AND j.id = ? RETURNING j.job_type, j.date_from, j.date_to"), finish);
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class), eq("job-a"));
+        // Агрегация объемов пересчитывается только для минутных свечей
+        verifyNoInteractions(volumeRollupService);
+    }
+
+    @Test
+    @DisplayName("Завершение задания минутных свечей пересчитывает агрегацию объемов за его даты")
+    void refreshActiveJobs_ShouldRollupFinishedMinuteJobs() {
+        ArgumentCaptor<String> sql = givenFinishedJobs(IngestionJobType.MINUTE_CANDLES, DATE.minusDays(2), DATE);
+
+        service.refreshActiveJobs();
+
+        assertFalse(sql.getValue().contains("j.id = ?"), sql.getValue());
+        verify(volumeRollupService).rollupDays(DATE.minusDays(2), DATE);
+    }
+
+    @Test
+    @DisplayName("Незавершенное задание не трогает агрегацию объемов")
+    void refreshJobStatus_ShouldDoNothing_WhenItemsRemain() {
+        givenFinishedJobs(null, null, null);
+
+        service.refreshJobStatus("job-a");
+
+        verifyNoInteractions(volumeRollupService);
+    }
+
+    @Test
+    @DisplayName("Создание задания: повторы FIGI убираются, элементы вставляются на каждую дату с ON CONFLICT DO NOTHING")
+    @SuppressWarnings("unchecked")
+    void createJob_ShouldInsertItemPerFigiAndDate() {
+        String jobId = service.createJob(IngestionJobType.MINUTE_CANDLES, List.of("A", "B", "A"), List.of(),
+            DATE.minusDays(1), DATE, "API");
+
+        ArgumentCaptor<IngestionJobEntity> job = ArgumentCaptor.forClass(IngestionJobEntity.class);
+        verify(jobRepository).saveAndFlush(job.capture());
+        assertEquals(jobId, job.getValue().getId());
+        assertEquals(4, job.getValue().getTotalItems());
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (job_id, figi, trade_date) DO NOTHING"), rows.capture());
+        List<String> keys = rows.getValue().stream().map(row -> row[2] + "@" + row[3]).toList();
+        assertEquals(List.of("A@2024-06-02", "B@2024-06-02", "A@2024-06-03", "B@2024-06-03"), keys);
+        verifyNoInteractions(shareRepository, futureRepository, indicativeRepository);
+    }
+
+    @Test
+    @DisplayName("Некорректный диапазон дат отклоняется до записи в БД")
+    void createJob_ShouldRejectInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () ->
+            service.createJob(IngestionJobType.DAILY_CANDLES, List.of("A"), List.of(), DATE, DATE.minusDays(1), "API"));
+        verifyNoInteractions(jobRepository, jdbcTemplate);
+    }
+}
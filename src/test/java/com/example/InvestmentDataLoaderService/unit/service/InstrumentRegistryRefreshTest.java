@@ -0,0 +1,146 @@
+package com.example.InvestmentDataLoaderService.unit.service;
+
+import com.example.InvestmentDataLoaderService.client.TinkoffRestClient;
+import com.example.InvestmentDataLoaderService.dto.*;
+import com.example.InvestmentDataLoaderService.entity.FutureEntity;
+import com.example.InvestmentDataLoaderService.entity.IndicativeEntity;
+import com.example.InvestmentDataLoaderService.repository.*;
+import com.example.InvestmentDataLoaderService.service.InstrumentIndex;
+import com.example.InvestmentDataLoaderService.service.InstrumentRegistry;
+import com.example.InvestmentDataLoaderService.service.InstrumentService;
+import com.example.InvestmentDataLoaderService.service.InstrumentUniverseService;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Реестр инструментов перечитывается после сохранения фьючерсов и индикативов
+ */
+@ExtendWith(MockitoExtension.class)
+@Epic("Instrument Service")
+@Feature("Instrument Registry")
+@DisplayName("Instrument Registry Refresh Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("service")
+class InstrumentRegistryRefreshTest {
+
+    @Mock
+    private ShareRepository shareRepo;
+    @Mock
+    private FutureRepository futureRepo;
+    @Mock
+    private IndicativeRepository indicativeRepo;
+    @Mock
+    private SystemLogRepository systemLogRepository;
+    @Mock
+    private TinkoffRestClient restClient;
+    @Mock
+    private InstrumentUniverseService instrumentUniverseService;
+    @Mock
+    private InstrumentRegistry instrumentRegistry;
+
+    private InstrumentService instrumentService;
+
+    @BeforeEach
+    void setUp() {
+        instrumentService = new InstrumentService(shareRepo, futureRepo, indicativeRepo, systemLogRepository,
+            restClient, instrumentUniverseService, instrumentRegistry);
+    }
+
+    private static FutureDto future(String figi) {
+        return new FutureDto(figi, "SI0624", "COMMODITY", "Silver", "rub", "MOEX", true,
+            LocalDateTime.of(2024, 6, 24, 18, 40), new BigDecimal("1"), 1, new BigDecimal("1000"));
+    }
+
+    private static IndicativeDto indicative(String figi) {
+        return new IndicativeDto(figi, "IMOEX", "Индекс МосБиржи", "rub", "MOEX", "SPBXM", "uid-" + figi, true, true);
+    }
+
+    private void givenFutureUniverse(List<FutureDto> futures) {
+        when(instrumentUniverseService.getFutureUniverse(any()))
+            .thenReturn(InstrumentIndex.of(futures, Map.of(InstrumentIndex.TICKER, FutureDto::ticker)));
+    }
+
+    private void givenIndicativeUniverse(List<IndicativeDto> indicatives) {
+        when(instrumentUniverseService.getIndicativeUniverse())
+            .thenReturn(InstrumentIndex.of(indicatives, Map.of(InstrumentIndex.TICKER, IndicativeDto::ticker)));
+    }
+
+    @Test
+    @DisplayName("Новый фьючерс сразу попадает в реестр")
+    void saveFuturesAsync_ShouldRefreshRegistry_WhenFutureSaved() {
+        givenFutureUniverse(List.of(future("FUTSI0624000")));
+        when(futureRepo.existsById("FUTSI0624000")).thenReturn(false);
+
+        SaveResponseDto result = instrumentService.saveFuturesAsync(new FutureFilterDto(), "task-futures").join();
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.getNewItemsSaved());
+        verify(futureRepo).save(any(FutureEntity.class));
+        verify(instrumentRegistry).refresh();
+    }
+
+    @Test
+    @DisplayName("Обновленный существующий фьючерс перечитывается в реестр")
+    void saveFuturesAsync_ShouldRefreshRegistry_WhenFutureAlreadyExists() {
+        givenFutureUniverse(List.of(future("FUTSI0624000")));
+        when(futureRepo.existsById("FUTSI0624000")).thenReturn(true);
+
+        instrumentService.saveFuturesAsync(new FutureFilterDto(), "task-futures").join();
+
+        verify(instrumentRegistry).refresh();
+    }
+
+    @Test
+    @DisplayName("Пустой ответ API не перечитывает реестр")
+    void saveFuturesAsync_ShouldNotRefreshRegistry_WhenNothingFound() {
+        givenFutureUniverse(List.of());
+
+        instrumentService.saveFuturesAsync(new FutureFilterDto(), "task-futures").join();
+
+        verify(instrumentRegistry, never()).refresh();
+    }
+
+    @Test
+    @DisplayName("Новый индикатив сразу попадает в реестр")
+    void saveIndicativesAsync_ShouldRefreshRegistry_WhenIndicativeSaved() {
+        givenIndicativeUniverse(List.of(indicative("BBG00000IMOEX")));
+        when(indicativeRepo.existsById("BBG00000IMOEX")).thenReturn(false);
+
+        SaveResponseDto result = instrumentService.saveIndicativesAsync(new IndicativeFilterDto(), "task-indicatives").join();
+
+        assertEquals(1, result.getNewItemsSaved());
+        verify(indicativeRepo).save(any(IndicativeEntity.class));
+        verify(instrumentRegistry).refresh();
+    }
+
+    @Test
+    @DisplayName("Существующие индикативы не меняются и не перечитывают реестр")
+    void saveIndicativesAsync_ShouldNotRefreshRegistry_WhenAllIndicativesExist() {
+        givenIndicativeUniverse(List.of(indicative("BBG00000IMOEX")));
+        when(indicativeRepo.existsById("BBG00000IMOEX")).thenReturn(true);
+
+        SaveResponseDto result = instrumentService.saveIndicativesAsync(new IndicativeFilterDto(), "task-indicatives").join();
+
+        assertEquals(0, result.getNewItemsSaved());
+        verify(instrumentRegistry, never()).refresh();
+    }
+}
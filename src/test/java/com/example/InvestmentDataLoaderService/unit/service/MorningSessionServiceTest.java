@@ -5,6 +5,7 @@ import com.example.InvestmentDataLoaderService.entity.*;
 import com.example.InvestmentDataLoaderService.fixtures.TestDataFactory;
 import com.example.InvestmentDataLoaderService.repository.*;
 import com.example.InvestmentDataLoaderService.service.MorningSessionService;
+import com.example.InvestmentDataLoaderService.service.PipelineMetrics;
 
 import io.qameta.allure.*;
 
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @ExtendWith(MockitoExtension.class)
 @TestInstance(TestInstance.Lifecycle.PER_METHOD)
@@ -48,6 +50,10 @@ public class MorningSessionServiceTest {
     private OpenPriceRepository openPriceRepository;
     @Mock
     private MinuteCandleRepository minuteCandleRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PipelineMetrics pipelineMetrics;
 
     @InjectMocks
     private MorningSessionService morningSessionService;
@@ -57,7 +63,31 @@ public class MorningSessionServiceTest {
     @Description("Сброс всех моков перед каждым тестом")
     @Step("Настройка моков")
     void setUp() {
-        reset(shareRepository, futureRepository, indicativeRepository, openPriceRepository, minuteCandleRepository);
+        reset(shareRepository, futureRepository, indicativeRepository, openPriceRepository, minuteCandleRepository, jdbcTemplate, pipelineMetrics);
+    }
+
+    /**
+     * Строки результата запроса первых свечей: пары (FIGI, цена открытия)
+     */
+    private static List<Object[]> firstOpenRows(Object... figiAndPrice) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < figiAndPrice.length; i += 2) {
+            rows.add(new Object[]{figiAndPrice[i], BigDecimal.valueOf((Double) figiAndPrice[i + 1])});
+        }
+        return rows;
+    }
+
+    /**
+     * Ответ пакетной вставки: все строки вставлены
+     */
+    private static int[] allInserted(List<?> rows) {
+        int[] counts = new int[rows.size()];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    private static List<Object[]> rowsOfSize(int size) {
+        return argThat(rows -> rows != null && rows.size() == size);
     }
 
     // ========== ПОЗИТИВНЫЕ ТЕСТЫ ==========
@@ -81,21 +111,16 @@ public class MorningSessionServiceTest {
         
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
         FutureEntity future = TestDataFactory.createFutureEntity("TEST_FUTURE_001", "Si-3.24", "RUB");
-        MinuteCandleEntity candle1 = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
-        MinuteCandleEntity candle2 = TestDataFactory.createMinuteCandleEntity("TEST_FUTURE_001", testDate, BigDecimal.valueOf(200.0));
 
         // Шаг 2: Настройка моков
         Allure.step("Настройка моков", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future));
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle1))
-                .thenReturn(Arrays.asList(candle2));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_FUTURE_001", 200.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки цен утренней сессии
@@ -121,7 +146,9 @@ public class MorningSessionServiceTest {
         Allure.step("Проверка взаимодействий", () -> {
             verify(shareRepository, times(1)).findAll();
             verify(futureRepository, times(1)).findAll();
-            verify(openPriceRepository, times(2)).save(any(OpenPriceEntity.class));
+            verify(minuteCandleRepository, times(1)).findFirstOpenPricesBetween(any(Instant.class), any(Instant.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(2));
+            verify(openPriceRepository, never()).save(any(OpenPriceEntity.class));
         });
     }
 
@@ -145,23 +172,16 @@ public class MorningSessionServiceTest {
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
         FutureEntity future = TestDataFactory.createFutureEntity("TEST_FUTURE_001", "Si-3.24", "RUB");
         IndicativeEntity indicative = TestDataFactory.createIndicativeEntity("TEST_INDICATIVE_001", "RTSI", "RUB");
-        MinuteCandleEntity candle1 = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
-        MinuteCandleEntity candle2 = TestDataFactory.createMinuteCandleEntity("TEST_FUTURE_001", testDate, BigDecimal.valueOf(200.0));
-        MinuteCandleEntity candle3 = TestDataFactory.createMinuteCandleEntity("TEST_INDICATIVE_001", testDate, BigDecimal.valueOf(300.0));
 
         // Шаг 2: Настройка моков
         Allure.step("Настройка моков", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future));
             when(indicativeRepository.findAll()).thenReturn(Arrays.asList(indicative));
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle1))
-                .thenReturn(Arrays.asList(candle2))
-                .thenReturn(Arrays.asList(candle3));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_FUTURE_001", 200.0, "TEST_INDICATIVE_001", 300.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки с индикативными инструментами
@@ -180,7 +200,7 @@ public class MorningSessionServiceTest {
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
             verify(indicativeRepository, times(1)).findAll();
-            verify(openPriceRepository, times(3)).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(3));
         });
     }
 
@@ -203,21 +223,18 @@ public class MorningSessionServiceTest {
         
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
         FutureEntity future = TestDataFactory.createFutureEntity("TEST_FUTURE_001", "Si-3.24", "RUB");
-        MinuteCandleEntity candle = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
 
         // Шаг 2: Настройка моков - первая запись уже существует, вторая - новая
         Allure.step("Настройка моков - первая запись уже существует, вторая - новая", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future));
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), eq("TEST_SHARE_001")))
-                .thenReturn(true); // Первая запись уже существует
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), eq("TEST_FUTURE_001")))
-                .thenReturn(false); // Вторая запись новая
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(openPriceRepository.findFigisByPriceDate(testDate))
+                .thenReturn(Arrays.asList("TEST_SHARE_001")); // Первая запись уже существует, вторая - новая
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_FUTURE_001", 100.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки с существующими записями
@@ -256,20 +273,15 @@ public class MorningSessionServiceTest {
         
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
         FutureEntity future = TestDataFactory.createFutureEntity("TEST_FUTURE_001", "Si-3.24", "RUB");
-        MinuteCandleEntity candle1 = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
-        MinuteCandleEntity candle2 = TestDataFactory.createMinuteCandleEntity("TEST_FUTURE_001", testDate, BigDecimal.valueOf(200.0));
 
         // Шаг 2: Настройка моков
         Allure.step("Настройка моков", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future));
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle1))
-                .thenReturn(Arrays.asList(candle2));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_FUTURE_001", 200.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки без индикативных инструментов
@@ -288,7 +300,7 @@ public class MorningSessionServiceTest {
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
             verify(indicativeRepository, never()).findAll(); // Индикативы не должны обрабатываться
-            verify(openPriceRepository, times(2)).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(2));
         });
     }
 
@@ -317,10 +329,8 @@ public class MorningSessionServiceTest {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future));
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(TestDataFactory.createEmptyMinuteCandleEntityList()); // Пустой список свечей
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(new ArrayList<>()); // Нет свечей за дату
         });
 
         // Шаг 3: Выполнение обработки с пустыми свечами
@@ -341,7 +351,7 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, never()).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
         });
     }
 
@@ -464,18 +474,15 @@ public class MorningSessionServiceTest {
         });
         String taskId = "TEST_TASK_006";
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
-        MinuteCandleEntity candle = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
 
         // Шаг 2: Настройка моков - БД выбрасывает исключение
         Allure.step("Настройка моков - БД выбрасывает исключение", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(TestDataFactory.createEmptyFutureEntityList());
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
                 .thenThrow(new DataIntegrityViolationException("Ошибка целостности данных"));
         });
 
@@ -534,7 +541,7 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, never()).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
         });
     }
 
@@ -638,18 +645,15 @@ public class MorningSessionServiceTest {
         });
         String taskId = "TEST_TASK_008";
         ShareEntity share = TestDataFactory.createShareEntity("TEST_SHARE_001", "SBER", "RUB", "MOEX");
-        MinuteCandleEntity candle = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
 
         // Шаг 2: Настройка моков - неожиданное исключение
         Allure.step("Настройка моков - неожиданное исключение", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(TestDataFactory.createEmptyFutureEntityList());
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
                 .thenThrow(new RuntimeException("Неожиданная ошибка"));
         });
 
@@ -691,9 +695,7 @@ public class MorningSessionServiceTest {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(TestDataFactory.createEmptyFutureEntityList());
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
                 .thenThrow(new RuntimeException("Ошибка поиска свечей"));
         });
 
@@ -712,7 +714,7 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, never()).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
         });
     }
 
@@ -736,19 +738,20 @@ public class MorningSessionServiceTest {
         String taskId = "TEST_TASK_010";
         
         List<ShareEntity> manyShares = TestDataFactory.createShareEntityList(100);
-        MinuteCandleEntity candle = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
+        List<Object[]> firstOpens = new ArrayList<>();
+        for (ShareEntity share : manyShares) {
+            firstOpens.add(new Object[]{share.getFigi(), BigDecimal.valueOf(100.0)});
+        }
 
         // Шаг 2: Настройка моков
         Allure.step("Настройка моков", () -> {
             when(shareRepository.findAll()).thenReturn(manyShares);
             when(futureRepository.findAll()).thenReturn(TestDataFactory.createEmptyFutureEntityList());
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(anyString(), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpens);
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки большого количества инструментов
@@ -766,7 +769,8 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, times(100)).save(any(OpenPriceEntity.class));
+            verify(minuteCandleRepository, times(1)).findFirstOpenPricesBetween(any(Instant.class), any(Instant.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(100));
         });
     }
 
@@ -791,22 +795,16 @@ public class MorningSessionServiceTest {
         IndicativeEntity indicative1 = TestDataFactory.createIndicativeEntity("TEST_INDICATIVE_001", "RTSI", "RUB");
         IndicativeEntity indicative2 = TestDataFactory.createIndicativeEntity("", "RTSI2", "RUB"); // Пустой FIGI
         IndicativeEntity indicative3 = TestDataFactory.createIndicativeEntity(null, "RTSI3", "RUB"); // null FIGI
-        MinuteCandleEntity candle1 = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
-        MinuteCandleEntity candle2 = TestDataFactory.createMinuteCandleEntity("TEST_INDICATIVE_001", testDate, BigDecimal.valueOf(100.0));
 
         // Шаг 2: Настройка моков
         Allure.step("Настройка моков", () -> {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share));
             when(futureRepository.findAll()).thenReturn(TestDataFactory.createEmptyFutureEntityList());
             when(indicativeRepository.findAll()).thenReturn(Arrays.asList(indicative1, indicative2, indicative3));
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_SHARE_001"), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle1));
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_INDICATIVE_001"), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle2));
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_INDICATIVE_001", 100.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки с пустыми FIGI
@@ -824,7 +822,7 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, times(2)).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(2));
         });
     }
 
@@ -850,8 +848,6 @@ public class MorningSessionServiceTest {
         FutureEntity future1 = TestDataFactory.createFutureEntity("TEST_FUTURE_001", "Si-3.24", "RUB");
         FutureEntity future2 = TestDataFactory.createFutureEntity("TEST_FUTURE_002", "RTS-3.24", "RUB");
         
-        MinuteCandleEntity candle1 = TestDataFactory.createMinuteCandleEntity("TEST_SHARE_001", testDate, BigDecimal.valueOf(100.0));
-        MinuteCandleEntity candle2 = TestDataFactory.createMinuteCandleEntity("TEST_FUTURE_001", testDate, BigDecimal.valueOf(200.0));
         // Нет свечей для share2 и future2
 
         // Шаг 2: Настройка моков
@@ -859,18 +855,10 @@ public class MorningSessionServiceTest {
             when(shareRepository.findAll()).thenReturn(Arrays.asList(share1, share2));
             when(futureRepository.findAll()).thenReturn(Arrays.asList(future1, future2));
             when(indicativeRepository.findAll()).thenReturn(TestDataFactory.createEmptyIndicativeEntityList());
-            when(openPriceRepository.existsByPriceDateAndFigi(any(LocalDate.class), anyString()))
-                .thenReturn(false);
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_SHARE_001"), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle1));
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_SHARE_002"), any(Instant.class), any(Instant.class)))
-                .thenReturn(TestDataFactory.createEmptyMinuteCandleEntityList());
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_FUTURE_001"), any(Instant.class), any(Instant.class)))
-                .thenReturn(Arrays.asList(candle2));
-            when(minuteCandleRepository.findByFigiAndTimeBetween(eq("TEST_FUTURE_002"), any(Instant.class), any(Instant.class)))
-                .thenReturn(TestDataFactory.createEmptyMinuteCandleEntityList());
-            when(openPriceRepository.save(any(OpenPriceEntity.class)))
-                .thenReturn(TestDataFactory.createOpenPriceEntity());
+            when(minuteCandleRepository.findFirstOpenPricesBetween(any(Instant.class), any(Instant.class)))
+                .thenReturn(firstOpenRows("TEST_SHARE_001", 100.0, "TEST_FUTURE_001", 200.0));
+            when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> allInserted(invocation.getArgument(1)));
         });
 
         // Шаг 3: Выполнение обработки смешанных результатов
@@ -888,7 +876,7 @@ public class MorningSessionServiceTest {
 
         // Шаг 5: Проверка взаимодействий
         Allure.step("Проверка взаимодействий", () -> {
-            verify(openPriceRepository, times(2)).save(any(OpenPriceEntity.class));
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rowsOfSize(2));
         });
     }
 }
\ No newline at end of file
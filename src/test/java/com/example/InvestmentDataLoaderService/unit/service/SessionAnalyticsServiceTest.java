@@ -0,0 +1,161 @@
+package com.example.InvestmentDataLoaderService.unit.service;
+
+import com.example.InvestmentDataLoaderService.dto.CandleColumns;
+import com.example.InvestmentDataLoaderService.dto.DayPriceSummaryDto;
+import com.example.InvestmentDataLoaderService.dto.SessionAnalyticsDto;
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+import com.example.InvestmentDataLoaderService.repository.CandleColumnsRepository;
+import com.example.InvestmentDataLoaderService.service.SessionAnalyticsService;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Аналитика дня по колоночным свечам без БД: объемы по сессиям, средние и сводка цен
+ */
+@Epic("Session Analytics")
+@Feature("Session Analytics Service")
+@DisplayName("Session Analytics Service Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("service")
+@ExtendWith(MockitoExtension.class)
+class SessionAnalyticsServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 3);
+    private static final long TIME = Instant.parse("2024-06-03T06:00:00Z").getEpochSecond();
+    private static final long UNIT = 1_000_000_000L;
+
+    @Mock
+    private CandleColumnsRepository candleColumnsRepository;
+
+    private SessionAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SessionAnalyticsService(candleColumnsRepository);
+    }
+
+    private static CandleColumns.Builder add(CandleColumns.Builder builder, String figi, int minute, long volume,
+                                             TradingSession session) {
+        return builder.add(figi, TIME + minute * 60L, UNIT, UNIT, UNIT, UNIT, volume, session.getCode());
+    }
+
+    @Test
+    @DisplayName("Объемы и свечи по сессиям, выходные = биржевая + OTC, средние HALF_UP до 2 знаков")
+    void getSessionAnalytics_ShouldAggregateBySession() {
+        CandleColumns.Builder builder = new CandleColumns.Builder(8);
+        add(builder, "A", 0, 10, TradingSession.MORNING);
+        add(builder, "A", 1, 11, TradingSession.MAIN);
+        add(builder, "A", 2, 12, TradingSession.MAIN);
+        add(builder, "A", 3, 1, TradingSession.MAIN);
+        add(builder, "A", 4, 3, TradingSession.WEEKEND_EXCHANGE);
+        add(builder, "A", 5, 4, TradingSession.WEEKEND_OTC);
+        add(builder, "A", 6, 2, TradingSession.NONE);
+        add(builder, "B", 0, 7, TradingSession.EVENING);
+        when(candleColumnsRepository.loadMinuteDay(DATE, null)).thenReturn(builder.build());
+
+        List<SessionAnalyticsDto> result = service.getSessionAnalytics(DATE, null);
+
+        assertEquals(2, result.size());
+        SessionAnalyticsDto a = result.get(0);
+        assertEquals("A", a.figi());
+        assertEquals(DATE, a.tradeDate());
+        // Свечи без сессии входят в итог, но не в сессии
+        assertEquals(43, a.totalVolume());
+        assertEquals(7, a.totalCandles());
+        assertEquals(new BigDecimal("6.14"), a.avgVolumePerCandle());
+        assertEquals(10, a.morningSessionVolume());
+        assertEquals(1, a.morningSessionCandles());
+        assertEquals(new BigDecimal("10.00"), a.morningAvgVolumePerCandle());
+        assertEquals(24, a.mainSessionVolume());
+        assertEquals(3, a.mainSessionCandles());
+        assertEquals(new BigDecimal("8.00"), a.mainAvgVolumePerCandle());
+        assertEquals(7, a.weekendSessionVolume());
+        assertEquals(2, a.weekendSessionCandles());
+        assertEquals(new BigDecimal("3.50"), a.weekendAvgVolumePerCandle());
+        assertEquals(0, a.eveningSessionVolume());
+        assertEquals(0, a.eveningSessionCandles());
+        assertEquals(BigDecimal.ZERO, a.eveningAvgVolumePerCandle());
+
+        SessionAnalyticsDto b = result.get(1);
+        assertEquals("B", b.figi());
+        assertEquals(7, b.eveningSessionVolume());
+        assertEquals(1, b.eveningSessionCandles());
+        assertEquals(0, b.mainSessionVolume());
+        assertEquals(BigDecimal.ZERO, b.mainAvgVolumePerCandle());
+    }
+
+    @Test
+    @DisplayName("Средняя на половине сотой округляется вверх")
+    void getSessionAnalytics_ShouldRoundAverageHalfUp() {
+        CandleColumns.Builder builder = new CandleColumns.Builder(8);
+        for (int i = 0; i < 8; i++) {
+            add(builder, "A", i, i == 0 ? 5 : 0, TradingSession.MAIN);
+        }
+        when(candleColumnsRepository.loadMinuteDay(DATE, "A")).thenReturn(builder.build());
+
+        SessionAnalyticsDto dto = service.getSessionAnalytics(DATE, "A").get(0);
+
+        // 5 / 8 = 0.625
+        assertEquals(new BigDecimal("0.63"), dto.mainAvgVolumePerCandle());
+    }
+
+    @Test
+    @DisplayName("Сводка цен: первая open, последняя close, экстремумы, время первой и последней свечи")
+    void getDayPriceSummary_ShouldUseColumnsRange() {
+        CandleColumns columns = new CandleColumns.Builder(4)
+            .add("A", TIME, 250 * UNIT + 100_000_000, 251 * UNIT, 249 * UNIT, 250 * UNIT, 10, (short) 2)
+            .add("A", TIME + 60, 250 * UNIT, 252 * UNIT + 500_000_000, 250 * UNIT, 251 * UNIT, 20, (short) 2)
+            .add("A", TIME + 120, 251 * UNIT, 251 * UNIT, 248 * UNIT + 1, 250 * UNIT + 750_000_000, 30, (short) 3)
+            .add("B", TIME + 60, UNIT, UNIT, UNIT, UNIT, 0, (short) 2)
+            .build();
+        when(candleColumnsRepository.loadMinuteDay(DATE, null)).thenReturn(columns);
+
+        List<DayPriceSummaryDto> result = service.getDayPriceSummary(DATE, null);
+
+        assertEquals(2, result.size());
+        DayPriceSummaryDto a = result.get(0);
+        assertEquals("A", a.figi());
+        assertEquals(0, new BigDecimal("250.1").compareTo(a.firstOpen()));
+        assertEquals(0, new BigDecimal("250.75").compareTo(a.lastClose()));
+        assertEquals(0, new BigDecimal("252.5").compareTo(a.maxHigh()));
+        assertEquals(0, new BigDecimal("248.000000001").compareTo(a.minLow()));
+        assertEquals(60, a.totalVolume());
+        assertEquals(3, a.totalCandles());
+        assertEquals(Instant.ofEpochSecond(TIME), a.firstCandleTime());
+        assertEquals(Instant.ofEpochSecond(TIME + 120), a.lastCandleTime());
+
+        // Инструмент с одной свечой: первая и последняя свеча совпадают
+        DayPriceSummaryDto b = result.get(1);
+        assertEquals(1, b.totalCandles());
+        assertEquals(0, BigDecimal.ONE.compareTo(b.maxHigh()));
+        assertEquals(0, BigDecimal.ONE.compareTo(b.minLow()));
+        assertEquals(b.firstCandleTime(), b.lastCandleTime());
+    }
+
+    @Test
+    @DisplayName("День без свечей: пустые списки, инструменты без свечей не попадают в ответ")
+    void analytics_ShouldReturnEmpty_WhenNoCandles() {
+        when(candleColumnsRepository.loadMinuteDay(DATE, "A")).thenReturn(new CandleColumns.Builder(0).build());
+
+        assertTrue(service.getSessionAnalytics(DATE, "A").isEmpty());
+        assertTrue(service.getDayPriceSummary(DATE, "A").isEmpty());
+    }
+}
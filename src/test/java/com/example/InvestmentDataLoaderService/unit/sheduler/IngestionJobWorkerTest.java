@@ -0,0 +1,167 @@
+package com.example.InvestmentDataLoaderService.unit.sheduler;
+
+import com.example.InvestmentDataLoaderService.enums.IngestionJobType;
+import com.example.InvestmentDataLoaderService.scheduler.IngestionJobWorker;
+import com.example.InvestmentDataLoaderService.service.CandleBackfillService;
+import com.example.InvestmentDataLoaderService.service.ClusterLockService;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService;
+import com.example.InvestmentDataLoaderService.service.IngestionJobService.ClaimedItem;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Воркер заданий загрузки: выборка очереди пачками до опустошения, завершение и повтор элементов,
+ * завершение заданий и отсутствие параллельных опросов
+ */
+@ExtendWith(MockitoExtension.class)
+@Epic("Ingestion Jobs")
+@Feature("Ingestion Job Worker")
+@DisplayName("Ingestion Job Worker Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("scheduler")
+class IngestionJobWorkerTest {
+
+    private static final String WORKER = "node-1";
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 3);
+    private static final String MINUTE = IngestionJobType.MINUTE_CANDLES.getCandleInterval();
+
+    @Mock
+    private IngestionJobService ingestionJobService;
+    @Mock
+    private CandleBackfillService candleBackfillService;
+    @Mock
+    private ClusterLockService clusterLockService;
+
+    /** Продолжения цепочки выполняются в вызывающем потоке */
+    private final Executor direct = Runnable::run;
+
+    private IngestionJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        when(clusterLockService.getNodeId()).thenReturn(WORKER);
+        worker = new IngestionJobWorker(ingestionJobService, candleBackfillService, clusterLockService, direct,
+            true, 2, 300, 3, "");
+    }
+
+    private static ClaimedItem item(long id, String jobId, String figi, int attempts) {
+        return new ClaimedItem(id, jobId, IngestionJobType.MINUTE_CANDLES, figi, DATE, attempts);
+    }
+
+    @Test
+    @DisplayName("ID воркера по умолчанию - ID узла кластера")
+    void workerId_ShouldDefaultToNodeId() {
+        assertEquals(WORKER, worker.getWorkerId());
+    }
+
+    @Test
+    @DisplayName("Опрос выбирает пачки, пока очередь не опустеет, и завершает каждый элемент один раз")
+    void poll_ShouldDrainQueueInBatches() {
+        ClaimedItem a = item(1, "job-a", "A", 1);
+        ClaimedItem b = item(2, "job-a", "B", 1);
+        ClaimedItem c = item(3, "job-b", "C", 1);
+        when(ingestionJobService.claimItems(WORKER, 2, 300, 3))
+            .thenReturn(List.of(a, b))
+            .thenReturn(List.of(c))
+            .thenReturn(List.of());
+        when(candleBackfillService.loadDayAsync(anyString(), eq(DATE), eq(MINUTE)))
+            .thenReturn(CompletableFuture.completedFuture(10));
+
+        worker.poll();
+
+        verify(ingestionJobService, times(3)).claimItems(WORKER, 2, 300, 3);
+        verify(ingestionJobService).completeItem(a, WORKER, 10);
+        verify(ingestionJobService).completeItem(b, WORKER, 10);
+        verify(ingestionJobService).completeItem(c, WORKER, 10);
+        verify(ingestionJobService, never()).failItem(any(), anyString(), anyInt(), anyString());
+        // Статус заданий проверяется после каждой пачки, оставшиеся задания - когда очередь пуста
+        InOrder order = inOrder(ingestionJobService);
+        order.verify(ingestionJobService).refreshJobStatus("job-a");
+        order.verify(ingestionJobService).refreshJobStatus("job-b");
+        order.verify(ingestionJobService).refreshActiveJobs();
+    }
+
+    @Test
+    @DisplayName("Ошибка загрузки возвращает элемент через failItem с причиной и лимитом попыток")
+    void poll_ShouldFailItem_WhenLoadFails() {
+        ClaimedItem a = item(1, "job-a", "A", 2);
+        when(ingestionJobService.claimItems(WORKER, 2, 300, 3)).thenReturn(List.of(a)).thenReturn(List.of());
+        when(candleBackfillService.loadDayAsync("A", DATE, MINUTE))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("DEADLINE_EXCEEDED")));
+
+        worker.poll();
+
+        verify(ingestionJobService).failItem(a, WORKER, 3, "DEADLINE_EXCEEDED");
+        verify(ingestionJobService, never()).completeItem(any(), anyString(), anyInt());
+        verify(ingestionJobService).refreshJobStatus("job-a");
+    }
+
+    @Test
+    @DisplayName("Пока пачка загружается, следующий опрос не захватывает новые элементы")
+    void poll_ShouldNotOverlap_WhileBatchInProgress() {
+        ClaimedItem a = item(1, "job-a", "A", 1);
+        CompletableFuture<Integer> load = new CompletableFuture<>();
+        when(ingestionJobService.claimItems(WORKER, 2, 300, 3)).thenReturn(List.of(a)).thenReturn(List.of());
+        when(candleBackfillService.loadDayAsync("A", DATE, MINUTE)).thenReturn(load);
+
+        worker.poll();
+        worker.poll();
+
+        verify(ingestionJobService, times(1)).claimItems(WORKER, 2, 300, 3);
+
+        load.complete(5);
+
+        verify(ingestionJobService).completeItem(a, WORKER, 5);
+        verify(ingestionJobService, times(2)).claimItems(WORKER, 2, 300, 3);
+
+        // После опустошения очереди опрос снова разрешен
+        worker.poll();
+        verify(ingestionJobService, times(3)).claimItems(WORKER, 2, 300, 3);
+    }
+
+    @Test
+    @DisplayName("Ошибка захвата не блокирует следующие опросы")
+    void poll_ShouldRecover_WhenClaimFails() {
+        when(ingestionJobService.claimItems(WORKER, 2, 300, 3))
+            .thenThrow(new IllegalStateException("connection refused"))
+            .thenReturn(List.of());
+
+        worker.poll();
+        worker.poll();
+
+        verify(ingestionJobService, times(2)).claimItems(WORKER, 2, 300, 3);
+        verify(ingestionJobService).refreshActiveJobs();
+    }
+
+    @Test
+    @DisplayName("Выключенный воркер не обращается к очереди")
+    void poll_ShouldDoNothing_WhenDisabled() {
+        IngestionJobWorker disabled = new IngestionJobWorker(ingestionJobService, candleBackfillService,
+            clusterLockService, direct, false, 2, 300, 3, "worker-x");
+
+        disabled.poll();
+
+        assertEquals("worker-x", disabled.getWorkerId());
+        verifyNoInteractions(ingestionJobService, candleBackfillService);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.InvestmentDataLoaderService.unit.util;
+
+import com.example.InvestmentDataLoaderService.entity.DailyCandleEntity;
+import com.example.InvestmentDataLoaderService.entity.MinuteCandleEntity;
+import com.example.InvestmentDataLoaderService.util.CandleStatistics;
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+import com.example.InvestmentDataLoaderService.util.MinuteCandleMapper;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Статистика свечи в long совпадает с BigDecimal-расчетом {@code calculateExtendedStatistics()} сущностей
+ */
+@Epic("Candles Minute Service")
+@Feature("Candle Statistics")
+@DisplayName("Candle Statistics Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("util")
+public class CandleStatisticsTest {
+
+    private static final Instant TIME = Instant.parse("2024-06-03T07:00:00Z");
+
+    private static long price(String value) {
+        return new BigDecimal(value).movePointRight(FixedPoint.SCALE).longValueExact();
+    }
+
+    private static MinuteCandleEntity minuteReference(long open, long high, long low, long close) {
+        return new MinuteCandleEntity("FIGI", 0, FixedPoint.toBigDecimal(high), FixedPoint.toBigDecimal(low), TIME,
+            FixedPoint.toBigDecimal(close), FixedPoint.toBigDecimal(open), true);
+    }
+
+    private static DailyCandleEntity dailyReference(long open, long high, long low, long close) {
+        DailyCandleEntity entity = new DailyCandleEntity("FIGI", 0, FixedPoint.toBigDecimal(high), FixedPoint.toBigDecimal(low),
+            TIME, FixedPoint.toBigDecimal(close), FixedPoint.toBigDecimal(open), true);
+        entity.calculateExtendedStatistics();
+        return entity;
+    }
+
+    /**
+     * Сравнение с эталоном через equals: совпадать должны и значения, и масштабы
+     */
+    private static void assertMatchesMinute(long open, long high, long low, long close) {
+        MinuteCandleEntity expected = minuteReference(open, high, low, close);
+        CandleStatistics actual = CandleStatistics.minute(open, high, low, close);
+        String candle = "o=" + open + " h=" + high + " l=" + low + " c=" + close;
+        assertEquals(expected.getPriceChange(), actual.priceChange(), candle);
+        assertEquals(expected.getPriceChangePercent(), actual.priceChangePercent(), candle);
+        assertEquals(expected.getCandleType(), actual.candleType(), candle);
+        assertEquals(expected.getBodySize(), actual.bodySize(), candle);
+        assertEquals(expected.getUpperShadow(), actual.upperShadow(), candle);
+        assertEquals(expected.getLowerShadow(), actual.lowerShadow(), candle);
+        assertEquals(expected.getHighLowRange(), actual.highLowRange(), candle);
+        assertEquals(expected.getAveragePrice(), actual.averagePrice(), candle);
+    }
+
+    private static void assertMatchesDaily(long open, long high, long low, long close) {
+        DailyCandleEntity expected = dailyReference(open, high, low, close);
+        CandleStatistics actual = CandleStatistics.daily(open, high, low, close);
+        String candle = "o=" + open + " h=" + high + " l=" + low + " c=" + close;
+        assertEquals(expected.getPriceChange(), actual.priceChange(), candle);
+        assertEquals(expected.getPriceChangePercent(), actual.priceChangePercent(), candle);
+        assertEquals(expected.getCandleType(), actual.candleType(), candle);
+        assertEquals(expected.getAveragePrice(), actual.averagePrice(), candle);
+    }
+
+    @ParameterizedTest(name = "o={0} h={1} l={2} c={3}")
+    @CsvSource({
+        "250.10, 251.00, 249.50, 250.75",
+        "250.75, 251.00, 249.50, 250.10",
+        "100, 100, 100, 100",
+        "0.000000001, 0.000000003, 0.000000001, 0.000000002",
+        "123456.789012345, 123500.5, 123400.000000001, 123456.789012346"
+    })
+    @DisplayName("Обычные свечи совпадают с BigDecimal-расчетом")
+    void minuteAndDaily_ShouldMatchReference(String open, String high, String low, String close) {
+        assertMatchesMinute(price(open), price(high), price(low), price(close));
+        assertMatchesDaily(price(open), price(high), price(low), price(close));
+    }
+
+    @ParameterizedTest(name = "o={0} h={1} l={2} c={3}")
+    @CsvSource({
+        "-10.5, -9.75, -11.25, -10.0",
+        "-1.25, 0.5, -2.0, 0.25",
+        "0.5, 1.0, -0.5, -0.25"
+    })
+    @DisplayName("Отрицательные цены: процент изменения 0 при open <= 0, средняя округляется от нуля")
+    void minuteAndDaily_ShouldMatchReference_WhenPricesNegative(String open, String high, String low, String close) {
+        assertMatchesMinute(price(open), price(high), price(low), price(close));
+        assertMatchesDaily(price(open), price(high), price(low), price(close));
+    }
+
+    @Test
+    @DisplayName("open = 0: процент изменения равен BigDecimal.ZERO")
+    void minute_ShouldReturnZeroPercent_WhenOpenIsZero() {
+        CandleStatistics statistics = CandleStatistics.minute(0, price("1.5"), 0, price("1.25"));
+
+        assertEquals(BigDecimal.ZERO, statistics.priceChangePercent());
+        assertEquals("BULLISH", statistics.candleType());
+        assertMatchesMinute(0, price("1.5"), 0, price("1.25"));
+        assertMatchesDaily(0, price("1.5"), 0, price("1.25"));
+    }
+
+    @Test
+    @DisplayName("HALF_UP: ровно половина сотой средней цены округляется вверх, на 1e-9 меньше - вниз")
+    void averagePrice_ShouldRoundHalfUpAtNanoBoundary() {
+        // (h + l + o + c) / 4 = 10.005 ровно
+        long tie = price("10.005");
+        assertEquals(new BigDecimal("10.01"), CandleStatistics.minute(tie, tie, tie, tie).averagePrice());
+        assertMatchesMinute(tie, tie, tie, tie);
+
+        // Сумма на 1e-9 меньше: 10.00499999975
+        long below = tie - 1;
+        assertEquals(new BigDecimal("10.00"), CandleStatistics.minute(tie, tie, tie, below).averagePrice());
+        assertMatchesMinute(tie, tie, tie, below);
+
+        // Отрицательная половина округляется от нуля
+        assertEquals(new BigDecimal("-10.01"), CandleStatistics.minute(-tie, -tie, -tie, -tie).averagePrice());
+        assertMatchesMinute(-tie, -tie, -tie, -tie);
+        assertMatchesMinute(-tie, -tie, -tie, -below);
+    }
+
+    @Test
+    @DisplayName("HALF_UP: процент изменения на границе половины четвертого знака")
+    void priceChangePercent_ShouldRoundHalfUpAtNanoBoundary() {
+        // change / open = 0.00005 ровно -> 0.0001 -> 0.0100%
+        long open = price("2");
+        long tieClose = open + price("0.0001");
+        assertEquals(new BigDecimal("0.0100"), CandleStatistics.minute(open, tieClose, open, tieClose).priceChangePercent());
+        assertMatchesMinute(open, tieClose, open, tieClose);
+
+        // На 1e-9 меньше половины -> 0.0000
+        assertMatchesMinute(open, tieClose, open, tieClose - 1);
+        assertEquals(0, BigDecimal.ZERO.compareTo(
+            CandleStatistics.minute(open, tieClose, open, tieClose - 1).priceChangePercent()));
+
+        // Падение на ту же величину округляется от нуля
+        long fallClose = open - price("0.0001");
+        assertEquals(new BigDecimal("-0.0100"), CandleStatistics.minute(open, open, fallClose, fallClose).priceChangePercent());
+        assertMatchesMinute(open, open, fallClose, fallClose);
+    }
+
+    @Test
+    @DisplayName("Цены у границы диапазона long не переполняют сумму средней цены и процент")
+    void minuteAndDaily_ShouldMatchReference_WhenPricesNearOverflow() {
+        long max = Long.MAX_VALUE - 7;
+        long high = max;
+        long low = max - price("1000");
+        long open = max - price("500.123456789");
+        long close = max - price("0.000000001");
+
+        assertMatchesMinute(open, high, low, close);
+        assertMatchesDaily(open, high, low, close);
+        // Процент с изменением больше Long.MAX_VALUE / 10000 считается через BigDecimal
+        assertMatchesMinute(price("0.000000001"), max, price("0.000000001"), max);
+        assertMatchesMinute(-max, 0, -max, -price("0.5"));
+    }
+
+    @Test
+    @DisplayName("Маппер сохраняет объем у границы long и статистику как у BigDecimal-расчета")
+    void toEntity_ShouldKeepLargeVolume() {
+        long open = price("310.5");
+        long high = price("311");
+        long low = price("309.999999999");
+        long close = price("310.505");
+
+        MinuteCandleEntity entity = MinuteCandleMapper.toEntity("FIGI", TIME.getEpochSecond(), open, high, low, close,
+            Long.MAX_VALUE, true, TradingSessionCalendar.EMPTY);
+        MinuteCandleEntity expected = minuteReference(open, high, low, close);
+
+        assertEquals(Long.MAX_VALUE, entity.getVolume());
+        assertEquals(expected.getPriceChangePercent(), entity.getPriceChangePercent());
+        assertEquals(expected.getAveragePrice(), entity.getAveragePrice());
+    }
+
+    @Test
+    @DisplayName("Случайные свечи, включая отрицательные цены, совпадают с BigDecimal-расчетом")
+    void minuteAndDaily_ShouldMatchReference_ForRandomCandles() {
+        Random random = new Random(20240603L);
+        for (int i = 0; i < 10_000; i++) {
+            long base = random.nextLong(-price("1000"), price("100000"));
+            long open = base + random.nextLong(-price("5"), price("5"));
+            long close = base + random.nextLong(-price("5"), price("5"));
+            long high = Math.max(open, close) + random.nextLong(0, price("3"));
+            long low = Math.min(open, close) - random.nextLong(0, price("3"));
+            assertMatchesMinute(open, high, low, close);
+            assertMatchesDaily(open, high, low, close);
+        }
+    }
+}
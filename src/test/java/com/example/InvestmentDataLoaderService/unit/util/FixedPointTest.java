@@ -0,0 +1,125 @@
+package com.example.InvestmentDataLoaderService.unit.util;
+
+import com.example.InvestmentDataLoaderService.util.FixedPoint;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Цены с фиксированной точкой: преобразование Quotation и деление HALF_UP против BigDecimal
+ */
+@Epic("Candles Minute Service")
+@Feature("Fixed Point")
+@DisplayName("Fixed Point Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("util")
+public class FixedPointTest {
+
+    private static Quotation quotation(long units, int nano) {
+        return Quotation.newBuilder().setUnits(units).setNano(nano).build();
+    }
+
+    /**
+     * Эталон из прежней конвертации ответа API
+     */
+    private static BigDecimal reference(Quotation quotation) {
+        return BigDecimal.valueOf(quotation.getUnits()).add(BigDecimal.valueOf(quotation.getNano()).movePointLeft(9));
+    }
+
+    @ParameterizedTest(name = "units={0} nano={1}")
+    @CsvSource({
+        "0, 0",
+        "250, 750000000",
+        "0, 1",
+        "-1, -500000000",
+        "0, -1",
+        "-250, 0",
+        "9223372035, 999999999",
+        "-9223372035, -999999999"
+    })
+    @DisplayName("Quotation -> long -> BigDecimal совпадает с units + nano / 1e9")
+    void of_ShouldMatchReference(long units, int nano) {
+        Quotation quotation = quotation(units, nano);
+        BigDecimal expected = reference(quotation);
+
+        assertEquals(0, expected.compareTo(FixedPoint.toBigDecimal(FixedPoint.of(quotation))));
+        assertEquals(0, expected.compareTo(FixedPoint.toBigDecimal(quotation)));
+        assertEquals(FixedPoint.SCALE, FixedPoint.toBigDecimal(quotation).scale());
+    }
+
+    @Test
+    @DisplayName("Quotation вне диапазона long: of бросает ArithmeticException, toBigDecimal считает точно")
+    void of_ShouldThrow_WhenOutOfRange() {
+        Quotation huge = quotation(Long.MAX_VALUE / 1000, 999_999_999);
+        Quotation hugeNegative = quotation(-Long.MAX_VALUE / 1000, -1);
+
+        assertThrows(ArithmeticException.class, () -> FixedPoint.of(huge));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.of(hugeNegative));
+        assertEquals(0, reference(huge).compareTo(FixedPoint.toBigDecimal(huge)));
+        assertEquals(0, reference(hugeNegative).compareTo(FixedPoint.toBigDecimal(hugeNegative)));
+    }
+
+    @ParameterizedTest(name = "{0} / {1}")
+    @CsvSource({
+        "5, 2",
+        "-5, 2",
+        "4, 2",
+        "7, 3",
+        "-7, 3",
+        "8, 3",
+        "-8, 3",
+        "1, 2",
+        "-1, 2",
+        "0, 7",
+        "9223372036854775807, 2",
+        "-9223372036854775807, 2",
+        "9223372036854775807, 9223372036854775807"
+    })
+    @DisplayName("divideHalfUp совпадает с BigDecimal.divide(HALF_UP), половина округляется от нуля")
+    void divideHalfUp_ShouldMatchBigDecimal(long dividend, long divisor) {
+        long expected = BigDecimal.valueOf(dividend)
+            .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+            .longValueExact();
+
+        assertEquals(expected, FixedPoint.divideHalfUp(dividend, divisor));
+    }
+
+    @Test
+    @DisplayName("divideHalfUp на границе половины с точностью до единицы")
+    void divideHalfUp_ShouldRoundAtExactHalf() {
+        long divisor = 10_000_000L;
+        assertEquals(1, FixedPoint.divideHalfUp(divisor / 2, divisor));
+        assertEquals(0, FixedPoint.divideHalfUp(divisor / 2 - 1, divisor));
+        assertEquals(-1, FixedPoint.divideHalfUp(-divisor / 2, divisor));
+        assertEquals(0, FixedPoint.divideHalfUp(-divisor / 2 + 1, divisor));
+    }
+
+    @Test
+    @DisplayName("Случайные делимые и делители совпадают с BigDecimal")
+    void divideHalfUp_ShouldMatchBigDecimal_ForRandomValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long dividend = random.nextLong();
+            long divisor = 1 + random.nextLong(i % 2 == 0 ? 1_000 : Long.MAX_VALUE - 1);
+            long expected = BigDecimal.valueOf(dividend)
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+            assertEquals(expected, FixedPoint.divideHalfUp(dividend, divisor), dividend + " / " + divisor);
+        }
+    }
+}
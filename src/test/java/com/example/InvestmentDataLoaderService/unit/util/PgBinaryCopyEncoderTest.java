@@ -0,0 +1,226 @@
+package com.example.InvestmentDataLoaderService.unit.util;
+
+import com.example.InvestmentDataLoaderService.util.PgBinaryCopyEncoder;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Байтовое представление полей бинарного COPY: numeric (цифры по основанию 10000, weight,
+ * dscale, знак), timestamptz/timestamp (микросекунды от 2000-01-01), smallint, text
+ */
+@Epic("Bulk Writer")
+@Feature("Pg Binary Copy Encoder")
+@DisplayName("Pg Binary Copy Encoder Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.CRITICAL)
+@Tag("unit")
+@Tag("util")
+public class PgBinaryCopyEncoderTest {
+
+    /** Подпись, флаги и длина расширения заголовка */
+    private static final int HEADER_LENGTH = 11 + 4 + 4;
+    /** Признак конца данных: число колонок -1 */
+    private static final int TRAILER_LENGTH = 2;
+
+    @FunctionalInterface
+    private interface Field {
+        void write(PgBinaryCopyEncoder encoder) throws IOException;
+    }
+
+    /**
+     * Байты одного поля: без заголовка, числа колонок строки и признака конца
+     */
+    private static byte[] encode(Field field) throws IOException {
+        PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(1);
+        encoder.startRow(1);
+        field.write(encoder);
+        byte[] payload = encoder.finish();
+        return Arrays.copyOfRange(payload, HEADER_LENGTH + 2, payload.length - TRAILER_LENGTH);
+    }
+
+    private static String hex(Field field) throws IOException {
+        return HexFormat.of().formatHex(encode(field));
+    }
+
+    /**
+     * Разбор numeric так же, как numeric_recv в PostgreSQL
+     */
+    private static BigDecimal decodeNumeric(byte[] field) {
+        ByteBuffer buffer = ByteBuffer.wrap(field);
+        int length = buffer.getInt();
+        int ndigits = buffer.getShort();
+        int weight = buffer.getShort();
+        int sign = buffer.getShort() & 0xFFFF;
+        int dscale = buffer.getShort();
+        assertEquals(8 + ndigits * 2, length);
+        assertTrue(sign == 0x0000 || sign == 0x4000, "sign " + Integer.toHexString(sign));
+
+        BigDecimal value = BigDecimal.ZERO;
+        int digit = -1;
+        for (int i = 0; i < ndigits; i++) {
+            digit = buffer.getShort();
+            assertTrue(digit >= 0 && digit < 10_000, "digit " + digit);
+            value = value.add(BigDecimal.valueOf(digit).scaleByPowerOfTen(4 * (weight - i)));
+        }
+        assertNotEquals(0, digit, "младшая нулевая группа не передается");
+        assertEquals(0, buffer.remaining());
+        value = value.setScale(dscale);
+        return sign == 0x4000 ? value.negate() : value;
+    }
+
+    @Test
+    @DisplayName("Заголовок PGCOPY и признак конца данных")
+    void finish_ShouldWriteSignatureAndTrailer() throws IOException {
+        byte[] payload = new PgBinaryCopyEncoder(0).finish();
+
+        assertEquals("5047434f50590aff0d0a00" + "00000000" + "00000000" + "ffff", HexFormat.of().formatHex(payload));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+        // длина | ndigits | weight | sign | dscale | цифры
+        "0,                 00000008 0000 0000 0000 0000",
+        "0.000,             00000008 0000 0000 0000 0003",
+        "0E-9,              00000008 0000 0000 0000 0009",
+        "1,                 0000000a 0001 0000 0000 0000 0001",
+        "-1,                0000000a 0001 0000 4000 0000 0001",
+        "10000,             0000000a 0001 0001 0000 0000 0001",
+        "1E+5,              0000000a 0001 0001 0000 0000 000a",
+        "-12345.678,        0000000e 0003 0001 4000 0003 0001 0929 1a7c",
+        "0.0001,            0000000a 0001 ffff 0000 0004 0001",
+        "0.00001,           0000000a 0001 fffe 0000 0005 03e8",
+        "-0.000000001,      0000000a 0001 fffd 4000 0009 03e8",
+        "250.750000000,     0000000c 0002 0000 0000 0009 00fa 1d4c",
+        "99999999.99999999, 00000010 0004 0001 0000 0008 270f 270f 270f 270f"
+    })
+    @DisplayName("numeric: цифры по основанию 10000, weight, знак и dscale как у numeric_send")
+    void writeNumeric_ShouldEncodeBase10000Digits(String value, String expected) throws IOException {
+        assertEquals(expected.replace(" ", ""), hex(encoder -> encoder.writeNumeric(new BigDecimal(value))));
+    }
+
+    @Test
+    @DisplayName("numeric: младшие нулевые группы не передаются, dscale сохраняет масштаб")
+    void writeNumeric_ShouldDropTrailingZeroGroups() throws IOException {
+        byte[] field = encode(encoder -> encoder.writeNumeric(new BigDecimal("1.500000000")));
+        // ndigits = 2: 0001 и 5000, третья группа 0000 не передается
+        assertEquals("0000000c" + "0002" + "0000" + "0000" + "0009" + "0001" + "1388", HexFormat.of().formatHex(field));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {
+        "0", "0.00", "-0.5", "123456789.123456789", "-98765.4321", "0.000000001", "-0.000000001",
+        "100000000", "9223372036.854775807", "-9223372036.854775808", "3.14159265358979323846"
+    })
+    @DisplayName("numeric: разбор как в numeric_recv возвращает исходное значение с тем же масштабом")
+    void writeNumeric_ShouldRoundTrip(String value) throws IOException {
+        BigDecimal original = new BigDecimal(value);
+
+        assertEquals(original, decodeNumeric(encode(encoder -> encoder.writeNumeric(original))));
+    }
+
+    @Test
+    @DisplayName("numeric: случайные значения с масштабом 0..12 и обоими знаками")
+    void writeNumeric_ShouldRoundTrip_ForRandomValues() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            BigDecimal original = new BigDecimal(new BigInteger(random.nextInt(1, 96), random), random.nextInt(0, 13));
+            if (random.nextBoolean()) {
+                original = original.negate();
+            }
+            BigDecimal expected = original;
+            assertEquals(expected, decodeNumeric(encode(encoder -> encoder.writeNumeric(expected))), original.toPlainString());
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+        "2000-01-01T00:00:00Z,            0000000000000000",
+        "2000-01-01T00:00:00.000001Z,     0000000000000001",
+        "2000-01-01T00:00:00.0000019Z,    0000000000000001",
+        "1999-12-31T23:59:59.999999Z,     ffffffffffffffff",
+        "1999-12-31T23:59:59.9999999Z,    ffffffffffffffff",
+        "1970-01-01T00:00:00Z,            fffca2fec4c82000",
+        "1969-12-31T23:59:59.5Z,          fffca2fec4c07ee0",
+        "2024-06-03T07:00:00Z,            0002bcf5a6827c00"
+    })
+    @DisplayName("timestamptz: микросекунды от 2000-01-01 UTC, в том числе до 2000 года и до 1970")
+    void writeTimestamptz_ShouldEncodeMicrosSincePgEpoch(String instant, String micros) throws IOException {
+        assertEquals("00000008" + micros, hex(encoder -> encoder.writeTimestamptz(Instant.parse(instant))));
+    }
+
+    @Test
+    @DisplayName("timestamptz: значения совпадают с разностью микросекунд от эпохи PostgreSQL")
+    void writeTimestamptz_ShouldMatchMicrosArithmetic() throws IOException {
+        Instant pgEpoch = Instant.parse("2000-01-01T00:00:00Z");
+        Instant[] instants = {
+            Instant.parse("1900-01-01T00:00:00Z"),
+            Instant.parse("1999-06-15T12:34:56.789012Z"),
+            Instant.parse("2038-01-19T03:14:08Z")
+        };
+        for (Instant instant : instants) {
+            long expected = Duration.between(pgEpoch, instant).toNanos() / 1_000;
+            ByteBuffer field = ByteBuffer.wrap(encode(encoder -> encoder.writeTimestamptz(instant)));
+            assertEquals(8, field.getInt());
+            assertEquals(expected, field.getLong(), instant.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("timestamp: локальное время кодируется как UTC, в том числе до 2000 года")
+    void writeTimestamp_ShouldEncodeLocalTimeAsUtc() throws IOException {
+        assertEquals("00000008" + "ffffffff296c5c00",
+            hex(encoder -> encoder.writeTimestamp(LocalDateTime.parse("1999-12-31T23:00:00"))));
+        assertEquals("00000008" + "0000000000000000",
+            hex(encoder -> encoder.writeTimestamp(LocalDateTime.parse("2000-01-01T00:00:00"))));
+    }
+
+    @Test
+    @DisplayName("smallint, bigint, boolean, text и NULL")
+    void write_ShouldEncodeScalarTypes() throws IOException {
+        assertEquals("00000002" + "0002", hex(encoder -> encoder.writeShort((short) 2)));
+        assertEquals("00000002" + "fffe", hex(encoder -> encoder.writeShort((short) -2)));
+        assertEquals("ffffffff", hex(encoder -> encoder.writeShort(null)));
+        assertEquals("00000008" + "ffffffffffffffff", hex(encoder -> encoder.writeLong(-1)));
+        assertEquals("00000001" + "01", hex(encoder -> encoder.writeBoolean(true)));
+        assertEquals("00000001" + "00", hex(encoder -> encoder.writeBoolean(false)));
+        assertEquals("00000008" + "d0a1d0b1d0b5d180", hex(encoder -> encoder.writeText("Сбер")));
+        assertEquals("00000000", hex(encoder -> encoder.writeText("")));
+        assertEquals("ffffffff", hex(encoder -> encoder.writeText(null)));
+        assertEquals("ffffffff", hex(encoder -> encoder.writeNumeric(null)));
+        assertEquals("ffffffff", hex(encoder -> encoder.writeTimestamptz(null)));
+        assertEquals("ffffffff", hex(encoder -> encoder.writeTimestamp(null)));
+    }
+
+    @Test
+    @DisplayName("Строка начинается с числа колонок")
+    void startRow_ShouldWriteColumnCount() throws IOException {
+        PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(1);
+        encoder.startRow(2);
+        encoder.writeLong(1);
+        encoder.writeBoolean(true);
+        byte[] payload = encoder.finish();
+
+        assertEquals("0002" + "00000008" + "0000000000000001" + "00000001" + "01" + "ffff",
+            HexFormat.of().formatHex(Arrays.copyOfRange(payload, HEADER_LENGTH, payload.length)));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.InvestmentDataLoaderService.unit.util;
+
+import com.example.InvestmentDataLoaderService.enums.TradingSession;
+import com.example.InvestmentDataLoaderService.util.TradingSessionCalendar;
+
+import io.qameta.allure.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Epic("Candles Minute Service")
+@Feature("Trading Session Calendar")
+@DisplayName("Trading Session Calendar Tests")
+@Owner("Investment Data Loader Service Team")
+@Severity(SeverityLevel.NORMAL)
+@Tag("unit")
+@Tag("util")
+public class TradingSessionCalendarTest {
+
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final String FIGI = "BBG004730N88";
+
+    // 2024-06-03 - понедельник, 2024-06-08 - суббота
+    private static Instant moscow(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(MOSCOW).toInstant();
+    }
+
+    @Test
+    @DisplayName("Стандартное расписание будней")
+    void sessionOf_ShouldFollowWeekdaySchedule_WhenNoSpecialHours() {
+        TradingSessionCalendar calendar = TradingSessionCalendar.EMPTY;
+
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T06:59:00")));
+        assertEquals(TradingSession.MORNING, calendar.sessionOf(FIGI, moscow("2024-06-03T06:59:59")));
+        assertEquals(TradingSession.MORNING, calendar.sessionOf(FIGI, moscow("2024-06-03T09:59:00")));
+        assertEquals(TradingSession.MAIN, calendar.sessionOf(FIGI, moscow("2024-06-03T10:00:00")));
+        assertEquals(TradingSession.MAIN, calendar.sessionOf(FIGI, moscow("2024-06-03T18:59:00")));
+        assertEquals(TradingSession.EVENING, calendar.sessionOf(FIGI, moscow("2024-06-03T19:00:00")));
+        assertEquals(TradingSession.EVENING, calendar.sessionOf(FIGI, moscow("2024-06-03T23:50:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T23:51:00")));
+    }
+
+    @Test
+    @DisplayName("Стандартное расписание выходного дня")
+    void sessionOf_ShouldFollowWeekendSchedule_WhenNoSpecialHours() {
+        TradingSessionCalendar calendar = TradingSessionCalendar.EMPTY;
+
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-08T01:59:00")));
+        assertEquals(TradingSession.WEEKEND_OTC, calendar.sessionOf(FIGI, moscow("2024-06-08T02:00:00")));
+        assertEquals(TradingSession.WEEKEND_EXCHANGE, calendar.sessionOf(FIGI, moscow("2024-06-08T10:00:00")));
+        assertEquals(TradingSession.WEEKEND_OTC, calendar.sessionOf(FIGI, moscow("2024-06-09T19:00:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-09T23:51:00")));
+    }
+
+    @Test
+    @DisplayName("Свечи вне специальных часов инструмента не относятся к сессиям")
+    void sessionOf_ShouldReturnNone_WhenOutsideSpecialHours() {
+        TradingSessionCalendar calendar = TradingSessionCalendar.of(List.of(
+            TradingSessionCalendar.Window.of(FIGI, TradingSessionCalendar.DAY_TYPE_WEEKDAY, 10, 0, 18, 39)));
+
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T09:30:00")));
+        assertEquals(TradingSession.MAIN, calendar.sessionOf(FIGI, moscow("2024-06-03T10:00:00")));
+        // Граница окна включается с точностью до минуты
+        assertEquals(TradingSession.MAIN, calendar.sessionOf(FIGI, moscow("2024-06-03T18:39:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T18:40:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T19:30:00")));
+        // Окно для будней не ограничивает выходные и другие инструменты
+        assertEquals(TradingSession.WEEKEND_OTC, calendar.sessionOf(FIGI, moscow("2024-06-08T19:30:00")));
+        assertEquals(TradingSession.EVENING, calendar.sessionOf("BBG000000001", moscow("2024-06-03T19:30:00")));
+    }
+
+    @Test
+    @DisplayName("Окна типа all применяются в любой день, несколько окон объединяются")
+    void sessionOf_ShouldCombineWindows_WhenSeveralApply() {
+        TradingSessionCalendar calendar = TradingSessionCalendar.of(List.of(
+            TradingSessionCalendar.Window.of(FIGI, TradingSessionCalendar.DAY_TYPE_ALL, 10, 0, 12, 0),
+            TradingSessionCalendar.Window.of(FIGI, TradingSessionCalendar.DAY_TYPE_WEEKEND, 19, 0, 20, 0)));
+
+        assertEquals(TradingSession.MAIN, calendar.sessionOf(FIGI, moscow("2024-06-03T11:00:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-03T19:30:00")));
+        assertEquals(TradingSession.WEEKEND_EXCHANGE, calendar.sessionOf(FIGI, moscow("2024-06-08T11:00:00")));
+        assertEquals(TradingSession.WEEKEND_OTC, calendar.sessionOf(FIGI, moscow("2024-06-08T19:30:00")));
+        assertEquals(TradingSession.NONE, calendar.sessionOf(FIGI, moscow("2024-06-08T15:00:00")));
+        assertEquals(1, calendar.size());
+    }
+
+    @Test
+    @DisplayName("Код сессии совпадает с кодом TradingSession")
+    void sessionCode_ShouldMatchEnumCode() {
+        assertEquals(TradingSession.MAIN.getCode(),
+            TradingSessionCalendar.EMPTY.sessionCode(FIGI, moscow("2024-06-03T12:00:00")));
+    }
+}